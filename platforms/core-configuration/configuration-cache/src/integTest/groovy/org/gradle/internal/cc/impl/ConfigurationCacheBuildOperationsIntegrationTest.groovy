@@ -71,12 +71,16 @@ class ConfigurationCacheBuildOperationsIntegrationTest extends AbstractConfigura
             status == "NOT_FOUND"
             buildInvalidationReasons == []
             projectInvalidationReasons == []
+            checkTimeMillis == 0
+            checkedEntryCount == 0
         }
         with(storeOp.result) {
             cacheEntrySize > 0
         }
         with(loadOp.result) {
             cacheEntrySize == storeOp.result.cacheEntrySize
+            bytesRead > 0
+            decodedObjectCount > 0
         }
         def buildInvocationId = loadOp.result.originBuildInvocationId
 
@@ -89,11 +93,15 @@ class ConfigurationCacheBuildOperationsIntegrationTest extends AbstractConfigura
             status == "VALID"
             buildInvalidationReasons == []
             projectInvalidationReasons == []
+            checkTimeMillis >= 0
+            checkedEntryCount > 0
         }
 
         def loadOpInCcHitBuild = operations.only(ConfigurationCacheLoadBuildOperationType)
         workGraphLoaded()
         loadOpInCcHitBuild.result.originBuildInvocationId == buildInvocationId
+        loadOpInCcHitBuild.result.bytesRead > 0
+        loadOpInCcHitBuild.result.decodedObjectCount > 0
     }
 
     def "emits invalidation reason in the build operation"() {
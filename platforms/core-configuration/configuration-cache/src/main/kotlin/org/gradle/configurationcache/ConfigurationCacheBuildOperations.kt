@@ -17,6 +17,7 @@
 package org.gradle.configurationcache
 
 import org.gradle.internal.cc.impl.CheckedFingerprint
+import org.gradle.internal.cc.impl.fingerprint.FingerprintCheckStatistics
 import org.gradle.internal.configuration.problems.StructuredMessage
 import org.gradle.internal.configurationcache.ConfigurationCacheLoadBuildOperationType
 import org.gradle.internal.configurationcache.ConfigurationCacheStoreBuildOperationType
@@ -32,6 +33,7 @@ import org.gradle.operations.configuration.ConfigurationCacheCheckFingerprintBui
 import org.gradle.operations.configuration.ConfigurationCacheCheckFingerprintBuildOperationType.ProjectInvalidationReasons
 import org.gradle.util.Path
 import java.io.File
+import java.util.concurrent.TimeUnit
 
 
 internal
@@ -72,12 +74,21 @@ object LoadDetails : ConfigurationCacheLoadBuildOperationType.Details
 
 
 internal
-data class LoadResult(val stateFiles: List<File>, val originInvocationId: String? = null) : ConfigurationCacheLoadBuildOperationType.Result {
+data class LoadResult(
+    val stateFiles: List<File>,
+    val originInvocationId: String? = null,
+    val bytesRead: Long = 0,
+    val decodedObjectCount: Long = 0
+) : ConfigurationCacheLoadBuildOperationType.Result {
     override fun getCacheEntrySize(): Long = stateFiles.asSequence()
         .filter { it.isFile }
         .sumOf { it.length() }
 
     override fun getOriginBuildInvocationId(): String? = originInvocationId
+
+    override fun getBytesRead(): Long = bytesRead
+
+    override fun getDecodedObjectCount(): Long = decodedObjectCount
 }
 
 
@@ -94,15 +105,18 @@ data class StoreResult(val stateFiles: List<File>, val storeFailure: Throwable?)
 
 
 internal
-fun BuildOperationRunner.withFingerprintCheckOperations(block: () -> CheckedFingerprint): CheckedFingerprint {
+fun BuildOperationRunner.withFingerprintCheckOperations(block: (FingerprintCheckStatistics) -> CheckedFingerprint): CheckedFingerprint {
     return call(object : CallableBuildOperation<CheckedFingerprint> {
         override fun description() = BuildOperationDescriptor
             .displayName("Check configuration cache fingerprint")
             .details(FingerprintCheckDetails)
 
         override fun call(context: BuildOperationContext): CheckedFingerprint {
-            return block().also {
-                context.setResult(FingerprintCheckResult(it))
+            val statistics = FingerprintCheckStatistics()
+            val startTime = System.nanoTime()
+            return block(statistics).also {
+                val checkTimeMillis = if (it is CheckedFingerprint.NotFound) 0 else TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime)
+                context.setResult(FingerprintCheckResult(it, checkTimeMillis, statistics.checkedEntryCount))
             }
         }
     })
@@ -115,9 +129,15 @@ object FingerprintCheckDetails : ConfigurationCacheCheckFingerprintBuildOperatio
 
 private
 class FingerprintCheckResult(
-    private val checkResult: CheckedFingerprint
+    private val checkResult: CheckedFingerprint,
+    private val checkTimeMillis: Long,
+    private val checkedEntryCount: Int
 ) : ConfigurationCacheCheckFingerprintBuildOperationType.Result {
 
+    override fun getCheckTimeMillis(): Long = checkTimeMillis
+
+    override fun getCheckedEntryCount(): Int = checkedEntryCount
+
     override fun getStatus(): CheckStatus = when (checkResult) {
         is CheckedFingerprint.NotFound -> CheckStatus.NOT_FOUND
         is CheckedFingerprint.Valid -> CheckStatus.VALID
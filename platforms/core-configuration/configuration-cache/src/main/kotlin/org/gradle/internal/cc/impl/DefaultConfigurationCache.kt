@@ -38,7 +38,9 @@ import org.gradle.internal.cc.base.serialize.IsolateOwners
 import org.gradle.internal.cc.base.serialize.service
 import org.gradle.internal.cc.impl.cacheentry.EntryDetails
 import org.gradle.internal.cc.impl.fingerprint.ConfigurationCacheFingerprintController
+import org.gradle.internal.cc.impl.fingerprint.FingerprintCheckStatistics
 import org.gradle.internal.cc.impl.initialization.ConfigurationCacheStartParameter
+import org.gradle.internal.cc.impl.io.ConfigurationCacheReadStatistics
 import org.gradle.internal.cc.impl.metadata.ProjectMetadataController
 import org.gradle.internal.cc.impl.models.BuildTreeModelSideEffectStore
 import org.gradle.internal.cc.impl.models.IntermediateModelController
@@ -91,7 +93,8 @@ class DefaultConfigurationCache internal constructor(
     private val fileSystemAccess: FileSystemAccess,
     private val calculatedValueContainerFactory: CalculatedValueContainerFactory,
     private val modelSideEffectExecutor: ConfigurationCacheBuildTreeModelSideEffectExecutor,
-    private val deferredRootBuildGradle: DeferredRootBuildGradle
+    private val deferredRootBuildGradle: DeferredRootBuildGradle,
+    private val readStatistics: ConfigurationCacheReadStatistics
 ) : BuildTreeConfigurationCache, Stoppable {
 
     private
@@ -374,12 +377,12 @@ class DefaultConfigurationCache internal constructor(
         return store.useForStateLoad { layout ->
             val entryFile = layout.fileFor(StateType.Entry)
             val entryDetails = cacheIO.readCacheEntryDetailsFrom(entryFile)
-            buildOperationRunner.withFingerprintCheckOperations {
+            buildOperationRunner.withFingerprintCheckOperations { statistics ->
                 if (entryDetails == null) {
                     // No entry file -> treat the entry as empty/missing/invalid
                     CheckedFingerprint.NotFound
                 } else {
-                    checkFingerprint(entryDetails, layout)
+                    checkFingerprint(entryDetails, layout, statistics)
                 }
             }
         }.value
@@ -479,9 +482,16 @@ class DefaultConfigurationCache internal constructor(
         scopeRegistryListener.dispose()
 
         val result = buildOperationRunner.withLoadOperation {
+            val statisticsBeforeLoad = readStatistics.snapshot()
             val storeLoadResult = store.useForStateLoad(stateType, action)
             val (intermediateLoadResult, actionResult) = storeLoadResult.value
-            LoadResult(storeLoadResult.accessedFiles, intermediateLoadResult.originInvocationId) to actionResult
+            val loadStatistics = readStatistics.snapshot() - statisticsBeforeLoad
+            LoadResult(
+                storeLoadResult.accessedFiles,
+                intermediateLoadResult.originInvocationId,
+                loadStatistics.bytesRead,
+                loadStatistics.decodedObjects
+            ) to actionResult
         }
         crossConfigurationTimeBarrier()
         return result
@@ -547,7 +557,7 @@ class DefaultConfigurationCache internal constructor(
     }
 
     private
-    fun checkFingerprint(entryDetails: EntryDetails, layout: ConfigurationCacheRepository.Layout): CheckedFingerprint {
+    fun checkFingerprint(entryDetails: EntryDetails, layout: ConfigurationCacheRepository.Layout, statistics: FingerprintCheckStatistics): CheckedFingerprint {
         // Register all included build root directories as watchable hierarchies,
         // so we can load the fingerprint for build scripts and other files from included builds
         // without violating file system invariants.
@@ -555,7 +565,7 @@ class DefaultConfigurationCache internal constructor(
 
         loadGradleProperties()
 
-        return checkFingerprintAgainstLoadedProperties(entryDetails, layout).also { result ->
+        return checkFingerprintAgainstLoadedProperties(entryDetails, layout, statistics).also { result ->
             if (result !== CheckedFingerprint.Valid) {
                 // Force Gradle properties to be reloaded so the Gradle properties files
                 // along with any Gradle property defining system properties and environment variables
@@ -566,8 +576,8 @@ class DefaultConfigurationCache internal constructor(
     }
 
     private
-    fun checkFingerprintAgainstLoadedProperties(entryDetails: EntryDetails, layout: ConfigurationCacheRepository.Layout): CheckedFingerprint {
-        val result = checkBuildScopedFingerprint(layout.fileFor(StateType.BuildFingerprint))
+    fun checkFingerprintAgainstLoadedProperties(entryDetails: EntryDetails, layout: ConfigurationCacheRepository.Layout, statistics: FingerprintCheckStatistics): CheckedFingerprint {
+        val result = checkBuildScopedFingerprint(layout.fileFor(StateType.BuildFingerprint), statistics)
         if (result !is CheckedFingerprint.Valid) {
             return result
         }
@@ -589,10 +599,10 @@ class DefaultConfigurationCache internal constructor(
     }
 
     private
-    fun checkBuildScopedFingerprint(fingerprintFile: ConfigurationCacheStateFile): CheckedFingerprint {
+    fun checkBuildScopedFingerprint(fingerprintFile: ConfigurationCacheStateFile, statistics: FingerprintCheckStatistics): CheckedFingerprint {
         return readFingerprintFile(fingerprintFile) { host ->
             cacheFingerprintController.run {
-                checkBuildScopedFingerprint(host)
+                checkBuildScopedFingerprint(host, statistics)
             }
         }
     }
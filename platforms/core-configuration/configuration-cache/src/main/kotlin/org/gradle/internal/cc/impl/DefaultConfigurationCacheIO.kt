@@ -30,6 +30,8 @@ import org.gradle.internal.cc.base.serialize.withGradleIsolate
 import org.gradle.internal.cc.impl.cacheentry.EntryDetails
 import org.gradle.internal.cc.impl.cacheentry.ModelKey
 import org.gradle.internal.cc.impl.initialization.ConfigurationCacheStartParameter
+import org.gradle.internal.cc.impl.io.BufferPool
+import org.gradle.internal.cc.impl.io.ConfigurationCacheReadStatistics
 import org.gradle.internal.cc.impl.io.safeWrap
 import org.gradle.internal.cc.impl.problems.ConfigurationCacheProblems
 import org.gradle.internal.cc.impl.serialize.Codecs
@@ -90,6 +92,13 @@ import java.io.InputStream
 import java.io.OutputStream
 
 
+/**
+ * Size of the read-ahead and write buffers of state files, large enough to keep the number of reads and writes per file low.
+ */
+private
+const val STATE_FILE_BUFFER_SIZE = 64 * 1024
+
+
 @ServiceScope(Scope.Build::class)
 internal
 class DefaultConfigurationCacheIO internal constructor(
@@ -101,7 +110,8 @@ class DefaultConfigurationCacheIO internal constructor(
     private val eventEmitter: BuildOperationProgressEventEmitter,
     private val classLoaderScopeRegistryListener: ConfigurationCacheClassLoaderScopeRegistryListener,
     private val classLoaderScopeRegistry: ClassLoaderScopeRegistry,
-    private val instantiatorFactory: InstantiatorFactory
+    private val instantiatorFactory: InstantiatorFactory,
+    private val readStatistics: ConfigurationCacheReadStatistics
 ) : ConfigurationCacheBuildTreeIO, ConfigurationCacheIncludedBuildIO {
 
     private
@@ -110,6 +120,9 @@ class DefaultConfigurationCacheIO internal constructor(
     private
     val encryptionService by lazy { service<EncryptionService>() }
 
+    private
+    val stateFileBuffers = BufferPool(STATE_FILE_BUFFER_SIZE, Runtime.getRuntime().availableProcessors())
+
     override fun writeCacheEntryDetailsTo(
         buildStateRegistry: BuildStateRegistry,
         intermediateModels: Map<ModelKey, BlockAddress>,
@@ -395,16 +408,16 @@ class DefaultConfigurationCacheIO internal constructor(
 
     private
     fun encoderFor(stateType: StateType, outputStream: () -> OutputStream): PositionAwareEncoder =
-        outputStreamFor(stateType, outputStream).let { stream ->
-            if (isUsingSequentialStringDeduplicationStrategy(stateType)) StringDeduplicatingKryoBackedEncoder(stream)
-            else KryoBackedEncoder(stream)
+        stateFileBuffers.withBuffer(outputStreamFor(stateType, outputStream)) { stream, buffer ->
+            if (isUsingSequentialStringDeduplicationStrategy(stateType)) StringDeduplicatingKryoBackedEncoder(stream, buffer)
+            else KryoBackedEncoder(stream, buffer)
         }
 
     private
     fun decoderFor(stateType: StateType, inputStream: () -> InputStream): Decoder =
-        inputStreamFor(stateType, inputStream).let { stream ->
-            if (isUsingSequentialStringDeduplicationStrategy(stateType)) StringDeduplicatingKryoBackedDecoder(stream)
-            else KryoBackedDecoder(stream)
+        stateFileBuffers.withBuffer(inputStreamFor(stateType, inputStream)) { stream, buffer ->
+            if (isUsingSequentialStringDeduplicationStrategy(stateType)) StringDeduplicatingKryoBackedDecoder(stream, buffer)
+            else KryoBackedDecoder(stream, buffer)
         }
 
     private
@@ -413,7 +426,7 @@ class DefaultConfigurationCacheIO internal constructor(
 
     private
     fun inputStreamFor(stateType: StateType, inputStream: () -> InputStream) =
-        maybeEncrypt(stateType, inputStream, encryptionService::inputStream)
+        maybeEncrypt(stateType, { readStatistics.countingBytesOf(inputStream()) }, encryptionService::inputStream)
 
     private
     fun <I : Closeable, O : I> maybeEncrypt(stateType: StateType, inner: () -> I, outer: (I) -> O): I =
@@ -565,7 +578,8 @@ class DefaultConfigurationCacheIO internal constructor(
         problems,
         classDecoder(),
         stringDecoder,
-        sharedObjectDecoder
+        sharedObjectDecoder,
+        readStatistics.decodedObjects
     )
 
     private
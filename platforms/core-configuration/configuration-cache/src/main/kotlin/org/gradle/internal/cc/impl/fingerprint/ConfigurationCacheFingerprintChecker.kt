@@ -45,8 +45,24 @@ internal
 typealias InvalidationReason = StructuredMessage
 
 
+private
+const val INPUT_FILE_BATCH_SIZE = 1024
+
+
+/**
+ * Counts what a fingerprint check did, for the fingerprint check build operation.
+ */
+internal
+class FingerprintCheckStatistics {
+    var checkedEntryCount = 0
+}
+
+
 internal
-class ConfigurationCacheFingerprintChecker(private val host: Host) {
+class ConfigurationCacheFingerprintChecker(
+    private val host: Host,
+    private val statistics: FingerprintCheckStatistics = FingerprintCheckStatistics()
+) {
 
     interface Host {
         val buildPath: Path
@@ -68,14 +84,43 @@ class ConfigurationCacheFingerprintChecker(private val host: Host) {
         fun displayNameOf(fileOrDirectory: File): String
         fun instantiateValueSourceOf(obtainedValue: ObtainedValue): ValueSource<Any, ValueSourceParameters>
         fun isRemoteScriptUpToDate(uri: URI): Boolean
+
+        /**
+         * Snapshots the given files concurrently, so that checking them one after another only queries the virtual file system.
+         */
+        fun snapshotConcurrently(files: List<File>)
     }
 
     suspend fun ReadContext.checkBuildScopedFingerprint(): CheckedFingerprint {
-        // TODO: log some debug info
+        // Consecutive input files are hashed as a batch, then checked in order so that the first out-of-date input is still the one reported
+        val pendingInputFiles = ArrayList<ConfigurationCacheFingerprint.InputFile>(INPUT_FILE_BATCH_SIZE)
         while (true) {
-            when (val input = read()) {
+            val input = try {
+                read()
+            } catch (e: Exception) {
+                // Checking the inputs one at a time would have stopped at an out-of-date input file before reading further
+                checkInputFiles(pendingInputFiles)?.let { reason ->
+                    return CheckedFingerprint.EntryInvalid(host.buildPath, reason)
+                }
+                throw e
+            }
+            when (input) {
                 null -> break
+                is ConfigurationCacheFingerprint.InputFile -> {
+                    statistics.checkedEntryCount++
+                    pendingInputFiles.add(input)
+                    if (pendingInputFiles.size == INPUT_FILE_BATCH_SIZE) {
+                        checkInputFiles(pendingInputFiles)?.let { reason ->
+                            return CheckedFingerprint.EntryInvalid(host.buildPath, reason)
+                        }
+                    }
+                }
+
                 is ConfigurationCacheFingerprint -> {
+                    statistics.checkedEntryCount++
+                    checkInputFiles(pendingInputFiles)?.let { reason ->
+                        return CheckedFingerprint.EntryInvalid(host.buildPath, reason)
+                    }
                     // An input that is not specific to a project. If it is out-of-date, then invalidate the whole cache entry and skip any further checks
                     val reason = check(input)
                     if (reason != null) {
@@ -86,9 +131,30 @@ class ConfigurationCacheFingerprintChecker(private val host: Host) {
                 else -> error("Unexpected configuration cache fingerprint: $input")
             }
         }
+        checkInputFiles(pendingInputFiles)?.let { reason ->
+            return CheckedFingerprint.EntryInvalid(host.buildPath, reason)
+        }
         return CheckedFingerprint.Valid
     }
 
+    /**
+     * Checks the given input files in order and clears the list.
+     */
+    private
+    fun checkInputFiles(inputFiles: MutableList<ConfigurationCacheFingerprint.InputFile>): InvalidationReason? {
+        if (inputFiles.isEmpty()) {
+            return null
+        }
+        try {
+            if (inputFiles.size > 1) {
+                host.snapshotConcurrently(inputFiles.map { it.file })
+            }
+            return inputFiles.firstNotNullOfOrNull { check(it) }
+        } finally {
+            inputFiles.clear()
+        }
+    }
+
     @Suppress("NestedBlockDepth")
     suspend fun ReadContext.checkProjectScopedFingerprint(): CheckedFingerprint {
         // TODO: log some debug info
@@ -34,6 +34,7 @@ import org.gradle.internal.cc.impl.ProjectIdentityPath
 import org.gradle.internal.cc.impl.initialization.ConfigurationCacheStartParameter
 import org.gradle.internal.cc.impl.problems.ConfigurationCacheProblems
 import org.gradle.internal.cc.impl.services.RemoteScriptUpToDateChecker
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.concurrent.Stoppable
 import org.gradle.internal.configuration.problems.CommonReport
 import org.gradle.internal.configuration.problems.DocumentationSection
@@ -69,6 +70,7 @@ import org.gradle.util.internal.GFileUtils
 import java.io.File
 import java.net.URI
 import java.nio.file.Files
+import java.util.concurrent.Callable
 import java.util.function.Supplier
 
 
@@ -98,7 +100,8 @@ class ConfigurationCacheFingerprintController internal constructor(
     private val agentStatus: AgentStatus,
     private val problems: ConfigurationCacheProblems,
     private val encryptionService: EncryptionService,
-    private val configurationTimeBarrier: ConfigurationTimeBarrier
+    private val configurationTimeBarrier: ConfigurationTimeBarrier,
+    private val executorFactory: ExecutorFactory
 ) : Stoppable, ProjectScopedScriptResolution {
 
     interface Host {
@@ -344,12 +347,20 @@ class ConfigurationCacheFingerprintController internal constructor(
         return writingState.runCollectingFingerprintForProject(project, action)
     }
 
+    private
+    val fileSnapshotExecutor = lazy {
+        executorFactory.create("Configuration cache fingerprint check", Runtime.getRuntime().availableProcessors())
+    }
+
     override fun stop() {
         writingState = writingState.dispose()
+        if (fileSnapshotExecutor.isInitialized()) {
+            fileSnapshotExecutor.value.stop()
+        }
     }
 
-    suspend fun ReadContext.checkBuildScopedFingerprint(host: Host): CheckedFingerprint =
-        ConfigurationCacheFingerprintChecker(CacheFingerprintCheckerHost(host)).run {
+    suspend fun ReadContext.checkBuildScopedFingerprint(host: Host, statistics: FingerprintCheckStatistics): CheckedFingerprint =
+        ConfigurationCacheFingerprintChecker(CacheFingerprintCheckerHost(host), statistics).run {
             checkBuildScopedFingerprint()
         }
 
@@ -519,6 +530,11 @@ class ConfigurationCacheFingerprintController internal constructor(
 
         override fun isRemoteScriptUpToDate(uri: URI): Boolean =
             remoteScriptUpToDateChecker.isUpToDate(uri)
+
+        override fun snapshotConcurrently(files: List<File>) {
+            // Failures are ignored here, the files are read again when checked
+            fileSnapshotExecutor.value.invokeAll(files.map { file -> Callable { fileSystemAccess.read(file.absolutePath) } })
+        }
     }
 
     private
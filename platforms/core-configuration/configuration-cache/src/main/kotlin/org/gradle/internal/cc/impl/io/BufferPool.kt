@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.io
+
+import java.io.FilterInputStream
+import java.io.FilterOutputStream
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.ArrayBlockingQueue
+
+
+/**
+ * A bounded pool of equally sized buffers for the encoders and decoders of state files.
+ *
+ * The work graph is stored and loaded with one encoder or decoder per project, often in parallel,
+ * so a buffer is returned to the pool when its state file is closed and reused for the next one.
+ *
+ * The pool is owned by the build scoped [org.gradle.internal.cc.impl.DefaultConfigurationCacheIO],
+ * so buffers are only reused across the state files of a single build and are not kept between builds.
+ */
+internal
+class BufferPool(
+    private val bufferSize: Int,
+    maxPooledBuffers: Int
+) {
+    private
+    val buffers = ArrayBlockingQueue<ByteArray>(maxPooledBuffers)
+
+    /**
+     * Creates a value that writes to [stream] through a pooled buffer, which is released when the stream passed to [factory] is closed.
+     */
+    fun <T> withBuffer(stream: OutputStream, factory: (OutputStream, ByteArray) -> T): T {
+        val buffer = acquire()
+        return factory(ReleasingOutputStream(stream, buffer), buffer)
+    }
+
+    /**
+     * Creates a value that reads from [stream] through a pooled buffer, which is released when the stream passed to [factory] is closed.
+     */
+    fun <T> withBuffer(stream: InputStream, factory: (InputStream, ByteArray) -> T): T {
+        val buffer = acquire()
+        return factory(ReleasingInputStream(stream, buffer), buffer)
+    }
+
+    private
+    fun acquire(): ByteArray =
+        buffers.poll() ?: ByteArray(bufferSize)
+
+    private
+    fun release(buffer: ByteArray) {
+        // The buffer is dropped when the pool is full
+        buffers.offer(buffer)
+    }
+
+    private
+    inner class ReleasingOutputStream(stream: OutputStream, private val buffer: ByteArray) : FilterOutputStream(stream) {
+
+        private
+        var closed = false
+
+        override fun write(b: ByteArray, off: Int, len: Int) {
+            out.write(b, off, len)
+        }
+
+        override fun close() {
+            if (closed) {
+                return
+            }
+            closed = true
+            try {
+                super.close()
+            } finally {
+                release(buffer)
+            }
+        }
+    }
+
+    private
+    inner class ReleasingInputStream(stream: InputStream, private val buffer: ByteArray) : FilterInputStream(stream) {
+
+        private
+        var closed = false
+
+        override fun close() {
+            if (closed) {
+                return
+            }
+            closed = true
+            try {
+                super.close()
+            } finally {
+                release(buffer)
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.io
+
+import org.gradle.internal.service.scopes.Scope
+import org.gradle.internal.service.scopes.ServiceScope
+import java.io.FilterInputStream
+import java.io.InputStream
+import java.util.concurrent.atomic.LongAdder
+
+
+/**
+ * Counts the bytes read from the state files of the configuration cache and the objects decoded from them, across all builds of the build tree.
+ *
+ * State files are read concurrently, so the counters are updated from many threads.
+ * The configuration cache load build operation reports what was counted while it ran.
+ */
+@ServiceScope(Scope.BuildTree::class)
+internal
+class ConfigurationCacheReadStatistics {
+
+    private
+    val bytesRead = LongAdder()
+
+    /**
+     * Incremented by the read contexts of the configuration cache for each object they decode.
+     */
+    val decodedObjects = LongAdder()
+
+    fun snapshot(): Snapshot =
+        Snapshot(bytesRead.sum(), decodedObjects.sum())
+
+    /**
+     * Returns a stream that counts the bytes read from the given state file stream.
+     */
+    fun countingBytesOf(stream: InputStream): InputStream =
+        CountingInputStream(stream)
+
+    data class Snapshot(val bytesRead: Long, val decodedObjects: Long) {
+        operator fun minus(other: Snapshot) =
+            Snapshot(bytesRead - other.bytesRead, decodedObjects - other.decodedObjects)
+    }
+
+    private
+    inner class CountingInputStream(stream: InputStream) : FilterInputStream(stream) {
+
+        override fun read(): Int =
+            `in`.read().also { b ->
+                if (b >= 0) {
+                    bytesRead.increment()
+                }
+            }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int =
+            `in`.read(b, off, len).also { count ->
+                if (count > 0) {
+                    bytesRead.add(count.toLong())
+                }
+            }
+    }
+}
@@ -19,6 +19,7 @@ package org.gradle.internal.cc.impl.fingerprint
 import com.nhaarman.mockitokotlin2.any
 import com.nhaarman.mockitokotlin2.doReturn
 import com.nhaarman.mockitokotlin2.mock
+import com.nhaarman.mockitokotlin2.verify
 import org.gradle.api.Describable
 import org.gradle.api.logging.Logger
 import org.gradle.api.provider.ValueSource
@@ -49,6 +50,7 @@ import org.gradle.internal.serialize.graph.runReadOperation
 import org.gradle.internal.serialize.graph.runWriteOperation
 import org.gradle.util.Path
 import org.hamcrest.CoreMatchers.equalTo
+import org.hamcrest.CoreMatchers.nullValue
 import org.hamcrest.MatcherAssert.assertThat
 import org.junit.Test
 import java.io.File
@@ -223,6 +225,49 @@ class ConfigurationCacheFingerprintCheckerTest {
         )
     }
 
+    @Test
+    fun `first changed build input file is reported when input files are snapshotted together`() {
+        val inputFiles = (1..4).map { File("input$it.txt") }
+        val changedFiles = inputFiles.subList(1, 3)
+        val host = mock<ConfigurationCacheFingerprintChecker.Host> {
+            on { hashCodeAndTypeOf(any()) }.then { invocation ->
+                val hash = if (invocation.getArgument<File>(0) in changedFiles) 2 else 1
+                TestHashCodes.hashCodeFrom(hash) to FileType.RegularFile
+            }
+            on { displayNameOf(any()) }.then { invocation ->
+                invocation.getArgument<File>(0).name
+            }
+            on { buildPath } doReturn Path.ROOT
+        }
+        assertThat(
+            checkFingerprintGiven(
+                host,
+                *inputFiles.map { ConfigurationCacheFingerprint.InputFile(it, TestHashCodes.hashCodeFrom(1)) }.toTypedArray()
+            ),
+            equalTo("file 'input2.txt' has changed")
+        )
+        verify(host).snapshotConcurrently(inputFiles)
+    }
+
+    @Test
+    fun `counts the checked build inputs`() {
+        val inputFiles = (1..3).map { File("input$it.txt") }
+        val host = mock<ConfigurationCacheFingerprintChecker.Host> {
+            on { hashCodeAndTypeOf(any()) } doReturn (TestHashCodes.hashCodeFrom(1) to FileType.RegularFile)
+            on { buildPath } doReturn Path.ROOT
+        }
+        val statistics = FingerprintCheckStatistics()
+        assertThat(
+            checkFingerprintGiven(
+                host,
+                *inputFiles.map { ConfigurationCacheFingerprint.InputFile(it, TestHashCodes.hashCodeFrom(1)) }.toTypedArray(),
+                statistics = statistics
+            ),
+            nullValue()
+        )
+        assertThat(statistics.checkedEntryCount, equalTo(3))
+    }
+
     @Test
     fun `build input file system entry has been removed`() {
         val inputFile = File("input.txt")
@@ -292,16 +337,17 @@ class ConfigurationCacheFingerprintCheckerTest {
     private
     fun checkFingerprintGiven(
         host: ConfigurationCacheFingerprintChecker.Host,
-        fingerprint: ConfigurationCacheFingerprint
+        vararg fingerprints: ConfigurationCacheFingerprint,
+        statistics: FingerprintCheckStatistics = FingerprintCheckStatistics()
     ): String? {
 
         val readContext = recordWritingOf {
-            write(fingerprint)
+            fingerprints.forEach { write(it) }
             write(null)
         }
 
         val checkedFingerprint = readContext.runReadOperation {
-            ConfigurationCacheFingerprintChecker(host).run {
+            ConfigurationCacheFingerprintChecker(host, statistics).run {
                 checkBuildScopedFingerprint()
             }
         }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.io
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotSame
+import org.junit.Assert.assertSame
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.Closeable
+import java.util.Collections
+import java.util.IdentityHashMap
+
+
+class BufferPoolTest {
+
+    @Test
+    fun `buffer is reused once its stream is closed`() {
+        val pool = BufferPool(16, 2)
+
+        val (first, firstBuffer) = pool.openOutput()
+        first.close()
+        val (_, secondBuffer) = pool.openInput()
+
+        assertSame(firstBuffer, secondBuffer)
+    }
+
+    @Test
+    fun `closing a stream twice returns its buffer once`() {
+        val pool = BufferPool(16, 2)
+
+        val (stream, buffer) = pool.openOutput()
+        stream.close()
+        stream.close()
+        val (_, secondBuffer) = pool.openOutput()
+        val (_, thirdBuffer) = pool.openOutput()
+
+        assertSame(buffer, secondBuffer)
+        assertNotSame(buffer, thirdBuffer)
+    }
+
+    @Test
+    fun `buffers beyond the bound are dropped`() {
+        val pool = BufferPool(16, 1)
+
+        val (first, firstBuffer) = pool.openOutput()
+        val (second, secondBuffer) = pool.openInput()
+        first.close()
+        second.close()
+        val (_, thirdBuffer) = pool.openOutput()
+        val (_, fourthBuffer) = pool.openOutput()
+
+        assertSame(firstBuffer, thirdBuffer)
+        assertNotSame(firstBuffer, fourthBuffer)
+        assertNotSame(secondBuffer, fourthBuffer)
+    }
+
+    @Test
+    fun `buffer is never handed to two live streams`() {
+        val pool = BufferPool(16, 4)
+        val liveBuffers = Collections.newSetFromMap(IdentityHashMap<ByteArray, Boolean>())
+        val liveStreams = ArrayDeque<Pair<Closeable, ByteArray>>()
+
+        repeat(32) { i ->
+            val opened = if (i % 2 == 0) pool.openOutput() else pool.openInput()
+            assertTrue("buffer already in use", liveBuffers.add(opened.second))
+            liveStreams.addLast(opened)
+            if (i % 3 == 2) {
+                // Close the two oldest streams, each of them twice, after every three opened ones
+                repeat(2) {
+                    val (stream, buffer) = liveStreams.removeFirst()
+                    stream.close()
+                    stream.close()
+                    liveBuffers.remove(buffer)
+                }
+            }
+        }
+    }
+
+    @Test
+    fun `buffers have the configured size`() {
+        val pool = BufferPool(16, 1)
+
+        val (_, buffer) = pool.openOutput()
+
+        assertEquals(16, buffer.size)
+    }
+
+    private
+    fun BufferPool.openOutput(): Pair<Closeable, ByteArray> =
+        withBuffer(ByteArrayOutputStream()) { stream, buffer -> stream to buffer }
+
+    private
+    fun BufferPool.openInput(): Pair<Closeable, ByteArray> =
+        withBuffer(ByteArrayInputStream(ByteArray(0))) { stream, buffer -> stream to buffer }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.io
+
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.ByteArrayInputStream
+
+
+class ConfigurationCacheReadStatisticsTest {
+
+    @Test
+    fun `counts the bytes read from all streams`() {
+        val statistics = ConfigurationCacheReadStatistics()
+
+        statistics.countingBytesOf(ByteArrayInputStream(ByteArray(10))).use { stream ->
+            stream.read()
+            stream.read(ByteArray(4))
+        }
+        statistics.countingBytesOf(ByteArrayInputStream(ByteArray(3))).use { stream ->
+            stream.readBytes()
+        }
+
+        assertEquals(8L, statistics.snapshot().bytesRead)
+    }
+
+    @Test
+    fun `difference of snapshots is what was counted in between`() {
+        val statistics = ConfigurationCacheReadStatistics()
+        statistics.countingBytesOf(ByteArrayInputStream(ByteArray(5))).use { it.readBytes() }
+        statistics.decodedObjects.increment()
+        val before = statistics.snapshot()
+
+        statistics.countingBytesOf(ByteArrayInputStream(ByteArray(2))).use { it.readBytes() }
+        statistics.decodedObjects.add(3)
+
+        assertEquals(ConfigurationCacheReadStatistics.Snapshot(2, 3), statistics.snapshot() - before)
+    }
+}
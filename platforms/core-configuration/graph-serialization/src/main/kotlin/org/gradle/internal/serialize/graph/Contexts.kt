@@ -27,6 +27,7 @@ import org.gradle.internal.serialize.Decoder
 import org.gradle.internal.serialize.Encoder
 import org.gradle.internal.service.scopes.Scope
 import org.gradle.internal.service.scopes.ServiceScope
+import java.util.concurrent.atomic.LongAdder
 
 
 @ServiceScope(Scope.BuildTree::class)
@@ -225,7 +226,13 @@ class DefaultReadContext(
 
     val stringDecoder: StringDecoder = InlineStringDecoder,
 
-    val sharedObjectDecoder: SharedObjectDecoder = InlineSharedObjectDecoder
+    val sharedObjectDecoder: SharedObjectDecoder = InlineSharedObjectDecoder,
+
+    /**
+     * Incremented for each object decoded by this context, if set.
+     */
+    private
+    val decodedObjects: LongAdder? = null
 
 ) : AbstractIsolateContext<ReadIsolate>(codec, problemsListener, name), CloseableReadContext, Decoder by decoder {
 
@@ -261,6 +268,7 @@ class DefaultReadContext(
         stringDecoder.readString(decoder)
 
     override suspend fun read(): Any? = getCodec().run {
+        decodedObjects?.increment()
         decode()
     }
 
@@ -16,7 +16,13 @@
 
 package org.gradle.caching.http.internal
 
+import org.gradle.caching.BuildCacheServiceFactory
+import org.gradle.caching.http.HttpBuildCache
+import org.gradle.internal.resource.transport.http.DefaultSslContextFactory
+import org.gradle.internal.resource.transport.http.HttpClientHelper
+import org.gradle.internal.resource.transport.http.HttpSettings
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.SetSystemProperties
 import org.gradle.util.TestUtil
 import org.junit.Rule
 import spock.lang.Specification
@@ -28,7 +34,11 @@ class DefaultHttpBuildCacheServiceFactoryTest extends Specification {
     @Rule
     TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
 
+    @Rule
+    SetSystemProperties systemProperties = new SetSystemProperties()
+
     def objectFactory = TestUtil.objectFactory(tmpDir.testDirectory)
+    def httpClientHelperFactory = Mock(HttpClientHelper.Factory)
 
     def "extract username and password from userinfo #userinfo"() {
         when:
@@ -55,4 +65,38 @@ class DefaultHttpBuildCacheServiceFactoryTest extends Specification {
         credentials.username == 'us'
         credentials.password == 'er:password'
     }
+
+    def "uses default connection pool size when not configured"() {
+        when:
+        def settings = createBuildCacheServiceSettings()
+
+        then:
+        settings.maxConnTotal == 20
+        settings.maxConnPerRoute == 20
+    }
+
+    def "configures connection pool size from system property"() {
+        given:
+        System.setProperty(DefaultHttpBuildCacheServiceFactory.MAX_CONNECTIONS_PROPERTY, "64")
+
+        when:
+        def settings = createBuildCacheServiceSettings()
+
+        then:
+        settings.maxConnTotal == 64
+        settings.maxConnPerRoute == 64
+    }
+
+    private HttpSettings createBuildCacheServiceSettings() {
+        def configuration = TestUtil.newInstance(HttpBuildCache)
+        configuration.url = new URI("https://myserver.local/cache/")
+        HttpSettings settings = null
+        httpClientHelperFactory.create(_) >> { HttpSettings it ->
+            settings = it
+            Stub(HttpClientHelper)
+        }
+        new DefaultHttpBuildCacheServiceFactory(objectFactory, new DefaultSslContextFactory(), {}, httpClientHelperFactory)
+            .createBuildCacheService(configuration, Stub(BuildCacheServiceFactory.Describer))
+        return settings
+    }
 }
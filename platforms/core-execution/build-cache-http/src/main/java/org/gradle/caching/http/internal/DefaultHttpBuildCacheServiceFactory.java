@@ -45,6 +45,11 @@
 public class DefaultHttpBuildCacheServiceFactory implements BuildCacheServiceFactory<HttpBuildCache> {
 
     private static final int MAX_REDIRECTS = Integer.getInteger("org.gradle.cache.http.max-redirects", 10);
+    /**
+     * All requests go to the same cache node, so the pool must allow as many connections per route as there are concurrent loads and stores.
+     * When not set, the defaults of {@link DefaultHttpSettings} apply.
+     */
+    static final String MAX_CONNECTIONS_PROPERTY = "org.gradle.cache.http.max-connections";
 
     private final SslContextFactory sslContextFactory;
     private final HttpBuildCacheRequestCustomizer requestCustomizer;
@@ -93,6 +98,10 @@ public BuildCacheService createBuildCacheService(HttpBuildCache configuration, D
             .maxRedirects(MAX_REDIRECTS)
             .withRedirectMethodHandlingStrategy(HttpSettings.RedirectMethodHandlingStrategy.ALLOW_FOLLOW_FOR_MUTATIONS)
             .withRedirectVerifier(redirectVerifier);
+        Integer maxConnections = Integer.getInteger(MAX_CONNECTIONS_PROPERTY);
+        if (maxConnections != null) {
+            builder.maxConnTotal(maxConnections).maxConnPerRoute(maxConnections);
+        }
         if (allowUntrustedServer) {
             builder.allowUntrustedConnections();
         } else {
@@ -19,6 +19,7 @@ dependencies {
     implementation(libs.guava)
 
     testImplementation(projects.modelCore)
+    testImplementation(libs.commonsCompress)
     testImplementation(projects.fileCollections)
     testImplementation(testFixtures(projects.core))
     testImplementation(testFixtures(projects.baseServices))
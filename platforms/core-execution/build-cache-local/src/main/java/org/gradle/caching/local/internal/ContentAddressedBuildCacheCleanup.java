@@ -0,0 +1,51 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.local.internal;
+
+import org.gradle.cache.CleanableStore;
+import org.gradle.cache.CleanupAction;
+import org.gradle.cache.CleanupProgressMonitor;
+import org.gradle.cache.internal.FilesFinder;
+
+/**
+ * Cleans up a local build cache using the {@link ContentAddressedEntryStore content-addressed layout}.
+ *
+ * The entries are cleaned up by the given action first, which must not consider the blobs directory, see {@link #excludingBlobs(FilesFinder)}.
+ * Afterwards, the blobs that are no longer referenced by any of the remaining entries are deleted.
+ */
+public class ContentAddressedBuildCacheCleanup implements CleanupAction {
+    private final CleanupAction entryCleanup;
+
+    public ContentAddressedBuildCacheCleanup(CleanupAction entryCleanup) {
+        this.entryCleanup = entryCleanup;
+    }
+
+    /**
+     * Wraps a finder for cache entries so it never returns the blobs directory.
+     */
+    public static FilesFinder excludingBlobs(FilesFinder entriesFinder) {
+        return (baseDir, filter) -> entriesFinder.find(baseDir, file -> filter.accept(file)
+            && !(file.getName().equals(ContentAddressedEntryStore.BLOBS_DIRECTORY) && file.getParentFile().equals(baseDir)));
+    }
+
+    @Override
+    public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progressMonitor) {
+        entryCleanup.clean(cleanableStore, progressMonitor);
+        ContentAddressedEntryStore.deleteUnreferencedBlobs(cleanableStore.getBaseDir(), progressMonitor::incrementDeleted);
+    }
+}
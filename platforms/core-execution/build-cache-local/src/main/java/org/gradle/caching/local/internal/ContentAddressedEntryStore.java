@@ -0,0 +1,528 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.local.internal;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.NonNullApi;
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression;
+import org.gradle.caching.internal.packaging.impl.CompressedBuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.Lz4BlockInputStream;
+import org.gradle.caching.internal.packaging.impl.Lz4BlockOutputStream;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.hash.PrimitiveHasher;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Stores build cache entries in a content-addressed layout, where the content of each larger file in an entry is stored only once.
+ *
+ * A packed entry is split into a manifest and content blobs.
+ * The blobs are the contents of the regular files in the entry's tar stream, and are stored uncompressed in {@value #BLOBS_DIRECTORY}, keyed by their hash.
+ * The manifest holds the rest of the tar stream, with references to the blobs in place of the file contents.
+ * To load an entry, the tar stream is reassembled from the manifest and the blobs, and then unpacked without having to decompress it.
+ *
+ * Blobs are not tracked individually. Instead, {@link #deleteUnreferencedBlobs(File, Runnable)} removes blobs that no manifest refers to anymore.
+ *
+ * Storing blobs uncompressed trades disk space for load time.
+ * Compiled class files, for example, take about three times as much space as when gzip compressed.
+ * This layout is only smaller than the default one when many entries share the same file contents.
+ */
+@NonNullApi
+public class ContentAddressedEntryStore {
+    public static final String BLOBS_DIRECTORY = "blobs";
+
+    private static final byte[] MAGIC = {'G', 'B', 'C', 'D'};
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Files smaller than this are kept in the manifest. Storing them as separate files would take up at least a file system block each.
+     */
+    private static final long MIN_BLOB_SIZE = 4096;
+    private static final int MAX_INLINE_SEGMENT_SIZE = 64 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final int SEGMENT_END = 0;
+    private static final int SEGMENT_INLINE = 1;
+    private static final int SEGMENT_BLOB = 2;
+
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int TAR_SIZE_OFFSET = 124;
+    private static final int TAR_SIZE_LENGTH = 12;
+    private static final int TAR_TYPE_OFFSET = 156;
+
+    private final File blobsDir;
+    private final TemporaryFileFactory temporaryFileFactory;
+
+    /**
+     * @param temporaryFileFactory creates temporary files on the same file system as the base directory, so blobs can be moved into place atomically.
+     */
+    public ContentAddressedEntryStore(File baseDir, TemporaryFileFactory temporaryFileFactory) {
+        this.blobsDir = new File(baseDir, BLOBS_DIRECTORY);
+        this.temporaryFileFactory = temporaryFileFactory;
+    }
+
+    /**
+     * Whether the given cache entry is a manifest of the content-addressed layout, as opposed to a packed entry.
+     */
+    public static boolean isManifest(File entry) throws IOException {
+        try (InputStream input = new FileInputStream(entry)) {
+            byte[] magic = new byte[MAGIC.length];
+            int read = 0;
+            while (read < magic.length) {
+                int count = input.read(magic, read, magic.length - read);
+                if (count < 0) {
+                    return false;
+                }
+                read += count;
+            }
+            return Arrays.equals(magic, MAGIC);
+        }
+    }
+
+    /**
+     * Splits a packed entry into a manifest and blobs. Blobs that are already present are reused.
+     */
+    public void split(File packedEntry, File manifest) throws IOException {
+        try (
+            InputStream tarInput = CompressedBuildCacheEntryPacker.decompress(new BufferedInputStream(new FileInputStream(packedEntry)));
+            DataOutputStream manifestOutput = openManifestForWriting(manifest)
+        ) {
+            new Splitter(tarInput, manifestOutput).split();
+        }
+    }
+
+    /**
+     * Reassembles the packed entry described by a manifest, as an uncompressed tar stream.
+     *
+     * @throws IOException when the manifest is corrupt or refers to a missing blob
+     */
+    public void reassemble(File manifest, File packedEntry) throws IOException {
+        try (
+            DataInputStream manifestInput = openManifestForReading(manifest);
+            FileOutputStream output = new FileOutputStream(packedEntry)
+        ) {
+            CompressedBuildCacheEntryPacker.writeHeader(output, BuildCacheEntryCompression.NONE);
+            FileChannel outputChannel = output.getChannel();
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            while (true) {
+                int segment = manifestInput.readUnsignedByte();
+                switch (segment) {
+                    case SEGMENT_END:
+                        return;
+                    case SEGMENT_INLINE:
+                        copy(manifestInput, output, manifestInput.readInt(), buffer);
+                        break;
+                    case SEGMENT_BLOB:
+                        HashCode hash = readHash(manifestInput);
+                        long length = manifestInput.readLong();
+                        transferBlob(hash, length, outputChannel);
+                        break;
+                    default:
+                        throw malformed(manifest);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the blobs that are not referenced by any manifest in the given cache directory.
+     *
+     * @param onDelete called for each deleted blob
+     * @return the number of deleted blobs
+     */
+    public static int deleteUnreferencedBlobs(File baseDir, Runnable onDelete) {
+        File[] blobDirs = new File(baseDir, BLOBS_DIRECTORY).listFiles(File::isDirectory);
+        if (blobDirs == null) {
+            return 0;
+        }
+        Set<HashCode> referencedBlobs = collectReferencedBlobs(baseDir);
+        int deleted = 0;
+        for (File blobDir : blobDirs) {
+            File[] blobs = blobDir.listFiles();
+            if (blobs == null) {
+                continue;
+            }
+            for (File blob : blobs) {
+                if (!isReferenced(blob, referencedBlobs) && FileUtils.deleteQuietly(blob)) {
+                    onDelete.run();
+                    deleted++;
+                }
+            }
+            String[] remaining = blobDir.list();
+            if (remaining != null && remaining.length == 0) {
+                //noinspection ResultOfMethodCallIgnored
+                blobDir.delete();
+            }
+        }
+        return deleted;
+    }
+
+    private static boolean isReferenced(File blob, Set<HashCode> referencedBlobs) {
+        try {
+            return referencedBlobs.contains(HashCode.fromString(blob.getName()));
+        } catch (IllegalArgumentException e) {
+            // Not a blob, e.g. a left-over temporary file
+            return false;
+        }
+    }
+
+    private static Set<HashCode> collectReferencedBlobs(File baseDir) {
+        Set<HashCode> referencedBlobs = new HashSet<>();
+        File[] entries = baseDir.listFiles(File::isFile);
+        if (entries == null) {
+            return referencedBlobs;
+        }
+        for (File entry : entries) {
+            try {
+                if (isManifest(entry)) {
+                    collectReferencedBlobs(entry, referencedBlobs);
+                }
+            } catch (IOException e) {
+                // A corrupt manifest cannot be loaded anyway, so its blobs need not be kept
+            }
+        }
+        return referencedBlobs;
+    }
+
+    private static void collectReferencedBlobs(File manifest, Set<HashCode> referencedBlobs) throws IOException {
+        try (DataInputStream manifestInput = openManifestForReading(manifest)) {
+            while (true) {
+                int segment = manifestInput.readUnsignedByte();
+                switch (segment) {
+                    case SEGMENT_END:
+                        return;
+                    case SEGMENT_INLINE:
+                        int length = manifestInput.readInt();
+                        if (manifestInput.skipBytes(length) != length) {
+                            throw new EOFException();
+                        }
+                        break;
+                    case SEGMENT_BLOB:
+                        referencedBlobs.add(readHash(manifestInput));
+                        manifestInput.readLong();
+                        break;
+                    default:
+                        throw malformed(manifest);
+                }
+            }
+        }
+    }
+
+    private void transferBlob(HashCode hash, long length, FileChannel output) throws IOException {
+        File blob = blobFile(hash);
+        try (FileChannel blobChannel = FileChannel.open(blob.toPath())) {
+            if (blobChannel.size() != length) {
+                throw new IOException(String.format("Build cache blob '%s' has an unexpected length.", blob));
+            }
+            long position = 0;
+            while (position < length) {
+                long transferred = blobChannel.transferTo(position, length - position, output);
+                if (transferred <= 0) {
+                    throw new EOFException(String.format("Unexpected end of build cache blob '%s'.", blob));
+                }
+                position += transferred;
+            }
+        } catch (NoSuchFileException e) {
+            throw new IOException(String.format("Build cache blob '%s' is missing.", blob), e);
+        }
+    }
+
+    private File blobFile(HashCode hash) {
+        String name = hash.toString();
+        return new File(new File(blobsDir, name.substring(0, 2)), name);
+    }
+
+    private static DataOutputStream openManifestForWriting(File manifest) throws IOException {
+        OutputStream output = new FileOutputStream(manifest);
+        try {
+            output.write(MAGIC);
+            output.write(FORMAT_VERSION);
+            return new DataOutputStream(new Lz4BlockOutputStream(output));
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+    }
+
+    private static DataInputStream openManifestForReading(File manifest) throws IOException {
+        InputStream input = new FileInputStream(manifest);
+        try {
+            byte[] header = new byte[MAGIC.length + 1];
+            new DataInputStream(input).readFully(header);
+            if (!Arrays.equals(Arrays.copyOf(header, MAGIC.length), MAGIC) || header[MAGIC.length] != FORMAT_VERSION) {
+                throw malformed(manifest);
+            }
+            return new DataInputStream(new Lz4BlockInputStream(input));
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    private static HashCode readHash(DataInputStream input) throws IOException {
+        byte[] hash = new byte[input.readUnsignedByte()];
+        input.readFully(hash);
+        return HashCode.fromBytes(hash);
+    }
+
+    private static void copy(InputStream input, OutputStream output, long length, byte[] buffer) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            int count = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (count < 0) {
+                throw new EOFException();
+            }
+            output.write(buffer, 0, count);
+            remaining -= count;
+        }
+    }
+
+    private static IOException malformed(File manifest) {
+        return new IOException(String.format("Malformed build cache entry manifest '%s'.", manifest));
+    }
+
+    /**
+     * Scans a tar stream block by block, moving the contents of larger regular files to blobs.
+     */
+    private class Splitter {
+        private final InputStream tarInput;
+        private final DataOutputStream manifestOutput;
+        private final ByteArrayOutputStream inlineBuffer = new ByteArrayOutputStream(MAX_INLINE_SEGMENT_SIZE);
+        private final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+
+        Splitter(InputStream tarInput, DataOutputStream manifestOutput) {
+            this.tarInput = tarInput;
+            this.manifestOutput = manifestOutput;
+        }
+
+        void split() throws IOException {
+            byte[] header = new byte[TAR_BLOCK_SIZE];
+            long paxSize = -1;
+            while (readHeader(header)) {
+                writeInline(header, 0, TAR_BLOCK_SIZE);
+                if (isZeroBlock(header)) {
+                    // End of the archive, copy the trailing zero blocks as they are
+                    copyInline(Long.MAX_VALUE);
+                    break;
+                }
+                char type = (char) header[TAR_TYPE_OFFSET];
+                long size = parseSize(header);
+                if (type == 'x') {
+                    byte[] paxHeaders = readFully(size);
+                    writeInline(paxHeaders, 0, paxHeaders.length);
+                    copyInline(padding(size));
+                    paxSize = parsePaxSize(paxHeaders, paxSize);
+                    continue;
+                }
+                if (type == 'g' || type == 'L' || type == 'K') {
+                    copyInline(size + padding(size));
+                    continue;
+                }
+                if (paxSize >= 0) {
+                    size = paxSize;
+                    paxSize = -1;
+                }
+                boolean regularFile = type == '0' || type == '\0' || type == '7';
+                if (regularFile && size >= MIN_BLOB_SIZE) {
+                    HashCode hash = storeBlob(size);
+                    flushInline();
+                    byte[] hashBytes = hash.toByteArray();
+                    manifestOutput.writeByte(SEGMENT_BLOB);
+                    manifestOutput.writeByte(hashBytes.length);
+                    manifestOutput.write(hashBytes);
+                    manifestOutput.writeLong(size);
+                    copyInline(padding(size));
+                } else {
+                    copyInline(size + padding(size));
+                }
+            }
+            flushInline();
+            manifestOutput.writeByte(SEGMENT_END);
+        }
+
+        private boolean readHeader(byte[] header) throws IOException {
+            int read = 0;
+            while (read < header.length) {
+                int count = tarInput.read(header, read, header.length - read);
+                if (count < 0) {
+                    if (read == 0) {
+                        return false;
+                    }
+                    throw new EOFException("Unexpected end of build cache entry");
+                }
+                read += count;
+            }
+            return true;
+        }
+
+        private byte[] readFully(long size) throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Tar extended header too large");
+            }
+            byte[] bytes = new byte[(int) size];
+            new DataInputStream(tarInput).readFully(bytes);
+            return bytes;
+        }
+
+        private HashCode storeBlob(long size) throws IOException {
+            File tempFile = temporaryFileFactory.createTemporaryFile("blob-", BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX);
+            try {
+                PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
+                try (OutputStream output = new FileOutputStream(tempFile)) {
+                    long remaining = size;
+                    while (remaining > 0) {
+                        int count = tarInput.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                        if (count < 0) {
+                            throw new EOFException("Unexpected end of build cache entry");
+                        }
+                        hasher.putBytes(buffer, 0, count);
+                        output.write(buffer, 0, count);
+                        remaining -= count;
+                    }
+                }
+                HashCode hash = hasher.hash();
+                File blob = blobFile(hash);
+                if (!blob.isFile()) {
+                    Files.createDirectories(blob.getParentFile().toPath());
+                    try {
+                        Files.move(tempFile.toPath(), blob.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException ignore) {
+                        // Stored concurrently
+                    }
+                }
+                return hash;
+            } finally {
+                FileUtils.deleteQuietly(tempFile);
+            }
+        }
+
+        private void copyInline(long length) throws IOException {
+            long remaining = length;
+            while (remaining > 0) {
+                int count = tarInput.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (count < 0) {
+                    if (length == Long.MAX_VALUE) {
+                        return;
+                    }
+                    throw new EOFException("Unexpected end of build cache entry");
+                }
+                writeInline(buffer, 0, count);
+                remaining -= count;
+            }
+        }
+
+        private void writeInline(byte[] bytes, int offset, int length) throws IOException {
+            inlineBuffer.write(bytes, offset, length);
+            if (inlineBuffer.size() >= MAX_INLINE_SEGMENT_SIZE) {
+                flushInline();
+            }
+        }
+
+        private void flushInline() throws IOException {
+            if (inlineBuffer.size() > 0) {
+                manifestOutput.writeByte(SEGMENT_INLINE);
+                manifestOutput.writeInt(inlineBuffer.size());
+                inlineBuffer.writeTo(manifestOutput);
+                inlineBuffer.reset();
+            }
+        }
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long padding(long size) {
+        long remainder = size % TAR_BLOCK_SIZE;
+        return remainder == 0 ? 0 : TAR_BLOCK_SIZE - remainder;
+    }
+
+    /**
+     * Parses the size field of a tar header, which is either an octal number or, for large sizes, a base-256 number.
+     */
+    private static long parseSize(byte[] header) throws IOException {
+        if ((header[TAR_SIZE_OFFSET] & 0x80) != 0) {
+            long size = 0;
+            for (int i = TAR_SIZE_OFFSET + 1; i < TAR_SIZE_OFFSET + TAR_SIZE_LENGTH; i++) {
+                size = (size << 8) | (header[i] & 0xFF);
+            }
+            return size;
+        }
+        long size = 0;
+        for (int i = TAR_SIZE_OFFSET; i < TAR_SIZE_OFFSET + TAR_SIZE_LENGTH; i++) {
+            byte b = header[i];
+            if (b == 0 || b == ' ') {
+                if (size == 0) {
+                    // Leading spaces
+                    continue;
+                }
+                break;
+            }
+            if (b < '0' || b > '7') {
+                throw new IOException("Invalid size in tar header");
+            }
+            size = (size << 3) + (b - '0');
+        }
+        return size;
+    }
+
+    /**
+     * Returns the size from the given PAX extended headers, or the default when there is none.
+     * Each header is a record of the form {@code "<length> <key>=<value>\n"}.
+     */
+    private static long parsePaxSize(byte[] paxHeaders, long defaultSize) throws IOException {
+        String headers = new String(paxHeaders, StandardCharsets.UTF_8);
+        long size = defaultSize;
+        for (String record : headers.split("\n")) {
+            int separator = record.indexOf(' ');
+            if (separator >= 0 && record.startsWith("size=", separator + 1)) {
+                try {
+                    size = Long.parseLong(record.substring(separator + 1 + "size=".length()));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Invalid size in tar extended header", e);
+                }
+            }
+        }
+        return size;
+    }
+}
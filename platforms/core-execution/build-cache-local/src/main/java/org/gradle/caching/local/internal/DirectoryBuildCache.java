@@ -49,20 +49,33 @@ public class DirectoryBuildCache implements BuildCacheTempFileStore, Closeable,
     private final FileAccessTracker fileAccessTracker;
     private final String failedFileSuffix;
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ContentAddressedEntryStore contentAddressedStore;
+    private final boolean contentAddressed;
 
     public DirectoryBuildCache(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
+        this(persistentCache, fileAccessTracker, failedFileSuffix, false);
+    }
+
+    /**
+     * @param contentAddressed whether to store and load entries in the {@link ContentAddressedEntryStore content-addressed layout}.
+     * Packed entries can be loaded in either case, while manifests of the content-addressed layout are only recognized when it is enabled.
+     */
+    public DirectoryBuildCache(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix, boolean contentAddressed) {
         this.persistentCache = persistentCache;
         // Create temporary files in the cache directory to ensure they are on the same file system,
         // and thus can always be moved into the cache proper atomically
-        this.tempFileStore = new DefaultBuildCacheTempFileStore((prefix, suffix) -> {
+        TemporaryFileFactory temporaryFileFactory = (prefix, suffix) -> {
             try {
                 return Files.createTempFile(persistentCache.getBaseDir().toPath(), prefix, suffix).toFile();
             } catch (IOException e) {
                 throw new UncheckedIOException(e);
             }
-        });
+        };
+        this.tempFileStore = new DefaultBuildCacheTempFileStore(temporaryFileFactory);
         this.fileAccessTracker = fileAccessTracker;
         this.failedFileSuffix = failedFileSuffix;
+        this.contentAddressedStore = new ContentAddressedEntryStore(persistentCache.getBaseDir(), temporaryFileFactory);
+        this.contentAddressed = contentAddressed;
     }
 
     @Override
@@ -99,6 +112,14 @@ public void loadLocally(HashCode key, Consumer<? super File> reader) {
         });
     }
 
+    /**
+     * Whether there is an entry for the given key, without marking it as accessed.
+     */
+    public boolean contains(HashCode key) {
+        // We need to lock other processes out here because garbage collection can be under way in another process
+        return persistentCache.withFileLock(() -> getCacheEntryFile(key).isFile());
+    }
+
     private void loadInsideLock(HashCode key, Consumer<? super File> reader) {
         File file = getCacheEntryFile(key);
         if (!file.exists()) {
@@ -108,7 +129,12 @@ private void loadInsideLock(HashCode key, Consumer<? super File> reader) {
         fileAccessTracker.markAccessed(file);
 
         try {
-            reader.accept(file);
+            // Only the content-addressed layout writes manifests, which uses its own cache directory by default
+            if (contentAddressed && ContentAddressedEntryStore.isManifest(file)) {
+                loadFromManifest(key, file, reader);
+            } else {
+                reader.accept(file);
+            }
         } catch (Exception e) {
             // Try to move the file out of the way in case its permanently corrupt
             // Don't delete, so that it can be potentially used for debugging
@@ -121,6 +147,18 @@ private void loadInsideLock(HashCode key, Consumer<? super File> reader) {
         }
     }
 
+    private void loadFromManifest(HashCode key, File manifest, Consumer<? super File> reader) {
+        // Blobs are only ever deleted during cleanup, which cannot happen while we hold the file lock
+        tempFileStore.withTempFile(key, packedEntry -> {
+            try {
+                contentAddressedStore.reassemble(manifest, packedEntry);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            reader.accept(packedEntry);
+        });
+    }
+
     @Override
     public void store(HashCode key, IoConsumer<OutputStream> result) {
         tempFileStore.withTempFile(key, file -> {
@@ -145,16 +183,37 @@ public void store(HashCode key, IoConsumer<OutputStream> result) {
     public void storeLocally(HashCode key, File file) {
         // We need to lock other processes out here because garbage collection can be under way in another process
         persistentCache.withFileLock(() -> {
-            // Additional locking necessary because of https://github.com/gradle/gradle/issues/3537
-            lock.writeLock().lock();
-            try {
-                storeInsideLock(key, file);
-            } finally {
-                lock.writeLock().unlock();
+            if (contentAddressed) {
+                // Blobs are written atomically, so splitting the entry does not need to block loads
+                tempFileStore.withTempFile(key, manifest -> {
+                    splitEntry(key, file, manifest);
+                    storeLockingOtherThreads(key, manifest);
+                });
+                FileUtils.deleteQuietly(file);
+            } else {
+                storeLockingOtherThreads(key, file);
             }
         });
     }
 
+    private void splitEntry(HashCode key, File packedEntry, File manifest) {
+        try {
+            contentAddressedStore.split(packedEntry, manifest);
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Couldn't store cache entry '%s' in local cache: %s", key, e), e);
+        }
+    }
+
+    private void storeLockingOtherThreads(HashCode key, File file) {
+        // Additional locking necessary because of https://github.com/gradle/gradle/issues/3537
+        lock.writeLock().lock();
+        try {
+            storeInsideLock(key, file);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
     private void storeInsideLock(HashCode key, File sourceFile) {
         File targetFile = getCacheEntryFile(key);
         try {
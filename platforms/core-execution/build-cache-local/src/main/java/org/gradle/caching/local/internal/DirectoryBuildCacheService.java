@@ -37,7 +37,11 @@ public class DirectoryBuildCacheService implements LocalBuildCacheService, Build
     private final DirectoryBuildCache cache;
 
     public DirectoryBuildCacheService(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix) {
-        this.cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, failedFileSuffix);
+        this(persistentCache, fileAccessTracker, failedFileSuffix, false);
+    }
+
+    public DirectoryBuildCacheService(PersistentCache persistentCache, FileAccessTracker fileAccessTracker, String failedFileSuffix, boolean contentAddressed) {
+        this.cache = new DirectoryBuildCache(persistentCache, fileAccessTracker, failedFileSuffix, contentAddressed);
     }
 
     @Override
@@ -50,6 +54,11 @@ public void loadLocally(BuildCacheKey key, Consumer<? super File> reader) {
         cache.loadLocally(((BuildCacheKeyInternal) key).getHashCodeInternal(), reader);
     }
 
+    @Override
+    public boolean contains(BuildCacheKey key) {
+        return cache.contains(((BuildCacheKeyInternal) key).getHashCodeInternal());
+    }
+
     @Override
     public void store(BuildCacheKey key, BuildCacheEntryWriter result) throws BuildCacheException {
         cache.store(((BuildCacheKeyInternal) key).getHashCodeInternal(), result::writeTo);
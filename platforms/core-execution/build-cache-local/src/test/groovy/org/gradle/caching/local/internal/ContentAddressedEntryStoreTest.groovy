@@ -0,0 +1,161 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.local.internal
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression
+import org.gradle.caching.internal.packaging.impl.CompressedBuildCacheEntryPacker
+import org.gradle.caching.internal.packaging.impl.Lz4BlockOutputStream
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.nio.file.Files
+import java.util.zip.GZIPOutputStream
+
+@CleanupTestDirectory
+class ContentAddressedEntryStoreTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+    def cacheDir = temporaryFolder.createDir("cache")
+    def store = new ContentAddressedEntryStore(cacheDir, { prefix, suffix -> Files.createTempFile(cacheDir.toPath(), prefix, suffix).toFile() } as TemporaryFileFactory)
+
+    def "reassembles #compression entry as uncompressed tar"() {
+        def files = [
+            "small.txt": bytes(100, 1),
+            "large.bin": bytes(100_000, 2),
+            ("very/" + "long/" * 30 + "name.bin"): bytes(5000, 3),
+        ]
+        def entry = packedEntry("entry", compression, files)
+        def manifest = cacheDir.file("manifest")
+        def reassembled = temporaryFolder.file("reassembled")
+
+        when:
+        store.split(entry, manifest)
+        store.reassemble(manifest, reassembled)
+
+        then:
+        ContentAddressedEntryStore.isManifest(manifest)
+        !ContentAddressedEntryStore.isManifest(entry)
+        readEntry(reassembled) == files
+        blobs().size() == 2
+
+        where:
+        compression << [BuildCacheEntryCompression.GZIP, BuildCacheEntryCompression.LZ4]
+    }
+
+    def "stores identical file contents only once"() {
+        def shared = bytes(10_000, 1)
+        store.split(packedEntry("first", BuildCacheEntryCompression.GZIP, ["a.bin": shared, "b.bin": bytes(10_000, 2)]), cacheDir.file("first-manifest"))
+
+        when:
+        store.split(packedEntry("second", BuildCacheEntryCompression.GZIP, ["c.bin": shared, "d.bin": shared]), cacheDir.file("second-manifest"))
+
+        then:
+        blobs().size() == 2
+    }
+
+    def "deletes unreferenced blobs"() {
+        def shared = bytes(10_000, 1)
+        def first = cacheDir.file("first-manifest")
+        def second = cacheDir.file("second-manifest")
+        store.split(packedEntry("first", BuildCacheEntryCompression.GZIP, ["a.bin": shared, "b.bin": bytes(10_000, 2)]), first)
+        store.split(packedEntry("second", BuildCacheEntryCompression.GZIP, ["c.bin": shared]), second)
+
+        when:
+        first.delete()
+        def deleted = ContentAddressedEntryStore.deleteUnreferencedBlobs(cacheDir, {})
+
+        then:
+        deleted == 1
+        blobs().size() == 1
+
+        when:
+        store.reassemble(second, temporaryFolder.file("reassembled"))
+
+        then:
+        noExceptionThrown()
+
+        when:
+        second.delete()
+        ContentAddressedEntryStore.deleteUnreferencedBlobs(cacheDir, {})
+
+        then:
+        blobs().empty
+        !cacheDir.file(ContentAddressedEntryStore.BLOBS_DIRECTORY).list()
+    }
+
+    def "fails to reassemble entry with missing blob"() {
+        def manifest = cacheDir.file("manifest")
+        store.split(packedEntry("entry", BuildCacheEntryCompression.GZIP, ["large.bin": bytes(10_000, 1)]), manifest)
+        blobs()*.delete()
+
+        when:
+        store.reassemble(manifest, temporaryFolder.file("reassembled"))
+
+        then:
+        def e = thrown(IOException)
+        e.message.endsWith("is missing.")
+    }
+
+    private List<File> blobs() {
+        def blobsDir = cacheDir.file(ContentAddressedEntryStore.BLOBS_DIRECTORY)
+        return (blobsDir.listFiles() ?: []).collectMany { it.listFiles() as List }
+    }
+
+    private TestFile packedEntry(String name, BuildCacheEntryCompression compression, Map<String, byte[]> files) {
+        def entry = temporaryFolder.file(name)
+        entry.withOutputStream { output ->
+            CompressedBuildCacheEntryPacker.writeHeader(output, compression)
+            def compressed = compression == BuildCacheEntryCompression.GZIP ? new GZIPOutputStream(output) : new Lz4BlockOutputStream(output)
+            new TarArchiveOutputStream(compressed, "UTF-8").withCloseable { tar ->
+                tar.longFileMode = TarArchiveOutputStream.LONGFILE_POSIX
+                tar.bigNumberMode = TarArchiveOutputStream.BIGNUMBER_POSIX
+                files.each { path, content ->
+                    def tarEntry = new TarArchiveEntry(path, true)
+                    tarEntry.size = content.length
+                    tar.putArchiveEntry(tarEntry)
+                    tar.write(content)
+                    tar.closeArchiveEntry()
+                }
+            }
+        }
+        return entry
+    }
+
+    private static Map<String, byte[]> readEntry(File entry) {
+        def files = [:]
+        new TarArchiveInputStream(CompressedBuildCacheEntryPacker.decompress(new FileInputStream(entry)), "UTF-8").withCloseable { tar ->
+            TarArchiveEntry tarEntry
+            while ((tarEntry = tar.nextTarEntry) != null) {
+                files[tarEntry.name] = tar.bytes
+            }
+        }
+        return files
+    }
+
+    private static byte[] bytes(int length, long seed) {
+        def bytes = new byte[length]
+        new Random(seed).nextBytes(bytes)
+        return bytes
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression codecs available for build cache entries.
+ *
+ * @see CompressedBuildCacheEntryPacker
+ */
+public enum BuildCacheEntryCompression {
+    /**
+     * Gzip, the original format of build cache entries. Slow, but compresses well.
+     */
+    GZIP(0) {
+        @Override
+        OutputStream compress(OutputStream output) throws IOException {
+            return new GZIPOutputStream(output);
+        }
+
+        @Override
+        InputStream decompress(InputStream input) throws IOException {
+            return new GZIPInputStream(input);
+        }
+    },
+
+    /**
+     * LZ4, which packs and unpacks large entries several times faster than gzip at a lower compression ratio.
+     */
+    LZ4(1) {
+        @Override
+        OutputStream compress(OutputStream output) {
+            return new Lz4BlockOutputStream(output);
+        }
+
+        @Override
+        InputStream decompress(InputStream input) {
+            return new Lz4BlockInputStream(input);
+        }
+    },
+
+    /**
+     * No compression. Used for entries that are reassembled from already decompressed content, like the ones in a content-addressed local cache.
+     */
+    NONE(2) {
+        @Override
+        OutputStream compress(OutputStream output) {
+            return output;
+        }
+
+        @Override
+        InputStream decompress(InputStream input) {
+            return input;
+        }
+    };
+
+    private final int id;
+
+    BuildCacheEntryCompression(int id) {
+        this.id = id;
+    }
+
+    /**
+     * The identifier of the codec in the header of an entry.
+     */
+    int getId() {
+        return id;
+    }
+
+    abstract OutputStream compress(OutputStream output) throws IOException;
+
+    abstract InputStream decompress(InputStream input) throws IOException;
+
+    static BuildCacheEntryCompression forId(int id) throws IOException {
+        for (BuildCacheEntryCompression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+        throw new IOException("Unsupported build cache entry compression: " + id);
+    }
+
+    /**
+     * Parses the name of a compression, ignoring case.
+     */
+    public static BuildCacheEntryCompression forName(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown build cache entry compression '" + name + "'. Supported values are 'gzip', 'lz4' and 'none'.", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Map;
+
+/**
+ * Compresses the output of another packer.
+ *
+ * Gzip compressed entries are written without a header, so they stay readable by older versions.
+ * Entries using any other compression start with a versioned header that identifies the codec.
+ * When unpacking, the format is detected from the first bytes of the entry, so entries in different formats can coexist in the same cache.
+ */
+public class CompressedBuildCacheEntryPacker implements BuildCacheEntryPacker {
+    private static final byte[] MAGIC = {'G', 'B', 'C', 'E'};
+    private static final int FORMAT_VERSION = 1;
+    private static final int GZIP_MAGIC_FIRST_BYTE = 0x1f;
+    private static final int GZIP_MAGIC_SECOND_BYTE = 0x8b;
+
+    private final BuildCacheEntryPacker delegate;
+    private final BuildCacheEntryCompression compression;
+
+    public CompressedBuildCacheEntryPacker(BuildCacheEntryPacker delegate, BuildCacheEntryCompression compression) {
+        this.delegate = delegate;
+        this.compression = compression;
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        writeHeader(output, compression);
+        try (OutputStream compressedOutput = compression.compress(output)) {
+            return delegate.pack(entity, snapshots, compressedOutput, writeOrigin);
+        }
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        try (InputStream decompressedInput = decompress(input)) {
+            return delegate.unpack(entity, decompressedInput, readOrigin);
+        }
+    }
+
+    /**
+     * Writes the header identifying the compression of an entry, if the compression needs one.
+     */
+    public static void writeHeader(OutputStream output, BuildCacheEntryCompression compression) throws IOException {
+        if (compression != BuildCacheEntryCompression.GZIP) {
+            output.write(MAGIC);
+            output.write(FORMAT_VERSION);
+            output.write(compression.getId());
+        }
+    }
+
+    /**
+     * Reads the header of a packed entry and returns the decompressed content of the entry.
+     */
+    public static InputStream decompress(InputStream input) throws IOException {
+        PushbackInputStream headerInput = new PushbackInputStream(input, 2);
+        BuildCacheEntryCompression entryCompression = readHeader(headerInput);
+        return entryCompression.decompress(headerInput);
+    }
+
+    private static BuildCacheEntryCompression readHeader(PushbackInputStream input) throws IOException {
+        int first = readByte(input);
+        int second = readByte(input);
+        if (first == GZIP_MAGIC_FIRST_BYTE && second == GZIP_MAGIC_SECOND_BYTE) {
+            input.unread(new byte[]{(byte) first, (byte) second});
+            return BuildCacheEntryCompression.GZIP;
+        }
+        if (first != MAGIC[0] || second != MAGIC[1] || readByte(input) != MAGIC[2] || readByte(input) != MAGIC[3]) {
+            throw new IOException("Unrecognized build cache entry format");
+        }
+        int version = readByte(input);
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported build cache entry format version: " + version);
+        }
+        return BuildCacheEntryCompression.forId(readByte(input));
+    }
+
+    private static int readByte(InputStream input) throws IOException {
+        int value = input.read();
+        if (value < 0) {
+            throw new EOFException("Unexpected end of build cache entry");
+        }
+        return value;
+    }
+}
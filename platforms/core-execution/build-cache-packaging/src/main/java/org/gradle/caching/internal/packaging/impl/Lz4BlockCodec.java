@@ -0,0 +1,225 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A pure Java implementation of the <a href="https://github.com/lz4/lz4/blob/dev/doc/lz4_Block_format.md">LZ4 block format</a>.
+ *
+ * The compressor uses a single hash table probe per position and skips ahead faster over incompressible data,
+ * trading some compression ratio for speed, like the reference implementation's fast mode.
+ */
+final class Lz4BlockCodec {
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_FIND_LIMIT = 12;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int RUN_MASK = 0xF;
+    private static final int SKIP_STRENGTH = 6;
+    static final int HASH_LOG = 14;
+
+    private Lz4BlockCodec() {
+    }
+
+    /**
+     * Returns the maximum length of the compressed form of the given number of bytes.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Creates a hash table to be passed to {@link #compress(byte[], int, byte[], int[])}. The table can be reused between calls.
+     */
+    static int[] newHashTable() {
+        return new int[1 << HASH_LOG];
+    }
+
+    /**
+     * Compresses {@code source[0..length)} into {@code target}, which must be at least {@link #maxCompressedLength(int)} long.
+     *
+     * @return the length of the compressed data
+     */
+    static int compress(byte[] source, int length, byte[] target, int[] hashTable) {
+        Arrays.fill(hashTable, -1);
+        int matchStartLimit = length - MATCH_FIND_LIMIT;
+        int matchEndLimit = length - LAST_LITERALS;
+        int anchor = 0;
+        int position = 0;
+        int targetPosition = 0;
+        while (position < matchStartLimit) {
+            int sequence = readInt(source, position);
+            int hash = hash(sequence);
+            int reference = hashTable[hash];
+            hashTable[hash] = position;
+            if (reference < 0 || position - reference > MAX_OFFSET || readInt(source, reference) != sequence) {
+                position += 1 + ((position - anchor) >>> SKIP_STRENGTH);
+                continue;
+            }
+            while (position > anchor && reference > 0 && source[position - 1] == source[reference - 1]) {
+                position--;
+                reference--;
+            }
+            int matchLength = MIN_MATCH;
+            while (position + matchLength < matchEndLimit && source[position + matchLength] == source[reference + matchLength]) {
+                matchLength++;
+            }
+            targetPosition = writeSequence(source, anchor, position - anchor, position - reference, matchLength, target, targetPosition);
+            position += matchLength;
+            anchor = position;
+        }
+        return writeLastLiterals(source, anchor, length - anchor, target, targetPosition);
+    }
+
+    /**
+     * Decompresses {@code source[0..length)} into {@code target}.
+     *
+     * @return the length of the decompressed data
+     * @throws IOException when the compressed data is malformed or does not fit into {@code target}
+     */
+    static int decompress(byte[] source, int length, byte[] target) throws IOException {
+        int position = 0;
+        int targetPosition = 0;
+        while (true) {
+            if (position >= length) {
+                throw malformed();
+            }
+            int token = source[position++] & 0xFF;
+
+            int literalLength = token >>> 4;
+            if (literalLength == RUN_MASK) {
+                int lengthByte;
+                do {
+                    if (position >= length) {
+                        throw malformed();
+                    }
+                    lengthByte = source[position++] & 0xFF;
+                    literalLength += lengthByte;
+                } while (lengthByte == 0xFF);
+            }
+            if (literalLength > length - position || literalLength > target.length - targetPosition) {
+                throw malformed();
+            }
+            System.arraycopy(source, position, target, targetPosition, literalLength);
+            position += literalLength;
+            targetPosition += literalLength;
+            if (position == length) {
+                // The last sequence only contains literals
+                return targetPosition;
+            }
+
+            if (position + 2 > length) {
+                throw malformed();
+            }
+            int offset = (source[position] & 0xFF) | (source[position + 1] & 0xFF) << 8;
+            position += 2;
+            if (offset == 0 || offset > targetPosition) {
+                throw malformed();
+            }
+            int matchLength = token & RUN_MASK;
+            if (matchLength == RUN_MASK) {
+                int lengthByte;
+                do {
+                    if (position >= length) {
+                        throw malformed();
+                    }
+                    lengthByte = source[position++] & 0xFF;
+                    matchLength += lengthByte;
+                } while (lengthByte == 0xFF);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > target.length - targetPosition) {
+                throw malformed();
+            }
+            int reference = targetPosition - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(target, reference, target, targetPosition, matchLength);
+            } else {
+                // Overlapping match, which repeats the last `offset` bytes
+                for (int i = 0; i < matchLength; i++) {
+                    target[targetPosition + i] = target[reference + i];
+                }
+            }
+            targetPosition += matchLength;
+        }
+    }
+
+    private static int writeSequence(byte[] source, int literalStart, int literalLength, int offset, int matchLength, byte[] target, int targetPosition) {
+        int tokenPosition = targetPosition++;
+        int token;
+        if (literalLength >= RUN_MASK) {
+            token = RUN_MASK << 4;
+            targetPosition = writeLength(literalLength - RUN_MASK, target, targetPosition);
+        } else {
+            token = literalLength << 4;
+        }
+        System.arraycopy(source, literalStart, target, targetPosition, literalLength);
+        targetPosition += literalLength;
+
+        target[targetPosition++] = (byte) offset;
+        target[targetPosition++] = (byte) (offset >>> 8);
+
+        int remainingMatchLength = matchLength - MIN_MATCH;
+        if (remainingMatchLength >= RUN_MASK) {
+            token |= RUN_MASK;
+            targetPosition = writeLength(remainingMatchLength - RUN_MASK, target, targetPosition);
+        } else {
+            token |= remainingMatchLength;
+        }
+        target[tokenPosition] = (byte) token;
+        return targetPosition;
+    }
+
+    private static int writeLastLiterals(byte[] source, int literalStart, int literalLength, byte[] target, int targetPosition) {
+        if (literalLength >= RUN_MASK) {
+            target[targetPosition++] = (byte) (RUN_MASK << 4);
+            targetPosition = writeLength(literalLength - RUN_MASK, target, targetPosition);
+        } else {
+            target[targetPosition++] = (byte) (literalLength << 4);
+        }
+        System.arraycopy(source, literalStart, target, targetPosition, literalLength);
+        return targetPosition + literalLength;
+    }
+
+    private static int writeLength(int length, byte[] target, int targetPosition) {
+        int remaining = length;
+        while (remaining >= 0xFF) {
+            target[targetPosition++] = (byte) 0xFF;
+            remaining -= 0xFF;
+        }
+        target[targetPosition++] = (byte) remaining;
+        return targetPosition;
+    }
+
+    private static int readInt(byte[] source, int position) {
+        return (source[position] & 0xFF)
+            | (source[position + 1] & 0xFF) << 8
+            | (source[position + 2] & 0xFF) << 16
+            | (source[position + 3] & 0xFF) << 24;
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static IOException malformed() {
+        return new IOException("Malformed LZ4 compressed block");
+    }
+}
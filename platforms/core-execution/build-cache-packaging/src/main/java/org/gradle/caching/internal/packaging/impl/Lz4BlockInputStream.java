@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decompresses a stream written by {@link Lz4BlockOutputStream}.
+ */
+public class Lz4BlockInputStream extends InputStream {
+    private final DataInputStream input;
+    private final byte[] buffer = new byte[Lz4BlockOutputStream.BLOCK_SIZE];
+    private final byte[] compressed = new byte[Lz4BlockCodec.maxCompressedLength(Lz4BlockOutputStream.BLOCK_SIZE)];
+    private int position;
+    private int limit;
+    private boolean finished;
+
+    public Lz4BlockInputStream(InputStream input) {
+        this.input = new DataInputStream(input);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int chunk = Math.min(len, limit - position);
+        System.arraycopy(buffer, position, b, off, chunk);
+        position += chunk;
+        return chunk;
+    }
+
+    @Override
+    public int available() {
+        return limit - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (position == limit) {
+            if (finished) {
+                return false;
+            }
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        try {
+            int length = input.readInt();
+            if (length == 0) {
+                finished = true;
+                return;
+            }
+            int storedLength = input.readInt();
+            if (length < 0 || length > buffer.length || storedLength <= 0 || storedLength > length) {
+                throw new IOException("Malformed LZ4 compressed stream: invalid block header");
+            }
+            if (storedLength == length) {
+                input.readFully(buffer, 0, length);
+            } else {
+                input.readFully(compressed, 0, storedLength);
+                if (Lz4BlockCodec.decompress(compressed, storedLength, buffer) != length) {
+                    throw new IOException("Malformed LZ4 compressed stream: block length mismatch");
+                }
+            }
+            position = 0;
+            limit = length;
+        } catch (EOFException e) {
+            throw new EOFException("Unexpected end of LZ4 compressed stream");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses a stream as a sequence of independent {@link Lz4BlockCodec LZ4 blocks}.
+ *
+ * Each block is written as its uncompressed length, its stored length and the stored bytes.
+ * Blocks that do not get smaller when compressed are stored as they are, which is signalled by equal lengths.
+ * The stream is terminated by a block with an uncompressed length of zero.
+ *
+ * @see Lz4BlockInputStream
+ */
+public class Lz4BlockOutputStream extends FilterOutputStream {
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private final DataOutputStream output;
+    private final byte[] buffer = new byte[BLOCK_SIZE];
+    private final byte[] compressed = new byte[Lz4BlockCodec.maxCompressedLength(BLOCK_SIZE)];
+    private final int[] hashTable = Lz4BlockCodec.newHashTable();
+    private int count;
+    private boolean closed;
+
+    public Lz4BlockOutputStream(OutputStream output) {
+        this(new DataOutputStream(output));
+    }
+
+    private Lz4BlockOutputStream(DataOutputStream output) {
+        super(output);
+        this.output = output;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == BLOCK_SIZE) {
+            writeBlock();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (count == BLOCK_SIZE) {
+                writeBlock();
+            }
+            int chunk = Math.min(remaining, BLOCK_SIZE - count);
+            System.arraycopy(b, offset, buffer, count, chunk);
+            count += chunk;
+            offset += chunk;
+            remaining -= chunk;
+        }
+    }
+
+    /**
+     * Writes the pending block, but does not terminate the stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            writeBlock();
+        }
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                writeBlock();
+            }
+            output.writeInt(0);
+            output.flush();
+        } finally {
+            output.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        int compressedLength = Lz4BlockCodec.compress(buffer, count, compressed, hashTable);
+        output.writeInt(count);
+        if (compressedLength < count) {
+            output.writeInt(compressedLength);
+            output.write(compressed, 0, compressedLength);
+        } else {
+            output.writeInt(count);
+            output.write(buffer, 0, count);
+        }
+        count = 0;
+    }
+}
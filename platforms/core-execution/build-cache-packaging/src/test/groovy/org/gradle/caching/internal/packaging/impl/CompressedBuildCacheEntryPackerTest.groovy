@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.gradle.caching.internal.CacheableEntity
+import org.gradle.caching.internal.origin.OriginReader
+import org.gradle.caching.internal.origin.OriginWriter
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
+import spock.lang.Specification
+
+import java.util.zip.GZIPOutputStream
+
+class CompressedBuildCacheEntryPackerTest extends Specification {
+    def entity = Stub(CacheableEntity)
+    def originWriter = Stub(OriginWriter)
+    def originReader = Stub(OriginReader)
+    def content = ("some content " * 1000).getBytes("UTF-8")
+    def delegate = new BuildCacheEntryPacker() {
+        byte[] unpacked
+
+        @Override
+        PackResult pack(CacheableEntity entity, Map snapshots, OutputStream output, OriginWriter writeOrigin) {
+            output.write(content)
+            return new PackResult(1)
+        }
+
+        @Override
+        UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) {
+            unpacked = input.bytes
+            return new UnpackResult(null, 1, [:])
+        }
+    }
+
+    def "can unpack entry packed with #packedWith when configured with #configured"() {
+        def entry = pack(packedWith)
+
+        when:
+        new CompressedBuildCacheEntryPacker(delegate, configured).unpack(entity, new ByteArrayInputStream(entry), originReader)
+
+        then:
+        delegate.unpacked == content
+
+        where:
+        [packedWith, configured] << [BuildCacheEntryCompression.values(), BuildCacheEntryCompression.values()].combinations()
+    }
+
+    def "gzip entries are plain gzip streams"() {
+        def plainGzip = new ByteArrayOutputStream()
+        new GZIPOutputStream(plainGzip).withCloseable { it.write(content) }
+
+        expect:
+        pack(BuildCacheEntryCompression.GZIP) == plainGzip.toByteArray()
+    }
+
+    def "lz4 entries start with a versioned header"() {
+        expect:
+        pack(BuildCacheEntryCompression.LZ4)[0..5] == header(1, 1) as List
+    }
+
+    def "fails to unpack unknown format"() {
+        when:
+        new CompressedBuildCacheEntryPacker(delegate, BuildCacheEntryCompression.LZ4).unpack(entity, new ByteArrayInputStream(entry as byte[]), originReader)
+
+        then:
+        def e = thrown(IOException)
+        e.message == message
+
+        where:
+        entry              | message
+        [1, 2, 3, 4, 5, 6] | "Unrecognized build cache entry format"
+        header(2, 1)       | "Unsupported build cache entry format version: 2"
+        header(1, 7)       | "Unsupported build cache entry compression: 7"
+    }
+
+    def "can parse compression names"() {
+        expect:
+        BuildCacheEntryCompression.forName("gzip") == BuildCacheEntryCompression.GZIP
+        BuildCacheEntryCompression.forName("LZ4") == BuildCacheEntryCompression.LZ4
+
+        when:
+        BuildCacheEntryCompression.forName("brotli")
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Unknown build cache entry compression 'brotli'. Supported values are 'gzip', 'lz4' and 'none'."
+    }
+
+    private byte[] pack(BuildCacheEntryCompression compression) {
+        def output = new ByteArrayOutputStream()
+        new CompressedBuildCacheEntryPacker(delegate, compression).pack(entity, [:], output, originWriter)
+        return output.toByteArray()
+    }
+
+    private static byte[] header(int version, int compression) {
+        return (("GBCE".getBytes("US-ASCII") as List) + [version, compression]) as byte[]
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.packaging.impl
+
+import spock.lang.Specification
+
+class Lz4BlockStreamTest extends Specification {
+
+    def "round-trips #description data of #length bytes"() {
+        def data = generator(new Random(length), length)
+
+        expect:
+        decompress(compress(data)) == data
+
+        where:
+        [description, generator, length] << [
+            [
+                ["random", { Random random, int length -> randomBytes(random, length) }],
+                ["repetitive", { Random random, int length -> repetitiveBytes(random, length) }],
+            ],
+            [0, 1, 12, 13, 1000, Lz4BlockOutputStream.BLOCK_SIZE, Lz4BlockOutputStream.BLOCK_SIZE + 1, 1_000_000]
+        ].combinations().collect { it.flatten() }
+    }
+
+    def "compresses repetitive data"() {
+        def data = repetitiveBytes(new Random(1), 1_000_000)
+
+        expect:
+        compress(data).length < data.length / 2
+    }
+
+    def "stores incompressible blocks without expanding them"() {
+        def data = randomBytes(new Random(1), 1_000_000)
+        def blockCount = Math.ceil(data.length / Lz4BlockOutputStream.BLOCK_SIZE) as int
+
+        expect:
+        compress(data).length == data.length + blockCount * 8 + 4
+    }
+
+    def "fails on truncated stream"() {
+        def compressed = compress(repetitiveBytes(new Random(1), 100_000))
+
+        when:
+        decompress(Arrays.copyOf(compressed, compressed.length - 10))
+
+        then:
+        def e = thrown(EOFException)
+        e.message == "Unexpected end of LZ4 compressed stream"
+    }
+
+    def "fails on corrupt block"() {
+        def compressed = compress(repetitiveBytes(new Random(1), 1000))
+        // Claim a larger uncompressed length than the block decompresses to
+        compressed[3] = (byte) (compressed[3] + 1)
+
+        when:
+        decompress(compressed)
+
+        then:
+        def e = thrown(IOException)
+        e.message.startsWith("Malformed LZ4 compressed")
+    }
+
+    private static byte[] compress(byte[] data) {
+        def output = new ByteArrayOutputStream()
+        new Lz4BlockOutputStream(output).withCloseable {
+            it.write(data)
+        }
+        return output.toByteArray()
+    }
+
+    private static byte[] decompress(byte[] data) {
+        return new Lz4BlockInputStream(new ByteArrayInputStream(data)).withCloseable {
+            it.bytes
+        }
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        def data = new byte[length]
+        random.nextBytes(data)
+        return data
+    }
+
+    private static byte[] repetitiveBytes(Random random, int length) {
+        def words = ["alpha", "beta", "gamma", "delta", "\n"]*.getBytes("UTF-8")
+        def data = new byte[length]
+        int position = 0
+        while (position < length) {
+            def word = words[random.nextInt(words.size())]
+            int count = Math.min(word.length, length - position)
+            System.arraycopy(word, 0, data, position, count)
+            position += count
+        }
+        return data
+    }
+}
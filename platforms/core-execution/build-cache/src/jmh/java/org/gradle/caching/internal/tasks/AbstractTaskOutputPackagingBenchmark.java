@@ -19,6 +19,7 @@
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
@@ -55,6 +56,7 @@ public abstract class AbstractTaskOutputPackagingBenchmark {
         .put("tar.small", new CommonsTarPacker(2))
         .put("tar.large", new CommonsTarPacker(64))
         .put("tar.gz", new GzipPacker(new CommonsTarPacker(4)))
+        .put("tar.lz4", new Lz4Packer(new CommonsTarPacker(4)))
         .put("zip", new ZipPacker(4))
         .build();
 
@@ -67,6 +69,7 @@ public abstract class AbstractTaskOutputPackagingBenchmark {
         .build();
 
     DataSource sample;
+    double inputMegabytes;
 
     List<DataSource> inputs;
     int fileCount = 273;
@@ -86,6 +89,7 @@ public void setupTrial() throws IOException {
         Packer packer = PACKERS.get(packerName);
         DataAccessor accessor = ACCESSORS.get(accessorName);
         this.inputs = createInputFiles(fileCount, minFileSize, maxFileSize, accessor);
+        this.inputMegabytes = totalLength(inputs) / (1024d * 1024d);
         this.sample = packSample("sample." + packerName, inputs, packer, accessor);
     }
 
@@ -119,10 +123,7 @@ private static ImmutableList<DataSource> createInputFiles(int fileCount, int min
     }
 
     private static DataSource packSample(String name, List<DataSource> inputs, Packer packer, DataAccessor accessor) throws IOException {
-        long sumLength = 0;
-        for (DataSource input : inputs) {
-            sumLength += input.getLength();
-        }
+        long sumLength = totalLength(inputs);
         DataTarget target = accessor.createTarget(name, Level.Trial);
         packer.pack(inputs, target);
         DataSource source = target.toSource();
@@ -130,22 +131,46 @@ private static DataSource packSample(String name, List<DataSource> inputs, Packe
         return source;
     }
 
+    private static long totalLength(List<DataSource> inputs) throws IOException {
+        long sumLength = 0;
+        for (DataSource input : inputs) {
+            sumLength += input.getLength();
+        }
+        return sumLength;
+    }
+
+    /**
+     * Counts the uncompressed megabytes processed, so the throughput of packing and unpacking is reported in MB/s, too.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class ProcessedData {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
     @Benchmark
-    public void pack() throws IOException {
+    public void pack(ProcessedData processed) throws IOException {
         String packerName = getPackerName();
         String accessorName = getAccessorName();
         Packer packer = PACKERS.get(packerName);
         DataAccessor accessor = ACCESSORS.get(accessorName);
         packer.pack(inputs, accessor.createTarget("pack-" + packerName, Level.Iteration));
+        processed.megabytes += inputMegabytes;
     }
 
     @Benchmark
-    public void unpack() throws IOException {
+    public void unpack(ProcessedData processed) throws IOException {
         String packerName = getPackerName();
         String accessorName = getAccessorName();
         Packer packer = PACKERS.get(packerName);
         DataAccessor accessor = ACCESSORS.get(accessorName);
         packer.unpack(sample, accessor.createTargetFactory("unpack-" + accessorName, Level.Iteration));
+        processed.megabytes += inputMegabytes;
     }
 
     private static class DefaultDirectoryProvider implements DirectoryProvider {
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.tasks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Interners;
+import org.apache.commons.io.FileUtils;
+import org.gradle.internal.hash.FileHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotter;
+import org.gradle.internal.snapshot.impl.DirectorySnapshotterStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares walking a directory tree sequentially and in parallel with {@link DirectorySnapshotter}.
+ *
+ * Files are hashed by their path and metadata only, so the benchmark measures the walk itself.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class DirectorySnapshottingBenchmark {
+    private static final int FILES_PER_DIRECTORY = 20;
+    private static final int DIRECTORIES_PER_DIRECTORY = 10;
+
+    @Param({"10000", "100000", "1000000"})
+    int fileCount;
+
+    Path root;
+    ExecutorService executor;
+    DirectorySnapshotter sequentialSnapshotter;
+    DirectorySnapshotter parallelSnapshotter;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("directory-snapshotting");
+        int directoryCount = (fileCount + FILES_PER_DIRECTORY - 1) / FILES_PER_DIRECTORY;
+        for (int directory = 0; directory < directoryCount; directory++) {
+            Path directoryPath = root.resolve(directoryPath(directory));
+            Files.createDirectories(directoryPath);
+            for (int file = 0; file < FILES_PER_DIRECTORY; file++) {
+                Files.write(directoryPath.resolve("file" + file + ".txt"), new byte[]{(byte) file});
+            }
+        }
+
+        FileHasher hasher = new FileHasher() {
+            @Override
+            public HashCode hash(File file) {
+                return hash(file, file.length(), file.lastModified());
+            }
+
+            @Override
+            public HashCode hash(File file, long length, long lastModified) {
+                return Hashing.hashString(file.getPath() + length + lastModified);
+            }
+        };
+        DirectorySnapshotterStatistics.Collector collector = new DirectorySnapshotterStatistics.Collector();
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        sequentialSnapshotter = new DirectorySnapshotter(hasher, Interners.newWeakInterner(), ImmutableList.of(), collector);
+        parallelSnapshotter = new DirectorySnapshotter(hasher, Interners.newWeakInterner(), ImmutableList.of(), collector, executor);
+    }
+
+    /**
+     * Spreads the directories over a tree with {@value #DIRECTORIES_PER_DIRECTORY} subdirectories per level.
+     */
+    private static String directoryPath(int directory) {
+        StringBuilder path = new StringBuilder("dir");
+        for (int remaining = directory; remaining > 0; remaining /= DIRECTORIES_PER_DIRECTORY) {
+            path.append(File.separatorChar).append("dir").append(remaining % DIRECTORIES_PER_DIRECTORY);
+        }
+        return path.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdown();
+        FileUtils.forceDelete(root.toFile());
+    }
+
+    @Benchmark
+    public Object snapshotSequentially() {
+        return sequentialSnapshotter.snapshot(root.toString(), null, ImmutableMap.of(), snapshot -> {});
+    }
+
+    @Benchmark
+    public Object snapshotInParallel() {
+        return parallelSnapshotter.snapshot(root.toString(), null, ImmutableMap.of(), snapshot -> {});
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.tasks;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.snapshot.CaseSensitivity;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.snapshot.SnapshotHierarchy;
+import org.gradle.internal.vfs.impl.DefaultSnapshotHierarchy;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the heap retained by a virtual file system holding snapshots of {@code fileCount} files.
+ *
+ * The files are spread over project-like directories, and the retained size is reported in megabytes.
+ * File names are interned like {@link org.gradle.internal.snapshot.impl.DirectorySnapshotter} does.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.SingleShotTime)
+@State(Scope.Benchmark)
+public class SnapshotHierarchyRetainedSizeBenchmark {
+    private static final int FILES_PER_DIRECTORY = 50;
+    private static final int DIRECTORIES_PER_PROJECT = 20;
+
+    @Param({"1000000"})
+    int fileCount;
+
+    SnapshotHierarchy root;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class RetainedSize {
+        public double retainedMegabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retainedMegabytes = 0;
+        }
+    }
+
+    @Benchmark
+    public SnapshotHierarchy retainedSize(RetainedSize retainedSize) {
+        root = null;
+        long usedBefore = usedHeapAfterGc();
+        Interner<String> interner = Interners.newStrongInterner();
+        SnapshotHierarchy hierarchy = DefaultSnapshotHierarchy.empty(CaseSensitivity.CASE_SENSITIVE);
+        int directoryCount = (fileCount + FILES_PER_DIRECTORY - 1) / FILES_PER_DIRECTORY;
+        for (int directory = 0; directory < directoryCount; directory++) {
+            String directoryPath = "/monorepo/project" + (directory / DIRECTORIES_PER_PROJECT) + "/src/main/java/org/example/package" + (directory % DIRECTORIES_PER_PROJECT);
+            hierarchy = hierarchy.store(directoryPath, directorySnapshot(directoryPath, directory, interner), SnapshotHierarchy.NodeDiffListener.NOOP);
+        }
+        root = hierarchy;
+        retainedSize.retainedMegabytes = (usedHeapAfterGc() - usedBefore) / (1024.0 * 1024.0);
+        return hierarchy;
+    }
+
+    private static DirectorySnapshot directorySnapshot(String directoryPath, int directory, Interner<String> interner) {
+        List<FileSystemLocationSnapshot> children = new ArrayList<>(FILES_PER_DIRECTORY);
+        for (int file = 0; file < FILES_PER_DIRECTORY; file++) {
+            String name = interner.intern("Class" + file + ".java");
+            HashCode hash = Hashing.hashString(directoryPath + name);
+            children.add(new RegularFileSnapshot(directoryPath + "/" + name, name, hash, DefaultFileMetadata.file(directory, file, AccessType.DIRECT)));
+        }
+        String name = directoryPath.substring(directoryPath.lastIndexOf('/') + 1);
+        return new DirectorySnapshot(directoryPath, name, AccessType.DIRECT, Hashing.hashString(directoryPath), children);
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -40,5 +40,12 @@ public interface BuildCacheController extends Closeable {
 
     Optional<BuildCacheLoadResult> load(BuildCacheKey cacheKey, CacheableEntity cacheableEntity);
 
+    /**
+     * Signals that the entry with the given key is likely to be loaded soon.
+     *
+     * Implementations may start downloading the entry from the remote cache in the background.
+     */
+    void prefetch(BuildCacheKey cacheKey);
+
     void store(BuildCacheKey cacheKey, CacheableEntity entity, Map<String, FileSystemSnapshot> snapshots, Duration executionTime);
 }
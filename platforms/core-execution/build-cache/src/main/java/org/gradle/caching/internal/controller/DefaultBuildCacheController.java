@@ -36,6 +36,7 @@
 import org.gradle.caching.internal.controller.service.NullRemoteBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.OpFiringLocalBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.OpFiringRemoteBuildCacheServiceHandle;
+import org.gradle.caching.internal.controller.service.PrefetchingBuildCacheService;
 import org.gradle.caching.internal.controller.service.RemoteBuildCacheServiceHandle;
 import org.gradle.caching.internal.origin.OriginMetadata;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
@@ -68,10 +69,13 @@
 import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class DefaultBuildCacheController implements BuildCacheController {
 
+    private static final int MAX_PENDING_PREFETCHES = 64;
+
     @VisibleForTesting
     final RemoteBuildCacheServiceHandle remote;
 
@@ -81,6 +85,9 @@ public class DefaultBuildCacheController implements BuildCacheController {
     private final BuildCacheTempFileStore tmp;
     private final PackOperationExecutor packExecutor;
 
+    @Nullable
+    private final PrefetchingBuildCacheService prefetchingRemote;
+
     private boolean closed;
 
     public DefaultBuildCacheController(
@@ -94,8 +101,33 @@ public DefaultBuildCacheController(
         OriginMetadataFactory originMetadataFactory,
         Interner<String> stringInterner
     ) {
+        this(config, buildOperationRunner, buildOperationProgressEventEmitter, temporaryFileFactory, logStackTraces, disableRemoteOnError, packer, originMetadataFactory, stringInterner, null);
+    }
+
+    /**
+     * @param remotePrefetchExecutor executor to download remote entries ahead of their load, or {@code null} to not prefetch.
+     * The executor is shut down when this controller is closed.
+     */
+    public DefaultBuildCacheController(
+        BuildCacheServicesConfiguration config,
+        BuildOperationRunner buildOperationRunner,
+        BuildOperationProgressEventEmitter buildOperationProgressEventEmitter,
+        TemporaryFileFactory temporaryFileFactory,
+        boolean logStackTraces,
+        boolean disableRemoteOnError,
+        BuildCacheEntryPacker packer,
+        OriginMetadataFactory originMetadataFactory,
+        Interner<String> stringInterner,
+        @Nullable ExecutorService remotePrefetchExecutor
+    ) {
+        this.prefetchingRemote = config.getRemote() != null && remotePrefetchExecutor != null
+            ? new PrefetchingBuildCacheService(config.getRemote(), temporaryFileFactory, remotePrefetchExecutor, MAX_PENDING_PREFETCHES)
+            : null;
+        if (prefetchingRemote == null && remotePrefetchExecutor != null) {
+            remotePrefetchExecutor.shutdown();
+        }
         this.local = toLocalHandle(config.getLocal(), config.isLocalPush(), buildOperationRunner);
-        this.remote = toRemoteHandle(config.getBuildPath(), config.getRemote(), config.isRemotePush(), buildOperationRunner, buildOperationProgressEventEmitter, logStackTraces, disableRemoteOnError);
+        this.remote = toRemoteHandle(config.getBuildPath(), prefetchingRemote != null ? prefetchingRemote : config.getRemote(), config.isRemotePush(), buildOperationRunner, buildOperationProgressEventEmitter, logStackTraces, disableRemoteOnError);
         this.tmp = toTempFileStore(config.getLocal(), temporaryFileFactory);
         this.packExecutor = new PackOperationExecutor(
             buildOperationRunner,
@@ -114,11 +146,22 @@ public boolean isEnabled() {
     public Optional<BuildCacheLoadResult> load(BuildCacheKey key, CacheableEntity entity) {
         Optional<BuildCacheLoadResult> result = loadLocal(key, entity);
         if (result.isPresent()) {
+            if (prefetchingRemote != null) {
+                prefetchingRemote.discard(key);
+            }
             return result;
         }
         return loadRemoteAndStoreResultLocally(key, entity);
     }
 
+    @Override
+    public void prefetch(BuildCacheKey key) {
+        if (prefetchingRemote != null && remote.canLoad()) {
+            // Only download the entry when it is not going to be loaded from the local cache
+            prefetchingRemote.prefetch(key, () -> !local.contains(key));
+        }
+    }
+
     private Optional<BuildCacheLoadResult> loadLocal(BuildCacheKey key, CacheableEntity entity) {
         try {
             return local.maybeLoad(key, file -> packExecutor.unpack(key, entity, file));
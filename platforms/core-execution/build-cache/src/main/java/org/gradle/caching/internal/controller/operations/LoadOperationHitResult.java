@@ -21,9 +21,15 @@
 public class LoadOperationHitResult implements BuildCacheRemoteLoadBuildOperationType.Result {
 
     private final long size;
+    private final long prefetchSavedTimeMillis;
 
     public LoadOperationHitResult(long size) {
+        this(size, 0);
+    }
+
+    public LoadOperationHitResult(long size, long prefetchSavedTimeMillis) {
         this.size = size;
+        this.prefetchSavedTimeMillis = prefetchSavedTimeMillis;
     }
 
     @Override
@@ -36,4 +42,9 @@ public long getArchiveSize() {
         return size;
     }
 
+    @Override
+    public long getPrefetchSavedTimeMillis() {
+        return prefetchSavedTimeMillis;
+    }
+
 }
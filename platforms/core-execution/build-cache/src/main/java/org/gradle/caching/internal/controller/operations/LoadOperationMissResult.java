@@ -35,4 +35,9 @@ public long getArchiveSize() {
         return 0;
     }
 
+    @Override
+    public long getPrefetchSavedTimeMillis() {
+        return 0;
+    }
+
 }
@@ -23,11 +23,13 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
 
 public class LoadTarget implements BuildCacheEntryReader {
 
     private final File file;
     private boolean loaded;
+    private Duration prefetchSavedTime = Duration.ZERO;
 
     public LoadTarget(File file) {
         this.file = file;
@@ -43,6 +45,9 @@ public void readFrom(InputStream input) throws IOException {
             }
             Files.asByteSink(file).writeFrom(input);
             loaded = true;
+            if (input instanceof PrefetchingBuildCacheService.PrefetchedEntryInputStream) {
+                prefetchSavedTime = ((PrefetchingBuildCacheService.PrefetchedEntryInputStream) input).getSavedTime();
+            }
         } catch (Exception e) {
             throw closer.rethrow(e);
         } finally {
@@ -58,6 +63,13 @@ public File getFile() {
         return file;
     }
 
+    /**
+     * The part of the download that happened ahead of the load, when the entry was prefetched.
+     */
+    public Duration getPrefetchSavedTime() {
+        return prefetchSavedTime;
+    }
+
     public long getLoadedSize() {
         if (loaded) {
             return file.length();
@@ -64,7 +64,7 @@ public void run(BuildOperationContext context) {
                 loadInner(key, new OpFiringEntryReader(loadTarget));
                 context.setResult(
                     loadTarget.isLoaded()
-                        ? new LoadOperationHitResult(loadTarget.getLoadedSize())
+                        ? new LoadOperationHitResult(loadTarget.getLoadedSize(), loadTarget.getPrefetchSavedTime().toMillis())
                         : LoadOperationMissResult.INSTANCE
                 );
             }
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.controller.service;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.caching.BuildCacheEntryReader;
+import org.gradle.caching.BuildCacheEntryWriter;
+import org.gradle.caching.BuildCacheException;
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.local.internal.BuildCacheTempFileStore;
+import org.gradle.caching.local.internal.TemporaryFileFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Decorates a remote {@link BuildCacheService} so that entries can be downloaded ahead of the time they are loaded.
+ *
+ * <p>{@link #prefetch(BuildCacheKey, BooleanSupplier)} starts downloading an entry into a temporary file on the given executor.
+ * A later {@link #load(BuildCacheKey, BuildCacheEntryReader)} for the same key waits for that download instead of
+ * going to the network again, and reads the entry via a {@link PrefetchedEntryInputStream}.
+ * When the prefetch failed, was cancelled or was skipped, the load falls back to the delegate, so failures are reported by the regular load.</p>
+ *
+ * <p>At most {@code maxPendingEntries} downloaded or in-flight entries are kept, further prefetch requests are ignored.</p>
+ */
+public class PrefetchingBuildCacheService implements BuildCacheService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingBuildCacheService.class);
+
+    private final BuildCacheService delegate;
+    private final TemporaryFileFactory temporaryFileFactory;
+    private final ExecutorService executor;
+    private final int maxPendingEntries;
+    private final Map<String, PrefetchedEntry> entries = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public PrefetchingBuildCacheService(BuildCacheService delegate, TemporaryFileFactory temporaryFileFactory, ExecutorService executor, int maxPendingEntries) {
+        this.delegate = delegate;
+        this.temporaryFileFactory = temporaryFileFactory;
+        this.executor = executor;
+        this.maxPendingEntries = maxPendingEntries;
+    }
+
+    /**
+     * Starts downloading the entry for the given key in the background, unless it is already being downloaded.
+     *
+     * @param shouldDownload checked on the background thread right before downloading, e.g. to skip entries that are available locally.
+     */
+    public void prefetch(BuildCacheKey key, BooleanSupplier shouldDownload) {
+        if (closed || entries.size() >= maxPendingEntries) {
+            return;
+        }
+        PrefetchedEntry entry = new PrefetchedEntry(key, shouldDownload);
+        if (entries.putIfAbsent(key.getHashCode(), entry) != null) {
+            return;
+        }
+        try {
+            executor.execute(entry);
+        } catch (RejectedExecutionException e) {
+            entries.remove(key.getHashCode(), entry);
+        }
+    }
+
+    /**
+     * Cancels the download of the entry for the given key, e.g. because it has been loaded from somewhere else.
+     */
+    public void discard(BuildCacheKey key) {
+        PrefetchedEntry entry = entries.remove(key.getHashCode());
+        if (entry != null) {
+            entry.discard();
+        }
+    }
+
+    @Override
+    public boolean load(BuildCacheKey key, BuildCacheEntryReader reader) throws BuildCacheException {
+        PrefetchedEntry entry = entries.remove(key.getHashCode());
+        if (entry == null) {
+            return delegate.load(key, reader);
+        }
+        long requestedAt = System.nanoTime();
+        try {
+            switch (entry.get()) {
+                case MISSING:
+                    return false;
+                case SKIPPED:
+                    return delegate.load(key, reader);
+                default:
+                    break;
+            }
+            try (PrefetchedEntryInputStream input = new PrefetchedEntryInputStream(entry.file, entry.savedTime(requestedAt))) {
+                reader.readFrom(input);
+            } catch (IOException e) {
+                throw new BuildCacheException("Could not read prefetched build cache entry " + key.getHashCode(), e);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entry.discard();
+            return delegate.load(key, reader);
+        } catch (ExecutionException e) {
+            LOGGER.debug("Could not prefetch entry {} from remote build cache, loading it again", key.getHashCode(), e.getCause());
+            return delegate.load(key, reader);
+        } catch (CancellationException e) {
+            return delegate.load(key, reader);
+        } finally {
+            entry.deleteFile();
+        }
+    }
+
+    @Override
+    public void store(BuildCacheKey key, BuildCacheEntryWriter writer) throws BuildCacheException {
+        delegate.store(key, writer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        executor.shutdownNow();
+        for (PrefetchedEntry entry : entries.values()) {
+            entry.discard();
+        }
+        entries.clear();
+        delegate.close();
+    }
+
+    /**
+     * A stream over a downloaded entry, which also knows how much of the download happened before the entry was requested.
+     */
+    public static class PrefetchedEntryInputStream extends FileInputStream {
+        private final Duration savedTime;
+
+        PrefetchedEntryInputStream(File file, Duration savedTime) throws FileNotFoundException {
+            super(file);
+            this.savedTime = savedTime;
+        }
+
+        public Duration getSavedTime() {
+            return savedTime;
+        }
+    }
+
+    private enum PrefetchResult {
+        LOADED, MISSING, SKIPPED
+    }
+
+    private class PrefetchedEntry implements Runnable {
+        private final BuildCacheKey key;
+        private final BooleanSupplier shouldDownload;
+        private final FutureTask<PrefetchResult> download = new FutureTask<>(this::download);
+        private volatile File file;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+
+        PrefetchedEntry(BuildCacheKey key, BooleanSupplier shouldDownload) {
+            this.key = key;
+            this.shouldDownload = shouldDownload;
+        }
+
+        @Override
+        public void run() {
+            download.run();
+        }
+
+        private PrefetchResult download() {
+            if (!shouldDownload.getAsBoolean()) {
+                return PrefetchResult.SKIPPED;
+            }
+            startedAt = System.nanoTime();
+            try {
+                file = temporaryFileFactory.createTemporaryFile(key.getHashCode() + "-", BuildCacheTempFileStore.PARTIAL_FILE_SUFFIX);
+                LoadTarget loadTarget = new LoadTarget(file);
+                delegate.load(key, loadTarget);
+                return loadTarget.isLoaded() ? PrefetchResult.LOADED : PrefetchResult.MISSING;
+            } finally {
+                finishedAt = System.nanoTime();
+                if (download.isCancelled()) {
+                    deleteFile();
+                }
+            }
+        }
+
+        PrefetchResult get() throws InterruptedException, ExecutionException {
+            return download.get();
+        }
+
+        /**
+         * The download time minus the time the load had to wait for the download to finish.
+         */
+        Duration savedTime(long requestedAt) {
+            long waited = Math.max(0, finishedAt - requestedAt);
+            return Duration.ofNanos(Math.max(0, finishedAt - startedAt - waited));
+        }
+
+        void discard() {
+            download.cancel(true);
+            deleteFile();
+        }
+
+        void deleteFile() {
+            File file = this.file;
+            if (file != null) {
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package org.gradle.caching.internal.controller
 
 import com.google.common.collect.Interner
+import com.google.common.util.concurrent.MoreExecutors
 import org.gradle.caching.BuildCacheEntryReader
 import org.gradle.caching.BuildCacheEntryWriter
 import org.gradle.caching.BuildCacheKey
@@ -39,6 +40,7 @@ import spock.lang.Specification
 
 import java.nio.file.Files
 import java.time.Duration
+import java.util.concurrent.ExecutorService
 import java.util.function.Consumer
 
 class DefaultBuildCacheControllerTest extends Specification {
@@ -73,6 +75,10 @@ class DefaultBuildCacheControllerTest extends Specification {
     interface Local extends BuildCacheService, LocalBuildCacheService {}
 
     BuildCacheController getController(boolean disableRemoteOnError = true) {
+        getController(disableRemoteOnError, null)
+    }
+
+    BuildCacheController getController(boolean disableRemoteOnError, ExecutorService remotePrefetchExecutor) {
         new DefaultBuildCacheController(
             new BuildCacheServicesConfiguration(
                 Path.ROOT.path,
@@ -88,10 +94,42 @@ class DefaultBuildCacheControllerTest extends Specification {
             disableRemoteOnError,
             packer,
             originMetadataFactory,
-            stringInterner
+            stringInterner,
+            remotePrefetchExecutor
         )
     }
 
+    def "prefetches remote entry when it is missing from local cache"() {
+        given:
+        def controller = getController(true, MoreExecutors.newDirectExecutorService())
+
+        when:
+        controller.prefetch(key)
+
+        then:
+        1 * local.contains(key) >> false
+        1 * remote.load(key, _) >> false
+
+        when:
+        controller.load(key, cacheableEntity)
+
+        then:
+        1 * local.loadLocally(key, _)
+        0 * remote.load(_, _)
+    }
+
+    def "does not prefetch remote entry when it is in local cache"() {
+        given:
+        def controller = getController(true, MoreExecutors.newDirectExecutorService())
+
+        when:
+        controller.prefetch(key)
+
+        then:
+        1 * local.contains(key) >> true
+        0 * remote.load(_, _)
+    }
+
     def "does suppress exceptions from load"() {
         given:
         1 * remote.load(key, _) >> { throw new RuntimeException() }
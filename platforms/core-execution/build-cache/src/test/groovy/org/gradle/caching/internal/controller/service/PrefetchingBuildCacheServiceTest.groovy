@@ -0,0 +1,247 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.controller.service
+
+import com.google.common.util.concurrent.MoreExecutors
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheService
+import org.gradle.caching.internal.TestBuildCacheKey
+import org.gradle.caching.local.internal.TemporaryFileFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Files
+import java.util.concurrent.AbstractExecutorService
+import java.util.concurrent.TimeUnit
+
+class PrefetchingBuildCacheServiceTest extends Specification {
+
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def key = new TestBuildCacheKey(0x12345678)
+    def delegate = Mock(BuildCacheService)
+    def executor = MoreExecutors.newDirectExecutorService()
+    def tempDir = temporaryFolder.createDir("tmp")
+    def service = new PrefetchingBuildCacheService(
+        delegate,
+        { prefix, suffix -> Files.createTempFile(tempDir.toPath(), prefix, suffix).toFile() } as TemporaryFileFactory,
+        executor,
+        2
+    )
+
+    def "loads prefetched entry without requesting it again"() {
+        def target = new LoadTarget(temporaryFolder.file("target"))
+
+        when:
+        service.prefetch(key, { true })
+
+        then:
+        1 * delegate.load(key, _) >> { key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("entry".bytes))
+            true
+        }
+
+        when:
+        def loaded = service.load(key, target)
+
+        then:
+        0 * delegate.load(_, _)
+        loaded
+        target.loaded
+        target.file.text == "entry"
+        !target.prefetchSavedTime.negative
+        tempDir.list().length == 0
+    }
+
+    def "reports prefetched miss without requesting it again"() {
+        def target = new LoadTarget(temporaryFolder.file("target"))
+
+        when:
+        service.prefetch(key, { true })
+        def loaded = service.load(key, target)
+
+        then:
+        1 * delegate.load(key, _) >> false
+        !loaded
+        !target.loaded
+        tempDir.list().length == 0
+    }
+
+    def "loads entry again when prefetch failed"() {
+        def target = Mock(BuildCacheEntryReader)
+
+        when:
+        service.prefetch(key, { true })
+
+        then:
+        1 * delegate.load(key, _) >> { throw new RuntimeException("Boom") }
+
+        when:
+        def loaded = service.load(key, target)
+
+        then:
+        1 * delegate.load(key, target) >> true
+        loaded
+    }
+
+    def "loads entry that was not prefetched from delegate"() {
+        def target = Mock(BuildCacheEntryReader)
+
+        when:
+        def loaded = service.load(key, target)
+
+        then:
+        1 * delegate.load(key, target) >> true
+        loaded
+    }
+
+    def "ignores prefetch requests when too many entries are pending"() {
+        when:
+        service.prefetch(new TestBuildCacheKey(1), { true })
+        service.prefetch(new TestBuildCacheKey(1), { true })
+        service.prefetch(new TestBuildCacheKey(2), { true })
+        service.prefetch(new TestBuildCacheKey(3), { true })
+
+        then:
+        2 * delegate.load(_, _) >> false
+        tempDir.list().length == 2
+    }
+
+    def "deletes discarded entries"() {
+        given:
+        delegate.load(key, _) >> { key, BuildCacheEntryReader reader ->
+            reader.readFrom(new ByteArrayInputStream("entry".bytes))
+            true
+        }
+        service.prefetch(key, { true })
+
+        when:
+        service.discard(key)
+
+        then:
+        tempDir.list().length == 0
+    }
+
+    def "loads entry from delegate when prefetch was skipped"() {
+        def target = Mock(BuildCacheEntryReader)
+
+        when:
+        service.prefetch(key, { false })
+
+        then:
+        0 * delegate.load(_, _)
+        tempDir.list().length == 0
+
+        when:
+        def loaded = service.load(key, target)
+
+        then:
+        1 * delegate.load(key, target) >> true
+        loaded
+    }
+
+    def "does not create temporary file before download starts"() {
+        def queuedExecutor = new QueuingExecutor()
+        def service = new PrefetchingBuildCacheService(delegate, { prefix, suffix -> Files.createTempFile(tempDir.toPath(), prefix, suffix).toFile() } as TemporaryFileFactory, queuedExecutor, 2)
+
+        when:
+        service.prefetch(key, { true })
+        service.prefetch(key, { true })
+
+        then:
+        queuedExecutor.queued.size() == 1
+        tempDir.list().length == 0
+        0 * delegate.load(_, _)
+    }
+
+    def "loads entry from delegate when prefetch is cancelled while waiting for it"() {
+        def queuedExecutor = new QueuingExecutor()
+        def service = new PrefetchingBuildCacheService(delegate, { prefix, suffix -> Files.createTempFile(tempDir.toPath(), prefix, suffix).toFile() } as TemporaryFileFactory, queuedExecutor, 2)
+        def target = Mock(BuildCacheEntryReader)
+        def loaded = null
+        service.prefetch(key, { true })
+
+        when:
+        def loader = new Thread({ loaded = service.load(key, target) })
+        loader.start()
+        new PollingConditions().eventually {
+            assert loader.state == Thread.State.WAITING
+        }
+        service.close()
+        loader.join()
+
+        then:
+        1 * delegate.load(key, target) >> true
+        loaded
+        tempDir.list().length == 0
+    }
+
+    def "stops prefetching when closed"() {
+        when:
+        service.close()
+
+        then:
+        1 * delegate.close()
+        executor.shutdown
+
+        when:
+        service.prefetch(key, { true })
+
+        then:
+        0 * delegate.load(_, _)
+    }
+
+    private static class QueuingExecutor extends AbstractExecutorService {
+        final List<Runnable> queued = []
+        boolean shutdown
+
+        @Override
+        void execute(Runnable command) {
+            queued << command
+        }
+
+        @Override
+        void shutdown() {
+            shutdown = true
+        }
+
+        @Override
+        List<Runnable> shutdownNow() {
+            shutdown = true
+            return queued
+        }
+
+        @Override
+        boolean isShutdown() {
+            return shutdown
+        }
+
+        @Override
+        boolean isTerminated() {
+            return shutdown
+        }
+
+        @Override
+        boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true
+        }
+    }
+}
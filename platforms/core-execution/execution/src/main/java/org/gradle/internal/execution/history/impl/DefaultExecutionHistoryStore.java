@@ -23,23 +23,42 @@
 import org.gradle.cache.IndexedCacheParameters;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.execution.history.AfterExecutionState;
 import org.gradle.internal.execution.history.ExecutionHistoryStore;
 import org.gradle.internal.execution.history.PreviousExecutionState;
 import org.gradle.internal.fingerprint.CurrentFileCollectionFingerprint;
 import org.gradle.internal.fingerprint.FileCollectionFingerprint;
 import org.gradle.internal.hash.ClassLoaderHierarchyHasher;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.Optional;
 import java.util.function.Supplier;
 
 import static com.google.common.collect.ImmutableSortedMap.copyOfSorted;
 import static com.google.common.collect.Maps.transformValues;
 
+/**
+ * Stores execution history in a persistent indexed cache.
+ *
+ * <p>Entries are serialized on the thread that stores them, and the cache worker only copies the resulting bytes.
+ * Writes to the cache are already queued and applied by a single cache worker thread under the cache lock,
+ * so keeping the serialization out of that worker lets it keep up with many executions finishing at once.
+ * The in-memory layer keeps the deserialized state, so loading an entry that is held in memory does not decode it again.</p>
+ */
 public class DefaultExecutionHistoryStore implements ExecutionHistoryStore {
 
-    private final IndexedCache<String, PreviousExecutionState> store;
+    private final Serializer<PreviousExecutionState> serializer;
+    private final IndexedCache<String, StoredExecutionState> store;
 
     public DefaultExecutionHistoryStore(
         Supplier<PersistentCache> cache,
@@ -47,7 +66,7 @@ public DefaultExecutionHistoryStore(
         Interner<String> stringInterner,
         ClassLoaderHierarchyHasher classLoaderHasher
     ) {
-        DefaultPreviousExecutionStateSerializer serializer = new DefaultPreviousExecutionStateSerializer(
+        this.serializer = new DefaultPreviousExecutionStateSerializer(
             new FileCollectionFingerprintSerializer(stringInterner),
             new FileSystemSnapshotSerializer(stringInterner),
             classLoaderHasher,
@@ -56,19 +75,20 @@ public DefaultExecutionHistoryStore(
 
         CacheDecorator inMemoryCacheDecorator = inMemoryCacheDecoratorFactory.decorator(10000, false);
         this.store = cache.get().createIndexedCache(
-            IndexedCacheParameters.of("executionHistory", String.class, serializer)
+            IndexedCacheParameters.of("executionHistory", String.class, new StoredExecutionStateSerializer(serializer))
             .withCacheDecorator(inMemoryCacheDecorator)
         );
     }
 
     @Override
     public Optional<PreviousExecutionState> load(String key) {
-        return Optional.ofNullable(store.getIfPresent(key));
+        return Optional.ofNullable(store.getIfPresent(key))
+            .map(StoredExecutionState::getState);
     }
 
     @Override
     public void store(String key, AfterExecutionState executionState) {
-        store.put(key, new DefaultPreviousExecutionState(
+        PreviousExecutionState previousExecutionState = new DefaultPreviousExecutionState(
             executionState.getOriginMetadata(),
             executionState.getCacheKey(),
             executionState.getImplementation(),
@@ -77,7 +97,8 @@ public void store(String key, AfterExecutionState executionState) {
             prepareForSerialization(executionState.getInputFileProperties()),
             executionState.getOutputFilesProducedByWork(),
             executionState.isSuccessful()
-        ));
+        );
+        store.put(key, new StoredExecutionState(previousExecutionState, serialize(serializer, previousExecutionState)));
     }
 
     @Override
@@ -85,10 +106,77 @@ public void remove(String key) {
         store.remove(key);
     }
 
+    private static byte[] serialize(Serializer<PreviousExecutionState> serializer, PreviousExecutionState executionState) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(4096);
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream)) {
+            serializer.write(encoder, executionState);
+            encoder.flush();
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static PreviousExecutionState deserialize(Serializer<PreviousExecutionState> serializer, byte[] serializedState) {
+        try (KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(serializedState))) {
+            return serializer.read(decoder);
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
     private static ImmutableSortedMap<String, FileCollectionFingerprint> prepareForSerialization(ImmutableSortedMap<String, CurrentFileCollectionFingerprint> fingerprints) {
         return copyOfSorted(transformValues(
             fingerprints,
             value -> value.archive(SerializableFileCollectionFingerprint::new)
         ));
     }
+
+    /**
+     * A stored execution state, together with its serialized form until the cache worker has written it.
+     */
+    private static class StoredExecutionState {
+        private final PreviousExecutionState state;
+        private volatile byte[] serializedState;
+
+        StoredExecutionState(PreviousExecutionState state, @Nullable byte[] serializedState) {
+            this.state = state;
+            this.serializedState = serializedState;
+        }
+
+        PreviousExecutionState getState() {
+            return state;
+        }
+
+        /**
+         * Returns the serialized form and releases it, as the in-memory layer only needs the state afterwards.
+         */
+        @Nullable
+        byte[] takeSerializedState() {
+            byte[] serializedState = this.serializedState;
+            this.serializedState = null;
+            return serializedState;
+        }
+    }
+
+    private static class StoredExecutionStateSerializer extends AbstractSerializer<StoredExecutionState> {
+        private final Serializer<PreviousExecutionState> serializer;
+
+        StoredExecutionStateSerializer(Serializer<PreviousExecutionState> serializer) {
+            this.serializer = serializer;
+        }
+
+        @Override
+        public StoredExecutionState read(Decoder decoder) throws Exception {
+            return new StoredExecutionState(deserialize(serializer, decoder.readBinary()), null);
+        }
+
+        @Override
+        public void write(Encoder encoder, StoredExecutionState value) throws Exception {
+            byte[] serializedState = value.takeSerializedState();
+            encoder.writeBinary(serializedState != null
+                ? serializedState
+                : serialize(serializer, value.getState()));
+        }
+    }
 }
@@ -68,6 +68,12 @@ public CachingResult execute(UnitOfWork work, C context) {
             disabled -> logDisabledReasons(disabled.getDisabledReasons(), work)
         );
 
+        // Start downloading the entry we are going to load, so the download overlaps with the steps before the load
+        cachingState.whenEnabled()
+            .filter(enabled -> work.isAllowedToLoadFromCache())
+            .filter(enabled -> isExecutionRequired(context))
+            .ifPresent(enabled -> buildCache.prefetch(enabled.getCacheKeyCalculatedState().getKey()));
+
         UpToDateResult result = executeDelegate(work, context, cachingState);
         return new CachingResult(result, cachingState);
     }
@@ -99,6 +105,11 @@ private CachingState calculateCachingState(UnitOfWork work, C context, BeforeExe
      */
     protected abstract Optional<HashCode> getPreviousCacheKeyIfApplicable(C context);
 
+    /**
+     * Whether the work is going to be executed, or loaded from the cache, as opposed to being up-to-date.
+     */
+    protected abstract boolean isExecutionRequired(C context);
+
     protected abstract UpToDateResult executeDelegate(UnitOfWork work, C context, CachingState cachingState);
 
     private CachingState calculateCachingStateWithNoCapturedInputs(UnitOfWork work) {
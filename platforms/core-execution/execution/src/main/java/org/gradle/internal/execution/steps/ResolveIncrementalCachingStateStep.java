@@ -44,6 +44,12 @@ protected Optional<HashCode> getPreviousCacheKeyIfApplicable(C context) {
                 .map(PreviousExecutionState::getCacheKey));
     }
 
+    @Override
+    protected boolean isExecutionRequired(C context) {
+        // Mirrors SkipUpToDateStep
+        return !context.getChanges().isPresent() || !context.getRebuildReasons().isEmpty();
+    }
+
     @Override
     protected UpToDateResult executeDelegate(UnitOfWork work, C context, CachingState cachingState) {
         return delegate.execute(work, new IncrementalCachingContext(context, cachingState));
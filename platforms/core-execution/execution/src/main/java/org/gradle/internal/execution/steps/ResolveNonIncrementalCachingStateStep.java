@@ -45,6 +45,12 @@ protected Optional<HashCode> getPreviousCacheKeyIfApplicable(C context) {
         return Optional.empty();
     }
 
+    @Override
+    protected boolean isExecutionRequired(C context) {
+        // Non-incremental work is never up-to-date
+        return true;
+    }
+
     @Override
     protected UpToDateResult executeDelegate(UnitOfWork work, C context, CachingState cachingState) {
         return delegate.execute(work, new NonIncrementalCachingContext(context, cachingState));
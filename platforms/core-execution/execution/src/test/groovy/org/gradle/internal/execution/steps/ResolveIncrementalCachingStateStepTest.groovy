@@ -103,4 +103,25 @@ class ResolveIncrementalCachingStateStepTest extends AbstractResolveCachingState
         where:
         buildCacheEnabled << [true, false]
     }
+
+    def "prefetches cache entry only when work is going to be executed"() {
+        when:
+        step.execute(work, context)
+        then:
+        _ * buildCache.enabled >> true
+        _ * context.changes >> Optional.ofNullable(changes ? executionStateChanges : null)
+        _ * context.rebuildReasons >> ImmutableList.copyOf(rebuildReasons)
+        _ * context.beforeExecutionState >> Optional.of(beforeExecutionState)
+        _ * context.previousExecutionState >> Optional.empty()
+        _ * context.validationProblems >> ImmutableList.of()
+        _ * work.allowedToLoadFromCache >> true
+        prefetches * buildCache.prefetch({ it != null })
+        1 * delegate.execute(work, _ as CachingContext) >> delegateResult
+
+        where:
+        changes | rebuildReasons  | prefetches
+        true    | []              | 0
+        true    | ["Out-of-date"] | 1
+        false   | []              | 1
+    }
 }
@@ -43,4 +43,33 @@ class ResolveNonIncrementalCachingStateStepTest extends AbstractResolveCachingSt
         where:
         buildCacheEnabled << [true, false]
     }
+
+    def "prefetches cache entry when caching is enabled"() {
+        when:
+        step.execute(work, context)
+        then:
+        _ * buildCache.enabled >> buildCacheEnabled
+        _ * context.beforeExecutionState >> Optional.of(beforeExecutionState)
+        _ * context.validationProblems >> ImmutableList.of()
+        _ * work.allowedToLoadFromCache >> true
+        prefetches * buildCache.prefetch({ it != null })
+        1 * delegate.execute(work, _ as CachingContext) >> delegateResult
+
+        where:
+        buildCacheEnabled | prefetches
+        true              | 1
+        false             | 0
+    }
+
+    def "does not prefetch cache entry when work is not allowed to load from cache"() {
+        when:
+        step.execute(work, context)
+        then:
+        _ * buildCache.enabled >> true
+        _ * context.beforeExecutionState >> Optional.of(beforeExecutionState)
+        _ * context.validationProblems >> ImmutableList.of()
+        _ * work.allowedToLoadFromCache >> false
+        0 * buildCache.prefetch(_)
+        1 * delegate.execute(work, _ as CachingContext) >> delegateResult
+    }
 }
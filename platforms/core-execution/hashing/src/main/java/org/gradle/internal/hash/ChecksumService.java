@@ -19,6 +19,7 @@
 import org.gradle.internal.service.scopes.ServiceScope;
 
 import java.io.File;
+import java.util.Collection;
 
 @ServiceScope(Scope.BuildSession.class)
 public interface ChecksumService {
@@ -31,4 +32,14 @@ public interface ChecksumService {
     HashCode sha512(File file);
 
     HashCode hash(File src, String algorithm);
+
+    /**
+     * Calculates the checksums of the file for all the given algorithms, so that subsequent requests for them are served from the cache.
+     * Implementations may read the file only once for all algorithms that have not been calculated yet.
+     */
+    default void precompute(File file, Collection<String> algorithms) {
+        for (String algorithm : algorithms) {
+            hash(file, algorithm);
+        }
+    }
 }
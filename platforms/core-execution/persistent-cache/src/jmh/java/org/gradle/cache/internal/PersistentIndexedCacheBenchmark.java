@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.apache.commons.io.FileUtils;
+import org.gradle.cache.IndexedCacheBackend;
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.mmap.MemoryMappedPersistentIndexedCache;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares the {@link IndexedCacheBackend}s for the access patterns of the file hash and execution history caches.
+ *
+ * The B-tree is not thread-safe, so concurrent reads of it are serialized the same way the cache coordinator serializes them.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class PersistentIndexedCacheBenchmark {
+    private static final int SCAN_LENGTH = 1000;
+    private static final BaseSerializerFactory SERIALIZER_FACTORY = new BaseSerializerFactory();
+
+    @Param({"BTREE", "MEMORY_MAPPED"})
+    IndexedCacheBackend backend;
+
+    @Param({"100000", "1000000", "5000000"})
+    int entries;
+
+    private File tmpDir;
+    private PersistentIndexedCache<String, Long> cache;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tmpDir = Files.createTempDirectory("indexed-cache-benchmark").toFile();
+        Serializer<String> keySerializer = SERIALIZER_FACTORY.getSerializerFor(String.class);
+        Serializer<Long> valueSerializer = SERIALIZER_FACTORY.getSerializerFor(Long.class);
+        File cacheFile = new File(tmpDir, "cache." + backend.getFileExtension());
+        switch (backend) {
+            case BTREE:
+                cache = new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer);
+                break;
+            case MEMORY_MAPPED:
+                cache = new MemoryMappedPersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer);
+                break;
+            default:
+                throw new IllegalArgumentException();
+        }
+        for (int i = 0; i < entries; i++) {
+            cache.put(key(i), (long) i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        cache.close();
+        FileUtils.forceDelete(tmpDir);
+    }
+
+    private static String key(int index) {
+        return "/some/project/build/classes/java/main/org/gradle/Type" + index + ".class";
+    }
+
+    private String randomKey() {
+        return key(ThreadLocalRandom.current().nextInt(entries));
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        blackhole.consume(cache.get(randomKey()));
+    }
+
+    @Benchmark
+    public void put() {
+        cache.put(randomKey(), ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCAN_LENGTH)
+    public void scan(Blackhole blackhole) {
+        int start = ThreadLocalRandom.current().nextInt(entries - SCAN_LENGTH);
+        for (int i = start; i < start + SCAN_LENGTH; i++) {
+            blackhole.consume(cache.get(key(i)));
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void getConcurrently(Blackhole blackhole) {
+        String key = randomKey();
+        if (backend == IndexedCacheBackend.BTREE) {
+            synchronized (this) {
+                blackhole.consume(cache.get(key));
+            }
+        } else {
+            blackhole.consume(cache.get(key));
+        }
+    }
+}
@@ -55,6 +55,13 @@ public interface CacheBuilder {
      */
     CacheBuilder withCleanupStrategy(CacheCleanupStrategy cleanup);
 
+    /**
+     * Specifies the on-disk format of the indexed caches created from this cache. The default is {@link IndexedCacheBackend#BTREE}.
+     *
+     * @see IndexedCacheBackend
+     */
+    CacheBuilder withIndexedCacheBackend(IndexedCacheBackend indexedCacheBackend);
+
     /**
      * Opens the cache. It is the caller's responsibility to close the cache when finished with it.
      *
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache;
+
+/**
+ * The on-disk format used to persist the indexed caches of a {@link PersistentCache}.
+ */
+public enum IndexedCacheBackend {
+    /**
+     * Stores entries in a B-tree accessed through random file reads and writes. This is the default.
+     */
+    BTREE("bin", false),
+
+    /**
+     * Stores entries in an append-only, memory-mapped log with an in-memory index. Lookups do not perform any file I/O
+     * and can be served to multiple threads concurrently, at the cost of rebuilding the index whenever the cache file is opened.
+     */
+    MEMORY_MAPPED("mmap", true);
+
+    private final String fileExtension;
+    private final boolean concurrentReads;
+
+    IndexedCacheBackend(String fileExtension, boolean concurrentReads) {
+        this.fileExtension = fileExtension;
+        this.concurrentReads = concurrentReads;
+    }
+
+    /**
+     * The extension of the files holding indexed caches stored with this backend.
+     * Backends use distinct extensions, so that switching backends never reads a file in the wrong format.
+     */
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Whether entries can be read by multiple threads while another thread updates the cache.
+     * When {@code true}, reads are served on the calling thread instead of being queued behind pending updates.
+     */
+    public boolean supportsConcurrentReads() {
+        return concurrentReads;
+    }
+}
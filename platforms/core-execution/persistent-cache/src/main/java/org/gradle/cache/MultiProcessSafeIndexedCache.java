@@ -19,4 +19,10 @@
  * A {@link IndexedCache} implementation that is aware of file locking.
  */
 public interface MultiProcessSafeIndexedCache<K, V> extends IndexedCache<K, V>, UnitOfWorkParticipant {
+    /**
+     * Whether {@link #getIfPresent(Object)} can be called from multiple threads, concurrently with updates.
+     */
+    default boolean supportsConcurrentReads() {
+        return false;
+    }
 }
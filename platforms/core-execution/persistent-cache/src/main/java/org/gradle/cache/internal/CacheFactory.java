@@ -17,6 +17,7 @@
 
 import org.gradle.cache.CacheCleanupStrategy;
 import org.gradle.cache.CacheOpenException;
+import org.gradle.cache.IndexedCacheBackend;
 import org.gradle.cache.LockOptions;
 import org.gradle.cache.PersistentCache;
 import org.gradle.internal.service.scopes.Scope;
@@ -32,7 +33,14 @@ public interface CacheFactory {
     /**
      * Opens a cache with the given options. The caller must close the cache when finished with it.
      */
-    PersistentCache open(File cacheDir, String displayName, Map<String, ?> properties, LockOptions lockOptions, @Nullable Consumer<? super PersistentCache> initializer, CacheCleanupStrategy cacheCleanupStrategy) throws CacheOpenException;
+    default PersistentCache open(File cacheDir, String displayName, Map<String, ?> properties, LockOptions lockOptions, @Nullable Consumer<? super PersistentCache> initializer, CacheCleanupStrategy cacheCleanupStrategy) throws CacheOpenException {
+        return open(cacheDir, displayName, properties, lockOptions, initializer, cacheCleanupStrategy, IndexedCacheBackend.BTREE);
+    }
+
+    /**
+     * Opens a cache with the given options, storing its indexed caches using the given backend. The caller must close the cache when finished with it.
+     */
+    PersistentCache open(File cacheDir, String displayName, Map<String, ?> properties, LockOptions lockOptions, @Nullable Consumer<? super PersistentCache> initializer, CacheCleanupStrategy cacheCleanupStrategy, IndexedCacheBackend indexedCacheBackend) throws CacheOpenException;
 
     /**
      * Visit the caches created by this factory.
@@ -19,6 +19,7 @@
 import org.gradle.cache.CacheBuilder;
 import org.gradle.cache.CacheCleanupStrategy;
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.IndexedCacheBackend;
 import org.gradle.cache.LockOptions;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.internal.filelock.DefaultLockOptions;
@@ -37,6 +38,7 @@ public class DefaultCacheBuilder implements CacheBuilder {
     private Consumer<? super PersistentCache> initializer;
     private CacheCleanupStrategy cacheCleanupStrategy = CacheCleanupStrategy.NO_CLEANUP;
     private LockOptions lockOptions = mode(FileLockManager.LockMode.Shared);
+    private IndexedCacheBackend indexedCacheBackend = IndexedCacheBackend.BTREE;
     private String displayName;
 
     public DefaultCacheBuilder(CacheFactory factory, File baseDir) {
@@ -74,8 +76,14 @@ public CacheBuilder withCleanupStrategy(CacheCleanupStrategy cacheCleanupStrateg
         return this;
     }
 
+    @Override
+    public CacheBuilder withIndexedCacheBackend(IndexedCacheBackend indexedCacheBackend) {
+        this.indexedCacheBackend = indexedCacheBackend;
+        return this;
+    }
+
     @Override
     public PersistentCache open() {
-        return factory.open(baseDir, displayName, properties, lockOptions, initializer, cacheCleanupStrategy);
+        return factory.open(baseDir, displayName, properties, lockOptions, initializer, cacheCleanupStrategy, indexedCacheBackend);
     }
 }
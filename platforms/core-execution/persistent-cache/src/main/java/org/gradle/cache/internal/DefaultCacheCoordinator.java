@@ -25,6 +25,7 @@
 import org.gradle.cache.FileIntegrityViolationException;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.IndexedCacheBackend;
 import org.gradle.cache.IndexedCacheParameters;
 import org.gradle.cache.InsufficientLockModeException;
 import org.gradle.cache.LockOptions;
@@ -32,6 +33,7 @@
 import org.gradle.cache.MultiProcessSafeIndexedCache;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
+import org.gradle.cache.internal.mmap.MemoryMappedPersistentIndexedCache;
 import org.gradle.internal.Cast;
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -64,6 +66,7 @@ public class DefaultCacheCoordinator implements CacheCreationCoordinator, Exclus
     private final File baseDir;
     private final CacheCleanupExecutor cleanupAction;
     private final ExecutorFactory executorFactory;
+    private final IndexedCacheBackend indexedCacheBackend;
     private final FileAccess fileAccess;
     private final Map<String, IndexedCacheEntry<?, ?>> caches = new HashMap<>();
     private final AbstractCrossProcessCacheAccess crossProcessCacheAccess;
@@ -83,10 +86,15 @@ public class DefaultCacheCoordinator implements CacheCreationCoordinator, Exclus
     private boolean alreadyCleaned;
 
     public DefaultCacheCoordinator(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupExecutor cleanupAction, ExecutorFactory executorFactory) {
+        this(cacheDisplayName, lockTarget, lockOptions, baseDir, lockManager, initializationAction, cleanupAction, executorFactory, IndexedCacheBackend.BTREE);
+    }
+
+    public DefaultCacheCoordinator(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupExecutor cleanupAction, ExecutorFactory executorFactory, IndexedCacheBackend indexedCacheBackend) {
         this.cacheDisplayName = cacheDisplayName;
         this.baseDir = baseDir;
         this.cleanupAction = cleanupAction;
         this.executorFactory = executorFactory;
+        this.indexedCacheBackend = indexedCacheBackend;
         this.operations = new CacheAccessOperationsStack();
 
         Consumer<FileLock> onFileLockAcquireAction = this::afterLockAcquire;
@@ -311,9 +319,9 @@ public <K, V> MultiProcessSafeIndexedCache<K, V> newCache(final IndexedCachePara
             if (entry == null) {
                 File cacheFile = findCacheFile(parameters);
                 LOG.debug("Creating new cache for {}, path {}, access {}", parameters.getCacheName(), cacheFile, this);
-                Supplier<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = () -> doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                Supplier<PersistentIndexedCache<K, V>> indexedCacheFactory = () -> doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
 
-                MultiProcessSafeIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafeIndexedCache<>(indexedCacheFactory, fileAccess);
+                MultiProcessSafeIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafeIndexedCache<>(indexedCacheFactory, fileAccess, indexedCacheBackend.supportsConcurrentReads());
                 CacheDecorator decorator = parameters.getCacheDecorator();
                 if (decorator != null) {
                     indexedCache = decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache, crossProcessCacheAccess, getCacheAccessWorker());
@@ -338,7 +346,7 @@ public <K, V> MultiProcessSafeIndexedCache<K, V> newCache(final IndexedCachePara
     }
 
     private <K, V> File findCacheFile(IndexedCacheParameters<K, V> parameters) {
-        return new File(baseDir, parameters.getCacheName() + ".bin");
+        return new File(baseDir, parameters.getCacheName() + "." + indexedCacheBackend.getFileExtension());
     }
 
     @Override
@@ -346,8 +354,15 @@ public <K, V> boolean cacheExists(IndexedCacheParameters<K, V> parameters) {
         return findCacheFile(parameters).exists();
     }
 
-    <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer);
+    <K, V> PersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        switch (indexedCacheBackend) {
+            case BTREE:
+                return new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer);
+            case MEMORY_MAPPED:
+                return new MemoryMappedPersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer);
+            default:
+                throw new IllegalArgumentException();
+        }
     }
 
     /**
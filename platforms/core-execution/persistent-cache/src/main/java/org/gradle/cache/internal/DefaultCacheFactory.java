@@ -19,6 +19,7 @@
 import org.gradle.cache.CacheOpenException;
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.IndexedCache;
+import org.gradle.cache.IndexedCacheBackend;
 import org.gradle.cache.IndexedCacheParameters;
 import org.gradle.cache.LockOptions;
 import org.gradle.cache.PersistentCache;
@@ -57,10 +58,10 @@ void onClose(Object cache) {
     }
 
     @Override
-    public PersistentCache open(File cacheDir, String displayName, Map<String, ?> properties, LockOptions lockOptions, @Nullable Consumer<? super PersistentCache> initializer, CacheCleanupStrategy cacheCleanupStrategy) throws CacheOpenException {
+    public PersistentCache open(File cacheDir, String displayName, Map<String, ?> properties, LockOptions lockOptions, @Nullable Consumer<? super PersistentCache> initializer, CacheCleanupStrategy cacheCleanupStrategy, IndexedCacheBackend indexedCacheBackend) throws CacheOpenException {
         lock.lock();
         try {
-            return doOpen(cacheDir, displayName, properties, lockOptions, initializer, cacheCleanupStrategy);
+            return doOpen(cacheDir, displayName, properties, lockOptions, initializer, cacheCleanupStrategy, indexedCacheBackend);
         } finally {
             lock.unlock();
         }
@@ -88,19 +89,20 @@ private PersistentCache doOpen(
         Map<String, ?> properties,
         LockOptions lockOptions,
         @Nullable Consumer<? super PersistentCache> initializer,
-        CacheCleanupStrategy cacheCleanupStrategy
+        CacheCleanupStrategy cacheCleanupStrategy,
+        IndexedCacheBackend indexedCacheBackend
     ) {
         DirCacheReference dirCacheReference = dirCaches.get(cacheDir);
         if (dirCacheReference == null) {
             ReferencablePersistentCache cache;
             if (!properties.isEmpty() || initializer != null) {
                 Consumer<? super PersistentCache> initAction = initializer != null ? initializer : __ -> {};
-                cache = new DefaultPersistentDirectoryCache(cacheDir, displayName, properties, lockOptions, initAction, cacheCleanupStrategy, lockManager, executorFactory);
+                cache = new DefaultPersistentDirectoryCache(cacheDir, displayName, properties, lockOptions, initAction, cacheCleanupStrategy, lockManager, executorFactory, indexedCacheBackend);
             } else {
-                cache = new DefaultPersistentDirectoryStore(cacheDir, displayName, lockOptions, cacheCleanupStrategy, lockManager, executorFactory);
+                cache = new DefaultPersistentDirectoryStore(cacheDir, displayName, lockOptions, cacheCleanupStrategy, lockManager, executorFactory, indexedCacheBackend);
             }
             cache.open();
-            dirCacheReference = new DirCacheReference(cache, properties, lockOptions);
+            dirCacheReference = new DirCacheReference(cache, properties, lockOptions, indexedCacheBackend);
             dirCaches.put(cacheDir, dirCacheReference);
         } else {
             if (!lockOptions.equals(dirCacheReference.lockOptions)) {
@@ -109,6 +111,9 @@ private PersistentCache doOpen(
             if (!properties.equals(dirCacheReference.properties)) {
                 throw new IllegalStateException(String.format("Cache '%s' is already open with different properties.", cacheDir));
             }
+            if (indexedCacheBackend != dirCacheReference.indexedCacheBackend) {
+                throw new IllegalStateException(String.format("Cache '%s' is already open with a different indexed cache backend.", cacheDir));
+            }
         }
         return new ReferenceTrackingCache(dirCacheReference);
     }
@@ -116,13 +121,15 @@ private PersistentCache doOpen(
     private class DirCacheReference implements Closeable {
         private final Map<String, ?> properties;
         private final LockOptions lockOptions;
+        private final IndexedCacheBackend indexedCacheBackend;
         private final ReferencablePersistentCache cache;
         private final Set<ReferenceTrackingCache> references = new HashSet<>();
 
-        DirCacheReference(ReferencablePersistentCache cache, Map<String, ?> properties, LockOptions lockOptions) {
+        DirCacheReference(ReferencablePersistentCache cache, Map<String, ?> properties, LockOptions lockOptions, IndexedCacheBackend indexedCacheBackend) {
             this.cache = cache;
             this.properties = properties;
             this.lockOptions = lockOptions;
+            this.indexedCacheBackend = indexedCacheBackend;
             onOpen(cache);
         }
 
@@ -19,19 +19,24 @@
 import org.gradle.cache.FileIntegrityViolationException;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.MultiProcessSafeIndexedCache;
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 public class DefaultMultiProcessSafeIndexedCache<K, V> implements MultiProcessSafeIndexedCache<K, V> {
     private final FileAccess fileAccess;
-    private final Supplier<BTreePersistentIndexedCache<K, V>> factory;
-    private BTreePersistentIndexedCache<K, V> cache;
+    private final Supplier<? extends PersistentIndexedCache<K, V>> factory;
+    private final boolean concurrentReads;
+    private volatile PersistentIndexedCache<K, V> cache;
 
-    public DefaultMultiProcessSafeIndexedCache(Supplier<BTreePersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+    public DefaultMultiProcessSafeIndexedCache(Supplier<? extends PersistentIndexedCache<K, V>> factory, FileAccess fileAccess) {
+        this(factory, fileAccess, false);
+    }
+
+    public DefaultMultiProcessSafeIndexedCache(Supplier<? extends PersistentIndexedCache<K, V>> factory, FileAccess fileAccess, boolean concurrentReads) {
         this.factory = factory;
         this.fileAccess = fileAccess;
+        this.concurrentReads = concurrentReads;
     }
 
     @Override
@@ -39,9 +44,19 @@ public String toString() {
         return fileAccess.toString();
     }
 
+    @Override
+    public boolean supportsConcurrentReads() {
+        return concurrentReads;
+    }
+
     @Override
     public V getIfPresent(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedCache<K, V> cache = getCache();
+        if (concurrentReads) {
+            // The caller holds the cross-process lock and the backing cache recovers from interrupted writes itself,
+            // so read on the calling thread without claiming ownership of the cache
+            return cache.get(key);
+        }
         try {
             return fileAccess.readFile((Supplier<V>) () -> cache.get(key));
         } catch (FileIntegrityViolationException e) {
@@ -61,7 +76,7 @@ public V get(K key, Function<? super K, ? extends V> producer) {
 
     @Override
     public void put(final K key, final V value) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(() -> cache.put(key, value));
@@ -69,7 +84,7 @@ public void put(final K key, final V value) {
 
     @Override
     public void remove(final K key) {
-        final BTreePersistentIndexedCache<K, V> cache = getCache();
+        final PersistentIndexedCache<K, V> cache = getCache();
         // Use writeFile because the cache can internally recover from datafile
         // corruption, so we don't care at this level if it's corrupt
         fileAccess.writeFile(() -> cache.remove(key));
@@ -94,12 +109,23 @@ public void finishWork() {
     public void beforeLockRelease(FileLock.State currentCacheState) {
     }
 
-    private BTreePersistentIndexedCache<K, V> getCache() {
-        if (cache == null) {
-            // Use writeFile because the cache can internally recover from datafile
-            // corruption, so we don't care at this level if it's corrupt
-            fileAccess.writeFile(() -> cache = factory.get());
+    private PersistentIndexedCache<K, V> getCache() {
+        PersistentIndexedCache<K, V> current = cache;
+        if (current == null) {
+            // Readers may open the cache concurrently with the cache worker when concurrent reads are supported
+            synchronized (this) {
+                if (cache == null) {
+                    if (concurrentReads) {
+                        cache = factory.get();
+                    } else {
+                        // Use writeFile because the cache can internally recover from datafile
+                        // corruption, so we don't care at this level if it's corrupt
+                        fileAccess.writeFile(() -> cache = factory.get());
+                    }
+                }
+                current = cache;
+            }
         }
-        return cache;
+        return current;
     }
 }
@@ -19,6 +19,7 @@
 import org.gradle.cache.CacheCleanupStrategy;
 import org.gradle.cache.FileLock;
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.IndexedCacheBackend;
 import org.gradle.cache.LockOptions;
 import org.gradle.cache.PersistentCache;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -52,7 +53,21 @@ public DefaultPersistentDirectoryCache(
         FileLockManager lockManager,
         ExecutorFactory executorFactory
     ) {
-        super(dir, displayName, lockOptions, cacheCleanupStrategy, lockManager, executorFactory);
+        this(dir, displayName, properties, lockOptions, initAction, cacheCleanupStrategy, lockManager, executorFactory, IndexedCacheBackend.BTREE);
+    }
+
+    public DefaultPersistentDirectoryCache(
+        File dir,
+        String displayName,
+        Map<String, ?> properties,
+        LockOptions lockOptions,
+        Consumer<? super PersistentCache> initAction,
+        CacheCleanupStrategy cacheCleanupStrategy,
+        FileLockManager lockManager,
+        ExecutorFactory executorFactory,
+        IndexedCacheBackend indexedCacheBackend
+    ) {
+        super(dir, displayName, lockOptions, cacheCleanupStrategy, lockManager, executorFactory, indexedCacheBackend);
         this.initAction = initAction;
         this.properties.putAll(properties);
     }
@@ -20,6 +20,7 @@
 import org.gradle.cache.CacheOpenException;
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.IndexedCache;
+import org.gradle.cache.IndexedCacheBackend;
 import org.gradle.cache.IndexedCacheParameters;
 import org.gradle.cache.LockOptions;
 import org.gradle.internal.concurrent.ExecutorFactory;
@@ -41,6 +42,7 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
     private final LockOptions lockOptions;
     private final FileLockManager lockManager;
     private final ExecutorFactory executorFactory;
+    private final IndexedCacheBackend indexedCacheBackend;
     private final String displayName;
 
     protected final File propertiesFile;
@@ -56,11 +58,24 @@ public DefaultPersistentDirectoryStore(
         CacheCleanupStrategy cacheCleanupStrategy,
         FileLockManager fileLockManager,
         ExecutorFactory executorFactory
+    ) {
+        this(dir, displayName, lockOptions, cacheCleanupStrategy, fileLockManager, executorFactory, IndexedCacheBackend.BTREE);
+    }
+
+    public DefaultPersistentDirectoryStore(
+        File dir,
+        @Nullable String displayName,
+        LockOptions lockOptions,
+        CacheCleanupStrategy cacheCleanupStrategy,
+        FileLockManager fileLockManager,
+        ExecutorFactory executorFactory,
+        IndexedCacheBackend indexedCacheBackend
     ) {
         this.dir = dir;
         this.lockOptions = lockOptions;
         this.lockManager = fileLockManager;
         this.executorFactory = executorFactory;
+        this.indexedCacheBackend = indexedCacheBackend;
         this.propertiesFile = new File(dir, "cache.properties");
         this.gcFile = new File(dir, "gc.properties");
         this.displayName = displayName != null ? (displayName + " (" + dir + ")") : ("cache directory " + dir.getName() + " (" + dir + ")");
@@ -81,7 +96,7 @@ public DefaultPersistentDirectoryStore open() {
     }
 
     private DefaultCacheCoordinator createCacheAccess() {
-        return new DefaultCacheCoordinator(displayName, getLockTarget(), lockOptions, dir, lockManager, getInitAction(), cleanupExecutor, executorFactory);
+        return new DefaultCacheCoordinator(displayName, getLockTarget(), lockOptions, dir, lockManager, getInitAction(), cleanupExecutor, executorFactory, indexedCacheBackend);
     }
 
     private File getLockTarget() {
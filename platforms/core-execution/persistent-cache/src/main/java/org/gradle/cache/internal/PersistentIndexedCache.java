@@ -0,0 +1,49 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import javax.annotation.Nullable;
+
+/**
+ * A single-file, on-disk map, used as the backing storage of a {@link org.gradle.cache.MultiProcessSafeIndexedCache}.
+ *
+ * Cross-process locking is the responsibility of the caller.
+ *
+ * @see org.gradle.cache.IndexedCacheBackend
+ */
+public interface PersistentIndexedCache<K, V> {
+    @Nullable
+    V get(K key);
+
+    void put(K key, V value);
+
+    void remove(K key);
+
+    /**
+     * Discards all entries.
+     */
+    void clear();
+
+    /**
+     * Closes and reopens the cache, picking up changes made to the file by other processes.
+     */
+    void reset();
+
+    void close();
+
+    boolean isOpen();
+}
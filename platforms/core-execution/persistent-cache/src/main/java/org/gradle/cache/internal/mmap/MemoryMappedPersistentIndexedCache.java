@@ -0,0 +1,754 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.mmap;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.PersistentIndexedCache;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link PersistentIndexedCache} that stores its entries in an append-only log, which is accessed through memory-mapped regions of the cache file.
+ *
+ * <p>The location of the latest record for each key is held in an in-memory hash index.
+ * The index is split into lock stripes, so lookups from multiple threads proceed concurrently and never touch the file system.
+ * Appends are serialized, but only copy bytes into the mapped regions.</p>
+ *
+ * <p>File layout: a header holding a magic number, the committed length of the log and a random log id, followed by 8-byte aligned records of the form
+ * {@code [key length][value length or -1 for a removal][key bytes][value bytes]}. A record becomes visible to other processes only once
+ * the committed length in the header has been advanced past it, so an interrupted write is discarded on the next open.</p>
+ *
+ * <p>When the cache is closed, the index is written to a hint file next to the cache file, together with the log id and the length of the log it covers.
+ * The log id changes whenever the log is rewritten rather than appended to, so when the cache is opened again, possibly after other processes
+ * appended to it, the hint is loaded and only the records beyond the length it covers are scanned.
+ * Without a matching hint, the index is rebuilt by scanning the whole log.</p>
+ *
+ * <p>Superseded and removed records are left in place and compacted away when the cache is closed, once they account for most of the log.</p>
+ *
+ * <p>Like {@link org.gradle.cache.internal.btree.BTreePersistentIndexedCache}, this cache must not be closed, reset or cleared concurrently with other operations.</p>
+ */
+public class MemoryMappedPersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryMappedPersistentIndexedCache.class);
+    private static final HashFunction KEY_HASH = Hashing.murmur3_128();
+    private static final ToLongFunction<byte[]> DEFAULT_KEY_HASH = key -> KEY_HASH.hashBytes(key).asLong();
+
+    static final int DEFAULT_REGION_SIZE = 8 * 1024 * 1024;
+    private static final long MAGIC = 0x474D4D4150494332L;
+    private static final long INDEX_HINT_MAGIC = 0x474D4D4150494948L;
+    private static final int HEADER_SIZE = 24;
+    private static final int COMMITTED_LENGTH_OFFSET = 8;
+    private static final int LOG_ID_OFFSET = 16;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int REMOVED = -1;
+    private static final int STRIPE_COUNT = 64;
+    private static final long MIN_GARBAGE_TO_COMPACT = 1024 * 1024;
+
+    private final File cacheFile;
+    private final File indexHintFile;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final int regionSize;
+    private final ToLongFunction<byte[]> keyHash;
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+
+    // Guards appends and all the fields below, except for regions which is published to readers
+    private final Object writeLock = new Object();
+    private RandomAccessFile file;
+    private volatile MappedByteBuffer[] regions;
+    private long committedLength;
+    private long garbageLength;
+    // Whether the index has changed since it was loaded from or written to the hint file
+    private boolean indexChanged;
+
+    public MemoryMappedPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(cacheFile, keySerializer, valueSerializer, DEFAULT_REGION_SIZE);
+    }
+
+    public MemoryMappedPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, int regionSize) {
+        this(cacheFile, keySerializer, valueSerializer, regionSize, DEFAULT_KEY_HASH);
+    }
+
+    /**
+     * Creates a cache that indexes keys using the given hash of their serialized form. Allows tests to force hash collisions.
+     */
+    MemoryMappedPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, int regionSize, ToLongFunction<byte[]> keyHash) {
+        if (regionSize < HEADER_SIZE || regionSize % 8 != 0) {
+            throw new IllegalArgumentException("Region size must be a multiple of 8 and at least " + HEADER_SIZE + " bytes.");
+        }
+        this.cacheFile = cacheFile;
+        this.indexHintFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".index");
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.regionSize = regionSize;
+        this.keyHash = keyHash;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cache " + cacheFile.getName() + " (" + cacheFile + ")";
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        synchronized (writeLock) {
+            resetIndex();
+            file = new RandomAccessFile(cacheFile, "rw");
+            regions = new MappedByteBuffer[0];
+            boolean isNew = file.length() < HEADER_SIZE;
+            ensureMapped(HEADER_SIZE);
+            if (isNew || regions[0].getLong(0) != MAGIC) {
+                if (!isNew) {
+                    LOGGER.warn("{} is corrupt. Discarding.", this);
+                }
+                initHeader();
+                return;
+            }
+            committedLength = regions[0].getLong(COMMITTED_LENGTH_OFFSET);
+            if (committedLength < HEADER_SIZE || committedLength > file.length()) {
+                LOGGER.warn("{} is corrupt. Discarding.", this);
+                initHeader();
+                return;
+            }
+            ensureMapped(committedLength);
+            rebuildIndex(loadIndexHint());
+        }
+    }
+
+    private void initHeader() {
+        regions[0].putLong(0, MAGIC);
+        newLogId();
+        commit(HEADER_SIZE);
+    }
+
+    /**
+     * Assigns a new id to the log, which invalidates any index hint written for it. Must be called whenever records are discarded or rewritten.
+     */
+    private void newLogId() {
+        regions[0].putLong(LOG_ID_OFFSET, ThreadLocalRandom.current().nextLong());
+        indexChanged = true;
+    }
+
+    private void resetIndex() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(this);
+        }
+        garbageLength = 0;
+    }
+
+    private void commit(long length) {
+        regions[0].putLong(COMMITTED_LENGTH_OFFSET, length);
+        committedLength = length;
+    }
+
+    /**
+     * Loads the index from the hint file, when it was written for the current log.
+     *
+     * @return the length of the log covered by the loaded index, or the header size when no index was loaded.
+     */
+    private long loadIndexHint() {
+        if (!indexHintFile.isFile()) {
+            return HEADER_SIZE;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(indexHintFile)))) {
+            if (input.readLong() != INDEX_HINT_MAGIC || input.readLong() != regions[0].getLong(LOG_ID_OFFSET)) {
+                return HEADER_SIZE;
+            }
+            long indexedLength = input.readLong();
+            long indexedGarbageLength = input.readLong();
+            int entryCount = input.readInt();
+            if (indexedLength < HEADER_SIZE || indexedLength > committedLength || entryCount < 0) {
+                return HEADER_SIZE;
+            }
+            for (int i = 0; i < entryCount; i++) {
+                long hash = input.readLong();
+                long position = input.readLong();
+                if (position < HEADER_SIZE || position >= indexedLength) {
+                    resetIndex();
+                    return HEADER_SIZE;
+                }
+                stripeFor(hash).restore(hash, position);
+            }
+            garbageLength = indexedGarbageLength;
+            LOGGER.debug("Loaded index of {} entries for {} from {}.", entryCount, this, indexHintFile);
+            return indexedLength;
+        } catch (IOException e) {
+            LOGGER.debug("Could not load index hint for {}.", this, e);
+            resetIndex();
+            return HEADER_SIZE;
+        }
+    }
+
+    private void writeIndexHint(long logId, long length, long garbage, long[] entries) {
+        File tempFile = new File(indexHintFile.getParentFile(), indexHintFile.getName() + ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                output.writeLong(INDEX_HINT_MAGIC);
+                output.writeLong(logId);
+                output.writeLong(length);
+                output.writeLong(garbage);
+                output.writeInt(entries.length / 2);
+                for (long value : entries) {
+                    output.writeLong(value);
+                }
+            }
+            Files.move(tempFile.toPath(), indexHintFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // The index is rebuilt from the log on the next open instead
+            LOGGER.debug("Could not write index hint for {}.", this, e);
+            tempFile.delete();
+            indexHintFile.delete();
+        }
+    }
+
+    private void rebuildIndex(long from) {
+        long position = from;
+        if (position < committedLength) {
+            indexChanged = true;
+        }
+        while (position < committedLength) {
+            int keyLength = readInt(position);
+            int valueLength = readInt(position + 4);
+            long recordLength = recordLength(keyLength, valueLength);
+            if (keyLength < 0 || valueLength < REMOVED || position + recordLength > committedLength) {
+                LOGGER.warn("{} is corrupt. Discarding entries after offset {}.", this, position);
+                newLogId();
+                commit(position);
+                return;
+            }
+            byte[] key = new byte[keyLength];
+            read(position + RECORD_HEADER_SIZE, key, 0, keyLength);
+            long hash = hash(key);
+            long previous = valueLength == REMOVED
+                ? stripeFor(hash).remove(hash, key)
+                : stripeFor(hash).put(hash, key, position);
+            if (previous != Stripe.EMPTY) {
+                garbageLength += recordLengthAt(previous);
+            }
+            if (valueLength == REMOVED) {
+                garbageLength += recordLength;
+            }
+            position += recordLength;
+        }
+    }
+
+    @Nullable
+    @Override
+    public V get(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            long hash = hash(keyBytes);
+            long position = stripeFor(hash).get(hash, keyBytes);
+            if (position == Stripe.EMPTY) {
+                return null;
+            }
+            int keyLength = readInt(position);
+            int valueLength = readInt(position + 4);
+            byte[] valueBytes = new byte[valueLength];
+            read(position + RECORD_HEADER_SIZE + keyLength, valueBytes, 0, valueLength);
+            return valueSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(valueBytes), Math.max(1, valueLength)));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            byte[] valueBytes = serialize(valueSerializer, value);
+            append(keyBytes, valueBytes);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            long hash = hash(keyBytes);
+            if (stripeFor(hash).get(hash, keyBytes) == Stripe.EMPTY) {
+                return;
+            }
+            append(keyBytes, null);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    private void append(byte[] key, @Nullable byte[] value) throws IOException {
+        int valueLength = value == null ? REMOVED : value.length;
+        long recordLength = recordLength(key.length, valueLength);
+        long hash = hash(key);
+        synchronized (writeLock) {
+            long position = committedLength;
+            ensureMapped(position + recordLength);
+            writeInt(position, key.length);
+            writeInt(position + 4, valueLength);
+            write(position + RECORD_HEADER_SIZE, key);
+            if (value != null) {
+                write(position + RECORD_HEADER_SIZE + key.length, value);
+            }
+            commit(position + recordLength);
+            indexChanged = true;
+
+            long previous = value == null
+                ? stripeFor(hash).remove(hash, key)
+                : stripeFor(hash).put(hash, key, position);
+            if (previous != Stripe.EMPTY) {
+                garbageLength += recordLengthAt(previous);
+            }
+            if (value == null) {
+                garbageLength += recordLength;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            resetIndex();
+            newLogId();
+            commit(HEADER_SIZE);
+        }
+    }
+
+    @Override
+    public void reset() {
+        close();
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        synchronized (writeLock) {
+            if (file == null) {
+                return;
+            }
+            try {
+                boolean compact = garbageLength >= MIN_GARBAGE_TO_COMPACT && garbageLength * 2 > committedLength;
+                CompactedCopy compacted = compact ? writeCompactedCopy() : null;
+                long logId = regions[0].getLong(LOG_ID_OFFSET);
+                long[] entries = compacted == null && indexChanged ? liveEntries() : null;
+                regions = null;
+                truncateQuietly(file, committedLength);
+                file.close();
+                file = null;
+                if (compacted != null && replaceWith(compacted.file)) {
+                    writeIndexHint(compacted.logId, compacted.length, 0, compacted.entries);
+                } else if (compacted != null) {
+                    writeIndexHint(logId, committedLength, garbageLength, liveEntries());
+                } else if (entries != null) {
+                    writeIndexHint(logId, committedLength, garbageLength, entries);
+                }
+                indexChanged = false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                file = null;
+                regions = null;
+            }
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return regions != null;
+    }
+
+    private CompactedCopy writeCompactedCopy() throws IOException {
+        File compacted = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compact");
+        long[] entries = liveEntries();
+        long logId = ThreadLocalRandom.current().nextLong();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (RandomAccessFile target = new RandomAccessFile(compacted, "rw")) {
+            target.setLength(0);
+            FileChannel channel = target.getChannel();
+            long targetPosition = HEADER_SIZE;
+            channel.position(targetPosition);
+            byte[] buffer = new byte[0];
+            for (int i = 1; i < entries.length; i += 2) {
+                long position = entries[i];
+                int length = (int) recordLengthAt(position);
+                if (buffer.length < length) {
+                    buffer = new byte[length];
+                }
+                read(position, buffer, 0, length);
+                channel.write(ByteBuffer.wrap(buffer, 0, length));
+                entries[i] = targetPosition;
+                targetPosition += length;
+            }
+            header.putLong(MAGIC);
+            header.putLong(targetPosition);
+            header.putLong(logId);
+            header.flip();
+            channel.write(header, 0);
+            return new CompactedCopy(compacted, logId, targetPosition, entries);
+        }
+    }
+
+    private boolean replaceWith(File compacted) {
+        try {
+            Files.move(compacted.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            // The old file may still be mapped, which prevents replacing it on some platforms. Compact on a later close instead.
+            LOGGER.debug("Could not compact {}.", this, e);
+            compacted.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the hash and the record position of each live entry, interleaved.
+     */
+    private long[] liveEntries() {
+        long[][] stripeEntries = new long[stripes.length][];
+        int length = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            stripeEntries[i] = stripes[i].liveEntries();
+            length += stripeEntries[i].length;
+        }
+        long[] entries = new long[length];
+        int offset = 0;
+        for (long[] stripeEntry : stripeEntries) {
+            System.arraycopy(stripeEntry, 0, entries, offset, stripeEntry.length);
+            offset += stripeEntry.length;
+        }
+        return entries;
+    }
+
+    private static void truncateQuietly(RandomAccessFile file, long length) {
+        try {
+            file.setLength(length);
+        } catch (IOException e) {
+            // Some platforms do not allow truncating a file that is still mapped, in which case the unused tail is simply reused on the next open
+        }
+    }
+
+    private Stripe stripeFor(long hash) {
+        return stripes[stripeIndex(hash)];
+    }
+
+    private long hash(byte[] key) {
+        return keyHash.applyAsLong(key);
+    }
+
+    /**
+     * Returns the hash the index uses for the given key.
+     */
+    long hashOf(K key) throws Exception {
+        return hash(serialize(keySerializer, key));
+    }
+
+    /**
+     * Returns the index of the stripe holding the given key hash.
+     */
+    static int stripeIndex(long hash) {
+        return (int) (hash >>> 58) & (STRIPE_COUNT - 1);
+    }
+
+    private static long recordLength(int keyLength, int valueLength) {
+        long length = RECORD_HEADER_SIZE + (long) keyLength + Math.max(0, valueLength);
+        return (length + 7) & ~7L;
+    }
+
+    private long recordLengthAt(long position) {
+        return recordLength(readInt(position), readInt(position + 4));
+    }
+
+    private static <T> byte[] serialize(Serializer<T> serializer, T value) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(bytes, 256);
+        serializer.write(encoder, value);
+        encoder.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Maps enough regions to access the file up to the given length. Must be called while holding the write lock.
+     */
+    private void ensureMapped(long length) throws IOException {
+        int required = (int) ((length + regionSize - 1) / regionSize);
+        MappedByteBuffer[] current = regions;
+        if (required <= current.length) {
+            return;
+        }
+        MappedByteBuffer[] extended = Arrays.copyOf(current, required);
+        FileChannel channel = file.getChannel();
+        for (int i = current.length; i < required; i++) {
+            extended[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * regionSize, regionSize);
+        }
+        regions = extended;
+    }
+
+    // Records are 8-byte aligned and regions are a multiple of 8 bytes, so record headers never span two regions
+    private int readInt(long position) {
+        return regions[(int) (position / regionSize)].getInt((int) (position % regionSize));
+    }
+
+    private void writeInt(long position, int value) {
+        regions[(int) (position / regionSize)].putInt((int) (position % regionSize), value);
+    }
+
+    private void read(long position, byte[] target, int offset, int length) {
+        MappedByteBuffer[] mapped = regions;
+        while (length > 0) {
+            int regionOffset = (int) (position % regionSize);
+            int count = Math.min(length, regionSize - regionOffset);
+            ByteBuffer region = mapped[(int) (position / regionSize)].duplicate();
+            region.position(regionOffset);
+            region.get(target, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private void write(long position, byte[] source) {
+        int offset = 0;
+        int length = source.length;
+        while (length > 0) {
+            int regionOffset = (int) (position % regionSize);
+            int count = Math.min(length, regionSize - regionOffset);
+            ByteBuffer region = regions[(int) (position / regionSize)].duplicate();
+            region.position(regionOffset);
+            region.put(source, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    private boolean keyMatches(long position, byte[] key) {
+        if (readInt(position) != key.length) {
+            return false;
+        }
+        byte[] candidate = new byte[key.length];
+        read(position + RECORD_HEADER_SIZE, candidate, 0, key.length);
+        return Arrays.equals(candidate, key);
+    }
+
+    private static final class CompactedCopy {
+        final File file;
+        final long logId;
+        final long length;
+        final long[] entries;
+
+        CompactedCopy(File file, long logId, long length, long[] entries) {
+            this.file = file;
+            this.logId = logId;
+            this.length = length;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * One stripe of the index, mapping key hashes to the position of the latest record for the key using open addressing.
+     * Hash collisions are resolved by comparing the serialized key stored in the record.
+     */
+    private static final class Stripe {
+        static final long EMPTY = 0;
+        private static final long DELETED = -1;
+
+        private final MemoryMappedPersistentIndexedCache<?, ?> cache;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private long[] hashes = new long[16];
+        private long[] positions = new long[16];
+        private int occupied;
+        private int live;
+
+        Stripe(MemoryMappedPersistentIndexedCache<?, ?> cache) {
+            this.cache = cache;
+        }
+
+        long get(long hash, byte[] key) {
+            lock.readLock().lock();
+            try {
+                int slot = findSlot(hash, key);
+                return slot < 0 ? EMPTY : positions[slot];
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Returns the position of the record this one replaces, or {@link #EMPTY}.
+         */
+        long put(long hash, byte[] key, long position) {
+            lock.writeLock().lock();
+            try {
+                int slot = findSlot(hash, key);
+                if (slot >= 0) {
+                    long previous = positions[slot];
+                    positions[slot] = position;
+                    return previous;
+                }
+                if ((occupied + 1) * 4 > positions.length * 3) {
+                    rehash();
+                }
+                int mask = positions.length - 1;
+                int index = (int) hash & mask;
+                while (positions[index] != EMPTY && positions[index] != DELETED) {
+                    index = (index + 1) & mask;
+                }
+                if (positions[index] == EMPTY) {
+                    occupied++;
+                }
+                hashes[index] = hash;
+                positions[index] = position;
+                live++;
+                return EMPTY;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Returns the position of the removed record, or {@link #EMPTY}.
+         */
+        long remove(long hash, byte[] key) {
+            lock.writeLock().lock();
+            try {
+                int slot = findSlot(hash, key);
+                if (slot < 0) {
+                    return EMPTY;
+                }
+                long previous = positions[slot];
+                positions[slot] = DELETED;
+                live--;
+                return previous;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Adds an entry loaded from an index hint, which is known not to be in this stripe yet.
+         */
+        void restore(long hash, long position) {
+            if ((occupied + 1) * 4 > positions.length * 3) {
+                rehash();
+            }
+            int mask = positions.length - 1;
+            int index = (int) hash & mask;
+            while (positions[index] != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            hashes[index] = hash;
+            positions[index] = position;
+            occupied++;
+            live++;
+        }
+
+        /**
+         * Returns the hash and the record position of each live entry, interleaved.
+         */
+        long[] liveEntries() {
+            lock.readLock().lock();
+            try {
+                long[] result = new long[live * 2];
+                int count = 0;
+                for (int i = 0; i < positions.length; i++) {
+                    long position = positions[i];
+                    if (position != EMPTY && position != DELETED) {
+                        result[count++] = hashes[i];
+                        result[count++] = position;
+                    }
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private int findSlot(long hash, byte[] key) {
+            int mask = positions.length - 1;
+            for (int index = (int) hash & mask; ; index = (index + 1) & mask) {
+                long position = positions[index];
+                if (position == EMPTY) {
+                    return -1;
+                }
+                if (position != DELETED && hashes[index] == hash && cache.keyMatches(position, key)) {
+                    return index;
+                }
+            }
+        }
+
+        private void rehash() {
+            int capacity = 16;
+            while (capacity < live * 4) {
+                capacity <<= 1;
+            }
+            long[] oldHashes = hashes;
+            long[] oldPositions = positions;
+            hashes = new long[capacity];
+            positions = new long[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldPositions.length; i++) {
+                long position = oldPositions[i];
+                if (position != EMPTY && position != DELETED) {
+                    int index = (int) oldHashes[i] & mask;
+                    while (positions[index] != EMPTY) {
+                        index = (index + 1) & mask;
+                    }
+                    hashes[index] = oldHashes[i];
+                    positions[index] = position;
+                }
+            }
+            occupied = live;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal
+
+import org.gradle.cache.AsyncCacheAccess
+import org.gradle.cache.MultiProcessSafeIndexedCache
+import spock.lang.Specification
+
+import java.util.function.Supplier
+
+class AsyncCacheAccessDecoratedCacheTest extends Specification {
+    def asyncCacheAccess = Mock(AsyncCacheAccess)
+    def backingCache = Mock(MultiProcessSafeIndexedCache)
+    def completion = Mock(Runnable)
+
+    def "queues reads behind pending updates when backing cache does not support concurrent reads"() {
+        given:
+        backingCache.supportsConcurrentReads() >> false
+        def cache = new AsyncCacheAccessDecoratedCache<String, String>(asyncCacheAccess, backingCache)
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "value"
+        1 * asyncCacheAccess.read(_) >> { Supplier action -> action.get() }
+        1 * backingCache.getIfPresent("key") >> "value"
+    }
+
+    def "reads from backing cache on calling thread when it supports concurrent reads"() {
+        given:
+        backingCache.supportsConcurrentReads() >> true
+        def cache = new AsyncCacheAccessDecoratedCache<String, String>(asyncCacheAccess, backingCache)
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "value"
+        0 * asyncCacheAccess._
+        1 * backingCache.getIfPresent("key") >> "value"
+    }
+
+    def "serves pending updates until they have been applied when backing cache supports concurrent reads"() {
+        given:
+        backingCache.supportsConcurrentReads() >> true
+        def cache = new AsyncCacheAccessDecoratedCache<String, String>(asyncCacheAccess, backingCache)
+        def queued = []
+
+        when:
+        cache.putLater("put", "new value", completion)
+        cache.removeLater("removed", completion)
+        def pendingPut = cache.get("put")
+        def pendingRemove = cache.get("removed")
+
+        then:
+        pendingPut == "new value"
+        pendingRemove == null
+        2 * asyncCacheAccess.enqueue(_) >> { Runnable action -> queued << action }
+        0 * backingCache.getIfPresent(_)
+
+        when:
+        queued*.run()
+
+        then:
+        1 * backingCache.put("put", "new value")
+        1 * backingCache.remove("removed")
+        2 * completion.run()
+
+        when:
+        def result = cache.get("put")
+
+        then:
+        result == "stored value"
+        1 * backingCache.getIfPresent("put") >> "stored value"
+    }
+
+    def "keeps later pending update when earlier update of same key is applied"() {
+        given:
+        backingCache.supportsConcurrentReads() >> true
+        def cache = new AsyncCacheAccessDecoratedCache<String, String>(asyncCacheAccess, backingCache)
+        def queued = []
+        asyncCacheAccess.enqueue(_) >> { Runnable action -> queued << action }
+
+        when:
+        cache.putLater("key", "first", completion)
+        cache.putLater("key", "second", completion)
+        queued[0].run()
+        def result = cache.get("key")
+
+        then:
+        result == "second"
+        0 * backingCache.getIfPresent(_)
+    }
+
+    def "discards pending update when it cannot be queued"() {
+        given:
+        backingCache.supportsConcurrentReads() >> true
+        def cache = new AsyncCacheAccessDecoratedCache<String, String>(asyncCacheAccess, backingCache)
+        def failure = new RuntimeException()
+
+        when:
+        cache.putLater("key", "value", completion)
+
+        then:
+        def e = thrown(RuntimeException)
+        e.is(failure)
+        1 * asyncCacheAccess.enqueue(_) >> { throw failure }
+        1 * completion.run()
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "stored value"
+        1 * backingCache.getIfPresent("key") >> "stored value"
+    }
+}
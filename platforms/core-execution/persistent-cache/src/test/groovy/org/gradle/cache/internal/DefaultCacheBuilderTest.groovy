@@ -27,6 +27,8 @@ import java.util.function.Consumer
 import static org.gradle.cache.CacheCleanupStrategy.NO_CLEANUP
 import static org.gradle.cache.FileLockManager.LockMode.OnDemand
 import static org.gradle.cache.FileLockManager.LockMode.Shared
+import static org.gradle.cache.IndexedCacheBackend.BTREE
+import static org.gradle.cache.IndexedCacheBackend.MEMORY_MAPPED
 import static org.gradle.cache.internal.filelock.DefaultLockOptions.mode
 
 class DefaultCacheBuilderTest extends Specification {
@@ -45,7 +47,7 @@ class DefaultCacheBuilderTest extends Specification {
 
         then:
         result == cache
-        1 * cacheFactory.open(sharedCacheDir, null, [:], mode(Shared), _, NO_CLEANUP) >> cache
+        1 * cacheFactory.open(sharedCacheDir, null, [:], mode(Shared), _, NO_CLEANUP, BTREE) >> cache
         0 * cacheFactory._
     }
 
@@ -54,7 +56,7 @@ class DefaultCacheBuilderTest extends Specification {
         builder.withProperties(properties).open()
 
         then:
-        1 * cacheFactory.open(sharedCacheDir, null, properties, mode(Shared), _, NO_CLEANUP) >> cache
+        1 * cacheFactory.open(sharedCacheDir, null, properties, mode(Shared), _, NO_CLEANUP, BTREE) >> cache
     }
 
     void canSpecifyInitializerActionForDirectoryCache() {
@@ -64,7 +66,7 @@ class DefaultCacheBuilderTest extends Specification {
         builder.withInitializer(action).open()
 
         then:
-        1 * cacheFactory.open(sharedCacheDir, null, [:], mode(Shared), action, NO_CLEANUP) >> cache
+        1 * cacheFactory.open(sharedCacheDir, null, [:], mode(Shared), action, NO_CLEANUP, BTREE) >> cache
     }
 
     void canSpecifyLockModeForDirectoryCache() {
@@ -72,7 +74,7 @@ class DefaultCacheBuilderTest extends Specification {
         builder.withInitialLockMode(OnDemand).open()
 
         then:
-        1 * cacheFactory.open(sharedCacheDir, null, [:], mode(OnDemand), _, NO_CLEANUP) >> cache
+        1 * cacheFactory.open(sharedCacheDir, null, [:], mode(OnDemand), _, NO_CLEANUP, BTREE) >> cache
     }
 
     void canSpecifyDisplayNameForDirectoryCache() {
@@ -80,6 +82,14 @@ class DefaultCacheBuilderTest extends Specification {
         builder.withDisplayName("<cache>").open()
 
         then:
-        1 * cacheFactory.open(sharedCacheDir, "<cache>", [:], mode(Shared), _, NO_CLEANUP) >> cache
+        1 * cacheFactory.open(sharedCacheDir, "<cache>", [:], mode(Shared), _, NO_CLEANUP, BTREE) >> cache
+    }
+
+    void canSpecifyIndexedCacheBackendForDirectoryCache() {
+        when:
+        builder.withIndexedCacheBackend(MEMORY_MAPPED).open()
+
+        then:
+        1 * cacheFactory.open(sharedCacheDir, null, [:], mode(Shared), _, NO_CLEANUP, MEMORY_MAPPED) >> cache
     }
 }
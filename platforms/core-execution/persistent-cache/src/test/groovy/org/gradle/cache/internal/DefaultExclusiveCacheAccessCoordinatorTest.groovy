@@ -55,7 +55,7 @@ class DefaultExclusiveCacheAccessCoordinatorTest extends ConcurrentSpec {
     private DefaultCacheCoordinator newAccess(FileLockManager.LockMode lockMode) {
         new DefaultCacheCoordinator("<display-name>", lockFile, mode(lockMode), cacheDir, lockManager, initializationAction, cleanupExecutor, executorFactory) {
             @Override
-            <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+            <K, V> PersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
                 return backingCache
             }
         }
@@ -130,6 +130,31 @@ class MultiProcessSafeIndexedCacheTest extends Specification {
         0 * _._
     }
 
+    def "opens and reads cache without claiming file access when concurrent reads are supported"() {
+        given:
+        def concurrentCache = new DefaultMultiProcessSafeIndexedCache<String, String>(factory, fileAccess, true)
+
+        when:
+        def result = concurrentCache.getIfPresent("value")
+
+        then:
+        result == "result"
+        concurrentCache.supportsConcurrentReads()
+
+        and:
+        1 * factory.get() >> backingCache
+        1 * backingCache.get("value") >> "result"
+        0 * _._
+
+        when:
+        concurrentCache.put("key", "value")
+
+        then:
+        1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
+        1 * backingCache.put("key", "value")
+        0 * _._
+    }
+
     def cacheOpened() {
         1 * fileAccess.writeFile(!null) >> { Runnable action -> action.run() }
         1 * factory.get() >> backingCache
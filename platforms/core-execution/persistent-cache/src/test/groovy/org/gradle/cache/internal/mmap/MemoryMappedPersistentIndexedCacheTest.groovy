@@ -0,0 +1,306 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.mmap
+
+import com.google.common.hash.Hashing
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.internal.serialize.Serializer
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.ToLongFunction
+
+class MemoryMappedPersistentIndexedCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    Serializer<String> stringSerializer = new DefaultSerializer<String>()
+    Serializer<Integer> integerSerializer = new DefaultSerializer<Integer>()
+    TestFile cacheFile = tmpDir.file("cache.mmap")
+
+    // Use a tiny region size, so that records span several regions
+    def cache = createCache()
+
+    def cleanup() {
+        cache.close()
+    }
+
+    private MemoryMappedPersistentIndexedCache<String, Integer> createCache() {
+        new MemoryMappedPersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, 64)
+    }
+
+    def "returns null for unknown entry"() {
+        expect:
+        cache.get("unknown") == null
+    }
+
+    def "persists added entries"() {
+        when:
+        (0..<200).each { cache.put("key_$it".toString(), it) }
+
+        then:
+        (0..<200).every { cache.get("key_$it".toString()) == it }
+
+        when:
+        cache.reset()
+
+        then:
+        (0..<200).every { cache.get("key_$it".toString()) == it }
+    }
+
+    def "persists updates and removals"() {
+        given:
+        (0..<20).each { cache.put("key_$it".toString(), it) }
+
+        when:
+        (0..<20).each { cache.put("key_$it".toString(), it * 10) }
+        (0..<20).step(2) { cache.remove("key_$it".toString()) }
+        cache.reset()
+
+        then:
+        (0..<20).every { cache.get("key_$it".toString()) == (it % 2 == 0 ? null : it * 10) }
+    }
+
+    def "can re-add removed entry"() {
+        given:
+        cache.put("key", 1)
+        cache.remove("key")
+
+        when:
+        cache.put("key", 2)
+        cache.reset()
+
+        then:
+        cache.get("key") == 2
+    }
+
+    def "distinguishes keys with the same hash"() {
+        given:
+        cache.close()
+        cache = new MemoryMappedPersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, 64, { byte[] key -> 42L } as ToLongFunction<byte[]>)
+
+        when:
+        (0..<10).each { cache.put("key_$it".toString(), it) }
+        cache.remove("key_3")
+        cache.put("key_5", 50)
+
+        then:
+        (0..<10).every { cache.get("key_$it".toString()) == (it == 3 ? null : it == 5 ? 50 : it) }
+        cache.get("unknown") == null
+    }
+
+    def "probes past keys that start at the same index slot"() {
+        given:
+        // Keys in the same stripe whose hashes share their lowest bits start probing at the same slot of the initial 16 slot table
+        def keys = collidingKeys(5) { long hash -> MemoryMappedPersistentIndexedCache.stripeIndex(hash) * 16 + (int) (hash & 15) }
+
+        when:
+        keys.eachWithIndex { key, i -> cache.put(key, i) }
+        cache.remove(keys[1])
+
+        then:
+        keys.indices.every { i -> cache.get(keys[i]) == (i == 1 ? null : i) }
+
+        when:
+        cache.put(keys[1], 10)
+        cache.reset()
+
+        then:
+        keys.indices.every { i -> cache.get(keys[i]) == (i == 1 ? 10 : i) }
+    }
+
+    private List<String> collidingKeys(int count, Closure<Integer> bucket) {
+        Map<Integer, List<String>> keysByBucket = [:]
+        for (int i = 0; ; i++) {
+            String key = "key_$i"
+            List<String> keys = keysByBucket.computeIfAbsent(bucket(cache.hashOf(key))) { [] }
+            keys << key
+            if (keys.size() == count) {
+                return keys
+            }
+        }
+    }
+
+    def "clear discards all entries"() {
+        given:
+        (0..<10).each { cache.put("key_$it".toString(), it) }
+
+        when:
+        cache.clear()
+
+        then:
+        (0..<10).every { cache.get("key_$it".toString()) == null }
+
+        when:
+        cache.reset()
+
+        then:
+        (0..<10).every { cache.get("key_$it".toString()) == null }
+    }
+
+    def "compacts superseded records on close"() {
+        given:
+        cache.close()
+        cache = new MemoryMappedPersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer)
+        (0..<10).each { cache.put("key_$it".toString(), it) }
+        (0..<100_000).each { cache.put("key_0", it) }
+
+        when:
+        cache.close()
+
+        then:
+        cacheFile.length() < 100_000
+
+        when:
+        cache = new MemoryMappedPersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer)
+
+        then:
+        cache.get("key_0") == 99_999
+        (1..<10).every { cache.get("key_$it".toString()) == it }
+    }
+
+    def "loads the index from the hint file and only scans records appended since"() {
+        given:
+        def hashedKeys = new AtomicInteger()
+        def countingHash = { byte[] key -> hashedKeys.incrementAndGet(); Hashing.murmur3_128().hashBytes(key).asLong() } as ToLongFunction<byte[]>
+        def indexHintFile = tmpDir.file("cache.mmap.index")
+        cache.close()
+        cache = new MemoryMappedPersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, 64, countingHash)
+        (0..<100).each { cache.put("key_$it".toString(), it) }
+        cache.close()
+        def olderHint = indexHintFile.bytes
+
+        when:
+        hashedKeys.set(0)
+        cache = new MemoryMappedPersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, 64, countingHash)
+
+        then:
+        hashedKeys.get() == 0
+        (0..<100).every { cache.get("key_$it".toString()) == it }
+
+        when:
+        (100..<110).each { cache.put("key_$it".toString(), it) }
+        cache.remove("key_0")
+        cache.close()
+        // The hint written by an earlier close only covers the start of the log, as when another process appended to it
+        indexHintFile.bytes = olderHint
+        hashedKeys.set(0)
+        cache = new MemoryMappedPersistentIndexedCache<String, Integer>(cacheFile, stringSerializer, integerSerializer, 64, countingHash)
+
+        then:
+        hashedKeys.get() == 11
+        cache.get("key_0") == null
+        (1..<110).every { cache.get("key_$it".toString()) == it }
+    }
+
+    def "ignores the hint file after the log has been rewritten"() {
+        given:
+        def indexHintFile = tmpDir.file("cache.mmap.index")
+        (0..<10).each { cache.put("key_$it".toString(), it) }
+        cache.close()
+        def staleHint = indexHintFile.bytes
+        cache = createCache()
+        cache.clear()
+        (0..<10).each { cache.put("other_$it".toString(), it) }
+        cache.close()
+
+        when:
+        indexHintFile.bytes = staleHint
+        cache = createCache()
+
+        then:
+        (0..<10).every { cache.get("key_$it".toString()) == null }
+        (0..<10).every { cache.get("other_$it".toString()) == it }
+    }
+
+    def "ignores a badly formed hint file"() {
+        given:
+        (0..<10).each { cache.put("key_$it".toString(), it) }
+        cache.close()
+        tmpDir.file("cache.mmap.index").text = "some junk"
+
+        when:
+        cache = createCache()
+
+        then:
+        (0..<10).every { cache.get("key_$it".toString()) == it }
+    }
+
+    def "discards a badly formed cache file"() {
+        given:
+        cache.close()
+        cacheFile.text = "some junk"
+
+        when:
+        cache = createCache()
+
+        then:
+        cache.get("key_1") == null
+
+        when:
+        cache.put("key_1", 99)
+        cache.reset()
+
+        then:
+        cache.get("key_1") == 99
+    }
+
+    def "ignores bytes beyond the committed length"() {
+        given:
+        cache.put("key_1", 1)
+        cache.close()
+        cacheFile.append("partially written record")
+
+        when:
+        cache = createCache()
+        cache.put("key_2", 2)
+        cache.reset()
+
+        then:
+        cache.get("key_1") == 1
+        cache.get("key_2") == 2
+    }
+
+    def "can read and write from multiple threads"() {
+        given:
+        def executor = Executors.newFixedThreadPool(8)
+
+        when:
+        def futures = (0..<8).collect { thread ->
+            executor.submit({
+                (0..<500).each { cache.put("key_${thread}_$it".toString(), it) }
+                (0..<500).every { cache.get("key_${thread}_$it".toString()) == it }
+            } as Callable<Boolean>)
+        }
+
+        then:
+        futures.every { it.get() }
+
+        when:
+        cache.reset()
+
+        then:
+        (0..<8).every { thread -> (0..<500).every { cache.get("key_${thread}_$it".toString()) == it } }
+
+        cleanup:
+        executor.shutdownNow()
+    }
+}
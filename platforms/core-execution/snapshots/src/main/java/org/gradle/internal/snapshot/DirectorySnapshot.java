@@ -24,10 +24,10 @@
 import org.gradle.internal.hash.HashCode;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
 
 import static org.gradle.internal.snapshot.ChildMapFactory.childMapFromSorted;
 import static org.gradle.internal.snapshot.SnapshotVisitResult.CONTINUE;
@@ -42,9 +42,7 @@ public class DirectorySnapshot extends AbstractFileSystemLocationSnapshot {
     private final HashCode contentHash;
 
     public DirectorySnapshot(String absolutePath, String name, AccessType accessType, HashCode contentHash, List<FileSystemLocationSnapshot> children) {
-        this(absolutePath, name, accessType, contentHash, childMapFromSorted(children.stream()
-            .map(it -> new ChildMap.Entry<>(it.getName(), it))
-            .collect(Collectors.toList())));
+        this(absolutePath, name, accessType, contentHash, childMapFromSorted(toEntries(children)));
     }
 
     public DirectorySnapshot(String absolutePath, String name, AccessType accessType, HashCode contentHash, ChildMap<FileSystemLocationSnapshot> children) {
@@ -53,6 +51,15 @@ public DirectorySnapshot(String absolutePath, String name, AccessType accessType
         this.children = children;
     }
 
+    private static List<ChildMap.Entry<FileSystemLocationSnapshot>> toEntries(List<FileSystemLocationSnapshot> children) {
+        // The child map keeps the list, so avoid retaining unused capacity
+        List<ChildMap.Entry<FileSystemLocationSnapshot>> entries = new ArrayList<>(children.size());
+        for (FileSystemLocationSnapshot child : children) {
+            entries.add(new ChildMap.Entry<>(child.getName(), child));
+        }
+        return entries;
+    }
+
     @Override
     protected Optional<DirectorySnapshot> relocateDirectAccess(String targetPath, String name, Interner<String> interner) {
         ImmutableList.Builder<ChildMap.Entry<FileSystemLocationSnapshot>> relocatedChildren = ImmutableList.builderWithExpectedSize(children.size());
@@ -17,10 +17,12 @@
 package org.gradle.internal.snapshot.impl;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Interner;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.gradle.internal.file.FileMetadata;
 import org.gradle.internal.file.FileMetadata.AccessType;
 import org.gradle.internal.file.FileType;
@@ -56,7 +58,11 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
@@ -64,9 +70,16 @@
 
 /**
  * For creating {@link DirectorySnapshot}s of directories.
+ *
+ * When created with an {@link Executor}, subdirectories are walked as separate tasks on the executor whenever it runs out of queued walks,
+ * so large trees are split across the threads of the executor. The resulting snapshots and statistics are the same as for a sequential walk.
  */
 public class DirectorySnapshotter {
     private static final EnumSet<FileVisitOption> DONT_FOLLOW_SYMLINKS = EnumSet.noneOf(FileVisitOption.class);
+    /**
+     * Only fork a subdirectory walk while fewer than this number of forked walks are waiting to be picked up by an idle thread.
+     */
+    private static final int MAX_QUEUED_WALKS = 2;
     private static final SymbolicLinkMapping EMPTY_SYMBOLIC_LINK_MAPPING = new SymbolicLinkMapping() {
 
         @Override
@@ -89,12 +102,22 @@ public Iterable<String> getRemappedSegments(Iterable<String> segments) {
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
     private final DirectorySnapshotterStatistics.Collector collector;
+    @Nullable
+    private final SubtreeWalkScheduler walkScheduler;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector) {
+        this(hasher, stringInterner, defaultExcludes, collector, null);
+    }
+
+    /**
+     * @param walkExecutor the executor to walk directory trees in parallel with, or {@code null} to walk them sequentially on the calling thread.
+     */
+    public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector, @Nullable Executor walkExecutor) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
         this.collector = collector;
+        this.walkScheduler = walkExecutor == null ? null : new SubtreeWalkScheduler(walkExecutor);
     }
 
     /**
@@ -122,7 +145,7 @@ public FileSystemLocationSnapshot snapshot(
         try {
             AtomicBoolean hasBeenFiltered = new AtomicBoolean();
             Path rootPath = Paths.get(absolutePath);
-            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, previouslyKnownSnapshots, unfilteredSnapshotRecorder);
+            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, previouslyKnownSnapshots, unfilteredSnapshotRecorder, walkScheduler);
             Files.walkFileTree(rootPath, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
             FileSystemLocationSnapshot result = visitor.getResult();
             if (!hasBeenFiltered.get()) {
@@ -151,7 +174,8 @@ private static class DefaultSymbolicLinkMapping implements SymbolicLinkMapping {
         public DefaultSymbolicLinkMapping(String sourcePath, String targetPath, Iterable<String> prefixRelativePath) {
             this.sourcePath = sourcePath;
             this.targetPath = targetPath;
-            this.prefixRelativePath = prefixRelativePath;
+            // Copy the segments, since they are usually a view of a path tracker that keeps changing during the walk
+            this.prefixRelativePath = ImmutableList.copyOf(prefixRelativePath);
         }
 
         @Override
@@ -262,10 +286,17 @@ private static class PathVisitor extends DirectorySnapshotterStatistics.Collecti
         private final Interner<String> stringInterner;
         private final DefaultExcludes defaultExcludes;
         private final SymbolicLinkMapping symbolicLinkMapping;
-        private final Deque<String> parentDirectories = new ArrayDeque<>();
+        private final Deque<String> parentDirectories;
         private final Set<FileSystemLocationSnapshot> filteredDirectorySnapshots = new HashSet<>();
         private final ImmutableMap<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots;
         private final Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder;
+        @Nullable
+        private final SubtreeWalkScheduler walkScheduler;
+        /**
+         * The subtree walks forked for each of the directories currently being visited, innermost directory first.
+         * Only used when forking subtrees.
+         */
+        private final Deque<List<SubtreeWalk>> forkedWalks = new ArrayDeque<>();
 
         public PathVisitor(
             @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
@@ -276,9 +307,27 @@ public PathVisitor(
             DirectorySnapshotterStatistics.Collector statisticsCollector,
             SymbolicLinkMapping symbolicLinkMapping,
             Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots,
-            Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder
+            Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder,
+            @Nullable SubtreeWalkScheduler walkScheduler
+        ) {
+            this(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, statisticsCollector, symbolicLinkMapping, previouslyKnownSnapshots, unfilteredSnapshotRecorder, walkScheduler, false, new ArrayDeque<>());
+        }
+
+        private PathVisitor(
+            @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
+            AtomicBoolean hasBeenFiltered,
+            FileHasher hasher,
+            Interner<String> stringInterner,
+            DefaultExcludes defaultExcludes,
+            DirectorySnapshotterStatistics.Collector statisticsCollector,
+            SymbolicLinkMapping symbolicLinkMapping,
+            Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots,
+            Consumer<FileSystemLocationSnapshot> unfilteredSnapshotRecorder,
+            @Nullable SubtreeWalkScheduler walkScheduler,
+            boolean continuesParentWalk,
+            Deque<String> parentDirectories
         ) {
-            super(statisticsCollector);
+            super(statisticsCollector, continuesParentWalk);
             this.builder = FilteredTrackingMerkleDirectorySnapshotBuilder.sortingRequired(this::recordUnfilteredSnapshot);
             this.predicate = predicate;
             this.hasBeenFiltered = hasBeenFiltered;
@@ -288,6 +337,8 @@ public PathVisitor(
             this.symbolicLinkMapping = symbolicLinkMapping;
             this.previouslyKnownSnapshots = ImmutableMap.copyOf(previouslyKnownSnapshots);
             this.unfilteredSnapshotRecorder = unfilteredSnapshotRecorder;
+            this.walkScheduler = walkScheduler;
+            this.parentDirectories = parentDirectories;
         }
 
         private void recordUnfilteredSnapshot(FileSystemLocationSnapshot snapshot) {
@@ -315,8 +366,17 @@ protected FileVisitResult doPreVisitDirectory(Path dir, BasicFileAttributes attr
                     }
                 }
 
+                if (walkScheduler != null && !pathTracker.isRoot() && walkScheduler.hasIdleCapacity()) {
+                    forkedWalks.getFirst().add(forkSubtreeWalk(dir));
+                    pathTracker.leave();
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
                 builder.enterDirectory(AccessType.DIRECT, internedRemappedAbsolutePath, fileName, INCLUDE_EMPTY_DIRS);
                 parentDirectories.addFirst(dir.toString());
+                if (walkScheduler != null) {
+                    forkedWalks.addFirst(new ArrayList<>());
+                }
                 return FileVisitResult.CONTINUE;
             } else {
                 pathTracker.leave();
@@ -333,6 +393,9 @@ protected FileVisitResult doPostVisitDirectory(Path dir, IOException exc) {
             if (isNotFileSystemLoopException(exc)) {
                 throw new UncheckedIOException(String.format("Could not read directory path '%s'.", dir), exc);
             }
+            if (walkScheduler != null) {
+                joinForkedWalks(forkedWalks.removeFirst());
+            }
             boolean currentLevelComplete = builder.isCurrentLevelUnfiltered();
             FileSystemLocationSnapshot currentLevel = builder.leaveDirectory();
             if (!currentLevelComplete) {
@@ -395,7 +458,8 @@ private DirectorySnapshot followSymlink(Path file, String internedFileName, Atom
                         collector,
                         symbolicLinkMapping.withNewMapping(file.toString(), targetDirString, pathTracker),
                         previouslyKnownSnapshots,
-                        unfilteredSnapshotRecorder);
+                        unfilteredSnapshotRecorder,
+                        null);
                     Files.walkFileTree(targetDir, EnumSet.noneOf(FileVisitOption.class), Integer.MAX_VALUE, subtreeVisitor);
                     return (DirectorySnapshot) subtreeVisitor.getResult();
                 } else {
@@ -406,6 +470,49 @@ private DirectorySnapshot followSymlink(Path file, String internedFileName, Atom
             }
         }
 
+        /**
+         * Forks the walk of a directory this visitor has already entered and decided to visit.
+         * The forked visitor continues from the current state of this walk, but records unfiltered snapshots locally,
+         * since the recorder passed to the snapshotter does not need to be thread-safe.
+         */
+        private SubtreeWalk forkSubtreeWalk(Path dir) {
+            List<FileSystemLocationSnapshot> unfilteredSnapshots = new ArrayList<>();
+            PathVisitor subtreeVisitor = new PathVisitor(
+                predicate,
+                hasBeenFiltered,
+                hasher,
+                stringInterner,
+                defaultExcludes,
+                collector,
+                symbolicLinkMapping.withNewMapping(dir.toString(), dir.toString(), pathTracker),
+                previouslyKnownSnapshots,
+                unfilteredSnapshots::add,
+                walkScheduler,
+                true,
+                new ArrayDeque<>(parentDirectories));
+            SubtreeWalk walk = new SubtreeWalk(dir, subtreeVisitor, unfilteredSnapshots, walkScheduler);
+            walkScheduler.schedule(walk);
+            return walk;
+        }
+
+        /**
+         * Adds the results of the walks forked for the current directory, like they would have been added when walking the subtrees in place.
+         */
+        private void joinForkedWalks(List<SubtreeWalk> walks) {
+            for (SubtreeWalk walk : walks) {
+                walk.join();
+                walk.rethrowUncheckedFailure();
+                PathVisitor subtreeVisitor = walk.visitor;
+                DirectorySnapshot subtreeSnapshot = (DirectorySnapshot) subtreeVisitor.getResult();
+                builder.visitDirectory(subtreeSnapshot);
+                if (!subtreeVisitor.builder.isCurrentLevelUnfiltered()) {
+                    filteredDirectorySnapshots.add(subtreeSnapshot);
+                    builder.markCurrentLevelAsFiltered();
+                }
+                walk.unfilteredSnapshots.forEach(unfilteredSnapshotRecorder);
+            }
+        }
+
         private boolean introducesCycle(String targetDirString) {
             return parentDirectories.contains(targetDirString);
         }
@@ -521,4 +628,88 @@ public FileSystemLocationSnapshot getResult() {
             return builder.getResult();
         }
     }
+
+    /**
+     * Hands forked subtree walks to an executor.
+     * A forked walk that no thread of the executor has picked up by the time its parent directory is done is walked by the thread of the parent instead,
+     * so walks never wait for queued work, and a bounded executor that is shared by concurrent snapshots cannot deadlock.
+     */
+    private static class SubtreeWalkScheduler {
+        private final Executor executor;
+        private final AtomicInteger queuedWalks = new AtomicInteger();
+
+        SubtreeWalkScheduler(Executor executor) {
+            this.executor = executor;
+        }
+
+        boolean hasIdleCapacity() {
+            return queuedWalks.get() < MAX_QUEUED_WALKS;
+        }
+
+        void schedule(SubtreeWalk walk) {
+            queuedWalks.incrementAndGet();
+            try {
+                executor.execute(walk::runIfNotStarted);
+            } catch (RejectedExecutionException e) {
+                // The walk is done by the parent when it joins
+            }
+        }
+
+        void walkStarted() {
+            queuedWalks.decrementAndGet();
+        }
+    }
+
+    /**
+     * Walks a forked directory tree, capturing any failure so it can be rethrown unchanged on the joining thread.
+     */
+    private static class SubtreeWalk {
+        private final Path root;
+        private final PathVisitor visitor;
+        private final List<FileSystemLocationSnapshot> unfilteredSnapshots;
+        private final SubtreeWalkScheduler scheduler;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private IOException ioFailure;
+        private RuntimeException failure;
+
+        SubtreeWalk(Path root, PathVisitor visitor, List<FileSystemLocationSnapshot> unfilteredSnapshots, SubtreeWalkScheduler scheduler) {
+            this.root = root;
+            this.visitor = visitor;
+            this.unfilteredSnapshots = unfilteredSnapshots;
+            this.scheduler = scheduler;
+        }
+
+        void runIfNotStarted() {
+            if (started.compareAndSet(false, true)) {
+                scheduler.walkStarted();
+                try {
+                    Files.walkFileTree(root, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
+                } catch (IOException e) {
+                    ioFailure = e;
+                } catch (RuntimeException e) {
+                    failure = e;
+                } finally {
+                    finished.countDown();
+                }
+            }
+        }
+
+        /**
+         * Walks the tree on the current thread when no other thread has started it yet, otherwise waits for the walk to finish.
+         */
+        void join() {
+            runIfNotStarted();
+            Uninterruptibles.awaitUninterruptibly(finished);
+        }
+
+        void rethrowUncheckedFailure() {
+            if (failure != null) {
+                throw failure;
+            }
+            if (ioFailure != null) {
+                throw new UncheckedIOException(String.format("Could not list contents of directory '%s'.", root), ioFailure);
+            }
+        }
+    }
 }
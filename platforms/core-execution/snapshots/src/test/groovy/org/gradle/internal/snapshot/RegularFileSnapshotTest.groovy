@@ -26,4 +26,27 @@ class RegularFileSnapshotTest extends AbstractFileSystemLeafSnapshotTest {
     protected FileSystemLeafSnapshot createInitialRootNode(String absolutePath, AccessType accessType) {
         return new RegularFileSnapshot(absolutePath, PathUtil.getFileName(absolutePath), TestHashCodes.hashCodeFrom(1235), DefaultFileMetadata.file(1, 2, accessType))
     }
+
+    def "keeps metadata"() {
+        def snapshot = new RegularFileSnapshot("/some/file.txt", "file.txt", TestHashCodes.hashCodeFrom(1235), DefaultFileMetadata.file(1, 2, AccessType.VIA_SYMLINK))
+
+        expect:
+        snapshot.metadata == DefaultFileMetadata.file(1, 2, AccessType.VIA_SYMLINK)
+        snapshot.accessType == AccessType.VIA_SYMLINK
+    }
+
+    def "compares content and metadata"() {
+        def snapshot = new RegularFileSnapshot("/some/file.txt", "file.txt", TestHashCodes.hashCodeFrom(1235), DefaultFileMetadata.file(1, 2, AccessType.DIRECT))
+
+        expect:
+        snapshot.isContentAndMetadataUpToDate(new RegularFileSnapshot("/other/file.txt", "file.txt", TestHashCodes.hashCodeFrom(hash), DefaultFileMetadata.file(lastModified, length, accessType))) == upToDate
+
+        where:
+        hash | lastModified | length | accessType             | upToDate
+        1235 | 1            | 2      | AccessType.DIRECT      | true
+        1234 | 1            | 2      | AccessType.DIRECT      | false
+        1235 | 3            | 2      | AccessType.DIRECT      | false
+        1235 | 1            | 3      | AccessType.DIRECT      | false
+        1235 | 1            | 2      | AccessType.VIA_SYMLINK | false
+    }
 }
@@ -42,6 +42,8 @@ import spock.lang.Issue
 import spock.lang.Specification
 
 import java.nio.file.Paths
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
 import java.util.function.Consumer
 
 @UsesNativeServices
@@ -530,6 +532,82 @@ class DirectorySnapshotterTest extends Specification {
         pipe.delete()
     }
 
+    def "parallel walk produces the same snapshot as a sequential walk (filtered: #filtered)"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        (0..<400).each { i ->
+            rootDir.file("dir${i % 7}/sub${i % 5}/nested${i % 3}/file${i}.${i % 4 == 0 ? 'html' : 'txt'}").text = "content ${i}"
+            rootDir.file("dir${i % 7}/file${i}.txt").text = "other content ${i}"
+        }
+        def patterns = new PatternSet()
+        patterns.include("**/*.txt")
+        def predicate = filtered ? directoryWalkerPredicate(patterns) : null
+        def executor = Executors.newFixedThreadPool(4)
+        def sequentialStatistics = new DirectorySnapshotterStatistics.Collector()
+        def parallelStatistics = new DirectorySnapshotterStatistics.Collector()
+        def parallelSnapshotter = new DirectorySnapshotter(fileHasher, new StringInterner(), [], parallelStatistics, executor)
+        List<FileSystemLocationSnapshot> parallelUnfilteredSubsnapshots = []
+
+        when:
+        def sequentialSnapshot = new DirectorySnapshotter(fileHasher, new StringInterner(), [], sequentialStatistics)
+            .snapshot(rootDir.absolutePath, predicate, [:], unfilteredSubSnapshotsCollector)
+        def parallelSnapshot = parallelSnapshotter.snapshot(rootDir.absolutePath, predicate, [:], { parallelUnfilteredSubsnapshots.add(it) } as Consumer<FileSystemLocationSnapshot>)
+
+        then:
+        parallelSnapshot.hash == sequentialSnapshot.hash
+        SnapshotVisitorUtil.getRelativePaths(parallelSnapshot, true) as Set == SnapshotVisitorUtil.getRelativePaths(sequentialSnapshot, true) as Set
+        parallelUnfilteredSubsnapshots*.absolutePath as Set == unfilteredSubsnapshots*.absolutePath as Set
+        parallelUnfilteredSubsnapshots.size() == unfilteredSubsnapshots.size()
+        parallelStatistics.collect().toString() == sequentialStatistics.collect().toString()
+
+        cleanup:
+        executor.shutdown()
+
+        where:
+        filtered << [false, true]
+    }
+
+    def "parallel walk does not wait for forked walks that the executor has not started"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        (0..<50).each { i ->
+            rootDir.file("dir${i % 7}/sub${i % 5}/file${i}.txt").text = "content ${i}"
+        }
+        List<Runnable> neverRun = []
+        def executor = { Runnable walk -> neverRun << walk } as Executor
+
+        when:
+        def sequentialSnapshot = new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector)
+            .snapshot(rootDir.absolutePath, null, [:], unfilteredSubSnapshotsCollector)
+        def parallelSnapshot = new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector, executor)
+            .snapshot(rootDir.absolutePath, null, [:], unfilteredSubSnapshotsCollector)
+
+        then:
+        !neverRun.empty
+        parallelSnapshot.hash == sequentialSnapshot.hash
+    }
+
+    @Requires(UnitTestPreconditions.FilePermissions)
+    def "parallel walk reports unreadable nested directory"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        (0..<20).each { rootDir.file("dir${it}/file.txt").createFile() }
+        def unreadable = rootDir.file("dir10/unreadable").createDir().makeUnreadable()
+        def executor = Executors.newFixedThreadPool(4)
+
+        when:
+        new DirectorySnapshotter(fileHasher, new StringInterner(), [], statisticsCollector, executor)
+            .snapshot(rootDir.absolutePath, null, [:], unfilteredSubSnapshotsCollector)
+
+        then:
+        def ex = thrown(UncheckedIOException)
+        ex.message == "java.nio.file.AccessDeniedException: ${unreadable.absolutePath}"
+
+        cleanup:
+        unreadable.makeReadable()
+        executor.shutdown()
+    }
+
     def "default excludes are correctly parsed"() {
         def defaultExcludes = new DirectorySnapshotter.DefaultExcludes(DirectoryScanner.getDefaultExcludes() as List)
 
@@ -34,4 +34,6 @@ dependencies {
 
     implementation(libs.groovyJson)
     implementation(libs.jsr305)
+
+    testImplementation(projects.internalTesting)
 }
@@ -36,6 +36,9 @@
 import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.buildoption.StringInternalOption;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationListener;
@@ -70,6 +73,7 @@
 import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
 
 import static org.gradle.internal.Cast.uncheckedCast;
@@ -139,21 +143,36 @@ public class BuildOperationTrace implements Stoppable {
 
     private static final byte[] NEWLINE = {(byte) '\n'};
 
+    /**
+     * The maximum number of serialized operations waiting for {@link #logWriter}.
+     * Emitting threads block once it is reached, so the queue cannot grow without bound when the disk is slower than the build.
+     */
+    private static final int MAX_PENDING_WRITES = 10_000;
+
     private final boolean outputTree;
     private final BuildOperationListener listener;
     private final String basePath;
 
     private final OutputStream logOutputStream;
+    /**
+     * Writes serialized operations to {@link #logOutputStream}, so that emitting threads do not wait for file IO.
+     * Only this executor's single thread touches the stream until it has been stopped.
+     * The stream is flushed whenever the writer has caught up with the queue rather than after every operation,
+     * so the log on disk can lag behind by the operations that are still queued.
+     */
+    private final ManagedExecutor logWriter;
+    private final Semaphore pendingWrites = new Semaphore(MAX_PENDING_WRITES);
     private final JsonGenerator jsonGenerator = createJsonGenerator();
     private final BuildOperationListenerManager buildOperationListenerManager;
 
-    public BuildOperationTrace(StartParameter startParameter, BuildOperationListenerManager buildOperationListenerManager) {
+    public BuildOperationTrace(StartParameter startParameter, BuildOperationListenerManager buildOperationListenerManager, ExecutorFactory executorFactory) {
         this.buildOperationListenerManager = buildOperationListenerManager;
 
         InternalOptions internalOptions = new DefaultInternalOptions(startParameter.getSystemPropertiesArgs());
         this.basePath = internalOptions.getOption(TRACE_OPTION).get();
         if (this.basePath == null || basePath.equals(Boolean.FALSE.toString())) {
             this.logOutputStream = null;
+            this.logWriter = null;
             this.outputTree = false;
             this.listener = null;
             return;
@@ -182,6 +201,7 @@ public BuildOperationTrace(StartParameter startParameter, BuildOperationListener
             throw UncheckedException.throwAsUncheckedException(e);
         }
 
+        this.logWriter = executorFactory.create("Build operation trace writer", 1);
         buildOperationListenerManager.addListener(listener);
     }
 
@@ -200,9 +220,8 @@ public void stop() {
         buildOperationListenerManager.removeListener(listener);
         if (logOutputStream != null) {
             try {
-                synchronized (logOutputStream) {
-                    logOutputStream.close();
-                }
+                // Drain pending writes before closing the log, rethrowing any write failure
+                CompositeStoppable.stoppable(logWriter, logOutputStream).stop();
 
                 if (outputTree) {
                     List<BuildOperationRecord> roots = readLogToTreeRoots(logFile(basePath), false);
@@ -220,16 +239,23 @@ private void write(SerializedOperation operation) {
         ClassLoader previousClassLoader = currentThread.getContextClassLoader();
         currentThread.setContextClassLoader(JsonOutput.class.getClassLoader());
         try {
-            String json = jsonGenerator.toJson(operation.toMap());
-            try {
-                synchronized (logOutputStream) {
-                    logOutputStream.write(json.getBytes(StandardCharsets.UTF_8));
+            // Details and results are only safe to inspect on the emitting thread, so serialize here and hand off the bytes
+            byte[] json = jsonGenerator.toJson(operation.toMap()).getBytes(StandardCharsets.UTF_8);
+            pendingWrites.acquireUninterruptibly();
+            logWriter.execute(() -> {
+                try {
+                    logOutputStream.write(json);
                     logOutputStream.write(NEWLINE);
-                    logOutputStream.flush();
+                    if (pendingWrites.availablePermits() == MAX_PENDING_WRITES - 1) {
+                        // Nothing else is queued, so the log is up-to-date once flushed
+                        logOutputStream.flush();
+                    }
+                } catch (IOException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                } finally {
+                    pendingWrites.release();
                 }
-            } catch (IOException e) {
-                throw UncheckedException.throwAsUncheckedException(e);
-            }
+            });
         } finally {
             currentThread.setContextClassLoader(previousClassLoader);
         }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace
+
+import groovy.json.JsonSlurper
+import org.gradle.StartParameter
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ExecutorPolicy
+import org.gradle.internal.concurrent.ManagedExecutorImpl
+import org.gradle.internal.operations.BuildOperationDescriptor
+import org.gradle.internal.operations.DefaultBuildOperationListenerManager
+import org.gradle.internal.operations.OperationFinishEvent
+import org.gradle.internal.operations.OperationIdentifier
+import org.gradle.internal.operations.OperationStartEvent
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+class BuildOperationTraceTest extends Specification {
+
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def listenerManager = new DefaultBuildOperationListenerManager()
+    def broadcaster = listenerManager.broadcaster
+    ExecutorService writerThread = Executors.newSingleThreadExecutor()
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_ as String, 1) >> new ManagedExecutorImpl(writerThread, new ExecutorPolicy.CatchAndRecordFailures())
+    }
+    def basePath = temporaryFolder.file("trace").absolutePath
+    def logFile = new File(basePath + "-log.txt")
+
+    def cleanup() {
+        writerThread.shutdownNow()
+    }
+
+    def "stop writes every queued operation to the log in order before generating the trees"() {
+        given:
+        def trace = createTrace()
+        // Keep the writer busy until the trace is stopped, so that every operation is still queued when stop() is called
+        writerThread.execute {
+            while (!writerThread.isShutdown()) {
+                Thread.sleep(10)
+            }
+        }
+
+        when:
+        def expectedEvents = []
+        (1..100).each { i ->
+            def parent = operation(2 * i, "parent $i", null)
+            def child = operation(2 * i + 1, "child $i", parent.id)
+            broadcaster.started(parent, new OperationStartEvent(i))
+            broadcaster.started(child, new OperationStartEvent(i))
+            broadcaster.finished(child, new OperationFinishEvent(i, i + 1, null, null))
+            broadcaster.finished(parent, new OperationFinishEvent(i, i + 1, null, null))
+            expectedEvents.addAll(["start ${2 * i}", "start ${2 * i + 1}", "finish ${2 * i + 1}", "finish ${2 * i}"]*.toString())
+        }
+
+        then:
+        logFile.length() == 0
+
+        when:
+        trace.stop()
+
+        then:
+        loggedEvents() == expectedEvents
+
+        and:
+        def summaryTree = new File(basePath + "-tree.txt").readLines()
+        summaryTree.size() == 200
+        summaryTree.findAll { it.startsWith("parent ") }.size() == 100
+        summaryTree.findAll { it.startsWith("  child ") }.size() == 100
+    }
+
+    def "flushes the log once the writer has caught up"() {
+        given:
+        def trace = createTrace()
+
+        when:
+        broadcaster.started(operation(1, "operation", null), new OperationStartEvent(0))
+
+        then:
+        new PollingConditions(timeout: 10).eventually {
+            assert loggedEvents() == ["start 1"]
+        }
+
+        cleanup:
+        trace.stop()
+    }
+
+    private BuildOperationTrace createTrace() {
+        def startParameter = new StartParameter()
+        startParameter.systemPropertiesArgs = [(BuildOperationTrace.SYSPROP): basePath]
+        return new BuildOperationTrace(startParameter, listenerManager, executorFactory)
+    }
+
+    private static BuildOperationDescriptor operation(long id, String displayName, OperationIdentifier parentId) {
+        return BuildOperationDescriptor.displayName(displayName).build(new OperationIdentifier(id), parentId)
+    }
+
+    private List<String> loggedEvents() {
+        def slurper = new JsonSlurper()
+        return logFile.readLines().collect { line ->
+            Map<String, ?> event = slurper.parseText(line) as Map<String, ?>
+            "${event.containsKey("startTime") ? "start" : "finish"} ${event.id}".toString()
+        }
+    }
+}
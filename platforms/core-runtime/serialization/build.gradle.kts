@@ -17,6 +17,7 @@
 plugins {
     id("gradlebuild.distribution.implementation-java")
     id("gradlebuild.publish-public-libraries")
+    id("gradlebuild.jmh")
 }
 
 description = "Tools to serialize data"
@@ -37,6 +38,8 @@ dependencies {
     implementation(libs.slf4jApi)
 
     compileOnly(libs.errorProneAnnotations)
+
+    jmhImplementation(platform(projects.distributionsDependencies))
 }
 tasks.isolatedProjectsIntegTest {
     enabled = false
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.serialize.kryo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decode throughput of a synthetic 200 MB state file, such as a large configuration cache entry, for different read buffer sizes.
+ */
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class KryoBackedDecoderBenchmark {
+    private static final long ENTRY_SIZE = 200L * 1024 * 1024;
+
+    @Param({"4096", "65536"})
+    int bufferSize;
+
+    private File tmpDir;
+    private File entryFile;
+    private int records;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        tmpDir = Files.createTempDirectory("kryo-decoder-benchmark").toFile();
+        entryFile = new File(tmpDir, "entry.bin");
+        try (KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(entryFile), 65536)) {
+            byte[] payload = new byte[64];
+            while (encoder.getWritePosition() < ENTRY_SIZE) {
+                encoder.writeSmallInt(records);
+                encoder.writeString("org.gradle.sample.Type" + (records % 1000));
+                encoder.writeLong(records * 31L);
+                encoder.writeBoolean((records & 1) == 0);
+                encoder.writeBinary(payload);
+                records++;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.delete(entryFile.toPath());
+        Files.delete(tmpDir.toPath());
+    }
+
+    @Benchmark
+    public void decode(Blackhole blackhole) throws Exception {
+        try (KryoBackedDecoder decoder = new KryoBackedDecoder(new FileInputStream(entryFile), new byte[bufferSize])) {
+            decodeAll(decoder, blackhole);
+        }
+    }
+
+    private void decodeAll(KryoBackedDecoder decoder, Blackhole blackhole) throws Exception {
+        for (int i = 0; i < records; i++) {
+            blackhole.consume(decoder.readSmallInt());
+            blackhole.consume(decoder.readString());
+            blackhole.consume(decoder.readLong());
+            blackhole.consume(decoder.readBoolean());
+            blackhole.consume(decoder.readBinary());
+        }
+    }
+}
@@ -45,6 +45,15 @@ public KryoBackedDecoder(InputStream inputStream, int bufferSize) {
         input = new Input(this.inputStream, bufferSize);
     }
 
+    /**
+     * Creates a decoder that reads ahead into the given buffer. The buffer must not be used for anything else until this decoder is closed.
+     */
+    public KryoBackedDecoder(InputStream inputStream, byte[] buffer) {
+        this.inputStream = inputStream;
+        input = new Input(buffer);
+        input.setInputStream(inputStream);
+    }
+
     public void restart(InputStream inputStream) {
         this.inputStream = inputStream;
         input.setInputStream(inputStream);
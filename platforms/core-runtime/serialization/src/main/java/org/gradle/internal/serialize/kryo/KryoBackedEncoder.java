@@ -39,6 +39,14 @@ public KryoBackedEncoder(OutputStream outputStream, int bufferSize) {
         output = new Output(outputStream, bufferSize);
     }
 
+    /**
+     * Creates an encoder that collects output in the given buffer. The buffer must not be used for anything else until this encoder is closed.
+     */
+    public KryoBackedEncoder(OutputStream outputStream, byte[] buffer) {
+        output = new Output(buffer);
+        output.setOutputStream(outputStream);
+    }
+
     @Override
     public void writeByte(byte value) {
         output.writeByte(value);
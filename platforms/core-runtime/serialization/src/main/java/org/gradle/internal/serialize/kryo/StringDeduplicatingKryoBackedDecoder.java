@@ -18,9 +18,11 @@
 
 import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.io.Input;
+import com.google.common.collect.Interner;
 import org.gradle.internal.serialize.AbstractDecoder;
 import org.gradle.internal.serialize.Decoder;
 
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.IOException;
@@ -38,6 +40,8 @@ public class StringDeduplicatingKryoBackedDecoder extends AbstractDecoder implem
     private static final String[] INITIAL_CAPACITY_MARKER = {};
     private final Input input;
     private final InputStream inputStream;
+    @Nullable
+    private final Interner<String> stringInterner;
     private String[] strings = INITIAL_CAPACITY_MARKER;
     /**
      * Actual stored string indices start from 2 so `0` and `1` can be used as special codes:
@@ -58,10 +62,29 @@ public StringDeduplicatingKryoBackedDecoder(InputStream inputStream) {
     }
 
     public StringDeduplicatingKryoBackedDecoder(InputStream inputStream, int bufferSize) {
+        this(inputStream, bufferSize, null);
+    }
+
+    /**
+     * Creates a decoder that passes each distinct string of the stream through the given interner once, when it is first read.
+     * Subsequent references to the same string return the interned instance without further lookups.
+     */
+    public StringDeduplicatingKryoBackedDecoder(InputStream inputStream, int bufferSize, @Nullable Interner<String> stringInterner) {
         this.inputStream = inputStream;
+        this.stringInterner = stringInterner;
         input = new Input(this.inputStream, bufferSize);
     }
 
+    /**
+     * Creates a decoder that reads ahead into the given buffer. The buffer must not be used for anything else until this decoder is closed.
+     */
+    public StringDeduplicatingKryoBackedDecoder(InputStream inputStream, byte[] buffer) {
+        this.inputStream = inputStream;
+        this.stringInterner = null;
+        input = new Input(buffer);
+        input.setInputStream(inputStream);
+    }
+
     @Override
     protected int maybeReadBytes(byte[] buffer, int offset, int count) {
         return input.read(buffer, offset, count);
@@ -214,6 +237,9 @@ private String readNewString() {
             strings = growStringArray(strings);
         }
         String string = input.readString();
+        if (stringInterner != null) {
+            string = stringInterner.intern(string);
+        }
         strings[nextString++] = string;
         return string;
     }
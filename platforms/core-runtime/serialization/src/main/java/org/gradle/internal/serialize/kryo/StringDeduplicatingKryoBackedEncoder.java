@@ -45,6 +45,14 @@ public StringDeduplicatingKryoBackedEncoder(OutputStream outputStream, int buffe
         output = new Output(outputStream, bufferSize);
     }
 
+    /**
+     * Creates an encoder that collects output in the given buffer. The buffer must not be used for anything else until this encoder is closed.
+     */
+    public StringDeduplicatingKryoBackedEncoder(OutputStream outputStream, byte[] buffer) {
+        output = new Output(buffer);
+        output.setOutputStream(outputStream);
+    }
+
     @Override
     public void writeByte(byte value) {
         output.writeByte(value);
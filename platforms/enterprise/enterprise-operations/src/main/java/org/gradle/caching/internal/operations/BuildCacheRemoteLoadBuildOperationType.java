@@ -49,6 +49,15 @@ public interface Result {
          */
         long getArchiveSize();
 
+        /**
+         * The wall time, in milliseconds, that the download of the entry ran ahead of the load
+         * because the entry was prefetched.
+         * Zero if the entry was not prefetched.
+         *
+         * @since 8.12
+         */
+        long getPrefetchSavedTimeMillis();
+
     }
 
     private BuildCacheRemoteLoadBuildOperationType() {
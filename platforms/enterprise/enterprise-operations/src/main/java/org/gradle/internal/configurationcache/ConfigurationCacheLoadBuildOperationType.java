@@ -47,6 +47,22 @@ public interface Result {
          */
         @Nullable
         String getOriginBuildInvocationId();
+
+        /**
+         * The number of bytes read from the files of the configuration cache entry while loading it.
+         *
+         * Smaller than the size of the entry when only part of the entry is needed.
+         *
+         * @since 8.12
+         */
+        long getBytesRead();
+
+        /**
+         * The number of objects decoded while loading the configuration cache entry.
+         *
+         * @since 8.12
+         */
+        long getDecodedObjectCount();
     }
 
 }
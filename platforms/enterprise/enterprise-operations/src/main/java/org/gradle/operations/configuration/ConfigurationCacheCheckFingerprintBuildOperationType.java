@@ -91,6 +91,24 @@ public interface Result {
          * @since 8.10
          */
         List<ProjectInvalidationReasons> getProjectInvalidationReasons();
+
+        /**
+         * Returns the time spent checking the fingerprint, in milliseconds.
+         * Zero if there is no cached configuration for the key.
+         *
+         * @return the check time in milliseconds
+         * @since 8.12
+         */
+        long getCheckTimeMillis();
+
+        /**
+         * Returns the number of build-level fingerprint entries that were checked.
+         * Checking stops soon after an out-of-date entry is found, so fewer entries than the fingerprint holds may be checked when the build is invalidated.
+         *
+         * @return the number of checked entries
+         * @since 8.12
+         */
+        int getCheckedEntryCount();
     }
 
     /**
@@ -1,5 +1,6 @@
 plugins {
     id("gradlebuild.distribution.implementation-java")
+    id("gradlebuild.jmh")
 }
 
 description = """This project contains most of the dependency management logic of Gradle:
@@ -169,6 +170,9 @@ dependencies {
     }
     crossVersionTestDistributionRuntimeOnly(projects.distributionsCore)
     crossVersionTestImplementation(libs.jettyWebApp)
+
+    jmhImplementation(testFixtures(projects.core))
+    jmhImplementation(platform(projects.distributionsDependencies))
 }
 
 packageCycles {
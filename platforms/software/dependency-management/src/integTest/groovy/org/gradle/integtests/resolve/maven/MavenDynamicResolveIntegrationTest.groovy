@@ -130,6 +130,63 @@ task retrieve(type: Sync) {
         file('libs/projectA-1.0.jar').assertHasNotChangedSince(snapshot)
     }
 
+    def "revalidates each expired version listing once when prefetching metadata"() {
+        given:
+        def projectC = mavenHttpRepo.module('org.test', 'projectC', '1.1').publish()
+        def projectB = mavenHttpRepo.module('org.test', 'projectB', '1.1').dependsOn('org.test', 'projectC', '1.+').publish()
+        def projectA = mavenHttpRepo.module('org.test', 'projectA', '1.0').dependsOn('org.test', 'projectB', '1.+').dependsOn('org.test', 'projectC', '1.+').publish()
+
+        buildFile << """
+    repositories {
+        maven { url '${mavenHttpRepo.uri}' }
+    }
+    configurations {
+        compile {
+            resolutionStrategy.cacheDynamicVersionsFor 0, 'seconds'
+        }
+    }
+    dependencies {
+        compile 'org.test:projectA:1.0'
+        compile 'org.test:projectB:1.+'
+    }
+
+    task retrieve(type: Sync) {
+        into 'libs'
+        from configurations.compile
+    }
+    """
+        executer.beforeExecute {
+            executer.withArgument("-Dorg.gradle.dependency.resolution.metadata-prefetch-concurrency=4")
+        }
+
+        when:
+        projectA.pom.expectGet()
+        projectA.artifact.expectGet()
+        mavenHttpRepo.getModuleMetaData('org.test', 'projectB').expectGet()
+        projectB.pom.expectGet()
+        projectB.artifact.expectGet()
+        mavenHttpRepo.getModuleMetaData('org.test', 'projectC').expectGet()
+        projectC.pom.expectGet()
+        projectC.artifact.expectGet()
+
+        and:
+        run 'retrieve'
+
+        then:
+        file('libs').assertHasDescendants('projectA-1.0.jar', 'projectB-1.1.jar', 'projectC-1.1.jar')
+
+        when:
+        server.resetExpectations()
+        mavenHttpRepo.getModuleMetaData('org.test', 'projectB').expectHead()
+        mavenHttpRepo.getModuleMetaData('org.test', 'projectC').expectHead()
+
+        and:
+        run 'retrieve'
+
+        then:
+        file('libs').assertHasDescendants('projectA-1.0.jar', 'projectB-1.1.jar', 'projectC-1.1.jar')
+    }
+
     def "falls back to directory listing when maven-metadata.xml is missing and artifact metadata source is defined"() {
         given:
         mavenHttpRepo.module('group', 'projectA', '1.0').publish()
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes;
+
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeSpec;
+import org.gradle.internal.component.external.descriptor.DefaultExclude;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Merges and evaluates exclude rules the way a graph traversal does, for dependencies declaring exclude combinations typical of large platforms:
+ * mostly exact module ids, with some group-only and module-only wildcards.
+ *
+ * Each merge benchmark uses fresh {@link ModuleExclusions}, so that results are computed rather than served from the merge caches.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ModuleExclusionsBenchmark {
+    private static final int GROUPS = 50;
+    private static final int MODULES_PER_GROUP = 40;
+
+    @Param({"10", "100"})
+    int dependencies;
+
+    @Param({"5", "25"})
+    int excludesPerDependency;
+
+    private final List<List<ExcludeMetadata>> excludesByDependency = new ArrayList<>();
+    private final List<ModuleIdentifier> candidates = new ArrayList<>();
+    private ExcludeSpec merged;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        for (int i = 0; i < dependencies; i++) {
+            List<ExcludeMetadata> excludes = new ArrayList<>(excludesPerDependency);
+            for (int j = 0; j < excludesPerDependency; j++) {
+                String group = "org.group" + random.nextInt(GROUPS);
+                String module = "module" + random.nextInt(MODULES_PER_GROUP);
+                int kind = random.nextInt(10);
+                if (kind == 0) {
+                    excludes.add(new DefaultExclude(DefaultModuleIdentifier.newId(group, PatternMatchers.ANY_EXPRESSION)));
+                } else if (kind == 1) {
+                    excludes.add(new DefaultExclude(DefaultModuleIdentifier.newId(PatternMatchers.ANY_EXPRESSION, module)));
+                } else {
+                    excludes.add(new DefaultExclude(DefaultModuleIdentifier.newId(group, module)));
+                }
+            }
+            excludesByDependency.add(excludes);
+        }
+        for (int i = 0; i < GROUPS; i++) {
+            for (int j = 0; j < MODULES_PER_GROUP; j++) {
+                candidates.add(DefaultModuleIdentifier.newId("org.group" + i, "module" + j));
+            }
+        }
+        merged = mergeAlongPaths(new ModuleExclusions());
+    }
+
+    @Benchmark
+    public ExcludeSpec mergeExcludesAlongPaths() {
+        return mergeAlongPaths(new ModuleExclusions());
+    }
+
+    @Benchmark
+    public ExcludeSpec intersectExcludesOfAllIncomingEdges() {
+        ModuleExclusions moduleExclusions = new ModuleExclusions();
+        ExcludeSpec result = null;
+        for (List<ExcludeMetadata> excludes : excludesByDependency) {
+            ExcludeSpec spec = moduleExclusions.excludeAny(excludes);
+            result = result == null ? spec : moduleExclusions.excludeAll(result, spec);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void evaluateMergedExcludes(Blackhole blackhole) {
+        for (ModuleIdentifier candidate : candidates) {
+            blackhole.consume(merged.excludes(candidate));
+        }
+    }
+
+    /**
+     * Each dependency inherits the excludes of the path leading to it, then a node reached by two paths intersects them.
+     */
+    private ExcludeSpec mergeAlongPaths(ModuleExclusions moduleExclusions) {
+        ExcludeSpec left = moduleExclusions.nothing();
+        ExcludeSpec right = moduleExclusions.nothing();
+        for (int i = 0; i < excludesByDependency.size(); i++) {
+            ExcludeSpec spec = moduleExclusions.excludeAny(excludesByDependency.get(i));
+            if (i % 2 == 0) {
+                left = moduleExclusions.excludeAny(left, spec);
+            } else {
+                right = moduleExclusions.excludeAny(right, spec);
+            }
+        }
+        return moduleExclusions.excludeAll(left, right);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.attributes;
+
+import org.gradle.api.attributes.Attribute;
+import org.gradle.util.AttributeTestUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates, merges and queries attribute sets the way variant selection does: consumer attributes merged with
+ * the attributes of each candidate variant, and lookups of single attributes by name.
+ *
+ * Run with {@code -prof gc} to compare the allocation rate along with the throughput.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class AttributesFactoryBenchmark {
+    private static final int VARIANTS = 200;
+    private static final int VALUES = 4;
+
+    @Param({"4", "12"})
+    int attributesPerSet;
+
+    private final List<Attribute<String>> attributes = new ArrayList<>();
+    private final List<ImmutableAttributes> variants = new ArrayList<>();
+    private final List<ImmutableAttributes> reversedVariants = new ArrayList<>();
+    private DefaultAttributesFactory factory;
+    private ImmutableAttributes consumer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        factory = AttributeTestUtil.attributesFactory();
+        for (int i = 0; i < attributesPerSet; i++) {
+            attributes.add(Attribute.of("attribute" + i, String.class));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < VARIANTS; i++) {
+            ImmutableAttributes variant = ImmutableAttributes.EMPTY;
+            ImmutableAttributes reversed = ImmutableAttributes.EMPTY;
+            String[] values = new String[attributesPerSet];
+            // The consumer requests the first attribute only, so that merging never fails
+            for (int j = 1; j < attributesPerSet; j++) {
+                values[j] = "value" + random.nextInt(VALUES);
+                variant = factory.concat(variant, attributes.get(j), values[j]);
+            }
+            for (int j = attributesPerSet - 1; j > 0; j--) {
+                reversed = factory.concat(reversed, attributes.get(j), values[j]);
+            }
+            variants.add(variant);
+            reversedVariants.add(reversed);
+        }
+        consumer = factory.of(attributes.get(0), "consumer");
+    }
+
+    @Benchmark
+    public void concatAttribute(Blackhole blackhole) {
+        for (ImmutableAttributes variant : variants) {
+            blackhole.consume(factory.concat(variant, attributes.get(0), "consumer"));
+        }
+    }
+
+    @Benchmark
+    public void concatSets(Blackhole blackhole) {
+        for (ImmutableAttributes variant : variants) {
+            blackhole.consume(factory.concat(variant, consumer));
+        }
+    }
+
+    @Benchmark
+    public void safeConcatSets(Blackhole blackhole) throws AttributeMergingException {
+        for (ImmutableAttributes variant : variants) {
+            blackhole.consume(factory.safeConcat(consumer, variant));
+        }
+    }
+
+    @Benchmark
+    public void findEntryByName(Blackhole blackhole) {
+        for (ImmutableAttributes variant : variants) {
+            for (Attribute<String> attribute : attributes) {
+                blackhole.consume(variant.findEntry(attribute.getName()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void findEntryByAttribute(Blackhole blackhole) {
+        for (ImmutableAttributes variant : variants) {
+            for (Attribute<String> attribute : attributes) {
+                blackhole.consume(variant.findEntry(attribute));
+            }
+        }
+    }
+
+    @Benchmark
+    public void compareSetsCreatedInDifferentOrder(Blackhole blackhole) {
+        for (int i = 0; i < VARIANTS; i++) {
+            ImmutableAttributes variant = variants.get(i);
+            blackhole.consume(variant.equals(reversedVariants.get(i)));
+            blackhole.consume(variant.equals(reversedVariants.get((i + 1) % VARIANTS)));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.attributes.matching;
+
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeCompatibilityRule;
+import org.gradle.api.attributes.CompatibilityCheckDetails;
+import org.gradle.api.internal.attributes.AttributesSchemaInternal;
+import org.gradle.api.internal.attributes.DefaultAttributesFactory;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.api.internal.attributes.immutable.ImmutableAttributesSchema;
+import org.gradle.internal.component.model.AttributeMatchingExplanationBuilder;
+import org.gradle.util.AttributeTestUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Selects variants of many components against a schema shaped like an Android build: a dozen attributes,
+ * some of which have compatibility rules, and components publishing dozens of variants.
+ *
+ * Each invocation uses a new {@link DefaultAttributeMatcher}, so that queries are not answered from its query cache,
+ * while the selection schema is shared between invocations the way it is shared between resolutions of a build.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class AttributeMatchingBenchmark {
+    private static final int LEVEL_ATTRIBUTES = 4;
+    private static final int FLAVOR_ATTRIBUTES = 8;
+    private static final int LEVELS = 8;
+    private static final int FLAVORS = 6;
+    private static final int COMPONENTS = 1000;
+
+    @Param({"true", "false"})
+    boolean cachingSchema;
+
+    @Param({"50", "100"})
+    int variantsPerComponent;
+
+    private final List<Attribute<Integer>> levelAttributes = new ArrayList<>();
+    private final List<Attribute<String>> flavorAttributes = new ArrayList<>();
+    private final List<List<ImmutableAttributes>> components = new ArrayList<>();
+    private AttributeSelectionSchema selectionSchema;
+    private ImmutableAttributes requested;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        AttributesSchemaInternal mutableSchema = AttributeTestUtil.mutableSchema();
+        for (int i = 0; i < LEVEL_ATTRIBUTES; i++) {
+            Attribute<Integer> attribute = Attribute.of("level" + i, Integer.class);
+            mutableSchema.attribute(attribute).getCompatibilityRules().add(AtMostRequestedLevel.class);
+            levelAttributes.add(attribute);
+        }
+        for (int i = 0; i < FLAVOR_ATTRIBUTES; i++) {
+            Attribute<String> attribute = Attribute.of("flavor" + i, String.class);
+            if (i % 2 == 0) {
+                mutableSchema.attribute(attribute).getCompatibilityRules().add(DefaultFlavorFallback.class);
+            } else {
+                mutableSchema.attribute(attribute);
+            }
+            flavorAttributes.add(attribute);
+        }
+        ImmutableAttributesSchema schema = AttributeTestUtil.services().getSchemaFactory().create(mutableSchema);
+        AttributeSelectionSchema defaultSchema = new DefaultAttributeSelectionSchema(schema);
+        selectionSchema = cachingSchema ? new CachingAttributeSelectionSchema(defaultSchema) : defaultSchema;
+
+        DefaultAttributesFactory attributesFactory = AttributeTestUtil.attributesFactory();
+        Random random = new Random(42);
+        requested = randomAttributes(attributesFactory, random, LEVELS - 1, "flavor1");
+        for (int i = 0; i < COMPONENTS; i++) {
+            List<ImmutableAttributes> variants = new ArrayList<>(variantsPerComponent);
+            for (int j = 0; j < variantsPerComponent; j++) {
+                variants.add(randomAttributes(attributesFactory, random, random.nextInt(LEVELS), "flavor" + random.nextInt(FLAVORS)));
+            }
+            components.add(variants);
+        }
+    }
+
+    private ImmutableAttributes randomAttributes(DefaultAttributesFactory attributesFactory, Random random, int maxLevel, String flavor) {
+        ImmutableAttributes attributes = ImmutableAttributes.EMPTY;
+        for (Attribute<Integer> attribute : levelAttributes) {
+            attributes = attributesFactory.concat(attributes, attribute, random.nextInt(maxLevel + 1));
+        }
+        for (Attribute<String> attribute : flavorAttributes) {
+            attributes = attributesFactory.concat(attributes, attribute, random.nextInt(4) == 0 ? DefaultFlavorFallback.DEFAULT_FLAVOR : flavor);
+        }
+        return attributes;
+    }
+
+    @Benchmark
+    public void selectVariantsOfManyComponents(Blackhole blackhole) {
+        AttributeMatcher matcher = new DefaultAttributeMatcher(selectionSchema);
+        for (List<ImmutableAttributes> variants : components) {
+            blackhole.consume(matcher.matchMultipleCandidates(variants, requested, AttributeMatchingExplanationBuilder.NO_OP));
+        }
+    }
+
+    @Benchmark
+    public void checkEachVariantOfManyComponents(Blackhole blackhole) {
+        AttributeMatcher matcher = new DefaultAttributeMatcher(selectionSchema);
+        for (List<ImmutableAttributes> variants : components) {
+            for (ImmutableAttributes variant : variants) {
+                blackhole.consume(matcher.isMatchingCandidate(variant, requested));
+            }
+        }
+    }
+
+    /**
+     * Like the JVM version attribute: a producer targeting a lower level is compatible.
+     */
+    public static class AtMostRequestedLevel implements AttributeCompatibilityRule<Integer> {
+        @Override
+        public void execute(CompatibilityCheckDetails<Integer> details) {
+            Integer consumerValue = details.getConsumerValue();
+            Integer producerValue = details.getProducerValue();
+            if (consumerValue != null && producerValue != null && producerValue <= consumerValue) {
+                details.compatible();
+            }
+        }
+    }
+
+    /**
+     * Like matching fallbacks of Android build types and flavors: the default flavor is compatible with any request.
+     */
+    public static class DefaultFlavorFallback implements AttributeCompatibilityRule<String> {
+        static final String DEFAULT_FLAVOR = "default";
+
+        @Override
+        public void execute(CompatibilityCheckDetails<String> details) {
+            if (DEFAULT_FLAVOR.equals(details.getProducerValue())) {
+                details.compatible();
+            }
+        }
+    }
+}
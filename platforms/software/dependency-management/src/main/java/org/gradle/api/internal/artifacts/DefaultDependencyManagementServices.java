@@ -55,6 +55,8 @@
 import org.gradle.api.internal.artifacts.dsl.dependencies.UnknownProjectFinder;
 import org.gradle.api.internal.artifacts.ivyservice.DefaultConfigurationResolver;
 import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
+import org.gradle.api.internal.artifacts.ivyservice.ResolvedGraphCache;
+import org.gradle.api.internal.artifacts.ivyservice.SharedDependencyGraphCache;
 import org.gradle.api.internal.artifacts.ivyservice.ShortCircuitEmptyConfigurationResolver;
 import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionRules;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ExternalModuleComponentResolverFactory;
@@ -642,7 +644,9 @@ ConfigurationResolver createDependencyResolver(
             ExternalModuleComponentResolverFactory moduleDependencyResolverFactory,
             ProjectDependencyResolver projectDependencyResolver,
             DependencyLockingProvider dependencyLockingProvider,
-            AttributeDesugaring attributeDesugaring
+            AttributeDesugaring attributeDesugaring,
+            ResolvedGraphCache resolvedGraphCache,
+            SharedDependencyGraphCache sharedGraphCache
         ) {
             DefaultConfigurationResolver defaultResolver = new DefaultConfigurationResolver(
                 dependencyGraphResolver,
@@ -669,7 +673,9 @@ ConfigurationResolver createDependencyResolver(
                 resolverFactories,
                 moduleDependencyResolverFactory,
                 projectDependencyResolver,
-                dependencyLockingProvider
+                dependencyLockingProvider,
+                resolvedGraphCache,
+                sharedGraphCache
             );
 
             return new ShortCircuitEmptyConfigurationResolver(
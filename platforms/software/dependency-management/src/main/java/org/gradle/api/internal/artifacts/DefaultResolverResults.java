@@ -31,17 +31,20 @@ public class DefaultResolverResults implements ResolverResults {
     private final VisitedArtifactSet visitedArtifacts;
     private final LegacyResolverResults legacyResolverResults;
     private final boolean fullyResolved;
+    private final Boolean resolvedGraphCacheHit;
 
     public DefaultResolverResults(
         VisitedGraphResults graphResults,
         VisitedArtifactSet visitedArtifacts,
         LegacyResolverResults legacyResolverResults,
-        boolean fullyResolved
+        boolean fullyResolved,
+        @Nullable Boolean resolvedGraphCacheHit
     ) {
         this.graphResults = graphResults;
         this.visitedArtifacts = visitedArtifacts;
         this.legacyResolverResults = legacyResolverResults;
         this.fullyResolved = fullyResolved;
+        this.resolvedGraphCacheHit = resolvedGraphCacheHit;
     }
 
     @Override
@@ -64,6 +67,12 @@ public boolean isFullyResolved() {
         return fullyResolved;
     }
 
+    @Nullable
+    @Override
+    public Boolean getResolvedGraphCacheHit() {
+        return resolvedGraphCacheHit;
+    }
+
     /**
      * Create a new result representing the result of resolving build dependencies.
      */
@@ -76,7 +85,8 @@ public static ResolverResults buildDependenciesResolved(
             graphResults,
             visitedArtifacts,
             legacyResolverResults,
-            false
+            false,
+            null
         );
     }
 
@@ -87,12 +97,25 @@ public static ResolverResults graphResolved(
         VisitedGraphResults graphResults,
         VisitedArtifactSet visitedArtifacts,
         LegacyResolverResults legacyResolverResults
+    ) {
+        return graphResolved(graphResults, visitedArtifacts, legacyResolverResults, null);
+    }
+
+    /**
+     * Create a new result representing the result of resolving the dependency graph, recording whether the resolved graph cache was hit.
+     */
+    public static ResolverResults graphResolved(
+        VisitedGraphResults graphResults,
+        VisitedArtifactSet visitedArtifacts,
+        LegacyResolverResults legacyResolverResults,
+        @Nullable Boolean resolvedGraphCacheHit
     ) {
         return new DefaultResolverResults(
             graphResults,
             visitedArtifacts,
             legacyResolverResults,
-            true
+            true,
+            resolvedGraphCacheHit
         );
     }
 
@@ -23,6 +23,8 @@
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.results.VisitedGraphResults;
 import org.gradle.api.specs.Spec;
 
+import javax.annotation.Nullable;
+
 /**
  * Immutable representation of the state of dependency resolution. Can represent the result of resolving build
  * dependencies or the result of a full dependency graph resolution.
@@ -53,6 +55,13 @@ public interface ResolverResults {
      */
     boolean isFullyResolved();
 
+    /**
+     * Whether the components selected by an earlier resolution of a graph with the same inputs were known before resolving this graph,
+     * or null if the {@link org.gradle.api.internal.artifacts.ivyservice.ResolvedGraphCache} was not used.
+     */
+    @Nullable
+    Boolean getResolvedGraphCacheHit();
+
     /**
      * Results for supporting legacy resolution APIs including:
      * <ul>
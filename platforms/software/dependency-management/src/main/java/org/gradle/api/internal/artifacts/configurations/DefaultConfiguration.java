@@ -834,7 +834,8 @@ private void captureBuildOperationResult(BuildOperationContext context, Resolver
                 context.setResult(new ResolveConfigurationResolutionBuildOperationResult(
                     resolutionResult.getRootSource(),
                     resolutionResult.getRequestedAttributes(),
-                    attributesFactory
+                    attributesFactory,
+                    results.getResolvedGraphCacheHit()
                 ));
             }
 
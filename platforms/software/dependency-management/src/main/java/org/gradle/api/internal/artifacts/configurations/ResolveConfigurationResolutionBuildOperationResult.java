@@ -45,14 +45,17 @@
 class ResolveConfigurationResolutionBuildOperationResult implements ResolveConfigurationDependenciesBuildOperationType.Result, CustomOperationTraceSerialization {
     private final Supplier<? extends ResolvedComponentResult> rootSource;
     private final AttributeContainer requestedAttributes;
+    private final Boolean resolvedGraphCacheHit;
 
     public ResolveConfigurationResolutionBuildOperationResult(
         Supplier<? extends ResolvedComponentResult> rootSource,
         ImmutableAttributes requestedAttributes,
-        AttributesFactory attributesFactory
+        AttributesFactory attributesFactory,
+        @Nullable Boolean resolvedGraphCacheHit
     ) {
         this.rootSource = rootSource;
         this.requestedAttributes = new LazyDesugaringAttributeContainer(requestedAttributes, attributesFactory);
+        this.resolvedGraphCacheHit = resolvedGraphCacheHit;
     }
 
     @Override
@@ -82,6 +85,9 @@ public Object getCustomOperationTraceSerializableModel() {
             requestedAttributesBuilder.add(ImmutableMap.of("name", att.getName(), "value", requestedAttributes.getAttribute(att).toString()));
         }
         model.put("requestedAttributes", requestedAttributesBuilder.build());
+        if (resolvedGraphCacheHit != null) {
+            model.put("resolvedGraphCacheHit", resolvedGraphCacheHit);
+        }
 
         return model;
     }
@@ -91,6 +97,12 @@ public AttributeContainer getRequestedAttributes() {
         return requestedAttributes;
     }
 
+    @Nullable
+    @Override
+    public Boolean getResolvedGraphCacheHit() {
+        return resolvedGraphCacheHit;
+    }
+
     // This does almost the same thing as passing through DesugaredAttributeContainerSerializer / DesugaringAttributeContainerSerializer.
     // Those make some assumptions about allowed attribute value types that we can't - we serialize everything else to a string instead.
     private static final class LazyDesugaringAttributeContainer implements ImmutableAttributes {
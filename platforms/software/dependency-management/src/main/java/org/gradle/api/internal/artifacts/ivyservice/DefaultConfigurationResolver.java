@@ -24,6 +24,7 @@
 import org.gradle.api.artifacts.ResolveException;
 import org.gradle.api.artifacts.UnresolvedDependency;
 import org.gradle.api.artifacts.component.BuildIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.component.ProjectComponentSelector;
 import org.gradle.api.attributes.Attribute;
 import org.gradle.api.attributes.AttributeContainer;
@@ -40,6 +41,7 @@
 import org.gradle.api.internal.artifacts.configurations.ConflictResolution;
 import org.gradle.api.internal.artifacts.configurations.ResolutionHost;
 import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
 import org.gradle.api.internal.artifacts.dsl.dependencies.DependencyLockingProvider;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ComponentResolvers;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ExternalModuleComponentResolverFactory;
@@ -99,6 +101,7 @@
 import org.gradle.internal.build.BuildState;
 import org.gradle.internal.component.model.DependencyMetadata;
 import org.gradle.internal.component.model.GraphVariantSelector;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.locking.DependencyLockingGraphVisitor;
 import org.gradle.internal.model.CalculatedValueContainerFactory;
 import org.gradle.internal.operations.BuildOperationExecutor;
@@ -139,6 +142,8 @@ public class DefaultConfigurationResolver implements ConfigurationResolver {
     private final ExternalModuleComponentResolverFactory externalResolverFactory;
     private final ProjectDependencyResolver projectDependencyResolver;
     private final DependencyLockingProvider dependencyLockingProvider;
+    private final ResolvedGraphCache resolvedGraphCache;
+    private final SharedDependencyGraphCache sharedGraphCache;
 
     public DefaultConfigurationResolver(
         DependencyGraphResolver dependencyGraphResolver,
@@ -165,7 +170,9 @@ public DefaultConfigurationResolver(
         List<ResolverProviderFactory> resolverFactories,
         ExternalModuleComponentResolverFactory externalResolverFactory,
         ProjectDependencyResolver projectDependencyResolver,
-        DependencyLockingProvider dependencyLockingProvider
+        DependencyLockingProvider dependencyLockingProvider,
+        ResolvedGraphCache resolvedGraphCache,
+        SharedDependencyGraphCache sharedGraphCache
     ) {
         this.dependencyGraphResolver = dependencyGraphResolver;
         this.repositoriesSupplier = repositoriesSupplier;
@@ -192,6 +199,8 @@ public DefaultConfigurationResolver(
         this.externalResolverFactory = externalResolverFactory;
         this.projectDependencyResolver = projectDependencyResolver;
         this.dependencyLockingProvider = dependencyLockingProvider;
+        this.resolvedGraphCache = resolvedGraphCache;
+        this.sharedGraphCache = sharedGraphCache;
     }
 
     @Override
@@ -209,7 +218,7 @@ public ResolverResults resolveBuildDependencies(ResolveContext resolveContext) {
         DependencyGraphVisitor artifactsGraphVisitor = artifactVisitorFor(artifactsBuilder, resolvers, consumerSchema);
 
         ImmutableList<DependencyGraphVisitor> visitors = ImmutableList.of(failureCollector, resolutionResultBuilder, localComponentsVisitor, artifactsGraphVisitor);
-        doResolve(resolveContext, rootComponent, resolutionStrategy, resolvers, false, IS_LOCAL_EDGE, visitors);
+        doResolve(resolveContext, rootComponent, resolutionStrategy, resolvers, false, IS_LOCAL_EDGE, Collections.emptyList(), visitors);
         localComponentsVisitor.complete(ConfigurationInternal.InternalState.BUILD_DEPENDENCIES_RESOLVED);
 
         Set<UnresolvedDependency> unresolvedDependencies = failureCollector.complete(Collections.emptySet());
@@ -275,13 +284,30 @@ public ResolverResults resolveGraph(ResolveContext resolveContext) {
         RootComponentMetadataBuilder.RootComponentState rootComponent = resolveContext.toRootComponent();
         ImmutableAttributesSchema consumerSchema = rootComponent.getRootComponent().getMetadata().getAttributesSchema();
 
-        ComponentResolvers resolvers = getResolvers(resolveContext, getFilteredRepositories(resolveContext), consumerSchema);
+        List<ResolutionAwareRepository> repositories = getFilteredRepositories(resolveContext);
+        ComponentResolvers resolvers = getResolvers(resolveContext, repositories, consumerSchema);
         CompositeDependencyArtifactsVisitor artifactVisitors = new CompositeDependencyArtifactsVisitor(ImmutableList.of(
             oldModelVisitor, fileDependencyVisitor, artifactsBuilder
         ));
         graphVisitors.add(artifactVisitorFor(artifactVisitors, resolvers, consumerSchema));
 
-        doResolve(resolveContext, rootComponent, resolutionStrategy, resolvers, true, Specs.satisfyAll(), graphVisitors.build());
+        List<? extends DependencyMetadata> syntheticDependencies = resolveContext.getSyntheticDependencies();
+        ModuleReplacementsData moduleReplacements = metadataHandler.getModuleMetadataProcessor().getModuleReplacements();
+        SharedDependencyGraphCache.Key sharedGraphKey = sharedGraphCache.keyFor(rootComponent, syntheticDependencies, resolveContext.getAttributes(), consumerSchema, repositories, resolutionStrategy, metadataHandler.getComponentMetadataProcessorFactory());
+        HashCode resolvedGraphKey = null;
+        List<ModuleComponentIdentifier> previouslySelectedComponents = Collections.emptyList();
+        if (sharedGraphKey == null || !sharedGraphCache.replay(sharedGraphKey, rootComponent, syntheticDependencies, moduleReplacements, new CompositeDependencyGraphVisitor(graphVisitors.build()))) {
+            if (sharedGraphKey != null) {
+                graphVisitors.add(sharedGraphCache.recorder(sharedGraphKey, rootComponent, syntheticDependencies, moduleReplacements));
+            }
+            resolvedGraphKey = resolvedGraphCache.keyFor(rootComponent, syntheticDependencies, resolveContext.getAttributes(), repositories, resolutionStrategy.getConflictResolution().name());
+            if (resolvedGraphKey != null) {
+                previouslySelectedComponents = resolvedGraphCache.load(resolvedGraphKey);
+                graphVisitors.add(resolvedGraphCache.recorder(resolvedGraphKey, previouslySelectedComponents));
+            }
+
+            doResolve(resolveContext, rootComponent, resolutionStrategy, resolvers, true, Specs.satisfyAll(), previouslySelectedComponents, graphVisitors.build());
+        }
         localComponentsVisitor.complete(ConfigurationInternal.InternalState.GRAPH_RESOLVED);
 
         VisitedArtifactResults artifactsResults = artifactsBuilder.complete();
@@ -334,7 +360,8 @@ public ResolverResults resolveGraph(ResolveContext resolveContext) {
             new DefaultResolvedConfiguration(graphResults, resolutionHost, visitedArtifacts, lenientConfiguration)
         );
 
-        return DefaultResolverResults.graphResolved(graphResults, visitedArtifacts, legacyResolverResults);
+        Boolean resolvedGraphCacheHit = resolvedGraphKey == null ? null : !previouslySelectedComponents.isEmpty();
+        return DefaultResolverResults.graphResolved(graphResults, visitedArtifacts, legacyResolverResults, resolvedGraphCacheHit);
     }
 
     private static ArtifactSelectionSpec getImplicitSelectionSpec(ResolveContext resolveContext) {
@@ -385,6 +412,7 @@ private void doResolve(
         ComponentResolvers resolvers,
         boolean includeSyntheticDependencies,
         Spec<DependencyMetadata> edgeFilter,
+        List<ModuleComponentIdentifier> previouslySelectedComponents,
         ImmutableList<DependencyGraphVisitor> visitors
     ) {
         if (resolutionStrategy.isDependencyLockingEnabled()) {
@@ -416,6 +444,7 @@ private void doResolve(
             resolutionStrategy.getCapabilitiesResolutionRules(),
             resolutionStrategy.isFailingOnDynamicVersions(),
             resolutionStrategy.isFailingOnChangingVersions(),
+            previouslySelectedComponents,
             new CompositeDependencyGraphVisitor(visitors)
         );
     }
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.capability.CapabilitySelector;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.internal.artifacts.ImmutableModuleIdentifierFactory;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.RootComponentMetadataBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.MetadataPrefetchExecutor;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.cache.FileLockManager;
+import org.gradle.cache.IndexedCache;
+import org.gradle.cache.IndexedCacheParameters;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
+import org.gradle.cache.scopes.BuildScopedCacheBuilderFactory;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.serialize.AbstractSerializer;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.HashCodeSerializer;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Remembers, across builds, which external components were selected the last time a dependency graph with the same inputs was resolved.
+ *
+ * <p>The remembered components are only used as a hint: their metadata is fetched up front, so that the graph builder rarely waits
+ * on it while it traverses the graph. The graph itself is always resolved again, which means that a stale entry, for example because a
+ * transitive dependency uses a dynamic version or a substitution rule changed, can only cause some unnecessary fetches and never a
+ * different result.</p>
+ *
+ * <p>Graphs whose declared dependencies use dynamic or changing versions are not cached, as their selected components are expected to change.</p>
+ *
+ * <p>The hints are handed to the metadata prefetcher, so graphs are neither looked up nor recorded unless prefetching is enabled with
+ * {@link MetadataPrefetchExecutor#METADATA_PREFETCH_CONCURRENCY}, and the hints are fetched with the concurrency configured there.</p>
+ */
+@ServiceScope(Scope.Build.class)
+public class ResolvedGraphCache implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolvedGraphCache.class);
+    public static final InternalFlag RESOLVED_GRAPH_CACHE = new InternalFlag("org.gradle.dependency.resolution.resolved-graph-cache");
+
+    private final boolean enabled;
+    private final MetadataPrefetchExecutor metadataPrefetchExecutor;
+    private final BuildScopedCacheBuilderFactory cacheBuilderFactory;
+    private final InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+    private PersistentCache store;
+    private IndexedCache<HashCode, List<ModuleComponentIdentifier>> cache;
+
+    @Inject
+    public ResolvedGraphCache(
+        InternalOptions internalOptions,
+        MetadataPrefetchExecutor metadataPrefetchExecutor,
+        BuildScopedCacheBuilderFactory cacheBuilderFactory,
+        InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory,
+        VersionSelectorScheme versionSelectorScheme,
+        ImmutableModuleIdentifierFactory moduleIdentifierFactory
+    ) {
+        this.enabled = internalOptions.getOption(RESOLVED_GRAPH_CACHE).get();
+        this.metadataPrefetchExecutor = metadataPrefetchExecutor;
+        this.cacheBuilderFactory = cacheBuilderFactory;
+        this.inMemoryCacheDecoratorFactory = inMemoryCacheDecoratorFactory;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.moduleIdentifierFactory = moduleIdentifierFactory;
+    }
+
+    /**
+     * Calculates the key of a graph from the inputs of its resolution.
+     *
+     * @return the key, or null if the graph should not be cached, or nothing would prefetch the components remembered for it.
+     */
+    @Nullable
+    public HashCode keyFor(
+        RootComponentMetadataBuilder.RootComponentState rootComponent,
+        List<? extends DependencyMetadata> syntheticDependencies,
+        AttributeContainer requestAttributes,
+        List<ResolutionAwareRepository> repositories,
+        String conflictResolution
+    ) {
+        if (!enabled || metadataPrefetchExecutor.getExecutor() == null) {
+            return null;
+        }
+        Hasher hasher = Hashing.newHasher();
+        hasher.putString(conflictResolution);
+        hasher.putInt(repositories.size());
+        for (ResolutionAwareRepository repository : repositories) {
+            hasher.putString(repository.getDescriptor().getId());
+        }
+        hashAttributes(hasher, requestAttributes);
+        if (!hashDependencies(hasher, rootComponent.getRootVariant().getDependencies()) || !hashDependencies(hasher, syntheticDependencies)) {
+            return null;
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Returns the external components that were selected when the graph with the given key was last resolved, or an empty list if unknown.
+     */
+    public List<ModuleComponentIdentifier> load(HashCode key) {
+        List<ModuleComponentIdentifier> components = getCache().getIfPresent(key);
+        if (components == null) {
+            LOGGER.debug("No components remembered for resolved graph {}.", key);
+            return Collections.emptyList();
+        }
+        LOGGER.debug("Remembered {} components for resolved graph {}.", components.size(), key);
+        return components;
+    }
+
+    /**
+     * Creates a visitor that records the external components selected while resolving the graph with the given key.
+     */
+    public DependencyGraphVisitor recorder(HashCode key, List<ModuleComponentIdentifier> previouslySelected) {
+        return new DependencyGraphVisitor() {
+            private final Set<ModuleComponentIdentifier> selected = new LinkedHashSet<>();
+
+            @Override
+            public void visitNode(DependencyGraphNode node) {
+                ComponentIdentifier componentId = node.getOwner().getComponentId();
+                if (componentId instanceof ModuleComponentIdentifier) {
+                    selected.add((ModuleComponentIdentifier) componentId);
+                }
+            }
+
+            @Override
+            public void finish(RootGraphNode root) {
+                if (selected.size() != previouslySelected.size() || !selected.containsAll(previouslySelected)) {
+                    getCache().put(key, new ArrayList<>(selected));
+                }
+            }
+        };
+    }
+
+    private boolean hashDependencies(Hasher hasher, List<? extends DependencyMetadata> dependencies) {
+        hasher.putInt(dependencies.size());
+        for (DependencyMetadata dependency : dependencies) {
+            if (dependency.isChanging()) {
+                return false;
+            }
+            ComponentSelector selector = dependency.getSelector();
+            if (selector instanceof ModuleComponentSelector) {
+                VersionConstraint versionConstraint = ((ModuleComponentSelector) selector).getVersionConstraint();
+                if (isDynamic(versionConstraint)) {
+                    return false;
+                }
+                hasher.putString(versionConstraint.getRequiredVersion());
+                hasher.putString(versionConstraint.getPreferredVersion());
+                hasher.putString(versionConstraint.getStrictVersion());
+                hasher.putString(versionConstraint.getRejectedVersions().toString());
+            }
+            hasher.putString(selector.getDisplayName());
+            hashAttributes(hasher, selector.getAttributes());
+            for (CapabilitySelector capabilitySelector : selector.getCapabilitySelectors()) {
+                hasher.putString(capabilitySelector.getDisplayName());
+            }
+            hasher.putBoolean(dependency.isConstraint());
+            hasher.putBoolean(dependency.isTransitive());
+            for (ExcludeMetadata exclude : dependency.getExcludes()) {
+                hasher.putString(exclude.getModuleId().toString());
+                hasher.putString(String.valueOf(exclude.getArtifact()));
+                hasher.putString(String.valueOf(exclude.getMatcher()));
+            }
+            for (IvyArtifactName artifact : dependency.getArtifacts()) {
+                hasher.putString(artifact.toString());
+            }
+        }
+        return true;
+    }
+
+    private boolean isDynamic(VersionConstraint versionConstraint) {
+        if (versionConstraint.getBranch() != null) {
+            return true;
+        }
+        for (String version : new String[]{versionConstraint.getRequiredVersion(), versionConstraint.getPreferredVersion(), versionConstraint.getStrictVersion()}) {
+            if (!version.isEmpty() && versionSelectorScheme.parseSelector(version).isDynamic()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static void hashAttributes(Hasher hasher, AttributeContainer attributes) {
+        List<Attribute<?>> keys = new ArrayList<>(attributes.keySet());
+        keys.sort(Comparator.comparing(Attribute::getName));
+        hasher.putInt(keys.size());
+        for (Attribute<?> key : keys) {
+            hasher.putString(key.getName());
+            hasher.putString(String.valueOf(attributes.getAttribute(key)));
+        }
+    }
+
+    private synchronized IndexedCache<HashCode, List<ModuleComponentIdentifier>> getCache() {
+        if (cache == null) {
+            store = cacheBuilderFactory.createCacheBuilder("resolved-graphs")
+                .withDisplayName("Resolved dependency graph cache")
+                .withInitialLockMode(FileLockManager.LockMode.OnDemand)
+                .open();
+            cache = store.createIndexedCache(
+                IndexedCacheParameters.of(
+                    "resolved-graphs",
+                    new HashCodeSerializer(),
+                    new ComponentsSerializer(moduleIdentifierFactory)
+                ).withCacheDecorator(inMemoryCacheDecoratorFactory.decorator(500, true)));
+        }
+        return cache;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private static class ComponentsSerializer extends AbstractSerializer<List<ModuleComponentIdentifier>> {
+        private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
+
+        private ComponentsSerializer(ImmutableModuleIdentifierFactory moduleIdentifierFactory) {
+            this.moduleIdentifierFactory = moduleIdentifierFactory;
+        }
+
+        @Override
+        public void write(Encoder encoder, List<ModuleComponentIdentifier> value) throws Exception {
+            encoder.writeSmallInt(value.size());
+            for (ModuleComponentIdentifier component : value) {
+                encoder.writeString(component.getGroup());
+                encoder.writeString(component.getModule());
+                encoder.writeString(component.getVersion());
+            }
+        }
+
+        @Override
+        public List<ModuleComponentIdentifier> read(Decoder decoder) throws Exception {
+            int size = decoder.readSmallInt();
+            List<ModuleComponentIdentifier> components = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String group = decoder.readString();
+                String module = decoder.readString();
+                String version = decoder.readString();
+                components.add(DefaultModuleComponentIdentifier.newId(moduleIdentifierFactory.module(group, module), version));
+            }
+            return components;
+        }
+    }
+}
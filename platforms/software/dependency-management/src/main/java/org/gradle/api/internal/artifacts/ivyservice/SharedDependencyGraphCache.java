@@ -0,0 +1,1211 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ModuleIdentifier;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.capability.CapabilitySelector;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.artifacts.component.ProjectComponentSelector;
+import org.gradle.api.artifacts.result.ComponentSelectionReason;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.internal.artifacts.ComponentMetadataProcessorFactory;
+import org.gradle.api.internal.artifacts.MetadataResolutionContext;
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal;
+import org.gradle.api.internal.artifacts.configurations.dynamicversion.CachePolicy;
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.RootComponentMetadataBuilder;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeSpec;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ResolvedGraphVariant;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.ResolveOptimizations;
+import org.gradle.api.internal.artifacts.repositories.ContentFilteringRepository;
+import org.gradle.api.internal.artifacts.repositories.ResolutionAwareRepository;
+import org.gradle.api.internal.attributes.ImmutableAttributes;
+import org.gradle.api.internal.attributes.immutable.ImmutableAttributesSchema;
+import org.gradle.internal.Actions;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.component.local.model.DslOriginDependencyMetadata;
+import org.gradle.internal.component.local.model.LocalFileDependencyMetadata;
+import org.gradle.internal.component.local.model.LocalVariantGraphResolveMetadata;
+import org.gradle.internal.component.local.model.LocalVariantGraphResolveState;
+import org.gradle.internal.component.model.ComponentGraphResolveMetadata;
+import org.gradle.internal.component.model.ComponentGraphResolveState;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.ExcludeMetadata;
+import org.gradle.internal.component.model.ForcingDependencyMetadata;
+import org.gradle.internal.component.model.IvyArtifactName;
+import org.gradle.internal.component.model.VariantGraphResolveMetadata;
+import org.gradle.internal.component.model.VariantGraphResolveState;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.instantiation.InstantiatorFactory;
+import org.gradle.internal.reflect.Instantiator;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shares the dependency graph of a resolution with all other resolutions in the same build that have equivalent inputs,
+ * such as the {@code compileClasspath} of many projects that declare the same external dependencies.
+ *
+ * <p>The first resolution of a graph records an immutable copy of it, which does not reference the state of that resolution.
+ * Subsequent equivalent resolutions do not traverse the graph again, but replay the recorded graph to their own visitors, with the root node replaced by their own root.
+ * As the visitors still run for each resolution, artifact selection is still done per consumer, and is served by the build scoped {@link org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedVariantCache}.</p>
+ *
+ * <p>Only graphs whose outcome does not depend on the consumer are shared. In particular, a graph is never shared if it:</p>
+ * <ul>
+ *     <li>contains a project component, as project variants may change between resolutions and their selection needs to be observed by the target project</li>
+ *     <li>has a failure</li>
+ *     <li>was resolved with substitution, component selection, capability resolution or module replacement rules, dependency locking or content filtered repositories</li>
+ * </ul>
+ */
+@ServiceScope(Scope.Build.class)
+public class SharedDependencyGraphCache {
+    public static final InternalFlag SHARE_EQUIVALENT_GRAPHS = new InternalFlag("org.gradle.dependency.resolution.share-equivalent-graphs");
+
+    private final boolean enabled;
+    private final Instantiator instantiator;
+    private final ConcurrentMap<Key, RecordedGraph> graphs = new ConcurrentHashMap<>();
+
+    @Inject
+    public SharedDependencyGraphCache(InternalOptions internalOptions, InstantiatorFactory instantiatorFactory) {
+        this.enabled = internalOptions.getOption(SHARE_EQUIVALENT_GRAPHS).get();
+        this.instantiator = instantiatorFactory.decorateScheme().instantiator();
+    }
+
+    /**
+     * Calculates the key of a graph from the inputs of its resolution.
+     *
+     * @return the key, or null if the graph should not be shared.
+     */
+    @Nullable
+    public Key keyFor(
+        RootComponentMetadataBuilder.RootComponentState rootComponent,
+        List<? extends DependencyMetadata> syntheticDependencies,
+        AttributeContainer requestAttributes,
+        ImmutableAttributesSchema consumerSchema,
+        List<ResolutionAwareRepository> repositories,
+        ResolutionStrategyInternal resolutionStrategy,
+        ComponentMetadataProcessorFactory metadataProcessorFactory
+    ) {
+        if (!enabled
+            || resolutionStrategy.isDependencyLockingEnabled()
+            || resolutionStrategy.isFailingOnDynamicVersions()
+            || resolutionStrategy.isFailingOnChangingVersions()
+            || !resolutionStrategy.getDependencySubstitutionRule().isEmpty()
+            || !resolutionStrategy.getComponentSelection().getRules().isEmpty()
+            || !resolutionStrategy.getCapabilitiesResolutionRules().isEmpty()
+        ) {
+            return null;
+        }
+
+        Hasher hasher = Hashing.newHasher();
+        hasher.putString(resolutionStrategy.getConflictResolution().name());
+        hasher.putBoolean(resolutionStrategy.isDependencyVerificationEnabled());
+        hasher.putInt(repositories.size());
+        for (ResolutionAwareRepository repository : repositories) {
+            if (repository instanceof ContentFilteringRepository && ((ContentFilteringRepository) repository).getContentFilter() != Actions.doNothing()) {
+                return null;
+            }
+            hasher.putString(repository.getDescriptor().getId());
+        }
+        hasher.putInt(metadataProcessorFactory.createComponentMetadataProcessor(new SharedGraphResolutionContext(resolutionStrategy.getCachePolicy(), instantiator)).getRulesHash());
+        ResolvedGraphCache.hashAttributes(hasher, requestAttributes);
+
+        VariantGraphResolveState rootVariant = rootComponent.getRootVariant();
+        hasher.putBoolean(rootVariant.getMetadata().isTransitive());
+        hashExcludes(hasher, rootVariant.getExcludes());
+        if (!hashDependencies(hasher, rootVariant.getDependencies()) || !hashDependencies(hasher, syntheticDependencies)) {
+            return null;
+        }
+        return new Key(hasher.hash(), consumerSchema);
+    }
+
+    /**
+     * Replays the graph previously recorded for the given key to the given visitor, using the given root in place of the recorded one.
+     *
+     * @return true if the graph was replayed, false if there is no usable graph and the graph needs to be resolved.
+     */
+    public boolean replay(
+        Key key,
+        RootComponentMetadataBuilder.RootComponentState rootComponent,
+        List<? extends DependencyMetadata> syntheticDependencies,
+        ModuleReplacementsData moduleReplacements,
+        DependencyGraphVisitor visitor
+    ) {
+        RecordedGraph graph = graphs.get(key);
+        if (graph == null || !graph.canReplayFor(rootComponent, moduleReplacements)) {
+            return false;
+        }
+        graph.replay(rootComponent, syntheticDependencies, visitor);
+        return true;
+    }
+
+    /**
+     * Creates a visitor that records the graph resolved for the given key, so that it can be replayed for equivalent resolutions.
+     */
+    public DependencyGraphVisitor recorder(
+        Key key,
+        RootComponentMetadataBuilder.RootComponentState rootComponent,
+        List<? extends DependencyMetadata> syntheticDependencies,
+        ModuleReplacementsData moduleReplacements
+    ) {
+        return new Recorder(key, rootComponent, syntheticDependencies, moduleReplacements);
+    }
+
+    private static boolean hashDependencies(Hasher hasher, List<? extends DependencyMetadata> dependencies) {
+        hasher.putInt(dependencies.size());
+        for (DependencyMetadata dependency : dependencies) {
+            ComponentSelector selector = dependency.getSelector();
+            if (selector instanceof ProjectComponentSelector) {
+                return false;
+            }
+            if (selector instanceof ModuleComponentSelector) {
+                VersionConstraint versionConstraint = ((ModuleComponentSelector) selector).getVersionConstraint();
+                hasher.putString(versionConstraint.getRequiredVersion());
+                hasher.putString(versionConstraint.getPreferredVersion());
+                hasher.putString(versionConstraint.getStrictVersion());
+                hasher.putString(versionConstraint.getRejectedVersions().toString());
+                hasher.putString(String.valueOf(versionConstraint.getBranch()));
+            }
+            hasher.putString(selector.getDisplayName());
+            ResolvedGraphCache.hashAttributes(hasher, selector.getAttributes());
+            for (CapabilitySelector capabilitySelector : selector.getCapabilitySelectors()) {
+                hasher.putString(capabilitySelector.getDisplayName());
+            }
+            hasher.putBoolean(dependency.isConstraint());
+            hasher.putBoolean(dependency.isTransitive());
+            hasher.putBoolean(dependency.isChanging());
+            hasher.putBoolean(dependency.isEndorsingStrictVersions());
+            hasher.putBoolean(dependency instanceof ForcingDependencyMetadata && ((ForcingDependencyMetadata) dependency).isForce());
+            hasher.putString(String.valueOf(dependency.getReason()));
+            hashExcludes(hasher, dependency.getExcludes());
+            for (IvyArtifactName artifact : dependency.getArtifacts()) {
+                hasher.putString(artifact.toString());
+            }
+        }
+        return true;
+    }
+
+    private static void hashExcludes(Hasher hasher, List<? extends ExcludeMetadata> excludes) {
+        hasher.putInt(excludes.size());
+        for (ExcludeMetadata exclude : excludes) {
+            hasher.putString(exclude.getModuleId().toString());
+            hasher.putString(String.valueOf(exclude.getArtifact()));
+            hasher.putString(String.valueOf(exclude.getMatcher()));
+        }
+    }
+
+    private static List<DependencyMetadata> allDependencies(RootComponentMetadataBuilder.RootComponentState rootComponent, List<? extends DependencyMetadata> syntheticDependencies) {
+        List<? extends DependencyMetadata> dependencies = rootComponent.getRootVariant().getDependencies();
+        List<DependencyMetadata> all = new ArrayList<>(dependencies.size() + syntheticDependencies.size());
+        all.addAll(dependencies);
+        all.addAll(syntheticDependencies);
+        return all;
+    }
+
+    public static final class Key {
+        private final HashCode hash;
+        private final ImmutableAttributesSchema consumerSchema;
+
+        private Key(HashCode hash, ImmutableAttributesSchema consumerSchema) {
+            this.hash = hash;
+            this.consumerSchema = consumerSchema;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash.equals(key.hash) && consumerSchema.equals(key.consumerSchema);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hash, consumerSchema);
+        }
+    }
+
+    private class Recorder implements DependencyGraphVisitor {
+        private final Key key;
+        private final RootComponentMetadataBuilder.RootComponentState rootComponent;
+        private final List<? extends DependencyMetadata> syntheticDependencies;
+        private final ModuleReplacementsData moduleReplacements;
+        private final List<DependencyGraphSelector> selectors = new ArrayList<>();
+        private final List<DependencyGraphNode> nodes = new ArrayList<>();
+        private final List<DependencyGraphNode> nodesInEdgeOrder = new ArrayList<>();
+        private final Set<ModuleIdentifier> modules = new HashSet<>();
+        private boolean shareable = true;
+
+        private Recorder(Key key, RootComponentMetadataBuilder.RootComponentState rootComponent, List<? extends DependencyMetadata> syntheticDependencies, ModuleReplacementsData moduleReplacements) {
+            this.key = key;
+            this.rootComponent = rootComponent;
+            this.syntheticDependencies = syntheticDependencies;
+            this.moduleReplacements = moduleReplacements;
+        }
+
+        @Override
+        public void visitSelector(DependencyGraphSelector selector) {
+            selectors.add(selector);
+        }
+
+        @Override
+        public void visitNode(DependencyGraphNode node) {
+            nodes.add(node);
+            if (node.isRoot()) {
+                shareable &= node.getIncomingEdges().isEmpty();
+                return;
+            }
+            ComponentIdentifier componentId = node.getOwner().getComponentId();
+            shareable &= componentId instanceof ModuleComponentIdentifier;
+            modules.add(node.getOwner().getModuleVersion().getModule());
+        }
+
+        @Override
+        public void visitEdges(DependencyGraphNode node) {
+            nodesInEdgeOrder.add(node);
+            for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+                shareable &= edge.getFailure() == null;
+            }
+        }
+
+        @Override
+        public void finish(RootGraphNode root) {
+            if (!shareable || modules.contains(root.getOwner().getModuleVersion().getModule()) || participatesInReplacements(modules, moduleReplacements)) {
+                return;
+            }
+
+            // Root edges are replayed against the dependency at the same position of the consuming root
+            Map<DependencyMetadata, Integer> rootDependencyPositions = new IdentityHashMap<>();
+            List<DependencyMetadata> dependencies = allDependencies(rootComponent, syntheticDependencies);
+            for (int i = 0; i < dependencies.size(); i++) {
+                rootDependencyPositions.put(dependencies.get(i), i);
+            }
+
+            RecordedGraph graph = new GraphSnapshotter(root, rootDependencyPositions).snapshot(selectors, nodes, nodesInEdgeOrder, modules);
+            if (graph != null) {
+                graphs.putIfAbsent(key, graph);
+            }
+        }
+    }
+
+    private static boolean participatesInReplacements(Set<ModuleIdentifier> modules, ModuleReplacementsData moduleReplacements) {
+        for (ModuleIdentifier module : modules) {
+            if (moduleReplacements.participatesInReplacements(module)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies a resolved graph into a {@link RecordedGraph}, so that the cache does not hold on to the state of the resolution that produced it.
+     * Nodes, components and edges reference each other by their index in the recorded graph.
+     */
+    private static class GraphSnapshotter {
+        private final RootGraphNode root;
+        private final Map<DependencyMetadata, Integer> rootDependencyPositions;
+        private final Map<DependencyGraphNode, Integer> nodeIndices = new IdentityHashMap<>();
+        private final Map<DependencyGraphComponent, Integer> componentIndices = new IdentityHashMap<>();
+        private final Map<DependencyGraphEdge, Integer> edgeIndices = new IdentityHashMap<>();
+        private final Map<DependencyGraphSelector, RecordedSelector> selectors = new IdentityHashMap<>();
+        private final List<DependencyGraphComponent> components = new ArrayList<>();
+        private final List<DependencyGraphEdge> edges = new ArrayList<>();
+
+        private GraphSnapshotter(RootGraphNode root, Map<DependencyMetadata, Integer> rootDependencyPositions) {
+            this.root = root;
+            this.rootDependencyPositions = rootDependencyPositions;
+        }
+
+        /**
+         * @return the recorded graph, or null if the graph references state that was not visited and cannot be recorded.
+         */
+        @Nullable
+        RecordedGraph snapshot(List<DependencyGraphSelector> visitedSelectors, List<DependencyGraphNode> nodes, List<DependencyGraphNode> nodesInEdgeOrder, Set<ModuleIdentifier> modules) {
+            for (DependencyGraphSelector selector : visitedSelectors) {
+                selectors.put(selector, new RecordedSelector(selector));
+            }
+            for (DependencyGraphNode node : nodes) {
+                nodeIndices.put(node, nodeIndices.size());
+                if (!componentIndices.containsKey(node.getOwner())) {
+                    componentIndices.put(node.getOwner(), components.size());
+                    components.add(node.getOwner());
+                }
+                for (DependencyGraphEdge edge : node.getOutgoingEdges()) {
+                    indexEdge(edge);
+                }
+                for (DependencyGraphEdge edge : node.getIncomingEdges()) {
+                    indexEdge(edge);
+                }
+            }
+            Integer rootIndex = nodeIndices.get(root);
+            int[] edgeOrder = indicesOf(nodesInEdgeOrder, nodeIndices);
+            if (rootIndex == null || edgeOrder == null) {
+                return null;
+            }
+
+            List<RecordedNode> recordedNodes = new ArrayList<>(nodes.size());
+            for (DependencyGraphNode node : nodes) {
+                RecordedNode recorded = recordNode(node);
+                if (recorded == null) {
+                    return null;
+                }
+                recordedNodes.add(recorded);
+            }
+            List<RecordedComponent> recordedComponents = new ArrayList<>(components.size());
+            for (DependencyGraphComponent component : components) {
+                RecordedComponent recorded = recordComponent(component, component == root.getOwner());
+                if (recorded == null) {
+                    return null;
+                }
+                recordedComponents.add(recorded);
+            }
+            List<RecordedEdge> recordedEdges = new ArrayList<>(edges.size());
+            for (DependencyGraphEdge edge : edges) {
+                RecordedEdge recorded = recordEdge(edge);
+                if (recorded == null) {
+                    return null;
+                }
+                recordedEdges.add(recorded);
+            }
+
+            List<RecordedSelector> recordedSelectors = new ArrayList<>(visitedSelectors.size());
+            for (DependencyGraphSelector selector : visitedSelectors) {
+                recordedSelectors.add(selectors.get(selector));
+            }
+            return new RecordedGraph(rootIndex, root.getResolveOptimizations(), recordedSelectors, recordedNodes, recordedComponents, recordedEdges, edgeOrder, modules);
+        }
+
+        private void indexEdge(DependencyGraphEdge edge) {
+            if (!edgeIndices.containsKey(edge)) {
+                edgeIndices.put(edge, edges.size());
+                edges.add(edge);
+            }
+        }
+
+        @Nullable
+        private RecordedNode recordNode(DependencyGraphNode node) {
+            Integer owner = componentIndices.get(node.getOwner());
+            int[] incomingEdges = indicesOf(node.getIncomingEdges(), edgeIndices);
+            int[] outgoingEdges = indicesOf(node.getOutgoingEdges(), edgeIndices);
+            if (owner == null || incomingEdges == null || outgoingEdges == null) {
+                return null;
+            }
+            if (node.isRoot()) {
+                // The consuming root provides everything else when the graph is replayed
+                return new RecordedNode(node.getNodeId(), owner, incomingEdges, outgoingEdges, null, null, null, ImmutableSet.of(), true, -1);
+            }
+            int externalVariant = -1;
+            ResolvedGraphVariant variant = node.getExternalVariant();
+            if (variant != null) {
+                Integer index = nodeIndices.get(variant);
+                if (index == null) {
+                    return null;
+                }
+                externalVariant = index;
+            }
+            return new RecordedNode(
+                node.getNodeId(),
+                owner,
+                incomingEdges,
+                outgoingEdges,
+                node.getComponentResolveState(),
+                node.getResolveState(),
+                node.getMetadata(),
+                ImmutableSet.copyOf(node.getOutgoingFileEdges()),
+                node.isSelected(),
+                externalVariant
+            );
+        }
+
+        @Nullable
+        private RecordedComponent recordComponent(DependencyGraphComponent component, boolean isRoot) {
+            if (isRoot) {
+                // The consuming root provides everything else when the graph is replayed
+                return new RecordedComponent(component.getResultId(), component.getSelectionReason(), null, null, null, null, null, new int[0], new int[0], ImmutableList.of(), false);
+            }
+            int[] selectedVariants = indicesOf(component.getSelectedVariants(), nodeIndices);
+            int[] dependents = indicesOf(component.getDependents(), componentIndices);
+            if (selectedVariants == null || dependents == null) {
+                return null;
+            }
+            return new RecordedComponent(
+                component.getResultId(),
+                component.getSelectionReason(),
+                component.getResolveState(),
+                component.getRepositoryName(),
+                component.getComponentId(),
+                component.getModuleVersion(),
+                component.getMetadataOrNull(),
+                selectedVariants,
+                dependents,
+                ImmutableList.copyOf(component.getAllVersions()),
+                component.isRejected()
+            );
+        }
+
+        @Nullable
+        private RecordedEdge recordEdge(DependencyGraphEdge edge) {
+            Integer from = nodeIndices.get(edge.getFrom());
+            if (from == null) {
+                return null;
+            }
+            int rootDependencyPosition = -1;
+            if (edge.getFrom() == root) {
+                Integer position = rootDependencyPositions.get(edge.getDependencyMetadata());
+                if (position == null) {
+                    return null;
+                }
+                rootDependencyPosition = position;
+            }
+            RecordedSelector selector = selectors.computeIfAbsent(edge.getSelector(), RecordedSelector::new);
+            return new RecordedEdge(edge, from, selector, rootDependencyPosition);
+        }
+
+        /**
+         * @return the indices of the given items, or null if any of them has no index.
+         */
+        @Nullable
+        private static int[] indicesOf(Collection<?> items, Map<?, Integer> indices) {
+            int[] result = new int[items.size()];
+            int i = 0;
+            for (Object item : items) {
+                Integer index = indices.get(item);
+                if (index == null) {
+                    return null;
+                }
+                result[i++] = index;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * An immutable copy of a resolved graph. It references the metadata of the selected components, which the build caches anyway,
+     * but none of the state of the resolution that produced it, and none of the state of the consumer that resolved it first.
+     */
+    private static class RecordedGraph {
+        private final int rootIndex;
+        private final ResolveOptimizations resolveOptimizations;
+        private final List<RecordedSelector> selectors;
+        private final List<RecordedNode> nodes;
+        private final List<RecordedComponent> components;
+        private final List<RecordedEdge> edges;
+        private final int[] nodesInEdgeOrder;
+        private final Set<ModuleIdentifier> modules;
+
+        private RecordedGraph(
+            int rootIndex,
+            ResolveOptimizations resolveOptimizations,
+            List<RecordedSelector> selectors,
+            List<RecordedNode> nodes,
+            List<RecordedComponent> components,
+            List<RecordedEdge> edges,
+            int[] nodesInEdgeOrder,
+            Set<ModuleIdentifier> modules
+        ) {
+            this.rootIndex = rootIndex;
+            this.resolveOptimizations = resolveOptimizations;
+            this.selectors = ImmutableList.copyOf(selectors);
+            this.nodes = ImmutableList.copyOf(nodes);
+            this.components = ImmutableList.copyOf(components);
+            this.edges = ImmutableList.copyOf(edges);
+            this.nodesInEdgeOrder = nodesInEdgeOrder;
+            this.modules = ImmutableSet.copyOf(modules);
+        }
+
+        boolean canReplayFor(RootComponentMetadataBuilder.RootComponentState rootComponent, ModuleReplacementsData moduleReplacements) {
+            return !modules.contains(rootComponent.getModuleVersionIdentifier().getModule()) && !participatesInReplacements(modules, moduleReplacements);
+        }
+
+        void replay(RootComponentMetadataBuilder.RootComponentState rootComponent, List<? extends DependencyMetadata> syntheticDependencies, DependencyGraphVisitor visitor) {
+            Replay replay = new Replay(this, rootComponent, allDependencies(rootComponent, syntheticDependencies));
+            visitor.start(replay.root);
+            for (RecordedSelector selector : selectors) {
+                visitor.visitSelector(selector);
+            }
+            for (int i = 0; i < nodes.size(); i++) {
+                visitor.visitNode(replay.node(i));
+            }
+            for (int node : nodesInEdgeOrder) {
+                visitor.visitEdges(replay.node(node));
+            }
+            visitor.finish(replay.root);
+        }
+    }
+
+    private static class RecordedSelector implements DependencyGraphSelector {
+        private final Long resultId;
+        private final ComponentSelector requested;
+
+        private RecordedSelector(DependencyGraphSelector selector) {
+            this.resultId = selector.getResultId();
+            this.requested = selector.getRequested();
+        }
+
+        @Override
+        public Long getResultId() {
+            return resultId;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return requested;
+        }
+    }
+
+    /**
+     * A recorded node. Only the id and the edges are recorded for the root, as everything else is provided by the consuming root.
+     */
+    private static class RecordedNode {
+        private final long nodeId;
+        private final int owner;
+        private final int[] incomingEdges;
+        private final int[] outgoingEdges;
+        private final ComponentGraphResolveState componentResolveState;
+        private final VariantGraphResolveState resolveState;
+        private final VariantGraphResolveMetadata metadata;
+        private final Set<LocalFileDependencyMetadata> outgoingFileEdges;
+        private final boolean selected;
+        private final int externalVariant;
+
+        private RecordedNode(
+            long nodeId,
+            int owner,
+            int[] incomingEdges,
+            int[] outgoingEdges,
+            @Nullable ComponentGraphResolveState componentResolveState,
+            @Nullable VariantGraphResolveState resolveState,
+            @Nullable VariantGraphResolveMetadata metadata,
+            Set<LocalFileDependencyMetadata> outgoingFileEdges,
+            boolean selected,
+            int externalVariant
+        ) {
+            this.nodeId = nodeId;
+            this.owner = owner;
+            this.incomingEdges = incomingEdges;
+            this.outgoingEdges = outgoingEdges;
+            this.componentResolveState = componentResolveState;
+            this.resolveState = resolveState;
+            this.metadata = metadata;
+            this.outgoingFileEdges = outgoingFileEdges;
+            this.selected = selected;
+            this.externalVariant = externalVariant;
+        }
+    }
+
+    /**
+     * A recorded component. Only the result id and selection reason are recorded for the root, as everything else is provided by the consuming root.
+     */
+    private static class RecordedComponent {
+        private final long resultId;
+        private final ComponentSelectionReason selectionReason;
+        private final ComponentGraphResolveState resolveState;
+        private final String repositoryName;
+        private final ComponentIdentifier componentId;
+        private final ModuleVersionIdentifier moduleVersion;
+        private final ComponentGraphResolveMetadata metadata;
+        private final int[] selectedVariants;
+        private final int[] dependents;
+        private final List<ModuleVersionIdentifier> allVersions;
+        private final boolean rejected;
+
+        private RecordedComponent(
+            long resultId,
+            ComponentSelectionReason selectionReason,
+            @Nullable ComponentGraphResolveState resolveState,
+            @Nullable String repositoryName,
+            @Nullable ComponentIdentifier componentId,
+            @Nullable ModuleVersionIdentifier moduleVersion,
+            @Nullable ComponentGraphResolveMetadata metadata,
+            int[] selectedVariants,
+            int[] dependents,
+            List<ModuleVersionIdentifier> allVersions,
+            boolean rejected
+        ) {
+            this.resultId = resultId;
+            this.selectionReason = selectionReason;
+            this.resolveState = resolveState;
+            this.repositoryName = repositoryName;
+            this.componentId = componentId;
+            this.moduleVersion = moduleVersion;
+            this.metadata = metadata;
+            this.selectedVariants = selectedVariants;
+            this.dependents = dependents;
+            this.allVersions = allVersions;
+            this.rejected = rejected;
+        }
+    }
+
+    /**
+     * A recorded edge. The dependency of an edge of the root is not recorded, but taken from the consuming root at the same position.
+     */
+    private static class RecordedEdge {
+        private final int from;
+        private final int rootDependencyPosition;
+        private final RecordedSelector selector;
+        private final boolean transitive;
+        private final ExcludeSpec exclusions;
+        private final boolean contributesArtifacts;
+        private final DependencyMetadata dependencyMetadata;
+        private final Dependency originalDependency;
+        private final ImmutableAttributes attributes;
+        private final boolean targetVirtualPlatform;
+        private final ComponentSelector requested;
+        private final ModuleVersionResolveException failure;
+        private final Long selected;
+        private final ComponentSelectionReason reason;
+        private final boolean constraint;
+        private final long fromVariant;
+        private final Long selectedVariant;
+
+        private RecordedEdge(DependencyGraphEdge edge, int from, RecordedSelector selector, int rootDependencyPosition) {
+            this.from = from;
+            this.rootDependencyPosition = rootDependencyPosition;
+            this.selector = selector;
+            this.transitive = edge.isTransitive();
+            this.exclusions = edge.getExclusions();
+            this.contributesArtifacts = edge.contributesArtifacts();
+            this.dependencyMetadata = rootDependencyPosition < 0 ? edge.getDependencyMetadata() : null;
+            this.originalDependency = rootDependencyPosition < 0 ? edge.getOriginalDependency() : null;
+            this.attributes = edge.getAttributes();
+            this.targetVirtualPlatform = edge.isTargetVirtualPlatform();
+            this.requested = edge.getRequested();
+            this.failure = edge.getFailure();
+            this.selected = edge.getSelected();
+            this.reason = edge.getReason();
+            this.constraint = edge.isConstraint();
+            this.fromVariant = edge.getFromVariant();
+            this.selectedVariant = edge.getSelectedVariant();
+        }
+    }
+
+    /**
+     * The views of a recorded graph handed to the visitors of one consumer, with the recorded root replaced by the consuming root.
+     * Views are created when first requested, and then reused for the rest of the replay.
+     */
+    private static class Replay {
+        private final RecordedGraph graph;
+        private final RootComponentMetadataBuilder.RootComponentState rootComponent;
+        private final List<DependencyMetadata> rootDependencies;
+        private final ReplayedRoot root;
+        private final DependencyGraphNode[] nodes;
+        private final DependencyGraphComponent[] components;
+        private final DependencyGraphEdge[] edges;
+
+        private Replay(RecordedGraph graph, RootComponentMetadataBuilder.RootComponentState rootComponent, List<DependencyMetadata> rootDependencies) {
+            this.graph = graph;
+            this.rootComponent = rootComponent;
+            this.rootDependencies = rootDependencies;
+            this.nodes = new DependencyGraphNode[graph.nodes.size()];
+            this.components = new DependencyGraphComponent[graph.components.size()];
+            this.edges = new DependencyGraphEdge[graph.edges.size()];
+            RecordedNode recordedRoot = graph.nodes.get(graph.rootIndex);
+            this.root = new ReplayedRoot(this, recordedRoot);
+            nodes[graph.rootIndex] = root;
+            components[recordedRoot.owner] = root.owner;
+        }
+
+        DependencyGraphNode node(int index) {
+            DependencyGraphNode node = nodes[index];
+            if (node == null) {
+                node = new ReplayedNode(this, graph.nodes.get(index));
+                nodes[index] = node;
+            }
+            return node;
+        }
+
+        DependencyGraphComponent component(int index) {
+            DependencyGraphComponent component = components[index];
+            if (component == null) {
+                component = new ReplayedComponent(this, graph.components.get(index));
+                components[index] = component;
+            }
+            return component;
+        }
+
+        DependencyGraphEdge edge(int index) {
+            DependencyGraphEdge edge = edges[index];
+            if (edge == null) {
+                edge = new ReplayedEdge(this, graph.edges.get(index));
+                edges[index] = edge;
+            }
+            return edge;
+        }
+
+        List<DependencyGraphEdge> edges(int[] indices) {
+            ImmutableList.Builder<DependencyGraphEdge> builder = ImmutableList.builderWithExpectedSize(indices.length);
+            for (int index : indices) {
+                builder.add(edge(index));
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * The root of a replayed graph, which has the identity and metadata of the consuming root and the edges of the recorded root.
+     */
+    private static class ReplayedRoot implements RootGraphNode {
+        private final Replay replay;
+        private final RecordedNode recorded;
+        private final ReplayedRootComponent owner;
+        private List<DependencyGraphEdge> outgoingEdges;
+
+        private ReplayedRoot(Replay replay, RecordedNode recorded) {
+            this.replay = replay;
+            this.recorded = recorded;
+            this.owner = new ReplayedRootComponent(replay.graph.components.get(recorded.owner), replay.rootComponent, this);
+        }
+
+        @Override
+        public long getNodeId() {
+            return recorded.nodeId;
+        }
+
+        @Override
+        public boolean isRoot() {
+            return true;
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return owner;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getIncomingEdges() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getOutgoingEdges() {
+            if (outgoingEdges == null) {
+                outgoingEdges = replay.edges(recorded.outgoingEdges);
+            }
+            return outgoingEdges;
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return getResolveState().getFiles();
+        }
+
+        @Override
+        public LocalVariantGraphResolveMetadata getMetadata() {
+            return (LocalVariantGraphResolveMetadata) replay.rootComponent.getRootVariant().getMetadata();
+        }
+
+        @Override
+        public LocalVariantGraphResolveState getResolveState() {
+            return (LocalVariantGraphResolveState) replay.rootComponent.getRootVariant();
+        }
+
+        @Override
+        public ComponentGraphResolveState getComponentResolveState() {
+            return replay.rootComponent.getRootComponent();
+        }
+
+        @Nullable
+        @Override
+        public ResolvedGraphVariant getExternalVariant() {
+            return null;
+        }
+
+        @Override
+        public boolean isSelected() {
+            return true;
+        }
+
+        @Override
+        public ResolveOptimizations getResolveOptimizations() {
+            return replay.graph.resolveOptimizations;
+        }
+    }
+
+    private static class ReplayedRootComponent implements DependencyGraphComponent {
+        private final RecordedComponent recorded;
+        private final RootComponentMetadataBuilder.RootComponentState rootComponent;
+        private final ReplayedRoot root;
+
+        private ReplayedRootComponent(RecordedComponent recorded, RootComponentMetadataBuilder.RootComponentState rootComponent, ReplayedRoot root) {
+            this.recorded = recorded;
+            this.rootComponent = rootComponent;
+            this.root = root;
+        }
+
+        @Override
+        public long getResultId() {
+            return recorded.resultId;
+        }
+
+        @Override
+        public ComponentGraphResolveState getResolveState() {
+            return rootComponent.getRootComponent();
+        }
+
+        @Nullable
+        @Override
+        public String getRepositoryName() {
+            return null;
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return rootComponent.getComponentIdentifier();
+        }
+
+        @Override
+        public ModuleVersionIdentifier getModuleVersion() {
+            return rootComponent.getModuleVersionIdentifier();
+        }
+
+        @Override
+        public ComponentSelectionReason getSelectionReason() {
+            return recorded.selectionReason;
+        }
+
+        @Override
+        public List<ResolvedGraphVariant> getSelectedVariants() {
+            return Collections.singletonList(root);
+        }
+
+        @Override
+        public ComponentGraphResolveMetadata getMetadataOrNull() {
+            return rootComponent.getRootComponent().getMetadata();
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphComponent> getDependents() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Collection<? extends ModuleVersionIdentifier> getAllVersions() {
+            return Collections.singletonList(getModuleVersion());
+        }
+
+        @Override
+        public boolean isRejected() {
+            return false;
+        }
+    }
+
+    private static class ReplayedNode implements DependencyGraphNode {
+        private final Replay replay;
+        private final RecordedNode recorded;
+        private List<DependencyGraphEdge> incomingEdges;
+        private List<DependencyGraphEdge> outgoingEdges;
+
+        private ReplayedNode(Replay replay, RecordedNode recorded) {
+            this.replay = replay;
+            this.recorded = recorded;
+        }
+
+        @Override
+        public long getNodeId() {
+            return recorded.nodeId;
+        }
+
+        @Override
+        public ComponentGraphResolveState getComponentResolveState() {
+            return recorded.componentResolveState;
+        }
+
+        @Override
+        public VariantGraphResolveState getResolveState() {
+            return recorded.resolveState;
+        }
+
+        @Nullable
+        @Override
+        public ResolvedGraphVariant getExternalVariant() {
+            return recorded.externalVariant < 0 ? null : replay.node(recorded.externalVariant);
+        }
+
+        @Override
+        public boolean isRoot() {
+            return false;
+        }
+
+        @Override
+        public DependencyGraphComponent getOwner() {
+            return replay.component(recorded.owner);
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getIncomingEdges() {
+            if (incomingEdges == null) {
+                incomingEdges = replay.edges(recorded.incomingEdges);
+            }
+            return incomingEdges;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphEdge> getOutgoingEdges() {
+            if (outgoingEdges == null) {
+                outgoingEdges = replay.edges(recorded.outgoingEdges);
+            }
+            return outgoingEdges;
+        }
+
+        @Override
+        public Set<? extends LocalFileDependencyMetadata> getOutgoingFileEdges() {
+            return recorded.outgoingFileEdges;
+        }
+
+        @Override
+        public VariantGraphResolveMetadata getMetadata() {
+            return recorded.metadata;
+        }
+
+        @Override
+        public boolean isSelected() {
+            return recorded.selected;
+        }
+    }
+
+    private static class ReplayedComponent implements DependencyGraphComponent {
+        private final Replay replay;
+        private final RecordedComponent recorded;
+
+        private ReplayedComponent(Replay replay, RecordedComponent recorded) {
+            this.replay = replay;
+            this.recorded = recorded;
+        }
+
+        @Override
+        public long getResultId() {
+            return recorded.resultId;
+        }
+
+        @Override
+        public ComponentGraphResolveState getResolveState() {
+            return recorded.resolveState;
+        }
+
+        @Nullable
+        @Override
+        public String getRepositoryName() {
+            return recorded.repositoryName;
+        }
+
+        @Override
+        public ComponentIdentifier getComponentId() {
+            return recorded.componentId;
+        }
+
+        @Override
+        public ModuleVersionIdentifier getModuleVersion() {
+            return recorded.moduleVersion;
+        }
+
+        @Override
+        public ComponentSelectionReason getSelectionReason() {
+            return recorded.selectionReason;
+        }
+
+        @Override
+        public List<ResolvedGraphVariant> getSelectedVariants() {
+            ImmutableList.Builder<ResolvedGraphVariant> builder = ImmutableList.builderWithExpectedSize(recorded.selectedVariants.length);
+            for (int node : recorded.selectedVariants) {
+                builder.add(replay.node(node));
+            }
+            return builder.build();
+        }
+
+        @Nullable
+        @Override
+        public ComponentGraphResolveMetadata getMetadataOrNull() {
+            return recorded.metadata;
+        }
+
+        @Override
+        public Collection<? extends DependencyGraphComponent> getDependents() {
+            List<DependencyGraphComponent> dependents = new ArrayList<>(recorded.dependents.length);
+            for (int component : recorded.dependents) {
+                dependents.add(replay.component(component));
+            }
+            return dependents;
+        }
+
+        @Override
+        public Collection<? extends ModuleVersionIdentifier> getAllVersions() {
+            return recorded.allVersions;
+        }
+
+        @Override
+        public boolean isRejected() {
+            return recorded.rejected;
+        }
+    }
+
+    private static class ReplayedEdge implements DependencyGraphEdge {
+        private final Replay replay;
+        private final RecordedEdge recorded;
+
+        private ReplayedEdge(Replay replay, RecordedEdge recorded) {
+            this.replay = replay;
+            this.recorded = recorded;
+        }
+
+        @Override
+        public DependencyGraphNode getFrom() {
+            return replay.node(recorded.from);
+        }
+
+        @Override
+        public DependencyGraphSelector getSelector() {
+            return recorded.selector;
+        }
+
+        @Override
+        public boolean isTransitive() {
+            return recorded.transitive;
+        }
+
+        @Override
+        public ExcludeSpec getExclusions() {
+            return recorded.exclusions;
+        }
+
+        @Override
+        public boolean contributesArtifacts() {
+            return recorded.contributesArtifacts;
+        }
+
+        @Override
+        public DependencyMetadata getDependencyMetadata() {
+            return recorded.rootDependencyPosition < 0 ? recorded.dependencyMetadata : replay.rootDependencies.get(recorded.rootDependencyPosition);
+        }
+
+        @Override
+        public ImmutableAttributes getAttributes() {
+            return recorded.attributes;
+        }
+
+        @Nullable
+        @Override
+        public Dependency getOriginalDependency() {
+            if (recorded.rootDependencyPosition < 0) {
+                return recorded.originalDependency;
+            }
+            DependencyMetadata dependencyMetadata = getDependencyMetadata();
+            if (dependencyMetadata instanceof DslOriginDependencyMetadata) {
+                return ((DslOriginDependencyMetadata) dependencyMetadata).getSource();
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isTargetVirtualPlatform() {
+            return recorded.targetVirtualPlatform;
+        }
+
+        @Override
+        public ComponentSelector getRequested() {
+            return recorded.requested;
+        }
+
+        @Nullable
+        @Override
+        public ModuleVersionResolveException getFailure() {
+            return recorded.failure;
+        }
+
+        @Nullable
+        @Override
+        public Long getSelected() {
+            return recorded.selected;
+        }
+
+        @Nullable
+        @Override
+        public ComponentSelectionReason getReason() {
+            return recorded.reason;
+        }
+
+        @Override
+        public boolean isConstraint() {
+            return recorded.constraint;
+        }
+
+        @Override
+        public long getFromVariant() {
+            return recorded.fromVariant;
+        }
+
+        @Nullable
+        @Override
+        public Long getSelectedVariant() {
+            return recorded.selectedVariant;
+        }
+    }
+
+    private static class SharedGraphResolutionContext implements MetadataResolutionContext {
+        private final CachePolicy cachePolicy;
+        private final Instantiator instantiator;
+
+        private SharedGraphResolutionContext(CachePolicy cachePolicy, Instantiator instantiator) {
+            this.cachePolicy = cachePolicy;
+            this.instantiator = instantiator;
+        }
+
+        @Override
+        public CachePolicy getCachePolicy() {
+            return cachePolicy;
+        }
+
+        @Override
+        public Instantiator getInjectingInstantiator() {
+            return instantiator;
+        }
+    }
+}
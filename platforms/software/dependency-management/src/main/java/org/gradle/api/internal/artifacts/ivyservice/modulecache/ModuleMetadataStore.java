@@ -24,16 +24,24 @@
 import org.gradle.internal.component.external.model.MutableModuleComponentResolveMetadata;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
 import org.gradle.internal.resource.local.PathKeyFileStore;
-import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
-import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.internal.serialize.kryo.StringDeduplicatingKryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.StringDeduplicatingKryoBackedEncoder;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.util.HashMap;
 
+/**
+ * Stores module metadata in descriptor files, one per module version and repository.
+ *
+ * Each distinct string is written to a descriptor file once and referenced by index afterwards,
+ * so a read decodes and interns every string only once regardless of how often it is used.
+ */
 public class ModuleMetadataStore {
 
     private static final Joiner PATH_JOINER = Joiner.on("/");
+    private static final int MAX_READ_BUFFER_SIZE = 64 * 1024;
     private final PathKeyFileStore metaDataStore;
     private final ModuleMetadataSerializer moduleMetadataSerializer;
     private final ImmutableModuleIdentifierFactory moduleIdentifierFactory;
@@ -54,7 +62,8 @@ public MutableModuleComponentResolveMetadata getModuleDescriptor(ModuleComponent
         LocallyAvailableResource resource = metaDataStore.get(filePath);
         if (resource != null) {
             try {
-                try (StringDeduplicatingDecoder decoder = new StringDeduplicatingDecoder(new KryoBackedDecoder(new FileInputStream(resource.getFile())), stringInterner)) {
+                File file = resource.getFile();
+                try (StringDeduplicatingKryoBackedDecoder decoder = new StringDeduplicatingKryoBackedDecoder(new FileInputStream(file), readBufferSizeFor(file), stringInterner)) {
                     return moduleMetadataSerializer.read(decoder, moduleIdentifierFactory, new HashMap<>());
                 }
             } catch (Exception e) {
@@ -68,7 +77,7 @@ public LocallyAvailableResource putModuleDescriptor(ModuleComponentAtRepositoryK
         String[] filePath = getFilePath(component);
         return metaDataStore.add(PATH_JOINER.join(filePath), moduleDescriptorFile -> {
             try {
-                try (KryoBackedEncoder encoder = new KryoBackedEncoder(new FileOutputStream(moduleDescriptorFile))) {
+                try (StringDeduplicatingKryoBackedEncoder encoder = new StringDeduplicatingKryoBackedEncoder(new FileOutputStream(moduleDescriptorFile))) {
                     moduleMetadataSerializer.write(encoder, metadata, new HashMap<>());
                 }
             } catch (Exception e) {
@@ -77,6 +86,13 @@ public LocallyAvailableResource putModuleDescriptor(ModuleComponentAtRepositoryK
         });
     }
 
+    /**
+     * Sizes the read buffer to the descriptor, so that a typical descriptor is read with a single call.
+     */
+    private static int readBufferSizeFor(File file) {
+        return (int) Math.max(1, Math.min(file.length(), MAX_READ_BUFFER_SIZE));
+    }
+
     private String[] getFilePath(ModuleComponentAtRepositoryKey componentId) {
         ModuleComponentIdentifier moduleComponentIdentifier = componentId.getComponentId();
         return new String[] {
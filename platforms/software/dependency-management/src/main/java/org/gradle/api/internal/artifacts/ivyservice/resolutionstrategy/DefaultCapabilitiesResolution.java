@@ -94,6 +94,11 @@ public void apply(CapabilitiesConflictHandler.ResolutionDetails details) {
 
     }
 
+    @Override
+    public boolean isEmpty() {
+        return actions.isEmpty();
+    }
+
     private void handleCapabilityAction(CapabilitiesConflictHandler.ResolutionDetails details, Capability key, List<? extends Capability> versions, DefaultCapabilityResolutionDetails resolutionDetails) {
         for (CapabilityAction action : actions) {
             if (action.predicate.isSatisfiedBy(key)) {
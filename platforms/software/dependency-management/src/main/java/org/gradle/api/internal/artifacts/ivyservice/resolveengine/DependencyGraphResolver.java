@@ -17,6 +17,7 @@
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine;
 
 import com.google.common.collect.ImmutableList;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.internal.artifacts.ComponentSelectorConverter;
 import org.gradle.api.internal.artifacts.DependencySubstitutionInternal;
 import org.gradle.api.internal.artifacts.configurations.ConflictResolution;
@@ -48,6 +49,7 @@
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
 
 import javax.inject.Inject;
+import java.util.Collection;
 import java.util.List;
 
 import static org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionApplicator.NO_OP;
@@ -104,6 +106,7 @@ public void resolve(
         CapabilitiesResolutionInternal capabilitiesResolutionRules,
         boolean failingOnDynamicVersions,
         boolean failingOnChangingVersions,
+        Collection<ModuleComponentIdentifier> previouslySelectedComponents,
         DependencyGraphVisitor modelVisitor
     ) {
         ComponentMetaDataResolver clientModuleResolver = new ClientModuleResolver(
@@ -130,6 +133,7 @@ public void resolve(
             conflictResolution,
             failingOnDynamicVersions,
             failingOnChangingVersions,
+            previouslySelectedComponents,
             modelVisitor
         );
     }
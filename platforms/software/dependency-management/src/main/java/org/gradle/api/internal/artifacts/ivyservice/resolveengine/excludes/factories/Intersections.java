@@ -32,7 +32,10 @@
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static java.util.stream.Collectors.toSet;
 
@@ -40,6 +43,11 @@
 class Intersections {
     private final ExcludeFactory factory;
     private final List<Intersection<? extends ExcludeSpec, ? extends ExcludeSpec>> intersections = new ArrayList<>();
+    /**
+     * The intersection to use for each pair of concrete exclude spec types, indexed by the type of the left and then the right spec.
+     * Which intersection applies only depends on the types, so it is looked up once per pair of types instead of testing every intersection for each call.
+     */
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, Optional<Intersection<? extends ExcludeSpec, ? extends ExcludeSpec>>>> intersectionsByType = new ConcurrentHashMap<>();
 
     public Intersections(ExcludeFactory factory) {
         this.factory = factory;
@@ -81,12 +89,25 @@ ExcludeSpec tryIntersect(ExcludeSpec left, ExcludeSpec right) {
         if (left.equals(right)) {
             return left;
         } else {
-            return intersections.stream()
+            Intersection<? extends ExcludeSpec, ? extends ExcludeSpec> intersection = intersectionFor(left, right);
+            return intersection == null ? null : intersection.intersect(left, right, factory);
+        }
+    }
+
+    @Nullable
+    private Intersection<? extends ExcludeSpec, ? extends ExcludeSpec> intersectionFor(ExcludeSpec left, ExcludeSpec right) {
+        ConcurrentMap<Class<?>, Optional<Intersection<? extends ExcludeSpec, ? extends ExcludeSpec>>> byRightType = intersectionsByType.get(left.getClass());
+        if (byRightType == null) {
+            byRightType = intersectionsByType.computeIfAbsent(left.getClass(), k -> new ConcurrentHashMap<>());
+        }
+        Optional<Intersection<? extends ExcludeSpec, ? extends ExcludeSpec>> intersection = byRightType.get(right.getClass());
+        if (intersection == null) {
+            intersection = intersections.stream()
                 .filter(i -> i.applies(left, right))
-                .findFirst()
-                .map(i -> i.intersect(left, right, factory))
-                .orElse(null);
+                .findFirst();
+            byRightType.put(right.getClass(), intersection);
         }
+        return intersection.orElse(null);
     }
 
     @NonNullApi
@@ -223,8 +244,7 @@ private IntersectGroupWithGroupSet() {
 
         @Override
         public ExcludeSpec doIntersect(GroupExclude left, GroupSetExclude right, ExcludeFactory factory) {
-            String group = left.getGroup();
-            if (right.getGroups().stream().anyMatch(g -> g.equals(group))) {
+            if (right.getGroups().contains(left.getGroup())) {
                 return left;
             }
             return factory.nothing();
@@ -363,8 +383,7 @@ private IntersectModuleWithModuleSet() {
 
         @Override
         public ExcludeSpec doIntersect(ModuleExclude left, ModuleSetExclude right, ExcludeFactory factory) {
-            String module = left.getModule();
-            if (right.getModules().stream().anyMatch(g -> g.equals(module))) {
+            if (right.getModules().contains(left.getModule())) {
                 return left;
             }
             return factory.nothing();
@@ -42,4 +42,9 @@ public interface DependencyGraphComponent extends ResolvedGraphComponent {
      * resolution.
      */
     Collection<? extends ModuleVersionIdentifier> getAllVersions();
+
+    /**
+     * Returns true if this component was selected although the selection violates a constraint, such as a reject or a strict version.
+     */
+    boolean isRejected();
 }
@@ -16,7 +16,6 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
 
-import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ComponentResolutionState;
 import org.gradle.internal.component.local.model.LocalFileDependencyMetadata;
 import org.gradle.internal.component.model.VariantGraphResolveMetadata;
 
@@ -43,6 +42,4 @@ public interface DependencyGraphNode extends ResolvedGraphVariant {
     VariantGraphResolveMetadata getMetadata();
 
     boolean isSelected();
-
-    ComponentResolutionState getComponent();
 }
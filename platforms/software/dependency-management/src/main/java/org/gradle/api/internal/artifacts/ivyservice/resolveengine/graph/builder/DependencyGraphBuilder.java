@@ -20,6 +20,7 @@
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentSelector;
 import org.gradle.api.internal.artifacts.ComponentSelectorConverter;
 import org.gradle.api.internal.artifacts.ResolvedVersionConstraint;
@@ -56,12 +57,14 @@
 import org.gradle.internal.deprecation.DeprecationLogger;
 import org.gradle.internal.operations.BuildOperationConstraint;
 import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
 import org.gradle.internal.resolve.ModuleVersionResolveException;
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
 import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -71,6 +74,7 @@
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -91,6 +95,8 @@ public class DependencyGraphBuilder {
     private final VersionParser versionParser;
     private final GraphVariantSelector variantSelector;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final MetadataPrefetchExecutor metadataPrefetchExecutor;
+    private final BuildOperationProgressEventEmitter progressEventEmitter;
 
     @Inject
     public DependencyGraphBuilder(
@@ -103,7 +109,9 @@ public DependencyGraphBuilder(
         ComponentIdGenerator idGenerator,
         VersionParser versionParser,
         GraphVariantSelector variantSelector,
-        BuildOperationExecutor buildOperationExecutor
+        BuildOperationExecutor buildOperationExecutor,
+        MetadataPrefetchExecutor metadataPrefetchExecutor,
+        BuildOperationProgressEventEmitter progressEventEmitter
     ) {
         this.moduleExclusions = moduleExclusions;
         this.attributesFactory = attributesFactory;
@@ -115,6 +123,8 @@ public DependencyGraphBuilder(
         this.versionParser = versionParser;
         this.variantSelector = variantSelector;
         this.buildOperationExecutor = buildOperationExecutor;
+        this.metadataPrefetchExecutor = metadataPrefetchExecutor;
+        this.progressEventEmitter = progressEventEmitter;
     }
 
     public void resolve(
@@ -131,16 +141,22 @@ public void resolve(
         ConflictResolution conflictResolution,
         boolean failingOnDynamicVersions,
         boolean failingOnChangingVersions,
+        Collection<ModuleComponentIdentifier> previouslySelectedComponents,
         DependencyGraphVisitor modelVisitor
     ) {
         ModuleConflictHandler moduleConflictHandler = new DefaultConflictHandler(moduleConflictResolver, moduleReplacements);
         CapabilitiesConflictHandler capabilitiesConflictHandler = new DefaultCapabilitiesConflictHandler(capabilityConflictResolvers);
 
+        Executor prefetchExecutor = metadataPrefetchExecutor.getExecutor();
+        MetadataPrefetcher prefetcher = prefetchExecutor != null
+            ? new MetadataPrefetcher(componentMetaDataResolver, componentIdResolver, versionSelectorScheme, moduleExclusions, dependencySubstitutionApplicator, prefetchExecutor, buildOperationExecutor.getCurrentOperation())
+            : null;
+
         ResolveState resolveState = new ResolveState(
             idGenerator,
             rootComponent,
             componentIdResolver,
-            componentMetaDataResolver,
+            prefetcher != null ? prefetcher.recordUsage(componentMetaDataResolver) : componentMetaDataResolver,
             edgeFilter,
             moduleExclusions,
             componentSelectorConverter,
@@ -158,7 +174,17 @@ public void resolve(
             variantSelector
         );
 
-        traverseGraph(resolveState);
+        try {
+            if (prefetcher != null) {
+                prefetcher.prefetch(previouslySelectedComponents);
+            }
+            traverseGraph(resolveState, prefetcher);
+        } finally {
+            if (prefetcher != null) {
+                prefetcher.stop();
+                reportPrefetchStatistics(prefetcher);
+            }
+        }
 
         validateGraph(resolveState, failingOnDynamicVersions, failingOnChangingVersions);
 
@@ -168,7 +194,7 @@ public void resolve(
     /**
      * Traverses the dependency graph, resolving conflicts and building the paths from the root configuration.
      */
-    private void traverseGraph(final ResolveState resolveState) {
+    private void traverseGraph(final ResolveState resolveState, @Nullable MetadataPrefetcher prefetcher) {
         resolveState.onMoreSelected(resolveState.getRoot());
         final List<EdgeState> dependencies = new ArrayList<>();
 
@@ -197,6 +223,9 @@ private void traverseGraph(final ResolveState resolveState) {
                 // Initialize and collect any new outgoing edges of this node
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
+                if (prefetcher != null) {
+                    prefetcher.prefetchTargetsOf(dependencies);
+                }
                 boolean edgeWasProcessed = resolveEdges(node, dependencies, ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, false, resolveState);
                 node.collectEndorsedStrictVersions(dependencies);
                 resolveEdges(node, dependencies, NOT_ENDORSE_STRICT_VERSIONS_DEPENDENCY_SPEC, edgeWasProcessed, resolveState);
@@ -212,6 +241,29 @@ private void traverseGraph(final ResolveState resolveState) {
         }
     }
 
+    private void reportPrefetchStatistics(MetadataPrefetcher prefetcher) {
+        int prefetchedCount = prefetcher.getFetched().size();
+        int hitCount = prefetcher.getHits().size();
+        int wastedCount = prefetchedCount - prefetcher.getUsed().size();
+        LOGGER.debug("Prefetched metadata for {} components, {} of which were ready when needed and {} of which were never needed.", prefetchedCount, hitCount, wastedCount);
+        progressEventEmitter.emitNowIfCurrent(new MetadataPrefetchProgressDetails() {
+            @Override
+            public int getPrefetchedCount() {
+                return prefetchedCount;
+            }
+
+            @Override
+            public int getHitCount() {
+                return hitCount;
+            }
+
+            @Override
+            public int getWastedCount() {
+                return wastedCount;
+            }
+        });
+    }
+
     /**
      * Detect and register capability conflicts for the given node, deselecting the node if
      * it is involved in a conflict.
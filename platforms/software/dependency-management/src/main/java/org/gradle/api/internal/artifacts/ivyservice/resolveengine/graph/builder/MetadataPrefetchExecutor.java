@@ -0,0 +1,78 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.verification.DependencyVerificationOverride;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.io.Closeable;
+import java.util.concurrent.Executor;
+
+/**
+ * The executor that {@link MetadataPrefetcher}s of all resolutions of a build share, so the number of prefetch threads is bounded per build and not per resolution.
+ *
+ * <p>Prefetching is disabled while dependency verification is in use. Speculative fetches may touch components that are not selected in the end,
+ * which would then be reported as unverified, or recorded when writing the verification metadata.</p>
+ */
+@ServiceScope(Scope.Build.class)
+public class MetadataPrefetchExecutor implements Closeable {
+    /**
+     * The number of threads used to speculatively prefetch component metadata while traversing the graph, or 0 to disable prefetching.
+     */
+    public static final IntegerInternalOption METADATA_PREFETCH_CONCURRENCY = new IntegerInternalOption("org.gradle.dependency.resolution.metadata-prefetch-concurrency", 0);
+
+    private final ExecutorFactory executorFactory;
+    private final int concurrency;
+    private ManagedExecutor executor;
+
+    @Inject
+    public MetadataPrefetchExecutor(ExecutorFactory executorFactory, InternalOptions internalOptions, DependencyVerificationOverride dependencyVerificationOverride) {
+        this.executorFactory = executorFactory;
+        this.concurrency = dependencyVerificationOverride == DependencyVerificationOverride.NO_VERIFICATION
+            ? internalOptions.getOption(METADATA_PREFETCH_CONCURRENCY).get()
+            : 0;
+    }
+
+    /**
+     * Returns the executor to run prefetches on, or null when prefetching is disabled.
+     */
+    @Nullable
+    public synchronized Executor getExecutor() {
+        if (concurrency <= 0) {
+            return null;
+        }
+        if (executor == null) {
+            executor = executorFactory.create("Dependency metadata prefetch", concurrency);
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+/**
+ * Fired on the resolve build operation of a dependency graph when speculative metadata prefetching is enabled.
+ */
+public interface MetadataPrefetchProgressDetails {
+    /**
+     * The number of components whose metadata was fetched in the background.
+     */
+    int getPrefetchedCount();
+
+    /**
+     * The number of prefetched components that were then used by the graph builder.
+     */
+    int getHitCount();
+
+    /**
+     * The number of prefetched components that the graph builder never needed.
+     */
+    int getWastedCount();
+}
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.DependencySubstitutionInternal;
+import org.gradle.api.internal.artifacts.ResolvedVersionConstraint;
+import org.gradle.api.internal.artifacts.dependencies.DefaultResolvedVersionConstraint;
+import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionApplicator;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.specs.ExcludeSpec;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.ComponentGraphResolveState;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.component.model.VariantGraphResolveState;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver;
+import org.gradle.internal.resolve.result.BuildableComponentIdResolveResult;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentIdResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Speculatively fetches the metadata of external components before the graph builder selects them.
+ *
+ * <p>As soon as the outgoing edges of a node are known, the metadata of each edge target with a fixed version is fetched in the background,
+ * and in turn the dependencies of every component fetched this way are prefetched too.
+ * Those transitive dependencies are filtered by the excludes collected along the way and skipped when a substitution rule applies to them,
+ * so the prefetcher only follows paths the graph builder can take. It still looks at the dependencies of all variants of a component,
+ * and at versions that may lose a conflict, so it may fetch components that do not end up in the graph.</p>
+ *
+ * <p>The graph builder later resolves the same components through the same {@link ComponentMetaDataResolver}.
+ * It finds the metadata of finished prefetches in the in-memory metadata caches of the build. It does not share prefetches that are still running:
+ * when it needs such a component, the download of the same resource is serialized by the resource accessor, so it waits for it and then reads the cached result.</p>
+ *
+ * <p>Dependencies with a dynamic version are selected in the background through the same {@link DependencyToComponentIdResolver} as well.
+ * This refreshes the expired version listings of all dynamic dependencies known so far concurrently instead of one module and one repository at a time.
+ * The listings and the metadata of the selected versions end up in the per build caches, where the graph builder finds them.</p>
+ *
+ * <p>Components are only ever requested once. The executor is shared with other resolutions, so when the traversal finishes,
+ * the work of this prefetcher that has not started is cancelled and the work that is running is waited for.</p>
+ */
+class MetadataPrefetcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataPrefetcher.class);
+
+    private final ComponentMetaDataResolver resolver;
+    private final DependencyToComponentIdResolver idResolver;
+    private final VersionSelectorScheme versionSelectorScheme;
+    private final ModuleExclusions moduleExclusions;
+    private final DependencySubstitutionApplicator substitutionApplicator;
+    private final Executor executor;
+    @Nullable
+    private final BuildOperationRef parentOperation;
+    private final Set<ComponentIdentifier> expanded = ConcurrentHashMap.newKeySet();
+    private final Set<ModuleComponentIdentifier> requested = ConcurrentHashMap.newKeySet();
+    private final Set<ModuleComponentSelector> requestedDynamic = ConcurrentHashMap.newKeySet();
+    private final Set<ModuleComponentIdentifier> fetched = ConcurrentHashMap.newKeySet();
+    private final Set<ModuleComponentIdentifier> completed = ConcurrentHashMap.newKeySet();
+    private final Set<ModuleComponentIdentifier> used = ConcurrentHashMap.newKeySet();
+    private final Set<ModuleComponentIdentifier> hits = ConcurrentHashMap.newKeySet();
+    private final Set<ComponentIdentifier> resolvedByGraphBuilder = ConcurrentHashMap.newKeySet();
+    private final Set<PrefetchTask> pending = ConcurrentHashMap.newKeySet();
+    private final Object unfinishedLock = new Object();
+    private int unfinished;
+    private volatile boolean stopped;
+
+    MetadataPrefetcher(
+        ComponentMetaDataResolver resolver,
+        DependencyToComponentIdResolver idResolver,
+        VersionSelectorScheme versionSelectorScheme,
+        ModuleExclusions moduleExclusions,
+        DependencySubstitutionApplicator substitutionApplicator,
+        Executor executor,
+        @Nullable BuildOperationRef parentOperation
+    ) {
+        this.resolver = resolver;
+        this.idResolver = idResolver;
+        this.versionSelectorScheme = versionSelectorScheme;
+        this.moduleExclusions = moduleExclusions;
+        this.substitutionApplicator = substitutionApplicator;
+        this.executor = executor;
+        this.parentOperation = parentOperation;
+    }
+
+    /**
+     * Returns a resolver that delegates to the given one and records which prefetched components the graph builder resolved.
+     */
+    ComponentMetaDataResolver recordUsage(ComponentMetaDataResolver delegate) {
+        return new ComponentMetaDataResolver() {
+            @Override
+            public void resolve(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata, BuildableComponentResolveResult result) {
+                resolvedByGraphBuilder.add(identifier);
+                if (identifier instanceof ModuleComponentIdentifier && fetched.contains(identifier)) {
+                    ModuleComponentIdentifier id = (ModuleComponentIdentifier) identifier;
+                    used.add(id);
+                    if (completed.contains(id)) {
+                        hits.add(id);
+                    }
+                }
+                delegate.resolve(identifier, componentOverrideMetadata, result);
+            }
+
+            @Override
+            public boolean isFetchingMetadataCheap(ComponentIdentifier identifier) {
+                return delegate.isFetchingMetadataCheap(identifier);
+            }
+        };
+    }
+
+    /**
+     * Prefetches the targets of the outgoing edges of a node that is being visited.
+     * The edges have the excludes of the node applied already, and their dependencies have been substituted.
+     */
+    void prefetchTargetsOf(Collection<EdgeState> edges) {
+        for (EdgeState edge : edges) {
+            if (edge.isConstraint()) {
+                continue;
+            }
+            ExcludeSpec transitiveExclusions = edge.isTransitive() ? edge.getExclusions() : null;
+            if (!prefetch(edge.getDependencyMetadata(), transitiveExclusions)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Prefetches the metadata of components that are expected to be selected, such as the components selected by a previous resolution of the same graph.
+     * The dependencies of these components are not prefetched, as the selected ones are expected to be part of the given components.
+     */
+    void prefetch(Collection<ModuleComponentIdentifier> components) {
+        for (ModuleComponentIdentifier id : components) {
+            if (!submit(id, null)) {
+                return;
+            }
+        }
+    }
+
+    private void prefetchDependenciesOf(ComponentGraphResolveState component, ExcludeSpec exclusions) {
+        if (!expanded.add(component.getId())) {
+            return;
+        }
+        // We don't know yet which variant will be selected, so look at all of them
+        for (VariantGraphResolveState variant : component.getCandidatesForGraphVariantSelection().getVariantsForAttributeMatching()) {
+            for (DependencyMetadata dependency : variant.getDependencies()) {
+                if (!prefetchTransitive(dependency, exclusions)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false if the prefetcher has been stopped.
+     */
+    private boolean prefetchTransitive(DependencyMetadata dependency, ExcludeSpec exclusions) {
+        if (dependency.isConstraint()) {
+            return true;
+        }
+        ComponentSelector selector = dependency.getSelector();
+        if (selector instanceof ModuleComponentSelector && exclusions.excludes(((ModuleComponentSelector) selector).getModuleIdentifier())) {
+            return true;
+        }
+        if (isSubstituted(dependency)) {
+            // Leave it to the graph builder, which applies the substitution
+            return true;
+        }
+        ExcludeSpec transitiveExclusions = dependency.isTransitive()
+            ? moduleExclusions.excludeAny(exclusions, moduleExclusions.excludeAny(dependency.getExcludes()))
+            : null;
+        return prefetch(dependency, transitiveExclusions);
+    }
+
+    private boolean isSubstituted(DependencyMetadata dependency) {
+        DependencySubstitutionApplicator.SubstitutionResult substitution = substitutionApplicator.apply(dependency);
+        if (substitution.hasFailure()) {
+            return true;
+        }
+        DependencySubstitutionInternal details = substitution.getResult();
+        return details != null && details.isUpdated();
+    }
+
+    /**
+     * @param transitiveExclusions the excludes that apply to the dependencies of the target, or null to not prefetch them.
+     * @return false if the prefetcher has been stopped.
+     */
+    private boolean prefetch(DependencyMetadata dependency, @Nullable ExcludeSpec transitiveExclusions) {
+        ModuleComponentSelector selector = toPrefetchableSelector(dependency);
+        if (selector == null) {
+            return !stopped;
+        }
+        String version = selector.getVersionConstraint().getRequiredVersion();
+        return versionSelectorScheme.parseSelector(version).isDynamic()
+            ? submitDynamic(dependency, selector, transitiveExclusions)
+            : submit(DefaultModuleComponentIdentifier.newId(selector.getModuleIdentifier(), version), transitiveExclusions);
+    }
+
+    /**
+     * @return false if the prefetcher has been stopped.
+     */
+    private boolean submit(ModuleComponentIdentifier id, @Nullable ExcludeSpec transitiveExclusions) {
+        if (stopped) {
+            return false;
+        }
+        if (requested.add(id)) {
+            return execute(() -> fetch(id, transitiveExclusions));
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the prefetcher has been stopped.
+     */
+    private boolean submitDynamic(DependencyMetadata dependency, ModuleComponentSelector selector, @Nullable ExcludeSpec transitiveExclusions) {
+        if (stopped) {
+            return false;
+        }
+        if (requestedDynamic.add(selector)) {
+            return execute(() -> selectDynamicVersion(dependency, selector, transitiveExclusions));
+        }
+        return true;
+    }
+
+    private boolean execute(Runnable action) {
+        PrefetchTask task = new PrefetchTask(action);
+        synchronized (unfinishedLock) {
+            unfinished++;
+        }
+        pending.add(task);
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // The shared executor is shutting down at the end of the build
+            task.cancelIfNotStarted();
+            return false;
+        }
+    }
+
+    private void finished(PrefetchTask task) {
+        pending.remove(task);
+        synchronized (unfinishedLock) {
+            unfinished--;
+            if (unfinished == 0) {
+                unfinishedLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Only dependencies on a module with a required version can be prefetched.
+     * Dependencies that override the component metadata are left to the graph builder.
+     */
+    @Nullable
+    private static ModuleComponentSelector toPrefetchableSelector(DependencyMetadata dependency) {
+        if (dependency.isConstraint() || dependency.isChanging() || !dependency.getArtifacts().isEmpty()) {
+            return null;
+        }
+        ComponentSelector selector = dependency.getSelector();
+        if (!(selector instanceof ModuleComponentSelector)) {
+            return null;
+        }
+        ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+        if (moduleSelector.getVersionConstraint().getRequiredVersion().isEmpty()) {
+            return null;
+        }
+        return moduleSelector;
+    }
+
+    private void fetch(ModuleComponentIdentifier id, @Nullable ExcludeSpec transitiveExclusions) {
+        if (stopped || resolvedByGraphBuilder.contains(id) || resolver.isFetchingMetadataCheap(id)) {
+            return;
+        }
+        fetched.add(id);
+        CurrentBuildOperationRef.instance().with(parentOperation, () -> {
+            try {
+                DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+                resolver.resolve(id, DefaultComponentOverrideMetadata.EMPTY, result);
+                if (result.hasResult() && result.getFailure() == null) {
+                    completed.add(id);
+                    if (transitiveExclusions != null) {
+                        prefetchDependenciesOf(result.getState(), transitiveExclusions);
+                    }
+                }
+            } catch (Exception e) {
+                // The graph builder will resolve the component again and report any failure
+                LOGGER.debug("Failed to prefetch metadata for {}.", id, e);
+            }
+        });
+    }
+
+    private void selectDynamicVersion(DependencyMetadata dependency, ModuleComponentSelector selector, @Nullable ExcludeSpec transitiveExclusions) {
+        if (stopped) {
+            return;
+        }
+        CurrentBuildOperationRef.instance().with(parentOperation, () -> {
+            try {
+                // Rejections coming from other selectors of the same module are only known to the graph builder, which selects again if needed
+                ResolvedVersionConstraint versionConstraint = new DefaultResolvedVersionConstraint(selector.getVersionConstraint(), versionSelectorScheme);
+                BuildableComponentIdResolveResult result = new DefaultBuildableComponentIdResolveResult();
+                idResolver.resolve(dependency, versionConstraint.getRequiredSelector(), versionConstraint.getRejectedSelector(), result);
+                if (result.getFailure() != null || result.isRejected() || !(result.getId() instanceof ModuleComponentIdentifier)) {
+                    return;
+                }
+                ModuleComponentIdentifier id = (ModuleComponentIdentifier) result.getId();
+                ComponentGraphResolveState state = result.getState();
+                if (state == null) {
+                    submit(id, transitiveExclusions);
+                } else if (requested.add(id)) {
+                    // Selecting the version resolved its metadata already
+                    fetched.add(id);
+                    completed.add(id);
+                    if (transitiveExclusions != null) {
+                        prefetchDependenciesOf(state, transitiveExclusions);
+                    }
+                }
+            } catch (Exception e) {
+                // The graph builder will select a version again and report any failure
+                LOGGER.debug("Failed to prefetch the version of {}.", selector, e);
+            }
+        });
+    }
+
+    /**
+     * Cancels the work of this prefetcher that has not started and waits for the running work to complete.
+     * Work submitted by running work in the meantime sees that the prefetcher is stopped and completes without fetching anything.
+     */
+    void stop() {
+        stopped = true;
+        for (PrefetchTask task : new ArrayList<>(pending)) {
+            task.cancelIfNotStarted();
+        }
+        synchronized (unfinishedLock) {
+            while (unfinished > 0) {
+                try {
+                    unfinishedLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The components whose metadata was fetched in the background.
+     */
+    Set<ModuleComponentIdentifier> getFetched() {
+        return fetched;
+    }
+
+    /**
+     * The prefetched components that the graph builder resolved, whether or not the prefetch had completed by then.
+     */
+    Set<ModuleComponentIdentifier> getUsed() {
+        return used;
+    }
+
+    /**
+     * The prefetched components whose metadata had been fetched by the time the graph builder resolved them.
+     */
+    Set<ModuleComponentIdentifier> getHits() {
+        return hits;
+    }
+
+    /**
+     * Runs at most once, either when the executor starts it or not at all when it is cancelled first.
+     */
+    private class PrefetchTask implements Runnable {
+        private final Runnable action;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        PrefetchTask(Runnable action) {
+            this.action = action;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                action.run();
+            } finally {
+                finished(this);
+            }
+        }
+
+        void cancelIfNotStarted() {
+            if (started.compareAndSet(false, true)) {
+                finished(this);
+            }
+        }
+    }
+}
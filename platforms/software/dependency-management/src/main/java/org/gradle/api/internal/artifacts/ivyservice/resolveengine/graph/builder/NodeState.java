@@ -101,9 +101,10 @@ public class NodeState implements DependencyGraphNode {
     private Set<EdgeState> edgesToRecompute;
     private Multimap<ModuleIdentifier, DependencyState> potentiallyActivatedConstraints;
 
-    // caches
-    private final Map<DependencyMetadata, DependencyState> dependencyStateCache = new HashMap<>();
-    private final Map<DependencyState, EdgeState> edgesCache = new HashMap<>();
+    // caches, created lazily as many nodes have no dependencies
+    // Dependency states only need to be cached when the dependencies may change, otherwise they are computed once
+    private Map<DependencyMetadata, DependencyState> dependencyStateCache;
+    private Map<DependencyState, EdgeState> edgesCache;
 
     // Caches the list of dependency states for dependencies
     private List<DependencyState> cachedDependencyStates;
@@ -151,7 +152,6 @@ NodeState dequeue() {
         return this;
     }
 
-    @Override
     public ComponentState getComponent() {
         return component;
     }
@@ -493,18 +493,25 @@ private List<DependencyState> cacheFilteredDependencyStates(ExcludeSpec spec, Li
         if (from.isEmpty()) {
             return from;
         }
-        List<DependencyState> tmp = new ArrayList<>(from.size());
-        for (DependencyState dependencyState : from) {
-            if (isExcluded(spec, dependencyState)) {
-                continue;
+        // Most nodes have no excluded or substituted dependency, so the states are only copied once one is found
+        List<DependencyState> tmp = null;
+        for (int i = 0; i < from.size(); i++) {
+            DependencyState original = from.get(i);
+            DependencyState dependencyState = original;
+            boolean excluded = isExcluded(spec, dependencyState);
+            if (!excluded) {
+                dependencyState = maybeSubstitute(dependencyState, resolveState.getDependencySubstitutionApplicator());
+                excluded = dependencyState != original && isExcluded(spec, dependencyState);
             }
-            dependencyState = maybeSubstitute(dependencyState, resolveState.getDependencySubstitutionApplicator());
-
-            if (!isExcluded(spec, dependencyState)) {
+            if (tmp == null && (excluded || dependencyState != original)) {
+                tmp = new ArrayList<>(from.size());
+                tmp.addAll(from.subList(0, i));
+            }
+            if (tmp != null && !excluded) {
                 tmp.add(dependencyState);
             }
         }
-        return tmp;
+        return tmp == null ? from : tmp;
     }
 
     private List<DependencyState> cacheDependencyStates(List<? extends DependencyMetadata> dependencies) {
@@ -519,6 +526,12 @@ private List<DependencyState> cacheDependencyStates(List<? extends DependencyMet
     }
 
     private DependencyState cachedDependencyStateFor(DependencyMetadata md) {
+        if (!dependenciesMayChange) {
+            return createDependencyState(md);
+        }
+        if (dependencyStateCache == null) {
+            dependencyStateCache = new HashMap<>();
+        }
         return dependencyStateCache.computeIfAbsent(md, this::createDependencyState);
     }
 
@@ -526,6 +539,9 @@ private DependencyState cachedDependencyStateFor(DependencyMetadata md) {
      * Creates an edge and add it to this node as an outgoing edge.
      */
     private void createAndLinkEdgeState(DependencyState dependencyState, Collection<EdgeState> discoveredEdges, ExcludeSpec resolutionFilter, boolean deferSelection) {
+        if (edgesCache == null) {
+            edgesCache = new HashMap<>();
+        }
         EdgeState dependencyEdge = edgesCache.computeIfAbsent(dependencyState, ds -> new EdgeState(this, ds, resolutionFilter, resolveState));
         dependencyEdge.computeSelector(); // the selector changes, if the 'versionProvidedByAncestors' state changes
         outgoingEdges.add(dependencyEdge);
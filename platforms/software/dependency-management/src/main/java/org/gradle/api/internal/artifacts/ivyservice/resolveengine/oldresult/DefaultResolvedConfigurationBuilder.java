@@ -55,7 +55,7 @@ public void addNodeArtifacts(DependencyGraphNode node, int artifactsId) {
 
     @Override
     public void newResolvedDependency(DependencyGraphNode node) {
-        builder.resolvedDependency(node.getNodeId(), node.getComponent().getId(), node.getMetadata().getName());
+        builder.resolvedDependency(node.getNodeId(), node.getOwner().getModuleVersion(), node.getMetadata().getName());
     }
 
     @Override
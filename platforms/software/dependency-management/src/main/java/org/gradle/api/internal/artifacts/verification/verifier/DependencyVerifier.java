@@ -195,6 +195,14 @@ private void verifySignature(SignatureVerificationService signatureVerificationS
 
     private void verifyChecksums(ChecksumService checksumService, File file, ArtifactVerificationMetadata verification, ArtifactVerificationResultBuilder builder) {
         List<Checksum> checksums = verification.getChecksums();
+        if (checksums.size() > 1) {
+            // Calculate all the checksums we need with a single read of the file
+            List<String> algorithms = new ArrayList<>(checksums.size());
+            for (Checksum checksum : checksums) {
+                algorithms.add(checksum.getKind().name());
+            }
+            checksumService.precompute(file, algorithms);
+        }
         for (Checksum checksum : checksums) {
             verifyChecksum(checksum.getKind(), file, checksum.getValue(), checksum.getAlternatives(), checksumService, builder);
         }
@@ -24,6 +24,7 @@
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Caches results of a delegate {@link AttributeSelectionSchema}. Not all methods
@@ -36,6 +37,12 @@ public class CachingAttributeSelectionSchema implements AttributeSelectionSchema
 
     private final Map<ExtraAttributesEntry, Attribute<?>[]> extraAttributesCache = new ConcurrentHashMap<>();
 
+    /**
+     * The result of the compatibility rules for each attribute, indexed by requested value and then by candidate value.
+     * Attribute values are a small, mostly interned set per attribute, so each pair only runs the rules once no matter how many variants carry it.
+     */
+    private final ConcurrentMap<Attribute<?>, ConcurrentMap<Object, ConcurrentMap<Object, Boolean>>> compatibilityCache = new ConcurrentHashMap<>();
+
     public CachingAttributeSelectionSchema(AttributeSelectionSchema delegate) {
         this.delegate = delegate;
     }
@@ -53,7 +60,24 @@ public <T> Set<T> disambiguate(Attribute<T> attribute, @Nullable T requested, Se
 
     @Override
     public <T> boolean matchValue(Attribute<T> attribute, T requested, T candidate) {
-        return delegate.matchValue(attribute, requested, candidate);
+        if (requested.equals(candidate)) {
+            return true;
+        }
+
+        ConcurrentMap<Object, ConcurrentMap<Object, Boolean>> byRequested = compatibilityCache.get(attribute);
+        if (byRequested == null) {
+            byRequested = compatibilityCache.computeIfAbsent(attribute, k -> new ConcurrentHashMap<>());
+        }
+        ConcurrentMap<Object, Boolean> byCandidate = byRequested.get(requested);
+        if (byCandidate == null) {
+            byCandidate = byRequested.computeIfAbsent(requested, k -> new ConcurrentHashMap<>());
+        }
+        Boolean compatible = byCandidate.get(candidate);
+        if (compatible == null) {
+            compatible = delegate.matchValue(attribute, requested, candidate);
+            byCandidate.put(candidate, compatible);
+        }
+        return compatible;
     }
 
     @Override
@@ -113,7 +113,7 @@ public void visitNode(DependencyGraphNode node) {
 
     private boolean isNodeRejected(DependencyGraphNode node) {
         // That is the state a node is in when it was selected but the selection violates a constraint (reject or strictly)
-        return node.getComponent().isRejected();
+        return node.getOwner().isRejected();
     }
 
     private void addChangingModule(ModuleComponentIdentifier id) {
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.internal.artifacts.DefaultImmutableModuleIdentifierFactory
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.RootComponentMetadataBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.MetadataPrefetchExecutor
+import org.gradle.api.internal.attributes.ImmutableAttributes
+import org.gradle.cache.internal.InMemoryCacheDecoratorFactory
+import org.gradle.cache.scopes.BuildScopedCacheBuilderFactory
+import org.gradle.internal.buildoption.DefaultInternalOptions
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.component.model.VariantGraphResolveState
+import spock.lang.Specification
+
+import java.util.concurrent.Executor
+
+class ResolvedGraphCacheTest extends Specification {
+
+    def cacheBuilderFactory = Mock(BuildScopedCacheBuilderFactory)
+    def metadataPrefetchExecutor = Stub(MetadataPrefetchExecutor) {
+        getExecutor() >> Stub(Executor)
+    }
+
+    def "does not compute a key when the cache is disabled"() {
+        def cache = graphCache(false)
+
+        expect:
+        cache.keyFor(root(dependency("1.0")), [], ImmutableAttributes.EMPTY, [], "latest") == null
+        0 * cacheBuilderFactory._
+    }
+
+    def "does not compute a key when metadata prefetching is disabled"() {
+        metadataPrefetchExecutor = Stub(MetadataPrefetchExecutor) {
+            getExecutor() >> null
+        }
+        def cache = graphCache(true)
+
+        expect:
+        cache.keyFor(root(dependency("1.0")), [], ImmutableAttributes.EMPTY, [], "latest") == null
+        0 * cacheBuilderFactory._
+    }
+
+    def "computes the same key for the same inputs"() {
+        def cache = graphCache(true)
+
+        expect:
+        def key = cache.keyFor(root(dependency("1.0"), dependency("2.0", "b")), [], ImmutableAttributes.EMPTY, [], "latest")
+        key != null
+        key == cache.keyFor(root(dependency("1.0"), dependency("2.0", "b")), [], ImmutableAttributes.EMPTY, [], "latest")
+        key != cache.keyFor(root(dependency("1.1"), dependency("2.0", "b")), [], ImmutableAttributes.EMPTY, [], "latest")
+        key != cache.keyFor(root(dependency("1.0")), [], ImmutableAttributes.EMPTY, [], "latest")
+        key != cache.keyFor(root(dependency("1.0"), dependency("2.0", "b")), [], ImmutableAttributes.EMPTY, [], "strict")
+    }
+
+    def "does not cache graphs with dynamic or changing dependencies"() {
+        def cache = graphCache(true)
+        def changing = Stub(DependencyMetadata) {
+            isChanging() >> true
+        }
+
+        expect:
+        cache.keyFor(root(dependency("1.+")), [], ImmutableAttributes.EMPTY, [], "latest") == null
+        cache.keyFor(root(dependency("latest.release")), [], ImmutableAttributes.EMPTY, [], "latest") == null
+        cache.keyFor(root(dependency("1.0")), [changing], ImmutableAttributes.EMPTY, [], "latest") == null
+    }
+
+    private ResolvedGraphCache graphCache(boolean enabled) {
+        def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator(), new VersionParser())
+        def internalOptions = new DefaultInternalOptions([(ResolvedGraphCache.RESOLVED_GRAPH_CACHE.systemPropertyName): String.valueOf(enabled)])
+        return new ResolvedGraphCache(internalOptions, metadataPrefetchExecutor, cacheBuilderFactory, Stub(InMemoryCacheDecoratorFactory), versionSelectorScheme, new DefaultImmutableModuleIdentifierFactory())
+    }
+
+    private RootComponentMetadataBuilder.RootComponentState root(DependencyMetadata... dependencies) {
+        def variant = Stub(VariantGraphResolveState) {
+            getDependencies() >> (dependencies as List)
+        }
+        return Stub(RootComponentMetadataBuilder.RootComponentState) {
+            getRootVariant() >> variant
+        }
+    }
+
+    private DependencyMetadata dependency(String version, String name = "a") {
+        def selector = DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId("org", name), version)
+        return Stub(DependencyMetadata) {
+            getSelector() >> selector
+            isTransitive() >> true
+        }
+    }
+}
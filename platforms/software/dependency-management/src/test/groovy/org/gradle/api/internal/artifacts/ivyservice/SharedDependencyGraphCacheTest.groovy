@@ -0,0 +1,233 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.artifacts.component.ProjectComponentSelector
+import org.gradle.api.internal.artifacts.ComponentMetadataProcessor
+import org.gradle.api.internal.artifacts.ComponentMetadataProcessorFactory
+import org.gradle.api.internal.artifacts.ComponentSelectionRulesInternal
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleVersionIdentifier
+import org.gradle.api.internal.artifacts.configurations.ConflictResolution
+import org.gradle.api.internal.artifacts.configurations.ResolutionStrategyInternal
+import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.RootComponentMetadataBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolutionstrategy.CapabilitiesResolutionInternal
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphComponent
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphEdge
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphSelector
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.ResolveOptimizations
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentSelectionReasons
+import org.gradle.api.internal.attributes.ImmutableAttributes
+import org.gradle.api.internal.attributes.immutable.ImmutableAttributesSchema
+import org.gradle.internal.ImmutableActionSet
+import org.gradle.internal.buildoption.DefaultInternalOptions
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.component.model.VariantGraphResolveMetadata
+import org.gradle.internal.component.model.VariantGraphResolveState
+import org.gradle.internal.instantiation.InstantiatorFactory
+import spock.lang.Specification
+
+class SharedDependencyGraphCacheTest extends Specification {
+
+    def metadataProcessorFactory = Stub(ComponentMetadataProcessorFactory) {
+        createComponentMetadataProcessor(_) >> Stub(ComponentMetadataProcessor) {
+            getRulesHash() >> 0
+        }
+    }
+
+    def "does not compute a key when sharing is disabled"() {
+        def cache = graphCache(false)
+
+        expect:
+        cache.keyFor(root(dependency("1.0")), [], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], resolutionStrategy(), metadataProcessorFactory) == null
+    }
+
+    def "computes the same key for equivalent inputs"() {
+        def cache = graphCache(true)
+
+        expect:
+        def key = cache.keyFor(root(dependency("1.0"), dependency("1.+", "b")), [], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], resolutionStrategy(), metadataProcessorFactory)
+        key != null
+        key == cache.keyFor(root(dependency("1.0"), dependency("1.+", "b")), [], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], resolutionStrategy(), metadataProcessorFactory)
+        key != cache.keyFor(root(dependency("1.0"), dependency("2.+", "b")), [], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], resolutionStrategy(), metadataProcessorFactory)
+        key != cache.keyFor(root(dependency("1.0")), [dependency("1.+", "b")], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], resolutionStrategy(), metadataProcessorFactory)
+        key != cache.keyFor(root(dependency("1.0"), dependency("1.+", "b")), [], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], resolutionStrategy(ConflictResolution.strict), metadataProcessorFactory)
+    }
+
+    def "does not share graphs with project dependencies"() {
+        def cache = graphCache(true)
+        def projectDependency = Stub(DependencyMetadata) {
+            getSelector() >> Stub(ProjectComponentSelector)
+        }
+
+        expect:
+        cache.keyFor(root(dependency("1.0"), projectDependency), [], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], resolutionStrategy(), metadataProcessorFactory) == null
+    }
+
+    def "does not share graphs resolved with consumer specific rules"() {
+        def cache = graphCache(true)
+        def withSubstitutions = resolutionStrategy(ConflictResolution.latest, ImmutableActionSet.empty().add({}))
+        def withLocking = resolutionStrategy(ConflictResolution.latest, ImmutableActionSet.empty(), true)
+
+        expect:
+        cache.keyFor(root(dependency("1.0")), [], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], withSubstitutions, metadataProcessorFactory) == null
+        cache.keyFor(root(dependency("1.0")), [], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], withLocking, metadataProcessorFactory) == null
+    }
+
+    def "replays a recorded graph with the consuming root in place of the recorded root"() {
+        def cache = graphCache(true)
+        def recordingRoot = root(dependency("1.0"))
+        def consumingRoot = root(dependency("1.0"))
+        consumingRoot.getComponentIdentifier() >> Stub(ComponentIdentifier)
+        def key = cache.keyFor(recordingRoot, [], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], resolutionStrategy(), metadataProcessorFactory)
+        def graph = graph(recordingRoot.rootVariant.dependencies[0])
+        def recorder = cache.recorder(key, recordingRoot, [], Stub(ModuleReplacementsData))
+        def replayed = []
+        def visitor = Stub(DependencyGraphVisitor) {
+            visitNode(_) >> { DependencyGraphNode node -> replayed << node }
+        }
+
+        when:
+        recorder.start(graph.root)
+        recorder.visitNode(graph.root)
+        recorder.visitNode(graph.node)
+        recorder.visitEdges(graph.root)
+        recorder.visitEdges(graph.node)
+        recorder.finish(graph.root)
+
+        then:
+        cache.replay(key, consumingRoot, [], Stub(ModuleReplacementsData), visitor)
+        replayed.size() == 2
+
+        and:
+        def root = replayed[0] as RootGraphNode
+        root.root
+        root.nodeId == 1
+        root.owner.componentId == consumingRoot.componentIdentifier
+        root.owner.resultId == 10
+        !root.owner.rejected
+
+        and:
+        def node = replayed[1] as DependencyGraphNode
+        node !== graph.node
+        node.nodeId == 2
+        node.owner.componentId == graph.node.owner.componentId
+        node.owner.selectedVariants == [node]
+        node.owner.dependents == [root.owner]
+        node.incomingEdges.size() == 1
+        node.incomingEdges[0].from === root
+        node.incomingEdges[0].dependencyMetadata === consumingRoot.rootVariant.dependencies[0]
+        root.outgoingEdges == node.incomingEdges
+    }
+
+    def "does not replay a graph that has not been recorded"() {
+        def cache = graphCache(true)
+        def consumingRoot = root(dependency("1.0"))
+        def key = cache.keyFor(consumingRoot, [], ImmutableAttributes.EMPTY, ImmutableAttributesSchema.EMPTY, [], resolutionStrategy(), metadataProcessorFactory)
+
+        expect:
+        !cache.replay(key, consumingRoot, [], Stub(ModuleReplacementsData), Stub(DependencyGraphVisitor))
+    }
+
+    private Map graph(DependencyMetadata rootDependency) {
+        def rootComponent = Stub(DependencyGraphComponent) {
+            getResultId() >> 10
+            getModuleVersion() >> DefaultModuleVersionIdentifier.newId("org", "consumer", "1.0")
+            getSelectionReason() >> ComponentSelectionReasons.root()
+        }
+        def component = Stub(DependencyGraphComponent) {
+            getResultId() >> 11
+            getComponentId() >> DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", "a"), "1.0")
+            getModuleVersion() >> DefaultModuleVersionIdentifier.newId("org", "a", "1.0")
+            getAllVersions() >> [DefaultModuleVersionIdentifier.newId("org", "a", "1.0")]
+        }
+        def root = Stub(RootGraphNode) {
+            getNodeId() >> 1
+            isRoot() >> true
+            getOwner() >> rootComponent
+            getIncomingEdges() >> []
+            getResolveOptimizations() >> new ResolveOptimizations()
+        }
+        def node = Stub(DependencyGraphNode) {
+            getNodeId() >> 2
+            getOwner() >> component
+            getOutgoingEdges() >> []
+            getOutgoingFileEdges() >> []
+            getExternalVariant() >> null
+            isSelected() >> true
+        }
+        def edge = Stub(DependencyGraphEdge) {
+            getFrom() >> root
+            getDependencyMetadata() >> rootDependency
+            getSelector() >> Stub(DependencyGraphSelector)
+            getFailure() >> null
+        }
+        root.getOutgoingEdges() >> [edge]
+        node.getIncomingEdges() >> [edge]
+        component.getSelectedVariants() >> [node]
+        component.getDependents() >> [rootComponent]
+        return [root: root, node: node]
+    }
+
+    private SharedDependencyGraphCache graphCache(boolean enabled) {
+        def internalOptions = new DefaultInternalOptions([(SharedDependencyGraphCache.SHARE_EQUIVALENT_GRAPHS.systemPropertyName): String.valueOf(enabled)])
+        return new SharedDependencyGraphCache(internalOptions, Stub(InstantiatorFactory))
+    }
+
+    private ResolutionStrategyInternal resolutionStrategy(ConflictResolution conflictResolution = ConflictResolution.latest, ImmutableActionSet substitutionRule = ImmutableActionSet.empty(), boolean locking = false) {
+        def strategy = Stub(ResolutionStrategyInternal)
+        strategy.getConflictResolution() >> conflictResolution
+        strategy.getDependencySubstitutionRule() >> substitutionRule
+        strategy.isDependencyLockingEnabled() >> locking
+        strategy.getComponentSelection() >> Stub(ComponentSelectionRulesInternal) {
+            getRules() >> []
+        }
+        strategy.getCapabilitiesResolutionRules() >> Stub(CapabilitiesResolutionInternal) {
+            isEmpty() >> true
+        }
+        return strategy
+    }
+
+    private RootComponentMetadataBuilder.RootComponentState root(DependencyMetadata... dependencies) {
+        def variant = Stub(VariantGraphResolveState) {
+            getDependencies() >> (dependencies as List)
+            getExcludes() >> []
+            getMetadata() >> Stub(VariantGraphResolveMetadata) {
+                isTransitive() >> true
+            }
+        }
+        return Stub(RootComponentMetadataBuilder.RootComponentState) {
+            getRootVariant() >> variant
+            getModuleVersionIdentifier() >> DefaultModuleVersionIdentifier.newId("org", "consumer", "1.0")
+        }
+    }
+
+    private DependencyMetadata dependency(String version, String name = "a") {
+        def selector = DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId("org", name), version)
+        return Stub(DependencyMetadata) {
+            getSelector() >> selector
+            isTransitive() >> true
+        }
+    }
+}
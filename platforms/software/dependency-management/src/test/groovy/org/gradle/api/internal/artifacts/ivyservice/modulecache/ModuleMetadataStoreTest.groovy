@@ -39,7 +39,8 @@ class ModuleMetadataStoreTest extends Specification {
     }
     def moduleComponentIdentifier = DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org.test", "testArtifact"), "1.0")
     def serializer = Mock(ModuleMetadataSerializer)
-    @Subject ModuleMetadataStore store = new ModuleMetadataStore(pathKeyFileStore, serializer, moduleIdentifierFactory, SimpleMapInterner.notThreadSafe())
+    def stringInterner = SimpleMapInterner.notThreadSafe()
+    @Subject ModuleMetadataStore store = new ModuleMetadataStore(pathKeyFileStore, serializer, moduleIdentifierFactory, stringInterner)
     def mavenMetadataFactory = DependencyManagementTestUtil.mavenMetadataFactory()
 
     def "getModuleDescriptorFile returns null for not cached descriptors"() {
@@ -69,4 +70,38 @@ class ModuleMetadataStoreTest extends Specification {
         };
         1 * serializer.write(_, descriptor, _)
     }
+
+    def "reads back descriptor strings as interned instances"() {
+        setup:
+        File descriptorFile = temporaryFolder.createFile("fileStoreEntry")
+        def key = new ModuleComponentAtRepositoryKey(repository, moduleComponentIdentifier)
+        def descriptor = mavenMetadataFactory.create(moduleComponentIdentifier, []).asImmutable()
+        def interned = stringInterner.intern("org.test")
+        def read = []
+
+        when:
+        store.putModuleDescriptor(key, descriptor)
+        store.getModuleDescriptor(key)
+
+        then:
+        1 * pathKeyFileStore.add(_, _) >> { path, action ->
+            action.execute(descriptorFile); fileStoreEntry
+        }
+        1 * serializer.write(_, descriptor, _) >> { encoder, metadata, cache ->
+            encoder.writeString(new String("org.test"))
+            encoder.writeString(new String("org.test"))
+            encoder.writeNullableString(null)
+        }
+        1 * pathKeyFileStore.get(*_) >> fileStoreEntry
+        _ * fileStoreEntry.getFile() >> descriptorFile
+        1 * serializer.read(_, moduleIdentifierFactory, _) >> { decoder, factory, cache ->
+            read << decoder.readString() << decoder.readString() << decoder.readNullableString()
+            null
+        }
+
+        and:
+        read == ["org.test", "org.test", null]
+        read[0].is(interned)
+        read[1].is(interned)
+    }
 }
@@ -45,6 +45,7 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.Dependen
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.DependencyGraphBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.MetadataPrefetchExecutor
 import org.gradle.api.internal.artifacts.publish.DefaultPublishArtifact
 import org.gradle.api.internal.attributes.AttributeDesugaring
 import org.gradle.api.internal.attributes.ImmutableAttributes
@@ -77,6 +78,7 @@ import org.gradle.internal.component.model.LocalOriginDependencyMetadata
 import org.gradle.internal.exceptions.DefaultMultiCauseException
 import org.gradle.internal.model.CalculatedValue
 import org.gradle.internal.operations.BuildOperationExecutor
+import org.gradle.internal.operations.BuildOperationProgressEventEmitter
 import org.gradle.internal.operations.BuildOperationQueue
 import org.gradle.internal.resolve.ModuleVersionNotFoundException
 import org.gradle.internal.resolve.ModuleVersionResolveException
@@ -148,7 +150,9 @@ class DependencyGraphBuilderTest extends Specification {
         new ComponentIdGenerator(),
         new VersionParser(),
         variantSelector,
-        buildOperationProcessor
+        buildOperationProcessor,
+        Stub(MetadataPrefetchExecutor),
+        Stub(BuildOperationProgressEventEmitter)
     )
 
     def root = rootProject()
@@ -176,6 +180,7 @@ class DependencyGraphBuilderTest extends Specification {
             ConflictResolution.latest,
             false,
             false,
+            [],
             graphVisitor
         )
         return graphVisitor
@@ -40,6 +40,15 @@ class IntersectionsTest extends Specification implements ExcludeTestSupport {
         ]
     }
 
+    def "intersections looked up by spec types apply to other specs of the same types"() {
+        expect:
+        ops.tryIntersect(group("org"), groupSet("foo", "org")) == group("org")
+        ops.tryIntersect(group("org"), groupSet("foo", "bar")) == factory.nothing()
+        ops.tryIntersect(groupSet("foo", "bar"), group("foo")) == group("foo")
+        ops.tryIntersect(group("org"), moduleId("org", "bar")) == moduleId("org", "bar")
+        ops.tryIntersect(group("org"), moduleId("com", "bar")) == factory.nothing()
+    }
+
     def "intersection of #one with #other = #expected"() {
         expect:
         ops.tryIntersect(one, other) == expected
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder
+
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.DependencySubstitutionInternal
+import org.gradle.api.internal.artifacts.dependencies.DefaultImmutableVersionConstraint
+import org.gradle.api.internal.artifacts.ivyservice.dependencysubstitution.DependencySubstitutionApplicator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelector
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.excludes.ModuleExclusions
+import org.gradle.internal.component.external.descriptor.DefaultExclude
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.external.model.DefaultModuleComponentSelector
+import org.gradle.internal.component.model.ComponentGraphResolveState
+import org.gradle.internal.component.model.ComponentGraphSpecificResolveState
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.component.model.GraphSelectionCandidates
+import org.gradle.internal.component.model.VariantGraphResolveState
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.resolver.DependencyToComponentIdResolver
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class MetadataPrefetcherTest extends Specification {
+    def resolver = Mock(ComponentMetaDataResolver)
+    def versionSelectorScheme = Stub(VersionSelectorScheme) {
+        parseSelector(_) >> Stub(VersionSelector) {
+            isDynamic() >> false
+        }
+    }
+    def moduleExclusions = new ModuleExclusions()
+    def substitutionApplicator = DependencySubstitutionApplicator.NO_OP
+    Executor executor = { Runnable action -> action.run() } as Executor
+
+    def "fetches each component only once"() {
+        def prefetcher = prefetcher()
+
+        when:
+        prefetcher.prefetch([id("a"), id("b")])
+        prefetcher.prefetch([id("a")])
+        prefetcher.stop()
+
+        then:
+        1 * resolver.resolve(id("a"), _, _) >> { args -> resolved(args[2]) }
+        1 * resolver.resolve(id("b"), _, _) >> { args -> resolved(args[2]) }
+        prefetcher.fetched == [id("a"), id("b")] as Set
+    }
+
+    def "does not fetch components that the graph builder resolved already"() {
+        def prefetcher = prefetcher()
+        def graphBuilderResolver = prefetcher.recordUsage(resolver)
+
+        when:
+        graphBuilderResolver.resolve(id("a"), DefaultComponentOverrideMetadata.EMPTY, new DefaultBuildableComponentResolveResult())
+        prefetcher.prefetch([id("a")])
+
+        then:
+        1 * resolver.resolve(id("a"), _, _)
+        prefetcher.fetched.empty
+    }
+
+    def "does not propagate failures and leaves them to the graph builder"() {
+        def prefetcher = prefetcher()
+
+        when:
+        prefetcher.prefetch([id("a"), id("b"), id("c")])
+        prefetcher.stop()
+
+        then:
+        1 * resolver.resolve(id("a"), _, _) >> { throw new RuntimeException("broken") }
+        1 * resolver.resolve(id("b"), _, _) >> { args -> args[2].failed(new ModuleVersionResolveException(id("b"), new RuntimeException("not found"))) }
+        1 * resolver.resolve(id("c"), _, _) >> { args -> resolved(args[2]) }
+        noExceptionThrown()
+
+        when:
+        def graphBuilderResolver = prefetcher.recordUsage(resolver)
+        ["a", "b", "c"].each {
+            graphBuilderResolver.resolve(id(it), DefaultComponentOverrideMetadata.EMPTY, new DefaultBuildableComponentResolveResult())
+        }
+
+        then:
+        prefetcher.used == [id("a"), id("b"), id("c")] as Set
+        prefetcher.hits == [id("c")] as Set
+    }
+
+    def "counts a hit only when the prefetch completed before the graph builder resolved the component"() {
+        def queued = []
+        executor = { Runnable action -> queued << action } as Executor
+        def prefetcher = prefetcher()
+        def graphBuilderResolver = prefetcher.recordUsage(resolver)
+        resolver.resolve(_, _, _) >> { args -> resolved(args[2]) }
+
+        when:
+        prefetcher.prefetch([id("a"), id("b"), id("c")])
+        queued[0].run()
+        queued[1].run()
+        graphBuilderResolver.resolve(id("a"), DefaultComponentOverrideMetadata.EMPTY, new DefaultBuildableComponentResolveResult())
+        graphBuilderResolver.resolve(id("c"), DefaultComponentOverrideMetadata.EMPTY, new DefaultBuildableComponentResolveResult())
+        prefetcher.stop()
+
+        then:
+        // c was still queued when the graph builder resolved it, so it was cancelled
+        prefetcher.fetched == [id("a"), id("b")] as Set
+        prefetcher.used == [id("a")] as Set
+        prefetcher.hits == [id("a")] as Set
+    }
+
+    def "stop waits for running fetches and cancels the ones that have not started"() {
+        ExecutorService executorService = Executors.newSingleThreadExecutor()
+        executor = executorService
+        def prefetcher = prefetcher()
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def stopped = new CountDownLatch(1)
+
+        when:
+        prefetcher.prefetch([id("a"), id("b")])
+        started.await()
+        def stopper = new Thread({
+            prefetcher.stop()
+            stopped.countDown()
+        })
+        stopper.start()
+
+        then:
+        1 * resolver.resolve(id("a"), _, _) >> { args ->
+            started.countDown()
+            release.await()
+            resolved(args[2])
+        }
+        !stopped.await(100, TimeUnit.MILLISECONDS)
+
+        when:
+        release.countDown()
+        stopper.join()
+
+        then:
+        stopped.count == 0
+        prefetcher.fetched == [id("a")] as Set
+        0 * resolver.resolve(id("b"), _, _)
+
+        when:
+        prefetcher.prefetch([id("c")])
+
+        then:
+        0 * resolver._
+
+        cleanup:
+        executorService.shutdownNow()
+    }
+
+    def "prefetches dependencies that are neither excluded nor substituted"() {
+        def substituted = DefaultModuleIdentifier.newId("org", "substituted")
+        substitutionApplicator = { DependencyMetadata dependency ->
+            def moduleId = dependency.selector.moduleIdentifier
+            def details = Stub(DependencySubstitutionInternal) {
+                isUpdated() >> (moduleId == substituted)
+            }
+            DependencySubstitutionApplicator.SubstitutionResult.of(details)
+        } as DependencySubstitutionApplicator
+        def prefetcher = prefetcher()
+        def a = component("a", dependency("b"), dependency("excluded"), dependency("substituted"), dependency("c", false))
+        def c = component("c", dependency("d"))
+        def edge = Stub(EdgeState) {
+            isConstraint() >> false
+            isTransitive() >> true
+            getExclusions() >> moduleExclusions.excludeAny([new DefaultExclude(DefaultModuleIdentifier.newId("org", "excluded"))])
+            getDependencyMetadata() >> dependency("a")
+        }
+
+        when:
+        prefetcher.prefetchTargetsOf([edge])
+        prefetcher.stop()
+
+        then:
+        1 * resolver.resolve(id("a"), _, _) >> { args -> resolved(args[2], a) }
+        1 * resolver.resolve(id("b"), _, _) >> { args -> resolved(args[2]) }
+        // c is not transitive, so its dependencies are left to the graph builder
+        1 * resolver.resolve(id("c"), _, _) >> { args -> resolved(args[2], c) }
+        0 * resolver.resolve(_, _, _)
+        prefetcher.fetched == [id("a"), id("b"), id("c")] as Set
+    }
+
+    def "does not prefetch the targets of constraints"() {
+        def prefetcher = prefetcher()
+        def edge = Stub(EdgeState) {
+            isConstraint() >> true
+            getDependencyMetadata() >> dependency("a")
+        }
+
+        when:
+        prefetcher.prefetchTargetsOf([edge])
+
+        then:
+        0 * resolver.resolve(_, _, _)
+    }
+
+    private MetadataPrefetcher prefetcher() {
+        new MetadataPrefetcher(resolver, Stub(DependencyToComponentIdResolver), versionSelectorScheme, moduleExclusions, substitutionApplicator, executor, null)
+    }
+
+    private static ModuleComponentIdentifier id(String name) {
+        DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", name), "1.0")
+    }
+
+    private DependencyMetadata dependency(String name, boolean transitive = true) {
+        Stub(DependencyMetadata) {
+            getSelector() >> DefaultModuleComponentSelector.newSelector(DefaultModuleIdentifier.newId("org", name), new DefaultImmutableVersionConstraint("1.0"))
+            isTransitive() >> transitive
+            getArtifacts() >> []
+            getExcludes() >> []
+        }
+    }
+
+    private ComponentGraphResolveState component(String name, DependencyMetadata... dependencies) {
+        def variant = Stub(VariantGraphResolveState) {
+            getDependencies() >> (dependencies as List)
+        }
+        Stub(ComponentGraphResolveState) {
+            getId() >> id(name)
+            getCandidatesForGraphVariantSelection() >> Stub(GraphSelectionCandidates) {
+                getVariantsForAttributeMatching() >> [variant]
+            }
+        }
+    }
+
+    private void resolved(BuildableComponentResolveResult result, ComponentGraphResolveState state = component("leaf")) {
+        result.resolved(state, Stub(ComponentGraphSpecificResolveState))
+    }
+}
@@ -93,6 +93,28 @@ class DependencyVerifierTest extends Specification {
         0 * result.failWith(_)
     }
 
+    def "calculates all checksums of an artifact together before checking them"() {
+        def id = DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", "foo"), "1.0")
+        def checksums = [
+            new Checksum(ChecksumKind.sha256, "my-sha256", [] as Set<String>, "", ""),
+            new Checksum(ChecksumKind.sha512, "my-sha512", [] as Set<String>, "", "")
+        ]
+        def verificationMetadata = new ImmutableComponentVerificationMetadata(id, [new ImmutableArtifactVerificationMetadata("foo-1.0.jar", checksums, [] as Set, [] as Set)])
+        verifier = new DependencyVerifier([(id): verificationMetadata], new DependencyVerificationConfiguration(true, false, [], true, [], [] as Set, [], null), [])
+
+        when:
+        artifactFile.exists() >> true
+        verifier.verify(checksumService, signatureVerificationService, kind, new ModuleComponentFileArtifactIdentifier(id, "foo-1.0.jar"), artifactFile, null, result)
+
+        then:
+        1 * checksumService.precompute(artifactFile, ["sha256", "sha512"])
+
+        then:
+        1 * checksumService.sha256(artifactFile) >> Mock(HashCode) { toString() >> "my-sha256" }
+        1 * checksumService.sha512(artifactFile) >> Mock(HashCode) { toString() >> "my-sha512" }
+        0 * result.failWith(_)
+    }
+
     private void artifact(String group, String name, String version) {
         artifact = new ModuleComponentFileArtifactIdentifier(
             DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId(group, name), version),
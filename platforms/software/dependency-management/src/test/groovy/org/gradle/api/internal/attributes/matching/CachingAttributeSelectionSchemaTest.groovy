@@ -0,0 +1,71 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.attributes.matching
+
+import org.gradle.api.attributes.Attribute
+import spock.lang.Specification
+import spock.lang.Subject
+
+class CachingAttributeSelectionSchemaTest extends Specification {
+
+    def delegate = Mock(AttributeSelectionSchema)
+    def attribute = Attribute.of("usage", String)
+    def other = Attribute.of("other", String)
+
+    @Subject
+    def schema = new CachingAttributeSelectionSchema(delegate)
+
+    def "equal values match without running compatibility rules"() {
+        when:
+        def match = schema.matchValue(attribute, "api", "api")
+
+        then:
+        match
+        0 * delegate._
+    }
+
+    def "runs compatibility rules once per attribute and pair of values"() {
+        when:
+        def first = schema.matchValue(attribute, "api", "runtime")
+        def second = schema.matchValue(attribute, "api", "runtime")
+
+        then:
+        first
+        second
+        1 * delegate.matchValue(attribute, "api", "runtime") >> true
+        0 * delegate._
+    }
+
+    def "caches compatibility separately for each attribute and direction"() {
+        when:
+        def forward = schema.matchValue(attribute, "api", "runtime")
+        def reverse = schema.matchValue(attribute, "runtime", "api")
+        def otherAttribute = schema.matchValue(other, "api", "runtime")
+        def weak = schema.weakMatchValue(attribute, "runtime", "api")
+
+        then:
+        forward
+        !reverse
+        !otherAttribute
+        weak
+        1 * delegate.matchValue(attribute, "api", "runtime") >> true
+        1 * delegate.matchValue(attribute, "runtime", "api") >> false
+        1 * delegate.matchValue(other, "api", "runtime") >> false
+        0 * delegate._
+    }
+}
@@ -75,6 +75,15 @@ public interface Result {
          * @since 5.6
          */
         AttributeContainer getRequestedAttributes();
+
+        /**
+         * Whether the components selected by an earlier resolution of a graph with the same inputs were known before resolving this graph,
+         * or null if the resolved graph cache was not used for this resolution.
+         *
+         * @since 8.12
+         */
+        @Nullable
+        Boolean getResolvedGraphCacheHit();
     }
 
     /**
@@ -36,6 +36,9 @@
 public class DefaultAttributesFactory extends AbstractAttributesFactory {
     private final ImmutableAttributes root;
     private final Map<ImmutableAttributes, List<DefaultImmutableAttributesContainer>> children;
+    // Results of merging two sets, keyed by the identity of the interned sets
+    private final Map<ConcatKey, ImmutableAttributes> concatCache = new ConcurrentHashMap<>();
+    private final Map<ConcatKey, ImmutableAttributes> safeConcatCache = new ConcurrentHashMap<>();
     private final IsolatableFactory isolatableFactory;
     private final UsageCompatibilityHandler usageCompatibilityHandler;
     private final NamedObjectInstantiator instantiator;
@@ -103,14 +106,16 @@ ImmutableAttributes doConcatIsolatable(ImmutableAttributes node, Attribute<?> ke
         children.compute(node, (k, nodeChildren) -> {
             if (nodeChildren != null) {
                 // Find if someone already tried to concat this value to this node
+                // Equal sets created in a different order share the list, but keep their own children so that the order of the keys is preserved
                 for (DefaultImmutableAttributesContainer child : nodeChildren) {
-                    if (child.attribute.equals(key) && child.value.equals(value)) {
+                    if (child.parent == node && child.attribute.equals(key) && child.value.equals(value)) {
                         result.set(child);
                         return nodeChildren;
                     }
                 }
             } else {
-                nodeChildren = new ArrayList<>();
+                // Most sets only ever get a single attribute appended
+                nodeChildren = new ArrayList<>(1);
             }
 
             // Nobody has tried to concat this value yet
@@ -131,6 +136,19 @@ public ImmutableAttributes concat(ImmutableAttributes fallback, ImmutableAttribu
         if (primary == ImmutableAttributes.EMPTY) {
             return fallback;
         }
+        if (!(fallback instanceof DefaultImmutableAttributesContainer) || !(primary instanceof DefaultImmutableAttributesContainer)) {
+            return doConcat(fallback, primary);
+        }
+        ConcatKey key = new ConcatKey(fallback, primary);
+        ImmutableAttributes result = concatCache.get(key);
+        if (result == null) {
+            result = doConcat(fallback, primary);
+            concatCache.put(key, result);
+        }
+        return result;
+    }
+
+    private ImmutableAttributes doConcat(ImmutableAttributes fallback, ImmutableAttributes primary) {
         ImmutableAttributes current = primary;
         for (Attribute<?> attribute : fallback.keySet()) {
             if (!current.findEntry(attribute.getName()).isPresent()) {
@@ -152,6 +170,20 @@ public ImmutableAttributes safeConcat(ImmutableAttributes attributes1, Immutable
         if (attributes2 == ImmutableAttributes.EMPTY) {
             return attributes1;
         }
+        if (!(attributes1 instanceof DefaultImmutableAttributesContainer) || !(attributes2 instanceof DefaultImmutableAttributesContainer)) {
+            return doSafeConcat(attributes1, attributes2);
+        }
+        ConcatKey key = new ConcatKey(attributes1, attributes2);
+        ImmutableAttributes result = safeConcatCache.get(key);
+        if (result == null) {
+            // Failures are not cached, they usually fail the build
+            result = doSafeConcat(attributes1, attributes2);
+            safeConcatCache.put(key, result);
+        }
+        return result;
+    }
+
+    private ImmutableAttributes doSafeConcat(ImmutableAttributes attributes1, ImmutableAttributes attributes2) throws AttributeMergingException {
         ImmutableAttributes current = attributes2;
         for (Attribute<?> attribute : attributes1.keySet()) {
             AttributeValue<?> entry = current.findEntry(attribute.getName());
@@ -170,4 +202,36 @@ public ImmutableAttributes safeConcat(ImmutableAttributes attributes1, Immutable
         }
         return current;
     }
+
+    /**
+     * Identifies a pair of attribute sets. Sets are interned by the factory that created them, so identity is sufficient.
+     */
+    private static final class ConcatKey {
+        private final ImmutableAttributes first;
+        private final ImmutableAttributes second;
+        private final int hashCode;
+
+        ConcatKey(ImmutableAttributes first, ImmutableAttributes second) {
+            this.first = first;
+            this.second = second;
+            this.hashCode = 31 * first.hashCode() + second.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ConcatKey that = (ConcatKey) o;
+            return first == that.first && second == that.second;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
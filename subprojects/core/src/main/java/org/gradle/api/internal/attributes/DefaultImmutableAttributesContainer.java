@@ -27,7 +27,6 @@
 
 import javax.annotation.Nullable;
 import java.util.Comparator;
-import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
@@ -39,6 +38,8 @@ final class DefaultImmutableAttributesContainer implements ImmutableAttributes,
     // exceed a build
     private final Map<Attribute<?>, Object> coercionCache = new ConcurrentHashMap<>();
 
+    @Nullable
+    final DefaultImmutableAttributesContainer parent;
     final Attribute<?> attribute;
     final Isolatable<?> value;
     private final ImmutableMap<Attribute<?>, DefaultImmutableAttributesContainer> hierarchy;
@@ -50,6 +51,7 @@ final class DefaultImmutableAttributesContainer implements ImmutableAttributes,
     private final DefaultImmutableAttributesContainer singleEntryValue;
 
     DefaultImmutableAttributesContainer() {
+        this.parent = null;
         this.attribute = null;
         this.value = null;
         this.hashCode = 0;
@@ -60,24 +62,38 @@ final class DefaultImmutableAttributesContainer implements ImmutableAttributes,
     }
 
     DefaultImmutableAttributesContainer(DefaultImmutableAttributesContainer parent, Attribute<?> key, Isolatable<?> value) {
+        this.parent = parent;
         this.attribute = key;
         this.value = value;
-        Map<Attribute<?>, DefaultImmutableAttributesContainer> hierarchy = new LinkedHashMap<>();
-        hierarchy.putAll(parent.hierarchy);
-        hierarchy.put(attribute, this);
-        this.hierarchy = ImmutableMap.copyOf(hierarchy);
-        Map<String, DefaultImmutableAttributesContainer> hierarchyByName = new LinkedHashMap<>();
-        hierarchyByName.putAll(parent.hierarchyByName);
-        hierarchyByName.put(attribute.getName(), this);
-        this.hierarchyByName = ImmutableMap.copyOf(hierarchyByName);
+        // Build the lookup maps in a single pass over the parent, keeping the position of a replaced entry
+        DefaultImmutableAttributesContainer replaced = parent.hierarchy.get(key);
+        ImmutableMap.Builder<Attribute<?>, DefaultImmutableAttributesContainer> hierarchy = ImmutableMap.builderWithExpectedSize(parent.hierarchy.size() + 1);
+        for (Map.Entry<Attribute<?>, DefaultImmutableAttributesContainer> entry : parent.hierarchy.entrySet()) {
+            hierarchy.put(entry.getKey(), entry.getValue() == replaced ? this : entry.getValue());
+        }
+        if (replaced == null) {
+            hierarchy.put(key, this);
+        }
+        this.hierarchy = hierarchy.build();
+        String name = key.getName();
+        boolean replacesName = parent.hierarchyByName.containsKey(name);
+        ImmutableMap.Builder<String, DefaultImmutableAttributesContainer> hierarchyByName = ImmutableMap.builderWithExpectedSize(parent.hierarchyByName.size() + 1);
+        for (Map.Entry<String, DefaultImmutableAttributesContainer> entry : parent.hierarchyByName.entrySet()) {
+            hierarchyByName.put(entry.getKey(), replacesName && entry.getKey().equals(name) ? this : entry.getValue());
+        }
+        if (!replacesName) {
+            hierarchyByName.put(name, this);
+        }
+        this.hierarchyByName = hierarchyByName.build();
+        // The hash code does not depend on the order of the entries, so equal sets created in a different order hash the same
         int hashCode = parent.hashCode();
-        hashCode = 31 * hashCode + attribute.hashCode();
-        hashCode = 31 * hashCode + value.hashCode();
-        this.hashCode = hashCode;
-        if (hierarchyByName.size() == 1) {
-            Map.Entry<String, DefaultImmutableAttributesContainer> entry = hierarchyByName.entrySet().iterator().next();
-            singleEntryName = entry.getKey();
-            singleEntryValue = entry.getValue();
+        if (replaced != null) {
+            hashCode -= replaced.entryHashCode();
+        }
+        this.hashCode = hashCode + entryHashCode();
+        if (this.hierarchyByName.size() == 1) {
+            singleEntryName = name;
+            singleEntryValue = this;
         } else {
             singleEntryName = null;
             singleEntryValue = null;
@@ -95,12 +111,18 @@ public boolean equals(Object o) {
 
         DefaultImmutableAttributesContainer that = (DefaultImmutableAttributesContainer) o;
 
-        if (hierarchy.size() != that.hierarchy.size()) {
+        if (hashCode != that.hashCode || hierarchy.size() != that.hierarchy.size()) {
             return false;
         }
 
         for (Map.Entry<Attribute<?>, DefaultImmutableAttributesContainer> entry : hierarchy.entrySet()) {
-            if (!entry.getValue().value.isolate().equals(that.getAttribute(entry.getKey()))) {
+            DefaultImmutableAttributesContainer other = that.hierarchy.get(entry.getKey());
+            if (other == null) {
+                return false;
+            }
+            // Sets derived from one another share the isolated values
+            Isolatable<?> value = entry.getValue().value;
+            if (value != other.value && !value.isolate().equals(other.value.isolate())) {
                 return false;
             }
         }
@@ -112,6 +134,13 @@ public int hashCode() {
         return hashCode;
     }
 
+    /**
+     * Combined like the entries of a {@link Map}, so that swapping the values of two attributes changes the hash code of the set.
+     */
+    private int entryHashCode() {
+        return attribute.hashCode() ^ value.hashCode();
+    }
+
     @Override
     public <T> AttributeContainer attribute(Attribute<T> key, T value) {
         throw new UnsupportedOperationException("Mutation of attributes is not allowed");
@@ -30,6 +30,7 @@
 import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.InterningStringSerializer;
 
+import javax.annotation.Nullable;
 import java.io.File;
 
 public class CachingFileHasher implements FileHasher {
@@ -82,7 +83,31 @@ private FileInfo snapshot(File file) {
     }
 
     private FileInfo snapshot(File file, long length, long timestamp) {
-        String absolutePath = file.getAbsolutePath();
+        FileInfo info = getIfUpToDate(file.getAbsolutePath(), length, timestamp);
+        if (info != null) {
+            return info;
+        }
+        return store(file, delegate.hash(file), length, timestamp);
+    }
+
+    /**
+     * Returns the cached hash of the file, or {@code null} when the file has not been hashed since it last changed.
+     */
+    @Nullable
+    public HashCode getIfCached(File file, long length, long lastModified) {
+        FileInfo info = getIfUpToDate(file.getAbsolutePath(), length, lastModified);
+        return info == null ? null : info.getHash();
+    }
+
+    /**
+     * Records a hash of the file that was calculated by the caller, for example while reading the file for other purposes.
+     */
+    public void put(File file, HashCode hash, long length, long lastModified) {
+        store(file, hash, length, lastModified);
+    }
+
+    @Nullable
+    private FileInfo getIfUpToDate(String absolutePath, long length, long timestamp) {
         if (timestampInspector.timestampCanBeUsedToDetectFileChange(absolutePath, timestamp)) {
             FileInfo info = cache.getIfPresent(absolutePath);
 
@@ -90,10 +115,12 @@ private FileInfo snapshot(File file, long length, long timestamp) {
                 return info;
             }
         }
+        return null;
+    }
 
-        HashCode hash = delegate.hash(file);
+    private FileInfo store(File file, HashCode hash, long length, long timestamp) {
         FileInfo info = new FileInfo(hash, length, timestamp);
-        cache.put(stringInterner.intern(absolutePath), info);
+        cache.put(stringInterner.intern(file.getAbsolutePath()), info);
         statisticsCollector.reportFileHashed(length);
         return info;
     }
@@ -16,20 +16,32 @@
 package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.IndexedCacheBackend;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.scopes.ScopedCacheBuilderFactory;
+import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.execution.history.ExecutionHistoryCacheAccess;
 
 import java.io.Closeable;
 
 public class DefaultExecutionHistoryCacheAccess implements ExecutionHistoryCacheAccess, Closeable {
+    /**
+     * Stores the execution history in memory-mapped indexed caches, so that up-to-date checks running in parallel read it concurrently.
+     */
+    public static final InternalFlag MEMORY_MAPPED_CACHE = new InternalFlag("org.gradle.internal.execution-history.memory-mapped");
+
     private final PersistentCache cache;
 
     public DefaultExecutionHistoryCacheAccess(ScopedCacheBuilderFactory cacheBuilderFactory) {
+        this(cacheBuilderFactory, IndexedCacheBackend.BTREE);
+    }
+
+    public DefaultExecutionHistoryCacheAccess(ScopedCacheBuilderFactory cacheBuilderFactory, IndexedCacheBackend indexedCacheBackend) {
         this.cache = cacheBuilderFactory
             .createCacheBuilder("executionHistory")
             .withDisplayName("execution history cache")
             .withInitialLockMode(FileLockManager.LockMode.OnDemand)
+            .withIndexedCacheBackend(indexedCacheBackend)
             .open();
     }
 
@@ -27,9 +27,10 @@
 import org.gradle.caching.internal.controller.impl.LifecycleAwareBuildCacheControllerFactory;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression;
+import org.gradle.caching.internal.packaging.impl.CompressedBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.DefaultTarPackerFileSystemSupport;
 import org.gradle.caching.internal.packaging.impl.FilePermissionAccess;
-import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarPackerFileSystemSupport;
 import org.gradle.caching.internal.services.BuildCacheControllerFactory;
@@ -38,6 +39,10 @@
 import org.gradle.caching.local.internal.DirectoryBuildCacheServiceFactory;
 import org.gradle.internal.build.BuildState;
 import org.gradle.internal.build.RootBuildState;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.buildoption.StringInternalOption;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.file.BufferProvider;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.FileException;
@@ -64,6 +69,21 @@
  * Build scoped services for build cache usage.
  */
 public final class BuildCacheServices extends AbstractGradleModuleServices {
+    /**
+     * The compression used for new build cache entries, one of {@code gzip}, {@code lz4} or {@code none}.
+     * Entries are always unpacked with the compression they were stored with.
+     *
+     * <p>The compression is not part of the cache key, so an entry is stored under the same key whatever the compression.
+     * Gradle versions without support for the header of {@code lz4} and {@code none} entries fail to unpack such entries,
+     * so only use a compression other than {@code gzip} with caches that are not shared with older Gradle versions.</p>
+     */
+    public static final StringInternalOption ENTRY_COMPRESSION = new StringInternalOption("org.gradle.caching.entry-compression", "gzip");
+
+    /**
+     * The number of remote build cache entries downloaded concurrently ahead of their load, {@code 0} disables prefetching.
+     */
+    public static final IntegerInternalOption REMOTE_PREFETCH_CONCURRENCY = new IntegerInternalOption("org.gradle.caching.remote.prefetch-concurrency", 0);
+
     @Override
     public void registerGlobalServices(ServiceRegistration registration) {
         registration.addProvider(new ServiceRegistrationProvider() {
@@ -129,10 +149,13 @@ BuildCacheEntryPacker createResultPacker(
                 FileSystem fileSystem,
                 StreamHasher fileHasher,
                 StringInterner stringInterner,
-                BufferProvider bufferProvider
+                BufferProvider bufferProvider,
+                InternalOptions internalOptions
             ) {
-                return new GZipBuildCacheEntryPacker(
-                    new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner, bufferProvider));
+                BuildCacheEntryCompression compression = BuildCacheEntryCompression.forName(internalOptions.getOption(ENTRY_COMPRESSION).get());
+                return new CompressedBuildCacheEntryPacker(
+                    new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner, bufferProvider),
+                    compression);
             }
 
             @Provides
@@ -159,7 +182,9 @@ BuildCacheControllerFactory createBuildCacheControllerFactory(
                 TemporaryFileProvider temporaryFileProvider,
                 BuildCacheEntryPacker packer,
                 OriginMetadataFactory originMetadataFactory,
-                StringInterner stringInterner
+                StringInterner stringInterner,
+                ExecutorFactory executorFactory,
+                InternalOptions internalOptions
             ) {
                 return new DefaultBuildCacheControllerFactory(
                     startParameter,
@@ -168,7 +193,9 @@ BuildCacheControllerFactory createBuildCacheControllerFactory(
                     originMetadataFactory,
                     stringInterner,
                     temporaryFileProvider,
-                    packer
+                    packer,
+                    executorFactory,
+                    internalOptions.getOption(REMOTE_PREFETCH_CONCURRENCY).get()
                 );
             }
         });
@@ -77,6 +77,11 @@ public Optional<BuildCacheLoadResult> load(BuildCacheKey cacheKey, CacheableEnti
             return getDelegate().load(cacheKey, cacheableEntity);
         }
 
+        @Override
+        public void prefetch(BuildCacheKey cacheKey) {
+            getDelegate().prefetch(cacheKey);
+        }
+
         @Override
         public void store(BuildCacheKey cacheKey, CacheableEntity entity, Map<String, FileSystemSnapshot> snapshots, Duration executionTime) {
             getDelegate().store(cacheKey, entity, snapshots, executionTime);
@@ -20,14 +20,18 @@
 import org.gradle.api.internal.cache.CacheConfigurationsInternal;
 import org.gradle.cache.CacheCleanupStrategy;
 import org.gradle.cache.CacheCleanupStrategyFactory;
+import org.gradle.cache.CleanupAction;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.UnscopedCacheBuilderFactory;
+import org.gradle.cache.internal.FilesFinder;
 import org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup;
 import org.gradle.cache.internal.SingleDepthFilesFinder;
 import org.gradle.cache.scopes.GlobalScopedCacheBuilderFactory;
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.BuildCacheServiceFactory;
 import org.gradle.caching.local.DirectoryBuildCache;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.file.FileAccessTimeJournal;
 import org.gradle.internal.file.FileAccessTracker;
 import org.gradle.internal.file.PathToFileResolver;
@@ -42,8 +46,16 @@
 public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFactory<DirectoryBuildCache> {
     public static final String FAILED_READ_SUFFIX = ".failed";
 
+    /**
+     * Stores entries in the {@link ContentAddressedEntryStore content-addressed layout}, which stores the content of identical files only once.
+     * Since older versions cannot read entries in this layout, the default cache directory is different when the layout is enabled.
+     * File contents are stored uncompressed, so the cache only gets smaller when entries share a lot of identical files.
+     */
+    public static final InternalFlag CONTENT_ADDRESSED_LAYOUT = new InternalFlag("org.gradle.caching.local.content-addressed");
+
     private static final String BUILD_CACHE_VERSION = "1";
     private static final String BUILD_CACHE_KEY = "build-cache-" + BUILD_CACHE_VERSION;
+    private static final String CONTENT_ADDRESSED_BUILD_CACHE_KEY = BUILD_CACHE_KEY + "-content-addressed";
     private static final String DIRECTORY_BUILD_CACHE_TYPE = "directory";
     private static final int FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP = 1;
 
@@ -53,6 +65,7 @@ public class DirectoryBuildCacheServiceFactory implements BuildCacheServiceFacto
     private final FileAccessTimeJournal fileAccessTimeJournal;
     private final CacheConfigurationsInternal cacheConfigurations;
     private final CacheCleanupStrategyFactory cacheCleanupStrategyFactory;
+    private final InternalOptions internalOptions;
 
     @Inject
     public DirectoryBuildCacheServiceFactory(
@@ -61,7 +74,8 @@ public DirectoryBuildCacheServiceFactory(
         PathToFileResolver resolver,
         FileAccessTimeJournal fileAccessTimeJournal,
         CacheConfigurationsInternal cacheConfigurations,
-        CacheCleanupStrategyFactory cacheCleanupStrategyFactory
+        CacheCleanupStrategyFactory cacheCleanupStrategyFactory,
+        InternalOptions internalOptions
     ) {
         this.unscopedCacheBuilderFactory = unscopedCacheBuilderFactory;
         this.cacheBuilderFactory = cacheBuilderFactory;
@@ -69,16 +83,18 @@ public DirectoryBuildCacheServiceFactory(
         this.fileAccessTimeJournal = fileAccessTimeJournal;
         this.cacheConfigurations = cacheConfigurations;
         this.cacheCleanupStrategyFactory = cacheCleanupStrategyFactory;
+        this.internalOptions = internalOptions;
     }
 
     @Override
     public BuildCacheService createBuildCacheService(DirectoryBuildCache buildCacheConfig, Describer describer) {
+        boolean contentAddressed = internalOptions.getOption(CONTENT_ADDRESSED_LAYOUT).get();
         Object cacheDirectory = buildCacheConfig.getDirectory();
         File target;
         if (cacheDirectory != null) {
             target = resolver.resolve(cacheDirectory);
         } else {
-            target = cacheBuilderFactory.baseDirForCrossVersionCache(BUILD_CACHE_KEY);
+            target = cacheBuilderFactory.baseDirForCrossVersionCache(contentAddressed ? CONTENT_ADDRESSED_BUILD_CACHE_KEY : BUILD_CACHE_KEY);
         }
         checkDirectory(target);
 
@@ -90,24 +106,30 @@ public BuildCacheService createBuildCacheService(DirectoryBuildCache buildCacheC
 
         PersistentCache persistentCache = unscopedCacheBuilderFactory
             .cache(target)
-            .withCleanupStrategy(createCacheCleanupStrategy(entryExpiration.getEntryRetentionTimestampSupplier()))
+            .withCleanupStrategy(createCacheCleanupStrategy(entryExpiration.getEntryRetentionTimestampSupplier(), contentAddressed))
             .withDisplayName("Build cache")
             .withInitialLockMode(OnDemand)
             .open();
         FileAccessTracker fileAccessTracker = new SingleDepthFileAccessTracker(fileAccessTimeJournal, target, FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
 
-        return new DirectoryBuildCacheService(persistentCache, fileAccessTracker, FAILED_READ_SUFFIX);
+        return new DirectoryBuildCacheService(persistentCache, fileAccessTracker, FAILED_READ_SUFFIX, contentAddressed);
     }
 
-    private CacheCleanupStrategy createCacheCleanupStrategy(Supplier<Long> removeUnusedEntriesTimestamp) {
+    private CacheCleanupStrategy createCacheCleanupStrategy(Supplier<Long> removeUnusedEntriesTimestamp, boolean contentAddressed) {
         return cacheCleanupStrategyFactory.create(
-            createCleanupAction(removeUnusedEntriesTimestamp),
+            createCleanupAction(removeUnusedEntriesTimestamp, contentAddressed),
             cacheConfigurations.getCleanupFrequency()::get
         );
     }
 
-    private LeastRecentlyUsedCacheCleanup createCleanupAction(Supplier<Long> removeUnusedEntriesTimestamp) {
-        return new LeastRecentlyUsedCacheCleanup(new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP), fileAccessTimeJournal, removeUnusedEntriesTimestamp);
+    private CleanupAction createCleanupAction(Supplier<Long> removeUnusedEntriesTimestamp, boolean contentAddressed) {
+        FilesFinder entriesFinder = new SingleDepthFilesFinder(FILE_TREE_DEPTH_TO_TRACK_AND_CLEANUP);
+        if (!contentAddressed) {
+            return new LeastRecentlyUsedCacheCleanup(entriesFinder, fileAccessTimeJournal, removeUnusedEntriesTimestamp);
+        }
+        return new ContentAddressedBuildCacheCleanup(
+            new LeastRecentlyUsedCacheCleanup(ContentAddressedBuildCacheCleanup.excludingBlobs(entriesFinder), fileAccessTimeJournal, removeUnusedEntriesTimestamp)
+        );
     }
 
     private static void checkDirectory(File directory) {
@@ -21,6 +21,7 @@
 import org.gradle.api.Action;
 import org.gradle.api.BuildCancelledException;
 import org.gradle.api.NonNullApi;
+import org.gradle.api.internal.tasks.TaskExecutionOutcome;
 import org.gradle.internal.MutableBoolean;
 import org.gradle.internal.Pair;
 import org.gradle.internal.resources.ResourceLock;
@@ -35,11 +36,13 @@
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
@@ -57,6 +60,11 @@ public int compare(Node node1, Node node2) {
             } else if (!node1.isPriority() && node2.isPriority()) {
                 return 1;
             }
+            // Start the node with the longest chain of work depending on it first
+            int criticalPathOrder = Long.compare(node2.getCriticalPathEstimate(), node1.getCriticalPathEstimate());
+            if (criticalPathOrder != 0) {
+                return criticalPathOrder;
+            }
             if (node1.getIndex() > node2.getIndex()) {
                 return 1;
             } else if (node1.getIndex() < node2.getIndex()) {
@@ -84,6 +92,12 @@ public int compare(Node node1, Node node2) {
     private final Map<Pair<Node, Node>, Boolean> reachableCache = new HashMap<>();
     private final OrdinalNodeAccess ordinalNodeAccess;
     private final Consumer<LocalTaskNode> completionHandler;
+    private final TaskExecutionTimeHistory executionTimeHistory;
+    private final List<Node> scheduledNodes;
+    // Only populated when the execution time history is enabled
+    private final Map<Node, Long> executionStartTimes = new IdentityHashMap<>();
+    private final Map<Node, Long> executionTimes = new IdentityHashMap<>();
+    private final long predictedCriticalPath;
 
     // When true, there may be nodes that are both ready and "selectable", which means their project and resources are able to be locked
     // When false, there are definitely no nodes that are "selectable"
@@ -100,7 +114,8 @@ public DefaultFinalizedExecutionPlan(
         List<Node> scheduledNodes,
         boolean continueOnFailure,
         QueryableExecutionPlan contents,
-        Consumer<LocalTaskNode> completionHandler
+        Consumer<LocalTaskNode> completionHandler,
+        TaskExecutionTimeHistory executionTimeHistory
     ) {
         this.displayName = displayName;
         this.outputHierarchy = outputHierarchy;
@@ -110,6 +125,8 @@ public DefaultFinalizedExecutionPlan(
         this.continueOnFailure = continueOnFailure;
         this.contents = contents;
         this.completionHandler = completionHandler;
+        this.executionTimeHistory = executionTimeHistory;
+        this.scheduledNodes = scheduledNodes;
 
         SetMultimap<FinalizerGroup, FinalizerGroup> reachableGroups = LinkedHashMultimap.create();
         for (Node node : scheduledNodes) {
@@ -118,6 +135,9 @@ public DefaultFinalizedExecutionPlan(
             }
         }
 
+        // Must happen before any node is added to the ready queue, as the estimates determine the queue order
+        this.predictedCriticalPath = executionTimeHistory.isEnabled() ? estimateCriticalPaths(scheduledNodes, executionTimeHistory) : 0;
+
         for (int i = 0; i < scheduledNodes.size(); i++) {
             Node node = scheduledNodes.get(i);
             node.setIndex(i);
@@ -129,6 +149,44 @@ public DefaultFinalizedExecutionPlan(
         lockCoordinator.addLockReleaseListener(resourceUnlockListener);
     }
 
+    /**
+     * Estimates, for each node, the time to execute the node and the longest chain of nodes that depend on it, based on the execution times of previous builds.
+     * Scheduled nodes are ordered so that a node's dependencies come before it, so visiting them in reverse visits the dependents of a node before the node itself.
+     *
+     * @return the longest estimate, which is the predicted critical path of the plan
+     */
+    private static long estimateCriticalPaths(List<Node> scheduledNodes, TaskExecutionTimeHistory executionTimeHistory) {
+        long criticalPath = 0;
+        for (int i = scheduledNodes.size() - 1; i >= 0; i--) {
+            Node node = scheduledNodes.get(i);
+            long longestDependentPath = 0;
+            for (Node dependent : node.getDependencyPredecessors()) {
+                longestDependentPath = Math.max(longestDependentPath, dependent.getCriticalPathEstimate());
+            }
+            long executionTime = node instanceof LocalTaskNode ? executionTimeHistory.getPreviousExecutionTime((LocalTaskNode) node) : 0;
+            long estimate = executionTime + longestDependentPath;
+            node.setCriticalPathEstimate(estimate);
+            criticalPath = Math.max(criticalPath, estimate);
+        }
+        return criticalPath;
+    }
+
+    private long actualCriticalPath() {
+        Map<Node, Long> longestPaths = new IdentityHashMap<>();
+        long criticalPath = 0;
+        for (int i = scheduledNodes.size() - 1; i >= 0; i--) {
+            Node node = scheduledNodes.get(i);
+            long longestDependentPath = 0;
+            for (Node dependent : node.getDependencyPredecessors()) {
+                longestDependentPath = Math.max(longestDependentPath, longestPaths.getOrDefault(dependent, 0L));
+            }
+            long path = executionTimes.getOrDefault(node, 0L) + longestDependentPath;
+            longestPaths.put(node, path);
+            criticalPath = Math.max(criticalPath, path);
+        }
+        return criticalPath;
+    }
+
     @Override
     public String getDisplayName() {
         return displayName;
@@ -147,6 +205,11 @@ public WorkSource<Node> asWorkSource() {
     @Override
     public void close() {
         lockCoordinator.removeLockReleaseListener(resourceUnlockListener);
+        if (!executionTimes.isEmpty()) {
+            executionTimeHistory.criticalPathCompleted(displayName, predictedCriticalPath, actualCriticalPath());
+            executionTimes.clear();
+        }
+        executionStartTimes.clear();
         waitingToStartNodes.clear();
         readyNodes.clear();
         runningNodes.clear();
@@ -262,6 +325,7 @@ public Selection<Node> selectNext() {
                     // The node is ready to execute and its pre-execution nodes have not been scheduled, so do this now
                     node.visitPreExecutionNodes(prepareNode -> {
                         prepareNode.setIndex(node.getIndex());
+                        prepareNode.setCriticalPathEstimate(node.getCriticalPathEstimate());
                         prepareNode.require();
                         prepareNode.updateAllDependenciesComplete();
                         node.addDependencySuccessor(prepareNode);
@@ -506,6 +570,29 @@ private boolean doesConsumerDependOnDestroyer(Node consumer, Node destroyer) {
 
     private void recordNodeExecutionStarted(Node node) {
         runningNodes.add(node);
+        if (executionTimeHistory.isEnabled()) {
+            executionStartTimes.put(node, System.nanoTime());
+        }
+    }
+
+    private void recordExecutionTime(Node node) {
+        Long startTime = executionStartTimes.remove(node);
+        if (startTime == null) {
+            return;
+        }
+        long executionTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        executionTimes.put(node, executionTime);
+        if (node instanceof LocalTaskNode && !node.isFailed() && actuallyExecuted((LocalTaskNode) node)) {
+            executionTimeHistory.recordExecutionTime((LocalTaskNode) node, executionTime);
+        }
+    }
+
+    /**
+     * Up-to-date, from-cache and skipped tasks finish almost immediately, which says nothing about how long they take when they do execute.
+     * For those the time recorded by the last actual execution is kept.
+     */
+    private static boolean actuallyExecuted(LocalTaskNode node) {
+        return node.getTask().getState().getOutcome() == TaskExecutionOutcome.EXECUTED;
     }
 
     private void recordNodeCompleted(Node node) {
@@ -560,6 +647,7 @@ public void finishedExecuting(Node node, @Nullable Throwable failure) {
             }
 
             node.finishExecution(this::recordNodeCompleted);
+            recordExecutionTime(node);
             if (node.isFailed()) {
                 LOGGER.debug("Node {} failed", node);
                 handleFailure(node);
@@ -567,6 +655,7 @@ public void finishedExecuting(Node node, @Nullable Throwable failure) {
                 LOGGER.debug("Node {} finished executing", node);
                 node.visitPostExecutionNodes(postNode -> {
                     postNode.setIndex(node.getIndex());
+                    postNode.setCriticalPathEstimate(node.getCriticalPathEstimate());
                     postNode.require();
                     postNode.updateAllDependenciesComplete();
                     addNodeToPlan(postNode);
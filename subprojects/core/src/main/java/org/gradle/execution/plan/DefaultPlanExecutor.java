@@ -33,6 +33,7 @@
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.logging.text.TreeFormatter;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
+import org.gradle.internal.resources.ResourceLockState;
 import org.gradle.internal.work.WorkerLeaseRegistry.WorkerLease;
 import org.gradle.internal.work.WorkerLeaseService;
 import org.gradle.internal.work.WorkerLimits;
@@ -61,6 +62,12 @@
 @NonNullApi
 public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
     public static final InternalFlag STATS = new InternalFlag("org.gradle.internal.executor.stats");
+    /**
+     * When enabled, a worker that finishes a work item tries to select its next item while still holding the state lock it took to mark the item finished,
+     * instead of releasing the state lock and contending for it again. This halves the number of state lock acquisitions per work item.
+     * Disabled by default until it has been measured on real builds.
+     */
+    public static final InternalFlag SELECT_ON_FINISH = new InternalFlag("org.gradle.internal.executor.select-on-finish");
     private static final Logger LOGGER = Logging.getLogger(DefaultPlanExecutor.class);
     private final WorkerLimits workerLimits;
     private final WorkerLeaseService workerLeaseService;
@@ -70,6 +77,7 @@ public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
     private final MergedQueues queue;
     private final ExecutorState state = new ExecutorState();
     private final ExecutorStats stats;
+    private final boolean selectOnFinish;
 
     public DefaultPlanExecutor(
         WorkerLimits workerLimits,
@@ -84,6 +92,7 @@ public DefaultPlanExecutor(
         this.coordinationService = coordinationService;
         this.workerLeaseService = workerLeaseService;
         this.stats = internalOptions.getOption(STATS).get() ? new CollectingExecutorStats(state) : state;
+        this.selectOnFinish = internalOptions.getOption(SELECT_ON_FINISH).get();
         this.queue = new MergedQueues(coordinationService, false);
         this.executor = executorFactory.create("Execution worker");
     }
@@ -108,7 +117,7 @@ public <T> ExecutionResult<Void> process(WorkSource<T> workSource, Action<T> wor
         WorkerLease currentWorkerLease = workerLeaseService.getCurrentWorkerLease();
         MergedQueues thisPlanOnly = new MergedQueues(coordinationService, true);
         thisPlanOnly.add(planDetails);
-        new ExecutorWorker(thisPlanOnly, currentWorkerLease, cancellationToken, coordinationService, workerLeaseService, stats).run();
+        new ExecutorWorker(thisPlanOnly, currentWorkerLease, cancellationToken, coordinationService, workerLeaseService, stats, selectOnFinish).run();
 
         List<Throwable> failures = new ArrayList<>();
         awaitCompletion(workSource, currentWorkerLease, failures);
@@ -178,7 +187,7 @@ private void maybeStartWorkers(MergedQueues queue, Executor executor) {
         state.maybeStartWorkers(() -> {
             LOGGER.debug("Using {} parallel executor threads", executorCount);
             for (int i = 1; i < executorCount; i++) {
-                executor.execute(new ExecutorWorker(queue, null, cancellationToken, coordinationService, workerLeaseService, stats));
+                executor.execute(new ExecutorWorker(queue, null, cancellationToken, coordinationService, workerLeaseService, stats, selectOnFinish));
             }
         });
     }
@@ -338,6 +347,8 @@ private static class ExecutorWorker implements Runnable {
         private final ResourceLockCoordinationService coordinationService;
         private final WorkerLeaseService workerLeaseService;
         private final WorkerStats stats;
+        private final boolean selectOnFinish;
+        private boolean noMoreWorkToStart;
 
         private ExecutorWorker(
             MergedQueues queue,
@@ -345,7 +356,8 @@ private ExecutorWorker(
             BuildCancellationToken cancellationToken,
             ResourceLockCoordinationService coordinationService,
             WorkerLeaseService workerLeaseService,
-            ExecutorStats executorStats
+            ExecutorStats executorStats,
+            boolean selectOnFinish
         ) {
             this.queue = queue;
             this.workerLease = workerLease;
@@ -353,6 +365,7 @@ private ExecutorWorker(
             this.coordinationService = coordinationService;
             this.workerLeaseService = workerLeaseService;
             this.stats = executorStats.startWorker();
+            this.selectOnFinish = selectOnFinish;
         }
 
         @Override
@@ -366,14 +379,20 @@ public void run() {
                     releaseLeaseOnCompletion = false;
                 }
 
+                WorkItem workItem = null;
                 while (true) {
-                    WorkItem workItem = getNextItem(workerLease);
                     if (workItem == null) {
-                        break;
+                        if (noMoreWorkToStart) {
+                            break;
+                        }
+                        workItem = getNextItem(workerLease);
+                        if (workItem == null) {
+                            break;
+                        }
                     }
                     Object selected = workItem.selection.getItem();
                     LOGGER.info("{} ({}) started.", selected, Thread.currentThread());
-                    execute(selected, workItem.plan, workItem.executor);
+                    workItem = execute(selected, workItem.plan, workItem.executor);
                 }
 
                 if (releaseLeaseOnCompletion) {
@@ -398,79 +417,94 @@ private WorkItem getNextItem(final WorkerLease workerLease) {
                 selected = MutableReference.empty();
                 coordinationService.withStateLock(resourceLockState -> {
                     stats.finishWaitingForNextItem();
-                    if (cancellationToken.isCancellationRequested()) {
-                        queue.cancelExecution();
-                    }
+                    return selectNextItem(resourceLockState, selected);
+                });
+            } finally {
+                stats.finishSelect();
+            }
 
-                    WorkSource.State state = queue.executionState();
-                    if (state == WorkSource.State.NoMoreWorkToStart) {
-                        return FINISHED;
-                    }
+            return selected.get();
+        }
 
-                    if (!workerLease.tryLock()) {
-                        // Cannot get a lease to run work
-                        // Do not call `startWaitingForNextItem()` as there may be work available but this worker cannot start it, and so should not be considered "waiting for work".
-                        // The health monitoring is currently only concerned with whether work can be started.
-                        // At some point it could be improved to track the health of all worker threads, not just the plan executor threads
-                        return RETRY;
-                    }
+        /**
+         * Attempts to select an item that's ready to execute. Must be called while holding the state lock.
+         *
+         * @return {@link ResourceLockState.Disposition#FINISHED} when an item was selected or there are no items remaining, and {@link ResourceLockState.Disposition#RETRY} when the caller should wait for
+         * a state change before trying again.
+         */
+        private ResourceLockState.Disposition selectNextItem(ResourceLockState resourceLockState, MutableReference<WorkItem> selected) {
+            if (cancellationToken.isCancellationRequested()) {
+                queue.cancelExecution();
+            }
 
-                    if (state == WorkSource.State.NoWorkReadyToStart) {
-                        stats.startWaitingForNextItem();
-                        // Release worker lease while waiting
-                        workerLease.unlock();
-                        return RETRY;
-                    }
+            WorkSource.State state = queue.executionState();
+            if (state == WorkSource.State.NoMoreWorkToStart) {
+                return FINISHED;
+            }
 
-                    // Have a worker lease and work may be available
+            if (!workerLease.tryLock()) {
+                // Cannot get a lease to run work
+                // Do not call `startWaitingForNextItem()` as there may be work available but this worker cannot start it, and so should not be considered "waiting for work".
+                // The health monitoring is currently only concerned with whether work can be started.
+                // At some point it could be improved to track the health of all worker threads, not just the plan executor threads
+                return RETRY;
+            }
 
-                    WorkSource.Selection<WorkItem> workItem;
-                    try {
-                        workItem = queue.selectNext();
-                    } catch (Throwable t) {
-                        resourceLockState.releaseLocks();
-                        queue.abortAllAndFail(t);
-                        return FINISHED;
-                    }
-                    if (workItem.isNoMoreWorkToStart()) {
-                        return FINISHED;
-                    } else if (workItem.isNoWorkReadyToStart()) {
-                        stats.startWaitingForNextItem();
-                        // Release worker lease while waiting
-                        workerLease.unlock();
-                        return RETRY;
-                    }
+            if (state == WorkSource.State.NoWorkReadyToStart) {
+                stats.startWaitingForNextItem();
+                // Release worker lease while waiting
+                workerLease.unlock();
+                return RETRY;
+            }
 
-                    selected.set(workItem.getItem());
-                    return FINISHED;
-                });
-            } finally {
-                stats.finishSelect();
+            // Have a worker lease and work may be available
+
+            WorkSource.Selection<WorkItem> workItem;
+            try {
+                workItem = queue.selectNext();
+            } catch (Throwable t) {
+                resourceLockState.releaseLocks();
+                queue.abortAllAndFail(t);
+                return FINISHED;
+            }
+            if (workItem.isNoMoreWorkToStart()) {
+                return FINISHED;
+            } else if (workItem.isNoWorkReadyToStart()) {
+                stats.startWaitingForNextItem();
+                // Release worker lease while waiting
+                workerLease.unlock();
+                return RETRY;
             }
 
-            return selected.get();
+            selected.set(workItem.getItem());
+            return FINISHED;
         }
 
-        private void execute(Object selected, WorkSource<Object> executionPlan, Action<Object> worker) {
+        /**
+         * Executes the given item and marks it finished.
+         *
+         * @return The next item to execute, if one was selected while marking the item finished.
+         */
+        @Nullable
+        private WorkItem execute(Object selected, WorkSource<Object> executionPlan, Action<Object> worker) {
             Throwable failure = null;
+            stats.startExecute();
             try {
-                stats.startExecute();
-                try {
-                    worker.execute(selected);
-                } catch (Throwable t) {
-                    failure = t;
-                } finally {
-                    stats.finishExecute();
-                }
+                worker.execute(selected);
+            } catch (Throwable t) {
+                failure = t;
             } finally {
-                markFinished(selected, executionPlan, failure);
+                stats.finishExecute();
             }
+            return markFinished(selected, executionPlan, failure);
         }
 
-        private void markFinished(Object selected, WorkSource<Object> executionPlan, @Nullable Throwable failure) {
+        @Nullable
+        private WorkItem markFinished(Object selected, WorkSource<Object> executionPlan, @Nullable Throwable failure) {
             stats.startMarkFinished();
             try {
-                coordinationService.withStateLock(() -> {
+                MutableReference<WorkItem> next = MutableReference.empty();
+                coordinationService.withStateLock(resourceLockState -> {
                     try {
                         executionPlan.finishedExecuting(selected, failure);
                     } catch (Throwable t) {
@@ -479,7 +513,15 @@ private void markFinished(Object selected, WorkSource<Object> executionPlan, @Nu
                     // Notify other threads that the item is finished as this may unblock further work
                     // or this might be the last item in the queue
                     coordinationService.notifyStateChange();
+                    if (selectOnFinish && workerLease.isLockedByCurrentThread()) {
+                        // Still holding the state lock and the worker lease, so try to pick up the next item without contending for the state lock again
+                        if (selectNextItem(resourceLockState, next) == FINISHED && next.get() == null) {
+                            noMoreWorkToStart = true;
+                        }
+                    }
+                    return FINISHED;
                 });
+                return next.get();
             } finally {
                 stats.finishMarkFinished();
             }
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.plan;
+
+import org.gradle.cache.IndexedCache;
+import org.gradle.cache.IndexedCacheParameters;
+import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.execution.history.ExecutionHistoryCacheAccess;
+import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+
+/**
+ * Stores the execution time of each task in the execution history cache, keyed by the task's identity path.
+ */
+public class DefaultTaskExecutionTimeHistory implements TaskExecutionTimeHistory {
+    public static final InternalFlag CRITICAL_PATH_PRIORITIZATION = new InternalFlag("org.gradle.internal.executor.critical-path-prioritization");
+
+    private final IndexedCache<String, Long> executionTimes;
+    private final BuildOperationProgressEventEmitter progressEventEmitter;
+
+    public DefaultTaskExecutionTimeHistory(
+        ExecutionHistoryCacheAccess cacheAccess,
+        InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory,
+        BuildOperationProgressEventEmitter progressEventEmitter
+    ) {
+        this.executionTimes = cacheAccess.get().createIndexedCache(
+            IndexedCacheParameters.of("taskExecutionTimes", String.class, BaseSerializerFactory.LONG_SERIALIZER)
+                .withCacheDecorator(inMemoryCacheDecoratorFactory.decorator(10000, false))
+        );
+        this.progressEventEmitter = progressEventEmitter;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public long getPreviousExecutionTime(LocalTaskNode node) {
+        Long executionTime = executionTimes.getIfPresent(keyFor(node));
+        return executionTime == null ? 0 : executionTime;
+    }
+
+    @Override
+    public void recordExecutionTime(LocalTaskNode node, long executionTimeMillis) {
+        executionTimes.put(keyFor(node), executionTimeMillis);
+    }
+
+    @Override
+    public void criticalPathCompleted(String planDisplayName, long predictedCriticalPathMillis, long actualCriticalPathMillis) {
+        progressEventEmitter.emitNowIfCurrent(new ExecutionPlanCriticalPathProgressDetails() {
+            @Override
+            public String getPlanDisplayName() {
+                return planDisplayName;
+            }
+
+            @Override
+            public long getPredictedCriticalPathMillis() {
+                return predictedCriticalPathMillis;
+            }
+
+            @Override
+            public long getActualCriticalPathMillis() {
+                return actualCriticalPathMillis;
+            }
+        });
+    }
+
+    private static String keyFor(LocalTaskNode node) {
+        return node.getTask().getIdentityPath().getPath();
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.plan;
+
+/**
+ * Fired when an execution plan that prioritizes nodes by their critical path has completed.
+ */
+public interface ExecutionPlanCriticalPathProgressDetails {
+    /**
+     * The display name of the execution plan.
+     */
+    String getPlanDisplayName();
+
+    /**
+     * The length in milliseconds of the longest chain of dependent nodes, as predicted from the execution times of previous builds.
+     */
+    long getPredictedCriticalPathMillis();
+
+    /**
+     * The length in milliseconds of the longest chain of dependent nodes, as observed while executing the plan.
+     */
+    long getActualCriticalPathMillis();
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+/**
+ * Remembers how long tasks took to execute in previous builds, so that an execution plan can start the nodes on its critical path first.
+ */
+@ServiceScope(Scope.Build.class)
+public interface TaskExecutionTimeHistory {
+    TaskExecutionTimeHistory NONE = new TaskExecutionTimeHistory() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public long getPreviousExecutionTime(LocalTaskNode node) {
+            return 0;
+        }
+
+        @Override
+        public void recordExecutionTime(LocalTaskNode node, long executionTimeMillis) {
+        }
+
+        @Override
+        public void criticalPathCompleted(String planDisplayName, long predictedCriticalPathMillis, long actualCriticalPathMillis) {
+        }
+    };
+
+    /**
+     * Whether execution times are tracked and used to prioritize nodes.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the time in milliseconds it took to execute the given task the last time it ran, or 0 when not known.
+     */
+    long getPreviousExecutionTime(LocalTaskNode node);
+
+    void recordExecutionTime(LocalTaskNode node, long executionTimeMillis);
+
+    /**
+     * Called when an execution plan has completed, with the length of the critical path predicted from previous execution times and the length of the critical path actually observed.
+     */
+    void criticalPathCompleted(String planDisplayName, long predictedCriticalPathMillis, long actualCriticalPathMillis);
+}
@@ -15,21 +15,32 @@
  */
 package org.gradle.internal.hash;
 
+import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
 import org.gradle.api.internal.changedetection.state.CrossBuildFileHashCache;
 import org.gradle.api.internal.changedetection.state.FileHasherStatistics;
 import org.gradle.api.internal.changedetection.state.FileTimeStampInspector;
+import org.gradle.internal.file.FileMetadata;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Locale;
 
 public class DefaultChecksumService implements ChecksumService {
-    private final CachingFileHasher md5;
-    private final CachingFileHasher sha1;
-    private final CachingFileHasher sha256;
-    private final CachingFileHasher sha512;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Checksum md5;
+    private final Checksum sha1;
+    private final Checksum sha256;
+    private final Checksum sha512;
+    private final FileSystem fileSystem;
 
     public DefaultChecksumService(
         StringInterner stringInterner,
@@ -42,9 +53,10 @@ public DefaultChecksumService(
         sha1 = createCache(stringInterner, fileStore, fileSystem, fileTimeStampInspector, "sha1", Hashing.sha1(), statisticsCollector);
         sha256 = createCache(stringInterner, fileStore, fileSystem, fileTimeStampInspector, "sha256", Hashing.sha256(), statisticsCollector);
         sha512 = createCache(stringInterner, fileStore, fileSystem, fileTimeStampInspector, "sha512", Hashing.sha512(), statisticsCollector);
+        this.fileSystem = fileSystem;
     }
 
-    private CachingFileHasher createCache(
+    private Checksum createCache(
         StringInterner stringInterner,
         CrossBuildFileHashCache fileStore,
         FileSystem fileSystem,
@@ -53,7 +65,8 @@ private CachingFileHasher createCache(
         HashFunction hashFunction,
         FileHasherStatistics.Collector statisticsCollector
     ) {
-        return new CachingFileHasher(new ChecksumHasher(hashFunction), fileStore, stringInterner, fileTimeStampInspector, name + "-checksums", fileSystem, 1000, statisticsCollector);
+        CachingFileHasher cache = new CachingFileHasher(new ChecksumHasher(hashFunction), fileStore, stringInterner, fileTimeStampInspector, name + "-checksums", fileSystem, 1000, statisticsCollector);
+        return new Checksum(hashFunction, cache);
     }
 
     @Override
@@ -78,24 +91,75 @@ public HashCode sha512(File file) {
 
     @Override
     public HashCode hash(File src, String algorithm) {
+        return doHash(src, checksumFor(algorithm));
+    }
+
+    @Override
+    public void precompute(File file, Collection<String> algorithms) {
+        FileMetadata metadata = fileSystem.stat(file);
+        List<Checksum> missing = new ArrayList<>(algorithms.size());
+        for (String algorithm : algorithms) {
+            Checksum checksum = checksumFor(algorithm);
+            if (!missing.contains(checksum) && checksum.cache.getIfCached(file, metadata.getLength(), metadata.getLastModified()) == null) {
+                missing.add(checksum);
+            }
+        }
+        if (missing.size() < 2) {
+            // Nothing to share the read of the file with
+            for (Checksum checksum : missing) {
+                checksum.cache.hash(file, metadata.getLength(), metadata.getLastModified());
+            }
+            return;
+        }
+
+        List<PrimitiveHasher> hashers = new ArrayList<>(missing.size());
+        for (Checksum checksum : missing) {
+            hashers.add(checksum.hashFunction.newPrimitiveHasher());
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = in.read(buffer)) >= 0) {
+                for (PrimitiveHasher hasher : hashers) {
+                    hasher.putBytes(buffer, 0, len);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        for (int i = 0; i < missing.size(); i++) {
+            missing.get(i).cache.put(file, hashers.get(i).hash(), metadata.getLength(), metadata.getLastModified());
+        }
+    }
+
+    private Checksum checksumFor(String algorithm) {
         switch (algorithm.toLowerCase(Locale.ROOT)) {
             case "md5":
-                return md5(src);
+                return md5;
             case "sha1":
             case "sha-1":
-                return sha1(src);
+                return sha1;
             case "sha256":
             case "sha-256":
-                return sha256(src);
+                return sha256;
             case "sha512":
             case "sha-512":
-                return sha512(src);
+                return sha512;
         }
         throw new UnsupportedOperationException("Cannot hash with algorith " + algorithm);
     }
 
-    private HashCode doHash(File file, CachingFileHasher hasher) {
-        return hasher.hash(file);
+    private HashCode doHash(File file, Checksum checksum) {
+        return checksum.cache.hash(file);
     }
 
+    private static class Checksum {
+        private final HashFunction hashFunction;
+        private final CachingFileHasher cache;
+
+        private Checksum(HashFunction hashFunction, CachingFileHasher cache) {
+            this.hashFunction = hashFunction;
+            this.cache = cache;
+        }
+    }
 }
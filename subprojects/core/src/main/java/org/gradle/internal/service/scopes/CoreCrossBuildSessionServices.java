@@ -101,8 +101,8 @@ LoggingBuildOperationProgressBroadcaster createLoggingBuildOperationProgressBroa
     }
 
     @Provides
-    BuildOperationTrace createBuildOperationTrace(BuildOperationListenerManager buildOperationListenerManager, CrossBuildSessionParameters buildSessionParameters) {
-        return new BuildOperationTrace(buildSessionParameters.getStartParameter(), buildOperationListenerManager);
+    BuildOperationTrace createBuildOperationTrace(BuildOperationListenerManager buildOperationListenerManager, CrossBuildSessionParameters buildSessionParameters, ExecutorFactory executorFactory) {
+        return new BuildOperationTrace(buildSessionParameters.getStartParameter(), buildOperationListenerManager, executorFactory);
     }
 
     @Provides
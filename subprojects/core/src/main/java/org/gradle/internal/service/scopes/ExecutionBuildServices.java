@@ -19,11 +19,15 @@
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.DefaultExecutionHistoryCacheAccess;
 import org.gradle.cache.FileLockManager;
+import org.gradle.cache.IndexedCacheBackend;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
 import org.gradle.cache.scopes.BuildScopedCacheBuilderFactory;
 import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.execution.plan.DefaultTaskExecutionTimeHistory;
+import org.gradle.execution.plan.TaskExecutionTimeHistory;
 import org.gradle.initialization.BuildCancellationToken;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.execution.BuildOutputCleanupRegistry;
 import org.gradle.internal.execution.ExecutionEngine;
@@ -97,8 +101,11 @@
 
 public class ExecutionBuildServices implements ServiceRegistrationProvider {
     @Provides
-    ExecutionHistoryCacheAccess createCacheAccess(BuildScopedCacheBuilderFactory cacheBuilderFactory) {
-        return new DefaultExecutionHistoryCacheAccess(cacheBuilderFactory);
+    ExecutionHistoryCacheAccess createCacheAccess(BuildScopedCacheBuilderFactory cacheBuilderFactory, InternalOptions internalOptions) {
+        IndexedCacheBackend indexedCacheBackend = internalOptions.getOption(DefaultExecutionHistoryCacheAccess.MEMORY_MAPPED_CACHE).get()
+            ? IndexedCacheBackend.MEMORY_MAPPED
+            : IndexedCacheBackend.BTREE;
+        return new DefaultExecutionHistoryCacheAccess(cacheBuilderFactory, indexedCacheBackend);
     }
 
     @Provides
@@ -116,6 +123,23 @@ ExecutionHistoryStore createExecutionHistoryStore(
         );
     }
 
+    @Provides
+    TaskExecutionTimeHistory createTaskExecutionTimeHistory(
+        InternalOptions internalOptions,
+        ExecutionHistoryCacheAccess executionHistoryCacheAccess,
+        InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory,
+        BuildOperationProgressEventEmitter progressEventEmitter
+    ) {
+        if (!internalOptions.getOption(DefaultTaskExecutionTimeHistory.CRITICAL_PATH_PRIORITIZATION).get()) {
+            return TaskExecutionTimeHistory.NONE;
+        }
+        return new DefaultTaskExecutionTimeHistory(
+            executionHistoryCacheAccess,
+            inMemoryCacheDecoratorFactory,
+            progressEventEmitter
+        );
+    }
+
     @Provides
     OutputFilesRepository createOutputFilesRepository(BuildScopedCacheBuilderFactory cacheBuilderFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
         PersistentCache cacheAccess = cacheBuilderFactory
@@ -20,6 +20,7 @@
 import net.rubygrapefruit.platform.NativeIntegrationUnavailableException;
 import net.rubygrapefruit.platform.file.FileSystems;
 import org.apache.tools.ant.DirectoryScanner;
+import org.gradle.StartParameter;
 import org.gradle.api.internal.DocumentationRegistry;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.BuildSessionScopeFileTimeStampInspector;
@@ -44,10 +45,13 @@
 import org.gradle.cache.scopes.GlobalScopedCacheBuilderFactory;
 import org.gradle.initialization.RootBuildLifecycleListener;
 import org.gradle.internal.build.BuildAddedListener;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
 import org.gradle.internal.buildoption.IntegerInternalOption;
 import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.classloader.ClasspathHasher;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.execution.FileCollectionFingerprinterRegistry;
 import org.gradle.internal.execution.FileCollectionSnapshotter;
@@ -101,8 +105,11 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.io.File;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Predicate;
 
 import static org.gradle.internal.snapshot.CaseSensitivity.CASE_INSENSITIVE;
@@ -121,6 +128,10 @@ public class VirtualFileSystemServices extends AbstractGradleModuleServices {
     private static final int DEFAULT_MAX_HIERARCHIES_TO_WATCH = 50;
     public static final IntegerInternalOption MAX_HIERARCHIES_TO_WATCH_PROPERTY = new IntegerInternalOption("org.gradle.vfs.watch.hierarchies.max", DEFAULT_MAX_HIERARCHIES_TO_WATCH);
     private static final int FILE_HASHER_MEMORY_CACHE_SIZE = 400000;
+    /**
+     * Walks and hashes the subtrees of large directories in parallel when snapshotting in the build session.
+     */
+    public static final InternalFlag PARALLEL_SNAPSHOTTING = new InternalFlag("org.gradle.internal.vfs.parallel-snapshotting");
 
     public static boolean isDropVfs(InternalOptions options) {
         return options.getOption(VFS_DROP_PROPERTY).get();
@@ -342,6 +353,13 @@ FileHasher createFileHasher(
             return new SplitFileHasher(globalHasher, localHasher, globalCacheLocations);
         }
 
+        @Provides
+        @PrivateService
+        DirectoryWalkExecutor createDirectoryWalkExecutor(ExecutorFactory executorFactory, StartParameter startParameter) {
+            InternalOptions internalOptions = new DefaultInternalOptions(startParameter.getSystemPropertiesArgs());
+            return new DirectoryWalkExecutor(executorFactory, internalOptions.getOption(PARALLEL_SNAPSHOTTING).get());
+        }
+
         @Provides
         FileSystemAccess createFileSystemAccess(
             FileHasher hasher,
@@ -350,7 +368,8 @@ FileSystemAccess createFileSystemAccess(
             StringInterner stringInterner,
             VirtualFileSystem root,
             FileSystemAccess.WriteListener writeListener,
-            DirectorySnapshotterStatistics.Collector statisticsCollector
+            DirectorySnapshotterStatistics.Collector statisticsCollector,
+            DirectoryWalkExecutor directoryWalkExecutor
         ) {
             DefaultFileSystemAccess buildSessionsScopedVirtualFileSystem = new DefaultFileSystemAccess(
                 hasher,
@@ -359,6 +378,7 @@ FileSystemAccess createFileSystemAccess(
                 root,
                 writeListener,
                 statisticsCollector,
+                directoryWalkExecutor.getExecutor(),
                 DirectoryScanner.getDefaultExcludes()
             );
 
@@ -419,4 +439,33 @@ ResourceSnapshotterCacheService createResourceSnapshotterCacheService(
             return new SplitResourceSnapshotterCacheService(globalCache, localCache, globalCacheLocations);
         }
     }
+
+    /**
+     * The bounded executor that the build session's {@link FileSystemAccess} walks directory subtrees on, stopped with the build session.
+     */
+    static class DirectoryWalkExecutor implements Closeable {
+        @Nullable
+        private final ManagedExecutor executor;
+
+        DirectoryWalkExecutor(ExecutorFactory executorFactory, boolean enabled) {
+            this.executor = enabled
+                ? executorFactory.create("Directory snapshotting", Runtime.getRuntime().availableProcessors())
+                : null;
+        }
+
+        /**
+         * Returns the executor to walk subtrees on, or null when directories are walked sequentially.
+         */
+        @Nullable
+        Executor getExecutor() {
+            return executor;
+        }
+
+        @Override
+        public void close() {
+            if (executor != null) {
+                executor.stop();
+            }
+        }
+    }
 }
@@ -121,6 +121,52 @@ class DefaultAttributesFactoryTest extends Specification implements TestsImmutab
         set1 == set2
     }
 
+    def "sets with the same entries in a different order are equal but keep their order"() {
+        when:
+        def set1 = factory.concat(factory.of(FOO, "foo"), BAR, "bar")
+        def set2 = factory.concat(factory.of(BAR, "bar"), FOO, "foo")
+
+        then:
+        set1 == set2
+        set1.hashCode() == set2.hashCode()
+
+        and:
+        factory.concat(set1, BAZ, "baz").keySet() as List == [FOO, BAR, BAZ]
+        factory.concat(set2, BAZ, "baz").keySet() as List == [BAR, FOO, BAZ]
+    }
+
+    def "sets with swapped values are not equal"() {
+        when:
+        def set1 = factory.concat(factory.of(FOO, "a"), BAR, "b")
+        def set2 = factory.concat(factory.of(FOO, "b"), BAR, "a")
+
+        then:
+        set1 != set2
+        set2 != set1
+    }
+
+    def "caches results of merging sets"() {
+        given:
+        def set1 = factory.concat(factory.of(FOO, "foo"), BAR, "bar")
+        def set2 = factory.of(BAZ, "baz")
+
+        expect:
+        factory.concat(set1, set2).is(factory.concat(set1, set2))
+        factory.safeConcat(set1, set2).is(factory.safeConcat(set1, set2))
+        factory.concat(set1, set2) == factory.safeConcat(set1, set2)
+    }
+
+    def "can override values when replacing an attribute"() {
+        given:
+        def set = factory.concat(factory.concat(factory.of(FOO, "foo1"), BAR, "bar"), FOO, "foo2")
+
+        expect:
+        set.keySet() as List == [FOO, BAR]
+        set.getAttribute(FOO) == "foo2"
+        set == factory.concat(factory.of(FOO, "foo2"), BAR, "bar")
+        set.hashCode() == factory.concat(factory.of(FOO, "foo2"), BAR, "bar").hashCode()
+    }
+
     def "can append to a set created with a different factory"() {
         given:
         def otherFactory = new DefaultAttributesFactory(isolatableFactory, instantiator)
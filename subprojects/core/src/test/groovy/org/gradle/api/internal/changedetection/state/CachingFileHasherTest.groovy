@@ -173,4 +173,37 @@ class CachingFileHasherTest extends Specification {
         1 * statisticsCollector.reportFileHashed(length)
         0 * _
     }
+
+    def "returns cached hash only when file is unchanged"() {
+        def stat = fileSystem.stat(file)
+
+        when:
+        def cached = hasher.getIfCached(file, stat.length, stat.lastModified)
+        def changed = hasher.getIfCached(file, stat.length + 1, stat.lastModified)
+
+        then:
+        cached == hash
+        changed == null
+
+        and:
+        2 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        2 * cache.getIfPresent(file.absolutePath) >> new FileInfo(hash, stat.length, stat.lastModified)
+        0 * _
+    }
+
+    def "stores hash calculated by caller"() {
+        def stat = fileSystem.stat(file)
+
+        when:
+        hasher.put(file, hash, stat.length, stat.lastModified)
+
+        then:
+        1 * cache.put(file.absolutePath, _) >> { String key, FileInfo fileInfo ->
+            assert fileInfo.hash == hash
+            assert fileInfo.length == stat.length
+            assert fileInfo.timestamp == stat.lastModified
+        }
+        1 * statisticsCollector.reportFileHashed(stat.length)
+        0 * _
+    }
 }
@@ -17,6 +17,7 @@ package org.gradle.api.internal.changedetection.state
 
 import org.gradle.cache.CacheBuilder
 import org.gradle.cache.FileLockManager
+import org.gradle.cache.IndexedCacheBackend
 import org.gradle.cache.PersistentCache
 import org.gradle.cache.scopes.BuildScopedCacheBuilderFactory
 import spock.lang.Specification
@@ -35,6 +36,23 @@ class DefaultPreviousExecutionCacheAccessTest extends Specification {
         1 * cacheBuilderFactory.createCacheBuilder("executionHistory") >> cacheBuilder
         1 * cacheBuilder.withDisplayName(_) >> cacheBuilder
         1 * cacheBuilder.withInitialLockMode(FileLockManager.LockMode.OnDemand) >> cacheBuilder
+        1 * cacheBuilder.withIndexedCacheBackend(IndexedCacheBackend.BTREE) >> cacheBuilder
+        1 * cacheBuilder.open() >> backingCache
+        0 * _._
+    }
+
+    def "opens backing cache with requested indexed cache backend"() {
+        CacheBuilder cacheBuilder = Mock()
+        PersistentCache backingCache = Mock()
+
+        when:
+        new DefaultExecutionHistoryCacheAccess(cacheBuilderFactory, IndexedCacheBackend.MEMORY_MAPPED)
+
+        then:
+        1 * cacheBuilderFactory.createCacheBuilder("executionHistory") >> cacheBuilder
+        1 * cacheBuilder.withDisplayName(_) >> cacheBuilder
+        1 * cacheBuilder.withInitialLockMode(FileLockManager.LockMode.OnDemand) >> cacheBuilder
+        1 * cacheBuilder.withIndexedCacheBackend(IndexedCacheBackend.MEMORY_MAPPED) >> cacheBuilder
         1 * cacheBuilder.open() >> backingCache
         0 * _._
     }
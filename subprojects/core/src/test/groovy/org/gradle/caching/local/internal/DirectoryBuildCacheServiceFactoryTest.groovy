@@ -28,6 +28,7 @@ import org.gradle.cache.UnscopedCacheBuilderFactory
 import org.gradle.cache.scopes.GlobalScopedCacheBuilderFactory
 import org.gradle.caching.BuildCacheServiceFactory
 import org.gradle.caching.local.DirectoryBuildCache
+import org.gradle.internal.buildoption.DefaultInternalOptions
 import org.gradle.internal.file.FileAccessTimeJournal
 import org.gradle.test.fixtures.file.CleanupTestDirectory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -49,7 +50,8 @@ class DirectoryBuildCacheServiceFactoryTest extends Specification {
     }
     def cacheConfigurations = Mock(CacheConfigurationsInternal)
     def cacheCleanupStrategyFactory = Mock(CacheCleanupStrategyFactory)
-    def factory = new DirectoryBuildCacheServiceFactory(cacheRepository, globalScopedCache, resolver, fileAccessTimeJournal, cacheConfigurations, cacheCleanupStrategyFactory)
+    def internalOptions = new DefaultInternalOptions([:])
+    def factory = new DirectoryBuildCacheServiceFactory(cacheRepository, globalScopedCache, resolver, fileAccessTimeJournal, cacheConfigurations, cacheCleanupStrategyFactory, internalOptions)
     def cacheBuilder = Stub(CacheBuilder)
     def config = Mock(DirectoryBuildCache)
     def buildCacheDescriber = new NoopBuildCacheDescriber()
@@ -88,6 +90,25 @@ class DirectoryBuildCacheServiceFactoryTest extends Specification {
         0 * _
     }
 
+    def "uses separate default directory for content-addressed layout"() {
+        def cacheDir = temporaryFolder.file("build-cache-1-content-addressed")
+        def contentAddressedFactory = new DirectoryBuildCacheServiceFactory(cacheRepository, globalScopedCache, resolver, fileAccessTimeJournal, cacheConfigurations, cacheCleanupStrategyFactory,
+            new DefaultInternalOptions([(DirectoryBuildCacheServiceFactory.CONTENT_ADDRESSED_LAYOUT.systemPropertyName): "true"]))
+
+        when:
+        def service = contentAddressedFactory.createBuildCacheService(config, buildCacheDescriber)
+        then:
+        service instanceof DirectoryBuildCacheService
+        1 * config.getDirectory() >> null
+        1 * config.getRemoveUnusedEntriesAfterDays() >> 10
+        1 * globalScopedCache.baseDirForCrossVersionCache("build-cache-1-content-addressed") >> cacheDir
+        1 * cacheRepository.cache(cacheDir) >> cacheBuilder
+        1 * cacheConfigurations.getCleanup() >> cacheCleanup
+        1 * cacheConfigurations.getCleanupFrequency() >> Mock(Provider)
+        1 * cacheCleanupStrategyFactory.create({ it instanceof ContentAddressedBuildCacheCleanup }, _) >> Mock(CacheCleanupStrategy)
+        0 * _
+    }
+
     private class NoopBuildCacheDescriber implements BuildCacheServiceFactory.Describer {
 
         @Override
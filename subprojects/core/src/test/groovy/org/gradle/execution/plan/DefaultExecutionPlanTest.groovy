@@ -20,6 +20,7 @@ import org.gradle.api.BuildCancelledException
 import org.gradle.api.CircularReferenceException
 import org.gradle.api.Task
 import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.tasks.TaskExecutionOutcome
 import org.gradle.api.internal.tasks.WorkNodeAction
 import org.gradle.api.specs.Spec
 import org.gradle.api.tasks.TaskDependency
@@ -127,6 +128,99 @@ class DefaultExecutionPlanTest extends AbstractExecutionPlanSpec {
         orderingRule << ['mustRunAfter', 'shouldRunAfter']
     }
 
+    def "starts ready tasks with the longest chain of dependent tasks first when previous execution times are known"() {
+        given:
+        def executionTimeHistory = Stub(TaskExecutionTimeHistory) {
+            isEnabled() >> true
+            getPreviousExecutionTime(_) >> 10
+        }
+        executionPlan.close()
+        executionPlan = new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, new OrdinalGroupFactory(), dependencyResolver, accessHierarchies.outputHierarchy, accessHierarchies.destroyableHierarchy, coordinator, executionTimeHistory)
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c")
+        Task d = task("d", dependsOn: [c])
+        Task e = task("e", dependsOn: [d])
+
+        when:
+        addToGraphAndPopulate([a, b, e])
+
+        then:
+        executionPlan.tasks as List == [a, b, c, d, e]
+        executedTasks == [c, d, a, b, e]
+    }
+
+    def "starts ready tasks with a longer previous execution time first"() {
+        given:
+        def executionTimeHistory = Stub(TaskExecutionTimeHistory) {
+            isEnabled() >> true
+            getPreviousExecutionTime(_) >> { LocalTaskNode node -> previousExecutionTimes[node.task.name] }
+        }
+        executionPlan.close()
+        executionPlan = new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, new OrdinalGroupFactory(), dependencyResolver, accessHierarchies.outputHierarchy, accessHierarchies.destroyableHierarchy, coordinator, executionTimeHistory)
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c")
+
+        when:
+        addToGraphAndPopulate([a, b, c])
+
+        then:
+        executedTasks == expected.collect { [a: a, b: b, c: c][it] }
+
+        where:
+        previousExecutionTimes   | expected
+        [a: 0, b: 0, c: 0]       | ["a", "b", "c"]
+        [a: 1, b: 5, c: 10]      | ["c", "b", "a"]
+        [a: 10, b: 10, c: 20]    | ["c", "a", "b"]
+    }
+
+    def "records execution time of tasks that actually executed"() {
+        given:
+        def executionTimeHistory = Mock(TaskExecutionTimeHistory) {
+            isEnabled() >> true
+        }
+        executionPlan.close()
+        executionPlan = new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, new OrdinalGroupFactory(), dependencyResolver, accessHierarchies.outputHierarchy, accessHierarchies.destroyableHierarchy, coordinator, executionTimeHistory)
+        Task a = task("a")
+        a.state.outcome >> outcome
+
+        when:
+        addToGraphAndPopulate([a])
+        executedTasks
+
+        then:
+        recorded * executionTimeHistory.recordExecutionTime({ it.task == a }, _)
+
+        where:
+        outcome                           | recorded
+        TaskExecutionOutcome.EXECUTED     | 1
+        TaskExecutionOutcome.UP_TO_DATE   | 0
+        TaskExecutionOutcome.FROM_CACHE   | 0
+        TaskExecutionOutcome.SKIPPED      | 0
+        TaskExecutionOutcome.NO_SOURCE    | 0
+    }
+
+    def "reports predicted and actual critical path when plan is closed"() {
+        given:
+        def executionTimeHistory = Mock(TaskExecutionTimeHistory) {
+            isEnabled() >> true
+            getPreviousExecutionTime(_) >> 10
+        }
+        executionPlan.close()
+        executionPlan = new DefaultExecutionPlan(Path.ROOT.toString(), taskNodeFactory, new OrdinalGroupFactory(), dependencyResolver, accessHierarchies.outputHierarchy, accessHierarchies.destroyableHierarchy, coordinator, executionTimeHistory)
+        Task a = task("a")
+        Task b = task("b", dependsOn: [a])
+
+        when:
+        addToGraphAndPopulate([b])
+        executedTasks
+        finalizedPlan.close()
+
+        then:
+        1 * executionTimeHistory.criticalPathCompleted(Path.ROOT.toString(), 20, { it >= 0 })
+    }
+
     def "common tasks in separate batches are schedules only once"() {
         Task a = task("a")
         Task b = task("b")
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.changedetection.state.CrossBuildFileHashCache
+import org.gradle.api.internal.changedetection.state.FileHasherStatistics
+import org.gradle.api.internal.changedetection.state.FileTimeStampInspector
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.cache.IndexedCacheParameters
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testfixtures.internal.TestInMemoryIndexedCache
+import org.junit.Rule
+import spock.lang.Specification
+
+class DefaultChecksumServiceTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+    def fileStore = Stub(CrossBuildFileHashCache) {
+        createIndexedCache(_, _, _) >> { IndexedCacheParameters parameters, int maxEntries, boolean inMemory ->
+            new TestInMemoryIndexedCache(parameters.valueSerializer)
+        }
+    }
+    def timeStampInspector = Stub(FileTimeStampInspector) {
+        timestampCanBeUsedToDetectFileChange(_, _) >> true
+    }
+    def checksumService = new DefaultChecksumService(new StringInterner(), fileStore, TestFiles.fileSystem(), timeStampInspector, Stub(FileHasherStatistics.Collector))
+    def file = tmpDir.file("artifact.jar")
+
+    def "precomputes the same checksums as hashing the file with each algorithm"() {
+        // Larger than the read buffer
+        def content = new byte[200 * 1024]
+        new Random(42).nextBytes(content)
+        file.bytes = content
+
+        when:
+        checksumService.precompute(file, ["SHA-256", "sha512", "sha1"])
+
+        then:
+        checksumService.sha256(file) == Hashing.sha256().hashBytes(content)
+        checksumService.sha512(file) == Hashing.sha512().hashBytes(content)
+        checksumService.sha1(file) == Hashing.sha1().hashBytes(content)
+    }
+
+    def "later checksum requests use the precomputed checksums"() {
+        file.text = "original"
+
+        when:
+        checksumService.precompute(file, ["sha256", "sha512"])
+        changeContentKeepingMetadata(file, "modified")
+
+        then:
+        checksumService.sha256(file) == Hashing.sha256().hashBytes("original".bytes)
+        checksumService.sha512(file) == Hashing.sha512().hashBytes("original".bytes)
+        checksumService.md5(file) == Hashing.md5().hashBytes("modified".bytes)
+    }
+
+    def "does not recompute checksums that are already cached"() {
+        file.text = "original"
+        def sha256 = checksumService.sha256(file)
+        changeContentKeepingMetadata(file, "modified")
+
+        when:
+        checksumService.precompute(file, ["sha256", "sha512"])
+
+        then:
+        checksumService.sha256(file) == sha256
+        checksumService.sha512(file) == Hashing.sha512().hashBytes("modified".bytes)
+    }
+
+    private static void changeContentKeepingMetadata(TestFile file, String content) {
+        def lastModified = file.lastModified()
+        assert file.length() == content.length()
+        file.text = content
+        file.setLastModified(lastModified)
+    }
+}
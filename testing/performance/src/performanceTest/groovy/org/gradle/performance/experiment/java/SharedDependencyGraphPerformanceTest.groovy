@@ -0,0 +1,94 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance.experiment.java
+
+import org.gradle.performance.AbstractCrossBuildPerformanceTest
+import org.gradle.performance.annotations.RunFor
+import org.gradle.performance.annotations.Scenario
+import org.gradle.performance.fixture.GradleBuildExperimentSpec
+
+import static org.gradle.integtests.tooling.fixture.TextUtil.escapeString
+import static org.gradle.performance.annotations.ScenarioType.PER_WEEK
+import static org.gradle.performance.results.OperatingSystem.LINUX
+
+@RunFor(
+    @Scenario(type = PER_WEEK, operatingSystems = [LINUX], testProjects = ["largeJavaMultiProject"])
+)
+class SharedDependencyGraphPerformanceTest extends AbstractCrossBuildPerformanceTest {
+
+    def "resolve equivalent external classpaths of all projects"() {
+        given:
+        runner.testGroup = "dependency resolution"
+        runner.buildSpec {
+            displayName("shared graphs")
+            invocation {
+                args("-Dorg.gradle.dependency.resolution.share-equivalent-graphs=true")
+            }
+        }
+        runner.baseline {
+            displayName("independent graphs")
+            invocation {
+                args("-Dorg.gradle.dependency.resolution.share-equivalent-graphs=false")
+            }
+        }
+
+        when:
+        def results = runner.run()
+
+        then:
+        results
+    }
+
+    @Override
+    protected void defaultSpec(GradleBuildExperimentSpec.GradleBuilder builder) {
+        super.defaultSpec(builder)
+        // Only the external dependencies of each project are resolved, as graphs with project dependencies are never shared
+        def initScript = temporaryFolder.file("external-classpath.gradle")
+        initScript.text = """
+            allprojects {
+                pluginManager.withPlugin("java") {
+                    def compileClasspath = configurations.compileClasspath
+                    def externalClasspath = configurations.create("externalClasspath") {
+                        canBeConsumed = false
+                        attributes { attrs ->
+                            compileClasspath.attributes.keySet().each { key ->
+                                attrs.attribute(key, compileClasspath.attributes.getAttribute(key))
+                            }
+                        }
+                        withDependencies { dependencies ->
+                            compileClasspath.allDependencies.withType(ExternalModuleDependency).each {
+                                dependencies.add(it.copy())
+                            }
+                        }
+                    }
+                    def root = externalClasspath.incoming.resolutionResult.rootComponent
+                    tasks.register("resolveExternalClasspath") {
+                        doLast {
+                            root.get()
+                        }
+                    }
+                }
+            }
+        """.stripIndent()
+        builder.warmUpCount = 2
+        builder.invocationCount = 5
+        builder.invocation {
+            args("--init-script", escapeString(initScript.absolutePath))
+            tasksToRun("resolveExternalClasspath")
+        }
+    }
+}
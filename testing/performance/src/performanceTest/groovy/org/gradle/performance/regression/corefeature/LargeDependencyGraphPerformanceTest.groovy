@@ -45,6 +45,39 @@ class LargeDependencyGraphPerformanceTest extends AbstractCrossVersionPerformanc
         result.assertCurrentVersionHasNotRegressed()
     }
 
+    def "resolve large dependency graph from file repo with constrained heap"() {
+        given:
+        runner.tasksToRun = ['resolveDependencies']
+        runner.args = ["-PnoExcludes"]
+        // A small heap makes per-node and per-edge allocations show up as GC time
+        runner.gradleOpts.addAll(["-Xms256m", "-Xmx256m"])
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+    }
+
+    def "resolve large dependency graph from warm persistent metadata cache"() {
+        startServer()
+
+        given:
+        runner.tasksToRun = ['resolveDependencies']
+        runner.args = ['-PuseHttp', "-PhttpPort=${serverPort}", '-PnoExcludes']
+        // A fresh process per build has an empty in-memory metadata cache, so every module is read from the module metadata store
+        runner.useDaemon = false
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+
+        cleanup:
+        stopServer()
+    }
+
     def "resolve large dependency graph (parallel = #parallel, locking = #locking)"() {
         startServer()
 